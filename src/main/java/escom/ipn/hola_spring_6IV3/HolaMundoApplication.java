@@ -2,10 +2,13 @@ package escom.ipn.hola_spring_6IV3;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import io.github.cdimascio.dotenv.Dotenv;
 
 @SpringBootApplication
+// Habilita las tareas periódicas (@Scheduled)
+@EnableScheduling
 public class HolaMundoApplication {
 
     public static void main(String[] args) {
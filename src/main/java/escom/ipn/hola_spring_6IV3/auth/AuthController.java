@@ -1,14 +1,20 @@
 package escom.ipn.hola_spring_6IV3.auth;
 
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import escom.ipn.hola_spring_6IV3.dtos.LoginRequest;
 import escom.ipn.hola_spring_6IV3.dtos.RegisterRequest;
 import escom.ipn.hola_spring_6IV3.dtos.JwtResponse;
+import escom.ipn.hola_spring_6IV3.exception.HashingCapacityExceededException;
 import escom.ipn.hola_spring_6IV3.service.AuthService;
 import lombok.RequiredArgsConstructor;
 
@@ -19,25 +25,49 @@ public class AuthController {
 
     private final AuthService authService;
 
-    // Registro de usuario con manejo de excepciones
+    // Registro de usuario con manejo de excepciones; el hilo de Tomcat se libera mientras se calcula el hash
     @PostMapping("/register")
-    public ResponseEntity<?> registerUser(@RequestBody RegisterRequest request) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@RequestBody RegisterRequest request) {
         try {
-            authService.registerUser(request);
-            return ResponseEntity.ok().build();
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+            return authService.registerUserAsync(request)
+                    .<ResponseEntity<?>>thenApply(jwtResponse -> ResponseEntity.ok().build())
+                    .exceptionally(e -> ResponseEntity.badRequest().body("Error: " + rootMessage(e)));
+        } catch (HashingCapacityExceededException e) {
+            return CompletableFuture.completedFuture(serviceUnavailable(e));
         }
     }
 
-    // Login de usuario con manejo de excepciones
+    // Login de usuario con manejo de excepciones; si el ejecutor de hashing está lleno responde 503 al instante
     @PostMapping("/login")
-    public ResponseEntity<JwtResponse> loginUser(@RequestBody LoginRequest request) {
+    public CompletableFuture<ResponseEntity<JwtResponse>> loginUser(@RequestBody LoginRequest request) {
+        try {
+            return authService.loginUserAsync(request)
+                    .thenApply(ResponseEntity::ok)
+                    .exceptionally(e -> ResponseEntity.status(401).body(null));
+        } catch (HashingCapacityExceededException e) {
+            return CompletableFuture.completedFuture(serviceUnavailable(e));
+        }
+    }
+
+    private static <T> ResponseEntity<T> serviceUnavailable(HashingCapacityExceededException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
+    }
+
+    // Los fallos del CompletableFuture llegan envueltos en CompletionException
+    private static String rootMessage(Throwable e) {
+        return e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+    }
+
+    // Logout: revoca el token actual hasta su expiración
+    @PostMapping("/logout")
+    public ResponseEntity<?> logoutUser(@RequestHeader("Authorization") String token) {
         try {
-            JwtResponse jwtResponse = authService.loginUser(request);
-            return ResponseEntity.ok(jwtResponse);
+            authService.logoutUser(token);
+            return ResponseEntity.ok().build();
         } catch (Exception e) {
-            return ResponseEntity.status(401).body(null);
+            return ResponseEntity.status(401).body("Error: " + e.getMessage());
         }
     }
 }
@@ -0,0 +1,128 @@
+package escom.ipn.hola_spring_6IV3.catalog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Catálogo local de obras y autores de OpenLibrary en disco (ver MappedRecordStore).
+ * Sobrevive a los reinicios: al arrancar solo se proyectan los archivos, sin cargar nada en el heap.
+ * Las búsquedas por id son una sonda en la tabla hash proyectada y una vista sobre el segmento.
+ */
+@Component
+public class BookCatalog {
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int initialSlots;
+    private MappedRecordStore works;
+    private MappedRecordStore authors;
+
+    public BookCatalog(
+            @Value("${catalog.dir:data/catalog}") Path directory,
+            @Value("${catalog.segment-size:256MB}") DataSize segmentSize,
+            @Value("${catalog.initial-slots:65536}") int initialSlots) {
+        this.directory = directory;
+        this.segmentSize = (int) Math.min(segmentSize.toBytes(), Integer.MAX_VALUE);
+        this.initialSlots = initialSlots;
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        long startedAt = System.nanoTime();
+        works = new MappedRecordStore(directory.resolve("works"), "works", segmentSize, initialSlots);
+        authors = new MappedRecordStore(directory.resolve("authors"), "authors", segmentSize, initialSlots);
+        System.out.printf("Catálogo abierto en %s: %d obras y %d autores en %d ms%n", directory.toAbsolutePath(),
+                works.size(), authors.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    public Optional<CatalogWork> findWork(String workId) {
+        ByteBuffer payload = isValidKey(workId) ? works.get(workId) : null;
+        return payload == null ? Optional.empty() : Optional.of(CatalogCodec.decodeWork(payload));
+    }
+
+    public Optional<CatalogAuthor> findAuthor(String authorId) {
+        ByteBuffer payload = isValidKey(authorId) ? authors.get(authorId) : null;
+        return payload == null ? Optional.empty() : Optional.of(CatalogCodec.decodeAuthor(payload));
+    }
+
+    /**
+     * Recorre las obras del catálogo hasta que visitor devuelve false
+     */
+    public void forEachWork(Predicate<CatalogWork> visitor) {
+        works.forEach((key, payload) -> visitor.test(CatalogCodec.decodeWork(payload)));
+    }
+
+    /**
+     * Recorre los autores del catálogo hasta que visitor devuelve false
+     */
+    public void forEachAuthor(Predicate<CatalogAuthor> visitor) {
+        authors.forEach((key, payload) -> visitor.test(CatalogCodec.decodeAuthor(payload)));
+    }
+
+    public boolean containsWork(String workId) {
+        return isValidKey(workId) && works.contains(workId);
+    }
+
+    public void putWork(CatalogWork work) {
+        try {
+            works.put(work.workId(), CatalogCodec.encode(work));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void putAuthor(CatalogAuthor author) {
+        try {
+            authors.put(author.authorId(), CatalogCodec.encode(author));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Ids que el catálogo puede guardar (ASCII, 1..40 caracteres)
+    public static boolean isValidKey(String id) {
+        if (id == null || id.isEmpty() || id.length() > MappedRecordStore.MAX_KEY_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) > 127) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("directory", directory.toAbsolutePath().toString());
+        stats.put("works", works.getStats());
+        stats.put("authors", authors.getStats());
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.flush-interval-millis:30000}")
+    public void flush() {
+        works.force();
+        authors.force();
+    }
+
+    @PreDestroy
+    void close() {
+        works.close();
+        authors.close();
+    }
+}
@@ -0,0 +1,9 @@
+package escom.ipn.hola_spring_6IV3.catalog;
+
+/**
+ * Autor del catálogo local
+ *
+ * @param authorId id de OpenLibrary sin prefijo (p. ej. OL34184A)
+ */
+public record CatalogAuthor(String authorId, String name, String birthDate, String deathDate) {
+}
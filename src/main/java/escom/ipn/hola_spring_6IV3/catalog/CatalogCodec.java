@@ -0,0 +1,142 @@
+package escom.ipn.hola_spring_6IV3.catalog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Codificación binaria compacta de obras y autores para MappedRecordStore.
+ * Cadenas como [short longitud][UTF-8] (-1 = null), listas como [short número][cadenas],
+ * enteros opcionales como [int] con Integer.MIN_VALUE = null. El primer byte es la versión del formato.
+ */
+final class CatalogCodec {
+
+    private static final byte VERSION = 1;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final int MAX_STRING_BYTES = Short.MAX_VALUE;
+    private static final int MAX_LIST_SIZE = 200;
+
+    private CatalogCodec() {
+    }
+
+    static byte[] encode(CatalogWork work) {
+        return write(out -> {
+            writeString(out, work.workId());
+            writeString(out, work.title());
+            writeList(out, work.subjects());
+            out.writeInt(work.firstPublishYear() == null ? NULL_INT : work.firstPublishYear());
+            writeList(out, work.authorKeys());
+            writeString(out, work.coverId());
+        });
+    }
+
+    static CatalogWork decodeWork(ByteBuffer payload) {
+        ByteBuffer in = bigEndian(payload);
+        checkVersion(in);
+        String workId = readString(in);
+        String title = readString(in);
+        List<String> subjects = readList(in);
+        int year = in.getInt();
+        List<String> authorKeys = readList(in);
+        String coverId = readString(in);
+        return new CatalogWork(workId, title, subjects, year == NULL_INT ? null : year, authorKeys, coverId);
+    }
+
+    static byte[] encode(CatalogAuthor author) {
+        return write(out -> {
+            writeString(out, author.authorId());
+            writeString(out, author.name());
+            writeString(out, author.birthDate());
+            writeString(out, author.deathDate());
+        });
+    }
+
+    static CatalogAuthor decodeAuthor(ByteBuffer payload) {
+        ByteBuffer in = bigEndian(payload);
+        checkVersion(in);
+        return new CatalogAuthor(readString(in), readString(in), readString(in), readString(in));
+    }
+
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] write(Body body) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            body.write(out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Se escribe en big endian (DataOutputStream); la vista del almacén puede venir en otro orden
+    private static ByteBuffer bigEndian(ByteBuffer payload) {
+        return payload.duplicate().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    private static void checkVersion(ByteBuffer in) {
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalStateException("Versión de registro de catálogo no soportada: " + version);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_STRING_BYTES);
+        out.writeShort(length);
+        out.write(bytes, 0, length);
+    }
+
+    private static void writeList(DataOutputStream out, List<String> values) throws IOException {
+        int size = values == null ? 0 : Math.min(values.size(), MAX_LIST_SIZE);
+        out.writeShort(size);
+        for (int i = 0; i < size; i++) {
+            writeString(out, values.get(i));
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        short length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(in.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static List<String> readList(ByteBuffer in) {
+        int size = in.getShort();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String value = readString(in);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return List.copyOf(values);
+    }
+}
@@ -0,0 +1,15 @@
+package escom.ipn.hola_spring_6IV3.catalog;
+
+import java.util.List;
+
+/**
+ * Obra del catálogo local: lo que Favorite no guarda y antes había que pedir a OpenLibrary
+ *
+ * @param workId           id de OpenLibrary sin prefijo (p. ej. OL45804W)
+ * @param firstPublishYear año de primera publicación, o null si no se conoce
+ * @param authorKeys       ids de autor sin prefijo (p. ej. OL34184A)
+ * @param coverId          id de la primera portada, o null
+ */
+public record CatalogWork(String workId, String title, List<String> subjects, Integer firstPublishYear,
+        List<String> authorKeys, String coverId) {
+}
@@ -0,0 +1,475 @@
+package escom.ipn.hola_spring_6IV3.catalog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiPredicate;
+import java.util.function.LongPredicate;
+import java.util.stream.Stream;
+
+/**
+ * Almacén clave → bytes en disco, fuera del heap y persistente entre reinicios.
+ *
+ * Datos: segmentos append-only de tamaño fijo proyectados en memoria. Cada registro es
+ * [int longitud][byte longitud de clave][clave][payload]; la cabecera del segmento guarda
+ * hasta dónde están confirmados los datos.
+ *
+ * Índice: tabla hash de direccionamiento abierto proyectada en memoria, con casillas de 64 bytes:
+ * [long hash][long posición (segmento << 32 | offset)][byte longitud de clave][clave ASCII de hasta 40 bytes].
+ * Las lecturas no toman locks: la casilla se publica escribiendo el hash el último (release/acquire),
+ * y devuelven una vista de solo lectura del payload sin copiarlo. Las escrituras se serializan.
+ * Al abrir se indexan los registros escritos después de la última posición indexada, así que
+ * un cierre abrupto no pierde registros ya confirmados en el segmento.
+ * Tras una caída del sistema el kernel puede haber escrito las páginas en cualquier orden: el índice
+ * puede apuntar más allá de lo confirmado en un segmento. Esas casillas se descartan al abrir.
+ */
+public class MappedRecordStore implements Closeable {
+
+    public static final int MAX_KEY_LENGTH = 40;
+
+    private static final int MAGIC = 0x4F4C4342; // "OLCB"
+    private static final int VERSION = 1;
+    private static final int SLOT_SIZE = 64;
+    private static final int HEADER_SIZE = 64;
+    private static final double MAX_LOAD = 0.7;
+
+    // Cabecera del índice
+    private static final int INDEX_SLOTS = 8;
+    private static final int INDEX_SIZE = 16;
+    private static final int INDEX_NEXT_SEGMENT = 24;
+    private static final int INDEX_NEXT_OFFSET = 32;
+    // Cabecera de cada segmento
+    private static final int SEGMENT_COMMITTED = 8;
+    // Campos de cada casilla del índice
+    private static final int SLOT_HASH = 0;
+    private static final int SLOT_LOCATION = 8;
+    private static final int SLOT_KEY_LENGTH = 16;
+    private static final int SLOT_KEY = 17;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path directory;
+    private final String name;
+    private final int segmentSize;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private volatile Index index;
+
+    public MappedRecordStore(Path directory, String name, int segmentSize, int initialSlots) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        openSegments();
+        Path indexPath = indexPath();
+        this.index = Files.exists(indexPath)
+                ? Index.open(indexPath)
+                : Index.create(indexPath, Integer.highestOneBit(Math.max(64, initialSlots - 1)) << 1);
+        recover();
+    }
+
+    /**
+     * Payload guardado para la clave como vista de solo lectura sobre el archivo, o null si no existe
+     */
+    public ByteBuffer get(String key) {
+        byte[] keyBytes = keyBytes(key);
+        long hash = hash(keyBytes);
+        Index current = index;
+        int slot = current.find(keyBytes, hash);
+        if (slot < 0) {
+            return null;
+        }
+        return payload((long) LONGS.getAcquire(current.buffer, current.slotOffset(slot) + SLOT_LOCATION));
+    }
+
+    public boolean contains(String key) {
+        byte[] keyBytes = keyBytes(key);
+        return index.find(keyBytes, hash(keyBytes)) >= 0;
+    }
+
+    /**
+     * Añade el registro al final del segmento activo y apunta la clave a él; una clave repetida
+     * pasa a apuntar a la versión nueva (la anterior queda como espacio muerto en el segmento)
+     */
+    public synchronized void put(String key, byte[] payload) throws IOException {
+        byte[] keyBytes = keyBytes(key);
+        int recordLength = 4 + 1 + keyBytes.length + payload.length;
+        if (recordLength > segmentSize - HEADER_SIZE) {
+            throw new IllegalArgumentException("Registro demasiado grande para un segmento: " + recordLength + " bytes");
+        }
+        int segmentNumber = segments.size() - 1;
+        MappedByteBuffer segment = segments.get(segmentNumber);
+        long committed = (long) LONGS.getAcquire(segment, SEGMENT_COMMITTED);
+        if (committed + recordLength > segmentSize) {
+            segment = createSegment(segmentNumber + 1);
+            segmentNumber++;
+            committed = HEADER_SIZE;
+        }
+
+        int offset = (int) committed;
+        segment.putInt(offset, recordLength);
+        segment.put(offset + 4, (byte) keyBytes.length);
+        segment.put(offset + 5, keyBytes);
+        segment.put(offset + 5 + keyBytes.length, payload);
+        LONGS.setRelease(segment, SEGMENT_COMMITTED, committed + recordLength);
+
+        indexRecord(keyBytes, location(segmentNumber, offset));
+        index.setNextPosition(segmentNumber, committed + recordLength);
+    }
+
+    /**
+     * Vuelca a disco los segmentos y el índice
+     */
+    public synchronized void force() {
+        segments.forEach(MappedByteBuffer::force);
+        index.buffer.force();
+    }
+
+    public long size() {
+        return index.size();
+    }
+
+    /**
+     * Recorre la última versión de cada clave, en el orden de la tabla hash, hasta que visitor devuelve false.
+     * No bloquea a los escritores: lo añadido durante el recorrido puede aparecer o no
+     */
+    public void forEach(BiPredicate<String, ByteBuffer> visitor) {
+        Index current = index;
+        for (int slot = 0; slot < current.slots; slot++) {
+            int base = current.slotOffset(slot);
+            if ((long) LONGS.getAcquire(current.buffer, base + SLOT_HASH) == 0) {
+                continue;
+            }
+            byte[] key = new byte[current.buffer.get(base + SLOT_KEY_LENGTH)];
+            current.buffer.get(base + SLOT_KEY, key);
+            long location = (long) LONGS.getAcquire(current.buffer, base + SLOT_LOCATION);
+            if (!visitor.test(new String(key, StandardCharsets.US_ASCII), payload(location))) {
+                return;
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Index current = index;
+        long dataBytes = 0;
+        for (MappedByteBuffer segment : segments) {
+            dataBytes += (long) LONGS.getAcquire(segment, SEGMENT_COMMITTED) - HEADER_SIZE;
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", current.size());
+        stats.put("slots", current.slots);
+        stats.put("loadFactor", current.size() / (double) current.slots);
+        stats.put("segments", segments.size());
+        stats.put("dataBytes", dataBytes);
+        stats.put("indexBytes", (long) HEADER_SIZE + (long) current.slots * SLOT_SIZE);
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    private ByteBuffer payload(long location) {
+        MappedByteBuffer segment = segments.get((int) (location >>> 32));
+        int offset = (int) location;
+        int recordLength = segment.getInt(offset);
+        int keyLength = segment.get(offset + 4);
+        int payloadOffset = offset + 5 + keyLength;
+        return segment.slice(payloadOffset, recordLength - 5 - keyLength).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void indexRecord(byte[] keyBytes, long location) throws IOException {
+        long hash = hash(keyBytes);
+        if (index.upsert(keyBytes, hash, location) && index.size() > index.slots * MAX_LOAD) {
+            grow();
+        }
+    }
+
+    private void grow() throws IOException {
+        rebuild(index.slots * 2, location -> true);
+    }
+
+    // Reconstruye el índice con las casillas cuya posición acepta keep y lo sustituye con un rename atómico.
+    // Los lectores que aún usan el índice anterior siguen viendo una proyección válida
+    private void rebuild(int slots, LongPredicate keep) throws IOException {
+        Index current = index;
+        Path tmp = directory.resolve(name + ".idx.tmp");
+        Files.deleteIfExists(tmp);
+        Index rebuilt = Index.create(tmp, slots);
+        for (int slot = 0; slot < current.slots; slot++) {
+            int base = current.slotOffset(slot);
+            long hash = (long) LONGS.getAcquire(current.buffer, base + SLOT_HASH);
+            long location = (long) LONGS.getAcquire(current.buffer, base + SLOT_LOCATION);
+            if (hash != 0 && keep.test(location)) {
+                byte[] key = new byte[current.buffer.get(base + SLOT_KEY_LENGTH)];
+                current.buffer.get(base + SLOT_KEY, key);
+                rebuilt.upsert(key, hash, location);
+            }
+        }
+        rebuilt.setNextPosition(current.buffer.getInt(INDEX_NEXT_SEGMENT), current.buffer.getLong(INDEX_NEXT_OFFSET));
+        rebuilt.buffer.force();
+        Files.move(tmp, indexPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        index = rebuilt;
+    }
+
+    private void openSegments() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.filter(path -> path.getFileName().toString().matches(name + "-\\d{5}\\.dat"))
+                    .sorted()
+                    .forEach(files::add);
+        }
+        for (Path file : files) {
+            MappedByteBuffer segment = map(file, segmentSize);
+            if (segment.getInt(0) == 0) {
+                // Creado justo antes de una caída sin que su cabecera llegara a disco: se trata como vacío
+                initSegment(segment);
+            } else if (segment.getInt(0) != MAGIC) {
+                throw new IOException("Segmento de catálogo corrupto: " + file);
+            }
+            segments.add(segment);
+        }
+        if (segments.isEmpty()) {
+            createSegment(0);
+        }
+    }
+
+    private MappedByteBuffer createSegment(int number) throws IOException {
+        MappedByteBuffer segment = map(directory.resolve(String.format("%s-%05d.dat", name, number)), segmentSize);
+        initSegment(segment);
+        segments.add(segment);
+        return segment;
+    }
+
+    private static void initSegment(MappedByteBuffer segment) {
+        segment.putInt(0, MAGIC);
+        segment.putInt(4, VERSION);
+        LONGS.setRelease(segment, SEGMENT_COMMITTED, (long) HEADER_SIZE);
+    }
+
+    // Indexa los registros confirmados después de la última posición indexada (cierre abrupto) y después
+    // descarta las casillas que apuntan a datos no confirmados (caída del sistema con páginas sin escribir)
+    private void recover() throws IOException {
+        int segmentNumber = index.buffer.getInt(INDEX_NEXT_SEGMENT);
+        long offset = Math.max(HEADER_SIZE, index.buffer.getLong(INDEX_NEXT_OFFSET));
+        if (segmentNumber >= segments.size()) {
+            // El índice llegó a disco y el segmento no: se vuelve a recorrer el último entero
+            segmentNumber = segments.size() - 1;
+            offset = HEADER_SIZE;
+        }
+        for (; segmentNumber < segments.size(); segmentNumber++, offset = HEADER_SIZE) {
+            MappedByteBuffer segment = segments.get(segmentNumber);
+            long committed = (long) LONGS.getAcquire(segment, SEGMENT_COMMITTED);
+            // La posición del índice nunca puede ir por delante de lo confirmado en el segmento
+            offset = Math.min(offset, committed);
+            while (offset < committed) {
+                if (!isRecord(segment, offset, committed)) {
+                    // Registro a medio escribir: lo confirmado termina aquí
+                    committed = offset;
+                    LONGS.setRelease(segment, SEGMENT_COMMITTED, committed);
+                    break;
+                }
+                int recordLength = segment.getInt((int) offset);
+                byte[] key = new byte[segment.get((int) offset + 4)];
+                segment.get((int) offset + 5, key);
+                indexRecord(key, location(segmentNumber, (int) offset));
+                offset += recordLength;
+            }
+            index.setNextPosition(segmentNumber, offset);
+        }
+        dropUncommittedSlots();
+    }
+
+    // Rehace el índice sin las casillas que apuntan a registros no confirmados. Borrarlas en su sitio
+    // rompería las cadenas de sondeo lineal; el caso es raro y reconstruir es lo mismo que crecer
+    private void dropUncommittedSlots() throws IOException {
+        Index current = index;
+        for (int slot = 0; slot < current.slots; slot++) {
+            int base = current.slotOffset(slot);
+            if ((long) LONGS.getAcquire(current.buffer, base + SLOT_HASH) != 0
+                    && !isCommitted((long) LONGS.getAcquire(current.buffer, base + SLOT_LOCATION))) {
+                long before = current.size();
+                rebuild(current.slots, this::isCommitted);
+                System.out.printf("Catálogo %s: %d claves apuntaban a datos no confirmados y se descartan%n",
+                        name, before - index.size());
+                return;
+            }
+        }
+    }
+
+    private boolean isCommitted(long location) {
+        int segmentNumber = (int) (location >>> 32);
+        if (segmentNumber >= segments.size()) {
+            return false;
+        }
+        MappedByteBuffer segment = segments.get(segmentNumber);
+        return isRecord(segment, location & 0xFFFFFFFFL, (long) LONGS.getAcquire(segment, SEGMENT_COMMITTED));
+    }
+
+    // Cabecera de registro coherente y registro completo antes de committed
+    private static boolean isRecord(MappedByteBuffer segment, long offset, long committed) {
+        if (offset < HEADER_SIZE || offset + 5 > committed) {
+            return false;
+        }
+        int recordLength = segment.getInt((int) offset);
+        int keyLength = segment.get((int) offset + 4);
+        return keyLength > 0 && keyLength <= MAX_KEY_LENGTH && recordLength >= 5 + keyLength
+                && offset + recordLength <= committed;
+    }
+
+    private Path indexPath() {
+        return directory.resolve(name + ".idx");
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    private static long location(int segment, int offset) {
+        return ((long) segment << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static byte[] keyBytes(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length == 0 || bytes.length > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Clave de catálogo inválida: " + key);
+        }
+        return bytes;
+    }
+
+    // FNV-1a de 64 bits con mezcla final; nunca devuelve 0, que marca una casilla vacía
+    private static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Tabla hash proyectada en memoria; solo el escritor (bajo el lock del almacén) la modifica
+     */
+    private static final class Index {
+        private final MappedByteBuffer buffer;
+        private final int slots;
+        private final int mask;
+
+        private Index(MappedByteBuffer buffer, int slots) {
+            this.buffer = buffer;
+            this.slots = slots;
+            this.mask = slots - 1;
+        }
+
+        static Index create(Path path, int slots) throws IOException {
+            MappedByteBuffer buffer = map(path, HEADER_SIZE + (long) slots * SLOT_SIZE);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(INDEX_SLOTS, slots);
+            buffer.putLong(INDEX_SIZE, 0);
+            buffer.putInt(INDEX_NEXT_SEGMENT, 0);
+            buffer.putLong(INDEX_NEXT_OFFSET, HEADER_SIZE);
+            return new Index(buffer, slots);
+        }
+
+        static Index open(Path path) throws IOException {
+            int slots;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                channel.read(header, 0);
+                if (header.getInt(0) != MAGIC) {
+                    throw new IOException("Índice de catálogo corrupto: " + path);
+                }
+                slots = header.getInt(INDEX_SLOTS);
+            }
+            return new Index(map(path, HEADER_SIZE + (long) slots * SLOT_SIZE), slots);
+        }
+
+        int slotOffset(int slot) {
+            return HEADER_SIZE + slot * SLOT_SIZE;
+        }
+
+        long size() {
+            return (long) LONGS.getAcquire(buffer, INDEX_SIZE);
+        }
+
+        // Casilla de la clave o -1; recorre el sondeo lineal hasta una casilla vacía
+        int find(byte[] key, long hash) {
+            int slot = (int) hash & mask;
+            while (true) {
+                int base = slotOffset(slot);
+                long slotHash = (long) LONGS.getAcquire(buffer, base + SLOT_HASH);
+                if (slotHash == 0) {
+                    return -1;
+                }
+                if (slotHash == hash && keyEquals(base, key)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        // Devuelve true si la clave es nueva
+        boolean upsert(byte[] key, long hash, long location) {
+            int slot = (int) hash & mask;
+            while (true) {
+                int base = slotOffset(slot);
+                long slotHash = (long) LONGS.getAcquire(buffer, base + SLOT_HASH);
+                if (slotHash == 0) {
+                    buffer.put(base + SLOT_KEY_LENGTH, (byte) key.length);
+                    buffer.put(base + SLOT_KEY, key);
+                    LONGS.setRelease(buffer, base + SLOT_LOCATION, location);
+                    // El hash se escribe el último: publica la casilla ya completa a los lectores
+                    LONGS.setRelease(buffer, base + SLOT_HASH, hash);
+                    LONGS.setRelease(buffer, INDEX_SIZE, size() + 1);
+                    return true;
+                }
+                if (slotHash == hash && keyEquals(base, key)) {
+                    LONGS.setRelease(buffer, base + SLOT_LOCATION, location);
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        void setNextPosition(int segment, long offset) {
+            buffer.putInt(INDEX_NEXT_SEGMENT, segment);
+            buffer.putLong(INDEX_NEXT_OFFSET, offset);
+        }
+
+        private boolean keyEquals(int base, byte[] key) {
+            if (buffer.get(base + SLOT_KEY_LENGTH) != key.length) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (buffer.get(base + SLOT_KEY + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
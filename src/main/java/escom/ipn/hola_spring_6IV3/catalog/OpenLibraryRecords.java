@@ -0,0 +1,159 @@
+package escom.ipn.hola_spring_6IV3.catalog;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Convierte el JSON de OpenLibrary (respuestas de /works y /authors, y líneas de los dumps)
+ * en los registros del catálogo, y de vuelta. Devuelve null si al JSON le falta la clave.
+ */
+public final class OpenLibraryRecords {
+
+    private static final Pattern YEAR = Pattern.compile("\\b(\\d{4})\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_SUBJECTS = 50;
+    private static final int MAX_SUBJECT_LENGTH = 200;
+
+    private OpenLibraryRecords() {
+    }
+
+    public static CatalogWork toWork(JsonNode json) {
+        String workId = stripPrefix(text(json, "key"));
+        if (workId == null) {
+            return null;
+        }
+        List<String> authorKeys = new ArrayList<>();
+        for (JsonNode author : json.path("authors")) {
+            // En las obras cada autor viene como {"author": {"key": "/authors/OL..A"}}
+            String key = stripPrefix(text(author.path("author"), "key"));
+            if (key == null) {
+                key = stripPrefix(text(author, "key"));
+            }
+            if (key != null && !authorKeys.contains(key)) {
+                authorKeys.add(key);
+            }
+        }
+        List<String> subjects = normalizeSubjects(json.path("subjects"));
+        JsonNode covers = json.path("covers");
+        String coverId = null;
+        for (JsonNode cover : covers) {
+            // OpenLibrary usa -1 como portada eliminada
+            if (cover.asLong() > 0) {
+                coverId = cover.asText();
+                break;
+            }
+        }
+        return new CatalogWork(workId, text(json, "title"), subjects, year(text(json, "first_publish_date")),
+                authorKeys, coverId);
+    }
+
+    public static CatalogAuthor toAuthor(JsonNode json) {
+        String authorId = stripPrefix(text(json, "key"));
+        if (authorId == null) {
+            return null;
+        }
+        String name = text(json, "name");
+        if (name == null) {
+            name = text(json, "personal_name");
+        }
+        return new CatalogAuthor(authorId, name, text(json, "birth_date"), text(json, "death_date"));
+    }
+
+    /**
+     * Forma de OpenLibrary de una obra del catálogo, para servirla cuando OpenLibrary no está disponible
+     */
+    public static Map<String, Object> toJson(CatalogWork work) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("key", "/works/" + work.workId());
+        json.put("title", work.title());
+        json.put("subjects", work.subjects());
+        if (work.firstPublishYear() != null) {
+            json.put("first_publish_date", String.valueOf(work.firstPublishYear()));
+        }
+        if (work.coverId() != null) {
+            json.put("covers", List.of(Long.parseLong(work.coverId())));
+        }
+        json.put("authors", work.authorKeys().stream()
+                .map(key -> Map.of("author", Map.of("key", "/authors/" + key)))
+                .toList());
+        return json;
+    }
+
+    /**
+     * Forma de OpenLibrary de un autor del catálogo
+     */
+    public static Map<String, Object> toJson(CatalogAuthor author) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("key", "/authors/" + author.authorId());
+        json.put("name", author.name());
+        if (author.birthDate() != null) {
+            json.put("birth_date", author.birthDate());
+        }
+        if (author.deathDate() != null) {
+            json.put("death_date", author.deathDate());
+        }
+        return json;
+    }
+
+    // Los temas de OpenLibrary vienen escritos a mano: "Fiction", "fiction.", " Fiction  "...
+    // Se recortan, se colapsan los espacios y se descartan repetidos sin distinguir mayúsculas
+    static List<String> normalizeSubjects(JsonNode subjects) {
+        List<String> normalized = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (JsonNode node : subjects) {
+            String subject = WHITESPACE.matcher(node.asText()).replaceAll(" ").trim();
+            while (subject.endsWith(".")) {
+                subject = subject.substring(0, subject.length() - 1).trim();
+            }
+            if (subject.isEmpty() || subject.length() > MAX_SUBJECT_LENGTH) {
+                continue;
+            }
+            if (seen.add(subject.toLowerCase(Locale.ROOT))) {
+                normalized.add(subject);
+                if (normalized.size() == MAX_SUBJECTS) {
+                    break;
+                }
+            }
+        }
+        return normalized;
+    }
+
+    // "/works/OL45804W" -> "OL45804W"
+    public static String stripPrefix(String key) {
+        if (key == null || key.isBlank()) {
+            return null;
+        }
+        int slash = key.lastIndexOf('/');
+        return slash >= 0 ? key.substring(slash + 1) : key;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        // Algunos campos llegan como {"type": "/type/text", "value": "..."}
+        if (value.isObject()) {
+            value = value.get("value");
+            return value == null ? null : value.asText();
+        }
+        return value.asText();
+    }
+
+    private static Integer year(String date) {
+        if (date == null) {
+            return null;
+        }
+        Matcher matcher = YEAR.matcher(date);
+        return matcher.find() ? Integer.valueOf(matcher.group(1)) : null;
+    }
+}
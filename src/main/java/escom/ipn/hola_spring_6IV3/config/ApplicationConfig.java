@@ -1,23 +1,25 @@
 package escom.ipn.hola_spring_6IV3.config;
 
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-import escom.ipn.hola_spring_6IV3.repository.UserRepository;
+import escom.ipn.hola_spring_6IV3.service.CachedUserDetailsService;
 import escom.ipn.hola_spring_6IV3.service.JwtService;
 import lombok.RequiredArgsConstructor;
 
 /* 
 UserDetailsService:
--> Este bean se encarga de cargar los detalles del usuario desde el repositorio de usuarios (UserRepository).
+-> CachedUserDetailsService se encarga de cargar los detalles del usuario desde el repositorio de usuarios (UserRepository), con una caché en memoria delante.
 
 AuthenticationProvider:
 -> Este bean configura el proveedor de autenticación utilizando DaoAuthenticationProvider, que se encarga de autenticar al usuario utilizando los detalles del usuario y el codificador de contraseñas.
@@ -26,28 +28,38 @@ AuthenticationManager:
 -> Este bean proporciona el AuthenticationManager, que es el componente principal de Spring Security para manejar la autenticación.
 
 PasswordEncoder:
--> Este bean configura el codificador de contraseñas utilizando BCryptPasswordEncoder, que es un algoritmo de hashing seguro para contraseñas.
+-> Este bean configura un DelegatingPasswordEncoder que guarda los hashes como {bcrypt}... con un factor de trabajo configurable o calibrado al arrancar.
+-> Los hashes antiguos sin prefijo o con un coste menor se siguen aceptando y se rehashean tras un login correcto.
 */
 
 @Configuration
 @RequiredArgsConstructor
 public class ApplicationConfig {
 
-    private final UserRepository userRepository;
+    private final CachedUserDetailsService userDetailsService;
     @SuppressWarnings("unused")
     private final JwtService jwtService;
 
-    @Bean
-    public UserDetailsService userDetailsService() {
-        return username -> userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
-    }
+    // Factor de trabajo fijo; 0 para calibrarlo según password.bcrypt.target-millis
+    @Value("${password.bcrypt.strength:0}")
+    private int bcryptStrength;
+
+    @Value("${password.bcrypt.target-millis:250}")
+    private long bcryptTargetMillis;
+
+    @Value("${password.bcrypt.min-strength:10}")
+    private int bcryptMinStrength;
+
+    @Value("${password.bcrypt.max-strength:16}")
+    private int bcryptMaxStrength;
 
     @Bean
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
-        authProvider.setUserDetailsService(userDetailsService());
+        authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Tras un login correcto, guarda de nuevo la contraseña si su hash usa un coste anticuado
+        authProvider.setUserDetailsPasswordService(userDetailsService);
         return authProvider;
     }
 
@@ -58,6 +70,13 @@ public class ApplicationConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int strength = bcryptStrength > 0
+                ? bcryptStrength
+                : BCryptStrengthCalibrator.calibrate(bcryptTargetMillis, bcryptMinStrength, bcryptMaxStrength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(strength)));
+        // Hashes BCrypt guardados antes de usar prefijos: el coste va dentro del propio hash
+        encoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return encoder;
     }
 }
@@ -0,0 +1,38 @@
+package escom.ipn.hola_spring_6IV3.config;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Mide cuánto tarda un hash BCrypt en esta máquina y elige el factor de trabajo
+ * más alto que cumple la latencia objetivo. Cada punto de strength duplica el coste.
+ */
+public final class BCryptStrengthCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample-password";
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minStrength);
+        // Calentamiento para que el JIT no penalice la medición
+        encoder.encode(SAMPLE_PASSWORD);
+
+        int samples = 3;
+        long start = System.nanoTime();
+        for (int i = 0; i < samples; i++) {
+            encoder.encode(SAMPLE_PASSWORD);
+        }
+        double millisAtMin = (System.nanoTime() - start) / 1_000_000.0 / samples;
+
+        int strength = minStrength;
+        double estimated = millisAtMin;
+        while (strength < maxStrength && estimated * 2 <= targetMillis) {
+            strength++;
+            estimated *= 2;
+        }
+        System.out.printf("BCrypt calibrado: strength %d (~%.1f ms por hash, objetivo %d ms)%n",
+                strength, estimated, targetMillis);
+        return strength;
+    }
+}
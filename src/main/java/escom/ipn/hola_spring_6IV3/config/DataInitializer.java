@@ -6,13 +6,13 @@ import escom.ipn.hola_spring_6IV3.repository.UserRepository;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
 public class DataInitializer {
 
     @Bean
-    CommandLineRunner initDatabase(UserRepository userRepository) {
+    CommandLineRunner initDatabase(UserRepository userRepository, PasswordEncoder passwordEncoder) {
         return args -> {
             if(userRepository.findByUsername("sudo").isEmpty()) {
             
@@ -21,7 +21,7 @@ public class DataInitializer {
                         .lastname("admin")
                         .firstname("admin")
                         .country("Papua Nueva Guinea")
-                        .password(new BCryptPasswordEncoder().encode("password"))
+                        .password(passwordEncoder.encode("password"))
                         .role(Role.ROLE_ADMIN)
                         .build();
                 userRepository.save(user);
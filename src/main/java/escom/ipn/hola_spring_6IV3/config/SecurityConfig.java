@@ -2,11 +2,13 @@ package escom.ipn.hola_spring_6IV3.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import escom.ipn.hola_spring_6IV3.jwt.JwtAuthenticationFilter;
@@ -33,13 +35,16 @@ public class SecurityConfig {
                 authRequest
                 // Permitir acceso a recursos estáticos
                 .requestMatchers("/js/**", "/styles/**", "/css/**", "/images/**").permitAll()
-                // Permitir acceso a las vistas y endpoints de login y signup
-                .requestMatchers("/login", "/register", "/auth/**", "/**").permitAll()
                 // Permitir acceso los endpoints para el admin si y solo si el usuario es ADMIN
+                // (antes de "/**": Spring aplica la primera regla que coincide)
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                // Permitir acceso a las vistas y endpoints de login y signup
+                .requestMatchers("/login", "/register", "/auth/**", "/**").permitAll()
 
                 .anyRequest().authenticated()
             )
+        // Sin token válido responder 401 (con token pero sin rol ADMIN, 403)
+            .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
         // Configurar la politica de sesiones (STATELESS)
             .sessionManagement(sessionManager -> sessionManager.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
         // Configurar el proveedor de autenticación
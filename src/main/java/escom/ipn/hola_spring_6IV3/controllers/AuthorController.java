@@ -0,0 +1,73 @@
+package escom.ipn.hola_spring_6IV3.controllers;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import escom.ipn.hola_spring_6IV3.service.AuthorIndexService;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Autores normalizados de los favoritos de todos los usuarios (tabla authors)
+ */
+@RestController
+@RequestMapping("/api/authors")
+@RequiredArgsConstructor
+public class AuthorController {
+
+    private final AuthorIndexService authorIndexService;
+
+    /**
+     * Autores cuyo nombre empieza por q, con el número de favoritos de cada uno
+     */
+    @GetMapping
+    public ResponseEntity<?> searchAuthors(@RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        try{
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic())
+                    .body(authorIndexService.searchAuthors(q, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno del servidor: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getAuthor(@PathVariable long id) {
+        try{
+            return authorIndexService.getAuthor(id)
+                    .<ResponseEntity<?>>map(author -> ResponseEntity.ok()
+                            .cacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic())
+                            .body(author))
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(Map.of("error", "Autor no encontrado: " + id)));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno del servidor: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Libros del autor que hay en favoritos, los más guardados primero
+     */
+    @GetMapping("/{id}/books")
+    public ResponseEntity<?> getAuthorBooks(@PathVariable long id,
+            @RequestParam(defaultValue = "20") int limit) {
+        try{
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic())
+                    .body(authorIndexService.getAuthorBooks(id, limit));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno del servidor: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package escom.ipn.hola_spring_6IV3.controllers;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import escom.ipn.hola_spring_6IV3.catalog.BookCatalog;
+import escom.ipn.hola_spring_6IV3.service.BookMetadataService;
+import escom.ipn.hola_spring_6IV3.service.BookNeighborService;
+import escom.ipn.hola_spring_6IV3.service.FavoriteOverlapService;
+import escom.ipn.hola_spring_6IV3.service.TrendingService;
+import escom.ipn.hola_spring_6IV3.service.BookMetadataService.CachedResource;
+import escom.ipn.hola_spring_6IV3.service.BookMetadataService.ResourceType;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Proxy de la API de OpenLibrary con las mismas rutas (/api/books/works/{id}.json, ...),
+ * para que el navegador cambie solo el prefijo y todas las peticiones compartan la caché del servidor
+ */
+@RestController
+@RequestMapping("/api/books")
+@RequiredArgsConstructor
+public class BookController {
+
+    private static final Pattern OPEN_LIBRARY_ID = Pattern.compile("OL\\d+[A-Z]");
+    private static final Pattern SUBJECT = Pattern.compile("[\\p{L}\\p{N}_ .'-]{1,100}");
+    // Parámetros de search.json que se reenvían; el resto se descarta para no fragmentar la caché
+    private static final List<String> SEARCH_PARAMS = List.of("q", "title", "author", "subject", "isbn",
+            "language", "sort", "fields", "limit", "offset", "page");
+    private static final List<String> SUBJECT_PARAMS = List.of("limit", "offset", "details");
+
+    private final BookMetadataService bookMetadataService;
+    private final BookCatalog bookCatalog;
+    private final BookNeighborService bookNeighborService;
+    private final TrendingService trendingService;
+    private final FavoriteOverlapService favoriteOverlapService;
+
+    @GetMapping("/works/{id}.json")
+    public ResponseEntity<?> getWork(@PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (!OPEN_LIBRARY_ID.matcher(id).matches()) {
+            return badRequest("Id de obra inválido: " + id);
+        }
+        return respond(bookMetadataService.get(ResourceType.WORK, "/works/" + id + ".json"), ifNoneMatch);
+    }
+
+    @GetMapping("/authors/{id}.json")
+    public ResponseEntity<?> getAuthor(@PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (!OPEN_LIBRARY_ID.matcher(id).matches()) {
+            return badRequest("Id de autor inválido: " + id);
+        }
+        return respond(bookMetadataService.get(ResourceType.AUTHOR, "/authors/" + id + ".json"), ifNoneMatch);
+    }
+
+    @GetMapping("/subjects/{subject}.json")
+    public ResponseEntity<?> getSubject(@PathVariable String subject,
+            @RequestParam Map<String, String> params,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (!SUBJECT.matcher(subject).matches()) {
+            return badRequest("Tema inválido: " + subject);
+        }
+        String path = "/subjects/" + encode(subject.toLowerCase()) + ".json" + canonicalQuery(params, SUBJECT_PARAMS);
+        return respond(bookMetadataService.get(ResourceType.SUBJECT, path), ifNoneMatch);
+    }
+
+    @GetMapping("/search.json")
+    public ResponseEntity<?> search(@RequestParam Map<String, String> params,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String query = canonicalQuery(params, SEARCH_PARAMS);
+        if (query.isEmpty()) {
+            return badRequest("La búsqueda necesita al menos un criterio (q, title, author...)");
+        }
+        return respond(bookMetadataService.get(ResourceType.SEARCH, "/search.json" + query), ifNoneMatch);
+    }
+
+    /**
+     * Obra del catálogo local (título, temas, año, autores), sin salir a OpenLibrary
+     */
+    @GetMapping("/catalog/works/{id}")
+    public ResponseEntity<?> getCatalogWork(@PathVariable String id) {
+        return bookCatalog.findWork(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "La obra no está en el catálogo: " + id)));
+    }
+
+    /**
+     * Autor del catálogo local, sin salir a OpenLibrary
+     */
+    @GetMapping("/catalog/authors/{id}")
+    public ResponseEntity<?> getCatalogAuthor(@PathVariable String id) {
+        return bookCatalog.findAuthor(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "El autor no está en el catálogo: " + id)));
+    }
+
+    /**
+     * Libros que más guardan en favoritos quienes guardaron este; se recalcula una vez al día
+     */
+    @GetMapping("/{id}/also-favorited")
+    public ResponseEntity<?> getAlsoFavorited(@PathVariable String id,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (id.isBlank() || id.length() > 40) {
+            return badRequest("Id de libro inválido: " + id);
+        }
+        try{
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic())
+                    .body(bookNeighborService.findAlsoFavorited(id, limit));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno del servidor: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Libros con más favoritos nuevos en la última hora, día o semana; se sirve desde memoria
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<?> getTrending(@RequestParam(defaultValue = "day") String window,
+            @RequestParam(defaultValue = "10") int limit) {
+        try{
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(1, TimeUnit.MINUTES).cachePublic())
+                    .body(trendingService.getTrending(window, limit));
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno del servidor: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cuántos usuarios tienen en favoritos cada uno de los dos libros y cuántos los dos a la vez
+     */
+    @GetMapping("/overlap")
+    public ResponseEntity<?> getBookOverlap(@RequestParam String a, @RequestParam String b) {
+        if (a.isBlank() || a.length() > 40 || b.isBlank() || b.length() > 40) {
+            return badRequest("Ids de libro inválidos: " + a + ", " + b);
+        }
+        try{
+            return ResponseEntity.ok(favoriteOverlapService.bookOverlap(a, b));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno del servidor: " + e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> respond(CachedResource resource, String ifNoneMatch) {
+        if (resource.status() == 404) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .cacheControl(CacheControl.maxAge(resource.maxAgeSeconds(), TimeUnit.SECONDS))
+                    .body(Map.of("error", "No encontrado en OpenLibrary"));
+        }
+        CacheControl cacheControl = CacheControl.maxAge(resource.maxAgeSeconds(), TimeUnit.SECONDS).cachePublic();
+        if (resource.etag() != null && resource.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(resource.etag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(resource.contentType()))
+                .cacheControl(cacheControl);
+        if (resource.etag() != null) {
+            response.eTag(resource.etag());
+        }
+        if (resource.lastModified() != null) {
+            response.header(HttpHeaders.LAST_MODIFIED, resource.lastModified());
+        }
+        return response.body(resource.body());
+    }
+
+    private ResponseEntity<?> badRequest(String message) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", message));
+    }
+
+    // Query string con los parámetros permitidos en orden alfabético: misma búsqueda, misma clave de caché
+    private static String canonicalQuery(Map<String, String> params, List<String> allowed) {
+        StringJoiner query = new StringJoiner("&", "?", "").setEmptyValue("");
+        new TreeMap<>(params).forEach((name, value) -> {
+            if (allowed.contains(name) && value != null && !value.isBlank()) {
+                query.add(name + "=" + encode(value.trim()));
+            }
+        });
+        return query.toString();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
@@ -0,0 +1,70 @@
+package escom.ipn.hola_spring_6IV3.controllers;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import escom.ipn.hola_spring_6IV3.service.ExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Exportaciones completas para análisis. La respuesta se escribe directamente en el stream
+ * del servlet mientras se lee de la base de datos, sin construir el resultado en memoria
+ */
+@RestController
+@RequestMapping("/api/admin/export")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final ExportService exportService;
+
+    @GetMapping("/users")
+    public void exportUsers(@RequestHeader("Authorization") String token,
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws IOException {
+        ExportService.Format exportFormat = parseFormat(format, response);
+        if (exportFormat == null) {
+            return;
+        }
+        prepare(response, exportFormat, "users");
+        exportService.exportUsers(exportFormat, response.getOutputStream());
+    }
+
+    @GetMapping("/favorites")
+    public void exportFavorites(@RequestHeader("Authorization") String token,
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws IOException {
+        ExportService.Format exportFormat = parseFormat(format, response);
+        if (exportFormat == null) {
+            return;
+        }
+        prepare(response, exportFormat, "favorites");
+        exportService.exportFavorites(exportFormat, response.getOutputStream());
+    }
+
+    // Responde 400 y devuelve null si el formato no es válido
+    private ExportService.Format parseFormat(String format, HttpServletResponse response) throws IOException {
+        try {
+            return ExportService.Format.fromString(format);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void prepare(HttpServletResponse response, ExportService.Format format, String name) {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(format.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + name + "-" + LocalDate.now() + "." + format.getExtension() + "\"");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+    }
+}
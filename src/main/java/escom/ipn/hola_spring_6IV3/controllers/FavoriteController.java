@@ -1,10 +1,18 @@
 package escom.ipn.hola_spring_6IV3.controllers;
 
+import escom.ipn.hola_spring_6IV3.dtos.BookIdsRequest;
 import escom.ipn.hola_spring_6IV3.dtos.FavoriteBookDetailsDto;
 import escom.ipn.hola_spring_6IV3.dtos.FavoriteRequest;
+import escom.ipn.hola_spring_6IV3.service.AuthorIndexService;
+import escom.ipn.hola_spring_6IV3.service.FavoriteImportService;
+import escom.ipn.hola_spring_6IV3.service.FavoriteOverlapService;
+import escom.ipn.hola_spring_6IV3.service.FavoriteSearchService;
 import escom.ipn.hola_spring_6IV3.service.FavoriteService;
-import escom.ipn.hola_spring_6IV3.service.JwtService;
+import escom.ipn.hola_spring_6IV3.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -23,22 +31,56 @@ import java.util.Map;
 public class FavoriteController {
 
     private final FavoriteService favoriteService;
-    private final JwtService jwtService;
+    private final UserService userService;
+    private final FavoriteImportService favoriteImportService;
+    private final FavoriteSearchService favoriteSearchService;
+    private final FavoriteOverlapService favoriteOverlapService;
+    private final AuthorIndexService authorIndexService;
 
     /**
-     * Obtiene todos los favoritos del usuario autenticado
+     * Obtiene los favoritos del usuario autenticado.
+     * Con limit o cursor responde una página por cursor (added_date, id) de tamaño acotado;
+     * sin ellos mantiene la respuesta completa que usan los scripts existentes.
+     * Responde con un ETag por versión de favoritos y 304 si If-None-Match coincide
      */
     @GetMapping
-    public ResponseEntity<?> getUserFavorites(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getUserFavorites(
+            @RequestHeader("Authorization") String token,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         try {
-            String username = extractUsernameFromToken(token);
-            List<FavoriteBookDetailsDto> favorites = favoriteService.getUserFavorites(username);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("favorites", favorites);
-            response.put("count", favorites.size());
+            Integer userId = extractUserIdFromToken(token);
+
+            // Si el cliente ya tiene la versión actual, 304 sin consultar la base de datos
+            String etag = favoriteService.getUserFavoritesETag(userId);
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .build();
+            }
+
+            Object body;
+            if (cursor != null || limit != null) {
+                body = favoriteService.getUserFavoritesPage(userId, cursor, limit, includeTotal);
+            } else {
+                List<FavoriteBookDetailsDto> favorites = favoriteService.getUserFavorites(userId);
+                
+                Map<String, Object> response = new HashMap<>();
+                response.put("favorites", favorites);
+                response.put("count", favorites.size());
+                body = response;
+            }
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Error al obtener favoritos: " + e.getMessage()));
@@ -53,8 +95,8 @@ public class FavoriteController {
             @RequestHeader("Authorization") String token,
             @RequestBody FavoriteRequest request) {
         try {
-            String username = extractUsernameFromToken(token);
-            FavoriteBookDetailsDto favorite = favoriteService.addToFavorites(username, request);
+            Integer userId = extractUserIdFromToken(token);
+            FavoriteBookDetailsDto favorite = favoriteService.addToFavorites(userId, request);
             
             return ResponseEntity.status(HttpStatus.CREATED)
                     .body(Map.of("message", "Libro añadido a favoritos", "favorite", favorite));
@@ -75,8 +117,8 @@ public class FavoriteController {
             @RequestHeader("Authorization") String token,
             @PathVariable String bookId) {
         try {
-            String username = extractUsernameFromToken(token);
-            favoriteService.removeFromFavorites(username, bookId);
+            Integer userId = extractUserIdFromToken(token);
+            favoriteService.removeFromFavorites(userId, bookId);
             
             return ResponseEntity.ok(Map.of("message", "Libro eliminado de favoritos"));
         } catch (RuntimeException e) {
@@ -96,8 +138,8 @@ public class FavoriteController {
             @RequestHeader("Authorization") String token,
             @PathVariable String bookId) {
         try {
-            String username = extractUsernameFromToken(token);
-            boolean isFavorite = favoriteService.isBookInFavorites(username, bookId);
+            Integer userId = extractUserIdFromToken(token);
+            boolean isFavorite = favoriteService.isBookInFavorites(userId, bookId);
             
             return ResponseEntity.ok(Map.of("isFavorite", isFavorite));
         } catch (Exception e) {
@@ -106,6 +148,69 @@ public class FavoriteController {
         }
     }
 
+    /**
+     * Verifica de una vez qué libros de una lista están en favoritos
+     */
+    @PostMapping("/bulk/check")
+    public ResponseEntity<?> checkFavorites(
+            @RequestHeader("Authorization") String token,
+            @RequestBody BookIdsRequest request) {
+        try {
+            Integer userId = extractUserIdFromToken(token);
+            Map<String, Boolean> favorites = favoriteService.checkFavorites(userId, request.getBookIds());
+            
+            return ResponseEntity.ok(Map.of("favorites", favorites));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error al verificar favoritos: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Añade varios libros a favoritos en una sola transacción
+     */
+    @PostMapping("/bulk/add")
+    public ResponseEntity<?> addFavorites(
+            @RequestHeader("Authorization") String token,
+            @RequestBody List<FavoriteRequest> requests) {
+        try {
+            Integer userId = extractUserIdFromToken(token);
+            int added = favoriteService.addFavorites(userId, requests);
+            
+            return ResponseEntity.ok(Map.of("message", "Libros añadidos a favoritos", "added", added));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error al añadir a favoritos: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Elimina varios libros de favoritos en una sola sentencia
+     */
+    @PostMapping("/bulk/remove")
+    public ResponseEntity<?> removeFavorites(
+            @RequestHeader("Authorization") String token,
+            @RequestBody BookIdsRequest request) {
+        try {
+            Integer userId = extractUserIdFromToken(token);
+            int removed = favoriteService.removeFavorites(userId, request.getBookIds());
+            
+            return ResponseEntity.ok(Map.of("message", "Libros eliminados de favoritos", "removed", removed));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error al eliminar de favoritos: " + e.getMessage()));
+        }
+    }
+
     /**
      * Alterna el estado de favorito (añadir/eliminar)
      */
@@ -114,8 +219,8 @@ public class FavoriteController {
             @RequestHeader("Authorization") String token,
             @RequestBody FavoriteRequest request) {
         try {
-            String username = extractUsernameFromToken(token);
-            boolean isNowFavorite = favoriteService.toggleFavorite(username, request);
+            Integer userId = extractUserIdFromToken(token);
+            boolean isNowFavorite = favoriteService.toggleFavorite(userId, request);
             
             String message = isNowFavorite ? "Libro añadido a favoritos" : "Libro eliminado de favoritos";
             
@@ -123,20 +228,160 @@ public class FavoriteController {
                 "message", message,
                 "isFavorite", isNowFavorite
             ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Error al alternar favorito: " + e.getMessage()));
         }
     }
 
+    /**
+     * Sincronización incremental: cambios posteriores a since, o la lista completa (snapshot)
+     * si no hay since o el registro ya se compactó más allá de él
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getFavoriteChanges(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(required = false) Long since) {
+        try {
+            Integer userId = extractUserIdFromToken(token);
+            return ResponseEntity.ok(favoriteService.getChangesSince(userId, since));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error al obtener cambios de favoritos: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Importa un historial de lectura (CSV con cabecera o NDJSON) enviado como cuerpo de la petición.
+     * El formato se toma del parámetro format o, si falta, del Content-Type
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importFavorites(
+            @RequestHeader("Authorization") String token,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestParam(required = false) String format,
+            HttpServletRequest request) {
+        try {
+            Integer userId = extractUserIdFromToken(token);
+            FavoriteImportService.Format importFormat =
+                    FavoriteImportService.Format.fromString(format != null ? format : contentType);
+            return ResponseEntity.ok(favoriteImportService.importFavorites(userId, importFormat, request.getInputStream()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error al importar favoritos: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Progreso y rendimiento de la importación en curso (o de la última) del usuario
+     */
+    @GetMapping("/import/status")
+    public ResponseEntity<?> getImportStatus(@RequestHeader("Authorization") String token) {
+        try {
+            Integer userId = extractUserIdFromToken(token);
+            Map<String, Object> progress = favoriteImportService.getProgress(userId);
+            if (progress == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "No hay importaciones de favoritos"));
+            }
+            return ResponseEntity.ok(progress);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error al obtener el progreso de la importación: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Busca por título o autor dentro de los favoritos del usuario, los más relevantes primero
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchFavorites(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        try {
+            Integer userId = extractUserIdFromToken(token);
+            return ResponseEntity.ok(favoriteSearchService.search(userId, q, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error al buscar en favoritos: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Usuarios que comparten al menos minShared favoritos con el usuario autenticado, los más afines primero
+     */
+    @GetMapping("/similar-users")
+    public ResponseEntity<?> getSimilarUsers(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(defaultValue = "1") int minShared,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            Integer userId = extractUserIdFromToken(token);
+            return ResponseEntity.ok(favoriteOverlapService.findSimilarUsers(userId, minShared, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error al buscar usuarios afines: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Autores de los favoritos del usuario, los que aparecen en más favoritos primero
+     */
+    @GetMapping("/authors")
+    public ResponseEntity<?> getFavoriteAuthors(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            Integer userId = extractUserIdFromToken(token);
+            return ResponseEntity.ok(authorIndexService.getUserAuthors(userId, limit));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error al obtener autores de favoritos: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Favoritos del usuario de un autor, los más recientes primero
+     */
+    @GetMapping("/authors/{authorId}")
+    public ResponseEntity<?> getFavoritesByAuthor(
+            @RequestHeader("Authorization") String token,
+            @PathVariable long authorId) {
+        try {
+            Integer userId = extractUserIdFromToken(token);
+            List<FavoriteBookDetailsDto> favorites = authorIndexService.getUserFavoritesByAuthor(userId, authorId);
+            return ResponseEntity.ok(favorites);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error al obtener favoritos del autor: " + e.getMessage()));
+        }
+    }
+
     /**
      * Obtiene el número de favoritos del usuario
      */
     @GetMapping("/count")
     public ResponseEntity<?> getFavoritesCount(@RequestHeader("Authorization") String token) {
         try {
-            String username = extractUsernameFromToken(token);
-            long count = favoriteService.getUserFavoritesCount(username);
+            Integer userId = extractUserIdFromToken(token);
+            long count = favoriteService.getUserFavoritesCount(userId);
             
             return ResponseEntity.ok(Map.of("count", count));
         } catch (Exception e) {
@@ -146,12 +391,9 @@ public class FavoriteController {
     }
 
     /**
-     * Extrae el nombre de usuario del token JWT
+     * Extrae el id del usuario del token JWT, sin consultar la base de datos
      */
-    private String extractUsernameFromToken(String token) {
-        if (token != null && token.startsWith("Bearer ")) {
-            token = token.substring(7);
-        }
-        return jwtService.extractUsername(token);
+    private Integer extractUserIdFromToken(String token) {
+        return userService.extractUserIdFromToken(token);
     }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package escom.ipn.hola_spring_6IV3.controllers;
+
+import java.util.Map;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import escom.ipn.hola_spring_6IV3.service.RecommendationService;
+import escom.ipn.hola_spring_6IV3.service.UserService;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Recomendaciones de libros para el usuario autenticado, calculadas en el servidor
+ */
+@RestController
+@RequestMapping("/api/recommendations")
+@RequiredArgsConstructor
+public class RecommendationController {
+
+    private final RecommendationService recommendationService;
+    private final UserService userService;
+
+    /**
+     * Libros afines a los favoritos del usuario con el motivo de cada uno.
+     * Responde 304 si If-None-Match coincide: ni los favoritos ni el modelo han cambiado
+     */
+    @GetMapping
+    public ResponseEntity<?> getRecommendations(
+            @RequestHeader("Authorization") String token,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(defaultValue = "15") int limit) {
+        try {
+            Integer userId = userService.extractUserIdFromToken(token);
+            String etag = recommendationService.getETag(userId);
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .build();
+            }
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(recommendationService.recommend(userId, limit));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error al obtener recomendaciones: " + e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package escom.ipn.hola_spring_6IV3.controllers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import escom.ipn.hola_spring_6IV3.dtos.SuggestionDto;
+import escom.ipn.hola_spring_6IV3.service.FavoriteSearchService;
+import escom.ipn.hola_spring_6IV3.service.SuggestionService;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Búsquedas servidas desde los índices en memoria, sin salir a OpenLibrary
+ */
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+public class SearchController {
+
+    private final SuggestionService suggestionService;
+    private final FavoriteSearchService favoriteSearchService;
+
+    /**
+     * Autocompletado de títulos y autores mientras el usuario escribe
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDto>> suggest(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        // Misma respuesta para todos los usuarios: el navegador puede reutilizarla mientras se teclea
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic())
+                .body(suggestionService.suggest(q, limit));
+    }
+
+    /**
+     * Búsqueda por título o autor en todos los libros que algún usuario tiene en favoritos
+     */
+    @GetMapping("/favorites")
+    public ResponseEntity<?> searchAllFavorites(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(favoriteSearchService.search(null, q, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+}
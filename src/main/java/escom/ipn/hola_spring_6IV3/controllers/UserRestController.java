@@ -11,16 +11,32 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import escom.ipn.hola_spring_6IV3.catalog.BookCatalog;
 import escom.ipn.hola_spring_6IV3.dtos.UserDto;
 import escom.ipn.hola_spring_6IV3.exception.UserNotFoundException;
 import escom.ipn.hola_spring_6IV3.model.User;
+import escom.ipn.hola_spring_6IV3.service.AuthorBackfillJob;
+import escom.ipn.hola_spring_6IV3.service.BookMetadataService;
+import escom.ipn.hola_spring_6IV3.service.BookNeighborService;
+import escom.ipn.hola_spring_6IV3.service.CachedUserDetailsService;
+import escom.ipn.hola_spring_6IV3.service.CatalogIngestionJob;
+import escom.ipn.hola_spring_6IV3.service.FavoriteChangeCompactionJob;
+import escom.ipn.hola_spring_6IV3.service.FavoriteCounterRepairJob;
+import escom.ipn.hola_spring_6IV3.service.FavoriteOverlapService;
+import escom.ipn.hola_spring_6IV3.service.FavoriteSearchService;
 import escom.ipn.hola_spring_6IV3.service.JwtService;
+import escom.ipn.hola_spring_6IV3.service.PasswordHashingExecutor;
+import escom.ipn.hola_spring_6IV3.service.RecommendationService;
+import escom.ipn.hola_spring_6IV3.service.SuggestionService;
+import escom.ipn.hola_spring_6IV3.service.TrendingService;
 import escom.ipn.hola_spring_6IV3.service.UserService;
 import lombok.RequiredArgsConstructor;
 
@@ -32,6 +48,20 @@ public class UserRestController {
     private final UserService userService;
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final CachedUserDetailsService userDetailsCache;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final FavoriteCounterRepairJob favoriteCounterRepairJob;
+    private final FavoriteChangeCompactionJob favoriteChangeCompactionJob;
+    private final BookMetadataService bookMetadataService;
+    private final BookCatalog bookCatalog;
+    private final CatalogIngestionJob catalogIngestionJob;
+    private final SuggestionService suggestionService;
+    private final FavoriteSearchService favoriteSearchService;
+    private final RecommendationService recommendationService;
+    private final BookNeighborService bookNeighborService;
+    private final TrendingService trendingService;
+    private final FavoriteOverlapService favoriteOverlapService;
+    private final AuthorBackfillJob authorBackfillJob;
 
     @GetMapping("/info")
     public ResponseEntity<?> getUserInfo(@RequestHeader("Authorization") String token) {
@@ -122,4 +152,198 @@ public class UserRestController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno del servidor: " + e.getMessage());
         }
     }
+
+    @PostMapping("/admin/revoke/{username}")
+    public ResponseEntity<?> revokeUserTokens(@RequestHeader("Authorization") String token, @PathVariable String username) {
+        try{
+            jwtService.revokeAllForUser(username);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno del servidor: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/admin/cache/users")
+    public ResponseEntity<?> getUserCacheStats(@RequestHeader("Authorization") String token) {
+        return ResponseEntity.ok(userDetailsCache.getStats());
+    }
+
+    @GetMapping("/admin/cache/books")
+    public ResponseEntity<?> getBookCacheStats(@RequestHeader("Authorization") String token) {
+        return ResponseEntity.ok(bookMetadataService.getStats());
+    }
+
+    @GetMapping("/admin/catalog")
+    public ResponseEntity<?> getCatalogStats(@RequestHeader("Authorization") String token) {
+        return ResponseEntity.ok(bookCatalog.getStats());
+    }
+
+    // Carga en segundo plano un dump de OpenLibrary del directorio catalog.ingest.dir
+    @PostMapping("/admin/catalog/ingest")
+    public ResponseEntity<?> ingestCatalogDump(@RequestHeader("Authorization") String token,
+            @RequestParam String file,
+            @RequestParam(defaultValue = "true") boolean resume) {
+        try{
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(catalogIngestionJob.start(file, resume));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno del servidor: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/admin/catalog/ingest")
+    public ResponseEntity<?> getCatalogIngestion(@RequestHeader("Authorization") String token) {
+        Map<String, Object> progress = catalogIngestionJob.getProgress();
+        if (progress == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No se ha cargado ningún dump"));
+        }
+        return ResponseEntity.ok(progress);
+    }
+
+    @DeleteMapping("/admin/catalog/ingest")
+    public ResponseEntity<?> cancelCatalogIngestion(@RequestHeader("Authorization") String token) {
+        if (!catalogIngestionJob.cancel()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No hay ninguna carga en curso"));
+        }
+        return ResponseEntity.ok(catalogIngestionJob.getProgress());
+    }
+
+    @GetMapping("/admin/search/suggest")
+    public ResponseEntity<?> getSuggestionIndexStats(@RequestHeader("Authorization") String token) {
+        return ResponseEntity.ok(suggestionService.getStats());
+    }
+
+    @PostMapping("/admin/search/suggest/rebuild")
+    public ResponseEntity<?> rebuildSuggestionIndex(@RequestHeader("Authorization") String token) {
+        suggestionService.requestRebuild();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(suggestionService.getStats());
+    }
+
+    @GetMapping("/admin/search/favorites")
+    public ResponseEntity<?> getFavoriteSearchIndexStats(@RequestHeader("Authorization") String token) {
+        return ResponseEntity.ok(favoriteSearchService.getStats());
+    }
+
+    @GetMapping("/admin/recommendations")
+    public ResponseEntity<?> getRecommendationModelStats(@RequestHeader("Authorization") String token) {
+        return ResponseEntity.ok(recommendationService.getStats());
+    }
+
+    @PostMapping("/admin/recommendations/rebuild")
+    public ResponseEntity<?> rebuildRecommendationModel(@RequestHeader("Authorization") String token) {
+        recommendationService.requestRebuild();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(recommendationService.getStats());
+    }
+
+    // Recalcula en segundo plano los vecinos "quienes guardaron este libro también guardaron"
+    @PostMapping("/admin/books/neighbors")
+    public ResponseEntity<?> computeBookNeighbors(@RequestHeader("Authorization") String token) {
+        try{
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(bookNeighborService.start());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno del servidor: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/admin/books/neighbors")
+    public ResponseEntity<?> getBookNeighborsProgress(@RequestHeader("Authorization") String token) {
+        Map<String, Object> progress = bookNeighborService.getProgress();
+        if (progress == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No se han calculado vecinos desde el arranque"));
+        }
+        return ResponseEntity.ok(progress);
+    }
+
+    @GetMapping("/admin/books/trending")
+    public ResponseEntity<?> getTrendingStats(@RequestHeader("Authorization") String token) {
+        return ResponseEntity.ok(trendingService.getStats());
+    }
+
+    @GetMapping("/admin/favorites/overlap")
+    public ResponseEntity<?> getFavoriteOverlapIndexStats(@RequestHeader("Authorization") String token) {
+        return ResponseEntity.ok(favoriteOverlapService.getStats());
+    }
+
+    // Usuarios con al menos minShared favoritos en común con el indicado
+    @GetMapping("/admin/users/{username}/similar")
+    public ResponseEntity<?> getSimilarUsers(@RequestHeader("Authorization") String token,
+            @PathVariable String username,
+            @RequestParam(defaultValue = "1") int minShared,
+            @RequestParam(defaultValue = "20") int limit) {
+        try{
+            return ResponseEntity.ok(favoriteOverlapService.findSimilarUsers(username, minShared, limit));
+        } catch (UserNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno del servidor: " + e.getMessage());
+        }
+    }
+
+    // Favoritos en común y similitud de Jaccard entre dos usuarios
+    @GetMapping("/admin/users/overlap")
+    public ResponseEntity<?> getUserOverlap(@RequestHeader("Authorization") String token,
+            @RequestParam String a, @RequestParam String b) {
+        try{
+            return ResponseEntity.ok(favoriteOverlapService.userOverlap(a, b));
+        } catch (UserNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno del servidor: " + e.getMessage());
+        }
+    }
+
+    // Enlaza con sus autores normalizados los favoritos que aún no están en favorite_author
+    @PostMapping("/admin/authors/backfill")
+    public ResponseEntity<?> backfillAuthors(@RequestHeader("Authorization") String token) {
+        try{
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(authorBackfillJob.start());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno del servidor: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/admin/authors/backfill")
+    public ResponseEntity<?> getAuthorBackfillProgress(@RequestHeader("Authorization") String token) {
+        Map<String, Object> progress = authorBackfillJob.getProgress();
+        if (progress == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No se ha rellenado el índice de autores desde el arranque"));
+        }
+        return ResponseEntity.ok(progress);
+    }
+
+    @GetMapping("/admin/metrics/password-hashing")
+    public ResponseEntity<?> getPasswordHashingStats(@RequestHeader("Authorization") String token) {
+        return ResponseEntity.ok(passwordHashingExecutor.getStats());
+    }
+
+    @PostMapping("/admin/favorites/counters/repair")
+    public ResponseEntity<?> repairFavoriteCounters(@RequestHeader("Authorization") String token) {
+        try{
+            return ResponseEntity.ok(favoriteCounterRepairJob.repair());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno del servidor: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/admin/favorites/changes/compact")
+    public ResponseEntity<?> compactFavoriteChanges(@RequestHeader("Authorization") String token) {
+        try{
+            return ResponseEntity.ok(favoriteChangeCompactionJob.compact());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno del servidor: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,22 @@
+package escom.ipn.hola_spring_6IV3.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Genera automáticamente los métodos getter, setter, toString, equals y hashCode
+@Data
+// Proporciona un patrón de diseño Builder para la clase
+@Builder
+// Genera un constructor sin argumentos
+@NoArgsConstructor
+// Genera un constructor con un argumento para cada campo en la clase
+@AllArgsConstructor
+public class AuthorBookDto {
+    private String bookId;
+    private String bookTitle;
+    private String bookCoverId;
+    // Usuarios que tienen el libro en favoritos
+    private long favorites;
+}
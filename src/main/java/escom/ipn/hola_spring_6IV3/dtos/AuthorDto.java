@@ -0,0 +1,25 @@
+package escom.ipn.hola_spring_6IV3.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Genera automáticamente los métodos getter, setter, toString, equals y hashCode
+@Data
+// Proporciona un patrón de diseño Builder para la clase
+@Builder
+// Genera un constructor sin argumentos
+@NoArgsConstructor
+// Genera un constructor con un argumento para cada campo en la clase
+@AllArgsConstructor
+public class AuthorDto {
+    private Long id;
+    private String name;
+    // Clave de OpenLibrary (OL...A) si se conoce
+    private String openLibraryKey;
+    // Favoritos con este autor (de todos los usuarios o del usuario consultado)
+    private long favorites;
+    // Libros distintos con este autor en favoritos; solo en la ficha del autor
+    private Long books;
+}
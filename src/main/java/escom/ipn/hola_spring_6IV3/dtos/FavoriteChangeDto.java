@@ -0,0 +1,29 @@
+package escom.ipn.hola_spring_6IV3.dtos;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Genera automáticamente los métodos getter, setter, toString, equals y hashCode
+@Data
+// Proporciona un patrón de diseño Builder para la clase
+@Builder
+// Genera un constructor sin argumentos
+@NoArgsConstructor
+// Genera un constructor con un argumento para cada campo en la clase
+@AllArgsConstructor
+public class FavoriteChangeDto {
+    // Secuencia del cambio; el cliente la guarda como su posición de sincronización
+    private long seq;
+    // ADDED o REMOVED
+    private String op;
+    private String bookId;
+    // Solo en las altas
+    private String bookTitle;
+    private String bookCoverId;
+    private String authors;
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,29 @@
+package escom.ipn.hola_spring_6IV3.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Genera automáticamente los métodos getter, setter, toString, equals y hashCode
+@Data
+// Proporciona un patrón de diseño Builder para la clase
+@Builder
+// Genera un constructor sin argumentos
+@NoArgsConstructor
+// Genera un constructor con un argumento para cada campo en la clase
+@AllArgsConstructor
+public class FavoriteChanges {
+    // true si la respuesta es la lista completa en favorites y el cliente debe reemplazar la suya
+    private boolean snapshot;
+    // Solo en snapshots: todos los favoritos del usuario
+    private List<FavoriteBookDetailsDto> favorites;
+    // Solo en deltas: cambios posteriores a since, en orden
+    private List<FavoriteChangeDto> changes;
+    // Valor de since para la siguiente sincronización
+    private long cursor;
+    // true si quedan más cambios: pedir de nuevo con el cursor devuelto
+    private boolean hasMore;
+}
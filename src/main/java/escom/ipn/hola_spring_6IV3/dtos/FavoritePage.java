@@ -0,0 +1,27 @@
+package escom.ipn.hola_spring_6IV3.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Genera automáticamente los métodos getter, setter, toString, equals y hashCode
+@Data
+// Proporciona un patrón de diseño Builder para la clase
+@Builder
+// Genera un constructor sin argumentos
+@NoArgsConstructor
+// Genera un constructor con un argumento para cada campo en la clase
+@AllArgsConstructor
+public class FavoritePage {
+    private List<FavoriteBookDetailsDto> favorites;
+    // Número de favoritos de esta página
+    private int count;
+    // Cursor opaco para pedir la página siguiente; null si no hay más
+    private String nextCursor;
+    private boolean hasMore;
+    // Total de favoritos del usuario, solo si se pidió con includeTotal=true
+    private Long total;
+}
@@ -1,6 +1,10 @@
 package escom.ipn.hola_spring_6IV3.dtos;
 
 public class FavoriteRequest {
+    // Longitudes de las columnas de favorites: lo que no cabe se rechaza en lugar de truncarse
+    public static final int MAX_BOOK_ID_LENGTH = 40;
+    public static final int MAX_TEXT_LENGTH = 255;
+
     private String bookId;
     private String bookTitle;
     private String bookCoverId;
@@ -50,4 +54,26 @@ public class FavoriteRequest {
     public void setAuthors(String authors) {
         this.authors = authors;
     }
+
+    /**
+     * Motivo por el que el favorito no cabe en la tabla favorites, o null si es válido
+     */
+    public String findValidationError() {
+        if (bookId == null || bookId.isBlank()) {
+            return "falta bookId";
+        }
+        if (bookId.length() > MAX_BOOK_ID_LENGTH) {
+            return "bookId demasiado largo (máximo " + MAX_BOOK_ID_LENGTH + " caracteres)";
+        }
+        if (bookTitle != null && bookTitle.length() > MAX_TEXT_LENGTH) {
+            return "bookTitle demasiado largo (máximo " + MAX_TEXT_LENGTH + " caracteres)";
+        }
+        if (bookCoverId != null && bookCoverId.length() > MAX_TEXT_LENGTH) {
+            return "bookCoverId demasiado largo (máximo " + MAX_TEXT_LENGTH + " caracteres)";
+        }
+        if (authors != null && authors.length() > MAX_TEXT_LENGTH) {
+            return "authors demasiado largo (máximo " + MAX_TEXT_LENGTH + " caracteres)";
+        }
+        return null;
+    }
 }
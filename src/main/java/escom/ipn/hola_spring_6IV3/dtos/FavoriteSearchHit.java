@@ -0,0 +1,25 @@
+package escom.ipn.hola_spring_6IV3.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Genera automáticamente los métodos getter, setter, toString, equals y hashCode
+@Data
+// Proporciona un patrón de diseño Builder para la clase
+@Builder
+// Genera un constructor sin argumentos
+@NoArgsConstructor
+// Genera un constructor con un argumento para cada campo en la clase
+@AllArgsConstructor
+public class FavoriteSearchHit {
+    private String bookId;
+    private String bookTitle;
+    private String bookCoverId;
+    private String authors;
+    // Puntuación BM25 del libro para la consulta
+    private float score;
+    // Usuarios que tienen el libro en favoritos
+    private int favorites;
+}
@@ -0,0 +1,25 @@
+package escom.ipn.hola_spring_6IV3.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Genera automáticamente los métodos getter, setter, toString, equals y hashCode
+@Data
+// Proporciona un patrón de diseño Builder para la clase
+@Builder
+// Genera un constructor sin argumentos
+@NoArgsConstructor
+// Genera un constructor con un argumento para cada campo en la clase
+@AllArgsConstructor
+public class FavoriteSearchResult {
+    private String query;
+    // Libros que coinciden con la consulta, en todas las páginas
+    private int total;
+    private int page;
+    private int size;
+    private List<FavoriteSearchHit> hits;
+}
@@ -0,0 +1,27 @@
+package escom.ipn.hola_spring_6IV3.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Genera automáticamente los métodos getter, setter, toString, equals y hashCode
+@Data
+// Proporciona un patrón de diseño Builder para la clase
+@Builder
+// Genera un constructor sin argumentos
+@NoArgsConstructor
+// Genera un constructor con un argumento para cada campo en la clase
+@AllArgsConstructor
+public class SuggestionDto {
+    // Título del libro o nombre del autor, tal como se muestra
+    private String text;
+    // title o author
+    private String type;
+    // Solo en los títulos
+    private String bookId;
+    private String bookCoverId;
+    private String authors;
+    // Usuarios que tienen el libro (o libros del autor) en favoritos
+    private long favorites;
+}
@@ -0,0 +1,65 @@
+package escom.ipn.hola_spring_6IV3.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteRequest;
+
+/**
+ * Se publica desde FavoriteService cada vez que se añaden o eliminan favoritos de un usuario.
+ * Los índices y cachés en memoria lo escuchan tras el commit para mantenerse al día.
+ * En las eliminaciones solo viene informado el bookId de cada libro.
+ * addedDates lleva, en el mismo orden que books, la fecha de alta de cada favorito (la original en una
+ * importación, y también en las bajas), para que quien cuente por fecha lo haga igual que sobre added_date.
+ */
+public class FavoriteChangedEvent {
+
+    public enum Type { ADDED, REMOVED }
+
+    private final Integer userId;
+    private final Type type;
+    private final List<FavoriteRequest> books;
+    private final List<LocalDateTime> addedDates;
+
+    public FavoriteChangedEvent(Integer userId, Type type, List<FavoriteRequest> books,
+            List<LocalDateTime> addedDates) {
+        if (books.size() != addedDates.size()) {
+            throw new IllegalArgumentException("Se necesita una fecha de alta por libro");
+        }
+        this.userId = userId;
+        this.type = type;
+        this.books = books;
+        this.addedDates = addedDates;
+    }
+
+    public static FavoriteChangedEvent added(Integer userId, List<FavoriteRequest> books,
+            List<LocalDateTime> addedDates) {
+        return new FavoriteChangedEvent(userId, Type.ADDED, books, addedDates);
+    }
+
+    public static FavoriteChangedEvent removed(Integer userId, List<String> bookIds, List<LocalDateTime> addedDates) {
+        return new FavoriteChangedEvent(userId, Type.REMOVED, bookIds.stream()
+                .map(bookId -> new FavoriteRequest(bookId, null, null, null))
+                .toList(), addedDates);
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isAdded() {
+        return type == Type.ADDED;
+    }
+
+    public List<FavoriteRequest> getBooks() {
+        return books;
+    }
+
+    public List<LocalDateTime> getAddedDates() {
+        return addedDates;
+    }
+}
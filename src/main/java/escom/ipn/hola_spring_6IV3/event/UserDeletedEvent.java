@@ -0,0 +1,18 @@
+package escom.ipn.hola_spring_6IV3.event;
+
+/**
+ * Se publica desde UserService al eliminar un usuario; sus favoritos desaparecen sin pasar por
+ * FavoriteService, así que los índices en memoria lo escuchan para olvidarlos
+ */
+public class UserDeletedEvent {
+
+    private final Integer userId;
+
+    public UserDeletedEvent(Integer userId) {
+        this.userId = userId;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+}
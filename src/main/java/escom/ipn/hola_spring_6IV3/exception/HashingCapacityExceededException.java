@@ -0,0 +1,13 @@
+package escom.ipn.hola_spring_6IV3.exception;
+// Excepción lanzada cuando la cola de hashing de contraseñas está llena y la petición se rechaza de inmediato.
+public class HashingCapacityExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private final long retryAfterSeconds;
+    public HashingCapacityExceededException(long retryAfterSeconds) {
+        super("El servicio de autenticación está saturado. Inténtalo de nuevo en " + retryAfterSeconds + " segundos.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,11 @@
+package escom.ipn.hola_spring_6IV3.exception;
+
+import io.jsonwebtoken.JwtException;
+
+// Excepción lanzada cuando se presenta un token válido que fue revocado antes de expirar.
+public class TokenRevokedException extends JwtException {
+    private static final long serialVersionUID = 1L;
+    public TokenRevokedException() {
+        super("El token ha sido revocado.");
+    }
+}
@@ -0,0 +1,11 @@
+package escom.ipn.hola_spring_6IV3.exception;
+// Excepción lanzada cuando OpenLibrary no responde o falla y no hay copia en caché que servir.
+public class UpstreamUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+    public UpstreamUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
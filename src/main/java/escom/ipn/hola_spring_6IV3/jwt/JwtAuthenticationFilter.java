@@ -6,13 +6,19 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import escom.ipn.hola_spring_6IV3.exception.RoleNotFoundException;
+import escom.ipn.hola_spring_6IV3.model.Role;
+import escom.ipn.hola_spring_6IV3.model.User;
 import escom.ipn.hola_spring_6IV3.service.JwtService;
+import io.jsonwebtoken.JwtException;
 
 import org.springframework.lang.NonNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -29,6 +35,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService; // Servicio para cargar usuarios
 
+    @Autowired
+    private TokenVersionRegistry tokenVersionRegistry; // Última versión conocida de cada usuario
+
+    // Autenticar a partir de los claims del token sin consultar la base de datos
+    @Value("${jwt.claims-authentication.enabled:true}")
+    private boolean claimsAuthenticationEnabled;
+
     private String getTokenFromRequest(HttpServletRequest request) {
         final String authorizationHeader = request.getHeader("Authorization");
         if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
@@ -47,11 +60,40 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        // Validar el token y extraer el usuario
-        String username = jwtService.extractUsername(token); // Extrae el usuario del token
+        // Validar el token una sola vez y reutilizar sus claims
+        VerifiedToken verified;
+        try {
+            verified = jwtService.verify(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String username = verified.getUsername(); // Extrae el usuario del token
+        if (username != null && claimsAuthenticationEnabled) {
+            UserDetails fromClaims = userDetailsFromClaims(verified);
+            if (fromClaims != null) {
+                // El usuario no ha cambiado desde que se emitió el token: no hace falta ir a la base de datos
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken(fromClaims, null, fromClaims.getAuthorities()));
+                filterChain.doFilter(request, response);
+                return;
+            }
+        }
+
         if (username != null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            if (jwtService.isTokenValid(token, userDetails)) { // Verifica si el token es válido
+            UserDetails userDetails;
+            try {
+                userDetails = userDetailsService.loadUserByUsername(username);
+            } catch (UsernameNotFoundException e) {
+                // El usuario fue eliminado después de emitir el token
+                filterChain.doFilter(request, response);
+                return;
+            }
+            if (userDetails instanceof User user) {
+                tokenVersionRegistry.record(user.getUsername(), user.getTokenVersion());
+            }
+            if (jwtService.isTokenValid(verified, userDetails)) { // Verifica si el token es válido
                 // Crear un objeto de autenticación
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
@@ -61,4 +103,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    // Construye el principal a partir del rol y la versión del token, o null si hay que consultar la base de datos
+    private UserDetails userDetailsFromClaims(VerifiedToken verified) {
+        String role = verified.getRole();
+        Integer version = verified.getTokenVersion();
+        if (role == null || version == null || verified.isExpired()
+                || !tokenVersionRegistry.isCurrent(verified.getUsername(), version)) {
+            return null;
+        }
+        try {
+            return User.builder()
+                    .id(verified.getUserId())
+                    .username(verified.getUsername())
+                    .password("")
+                    .role(Role.fromString(role))
+                    .tokenVersion(version)
+                    .build();
+        } catch (RoleNotFoundException e) {
+            return null;
+        }
+    }
 }
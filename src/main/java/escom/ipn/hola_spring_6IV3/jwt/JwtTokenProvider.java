@@ -1,18 +1,30 @@
 package escom.ipn.hola_spring_6IV3.jwt;
 
-import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+import javax.crypto.SecretKey;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import escom.ipn.hola_spring_6IV3.model.User;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 
 // Generar y validar JWT
 @Component
@@ -24,9 +36,53 @@ public class JwtTokenProvider {
     @Value("${jwt.expiration}")
     private long jwtExpirationInMills;
 
-    // Generar un token sin claims adicionales
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private long verifiedCacheMaxSize;
+
+    @Autowired
+    private TokenRevocationStore revocationStore; // Retrasa el iat de los tokens emitidos tras revocar
+
+    // La clave y el parser son inmutables y thread-safe: se construyen una sola vez
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // Tokens ya verificados; cada entrada se descarta en el instante de su claim "exp"
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+            .maximumSize(verifiedCacheMaxSize)
+            .expireAfter(new Expiry<String, VerifiedToken>() {
+                @Override
+                public long expireAfterCreate(String token, VerifiedToken verified, long currentTime) {
+                    long remainingMillis = verified.getExpiration().getTime() - System.currentTimeMillis();
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+                }
+
+                @Override
+                public long expireAfterUpdate(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+    }
+
+    // Claims que permiten autenticar la petición sin consultar la base de datos
+    public static final String ROLE_CLAIM = "role";
+    public static final String VERSION_CLAIM = "ver";
+    public static final String USER_ID_CLAIM = "uid";
+
+    // Generar un token con el id, el rol y la versión del usuario como únicos claims adicionales
     public String generateToken(UserDetails user) {
-        return getToken(new HashMap<>(), user);
+        return getToken(userClaims(user), user);
     }
 
     // Generar un token con claims adicionales
@@ -34,47 +90,49 @@ public class JwtTokenProvider {
         return getToken(extraClaims, user);
     }
 
-    // Método para obtener la clave secreta de forma segura
-    private Key getKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
-        // Permite crear una nueva instancia de nuestra secret key
+    private Map<String, Object> userClaims(UserDetails user) {
+        Map<String, Object> claims = new HashMap<>();
+        if (user instanceof User appUser) {
+            claims.put(USER_ID_CLAIM, appUser.getId());
+            claims.put(ROLE_CLAIM, appUser.getRole().getName());
+            claims.put(VERSION_CLAIM, appUser.getTokenVersion());
+        }
+        return claims;
     }
 
     @SuppressWarnings("deprecation")
     private String getToken(Map<String, Object> extraClaims, UserDetails user) {
+        long issuedAt = revocationStore.issuedAtFor(user.getUsername(), System.currentTimeMillis());
         return Jwts.builder()
             .setClaims(extraClaims)
+            .setId(UUID.randomUUID().toString())
             .setSubject(user.getUsername())
-            .setIssuedAt(new Date(System.currentTimeMillis()))
-            .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationInMills))
-            .signWith(getKey())
+            .setIssuedAt(new Date(issuedAt))
+            .setExpiration(new Date(issuedAt + jwtExpirationInMills))
+            .signWith(signingKey)
             .compact();
     }
 
-    // Método para extraer los claims del token
-    @SuppressWarnings("deprecation")
-    private Claims extractClaims(String token) {
-        return Jwts.parser()
-            .setSigningKey(getKey())
-            .build()
-            .parseClaimsJws(token)
-            .getBody();
-    }
-    
-    // Método para verificar si el token ha expirado
-    private boolean isTokenExpired(String token) {
-        return extractClaims(token).getExpiration().before(new Date());
+    // Verifica la firma y la expiración una sola vez por token; las siguientes llamadas salen de la caché.
+    // Lanza JwtException si el token no es válido.
+    public VerifiedToken verify(String token) {
+        VerifiedToken cached = verifiedTokens.getIfPresent(token);
+        if (cached != null && !cached.isExpired()) {
+            return cached;
+        }
+        VerifiedToken verified = new VerifiedToken(parser.parseSignedClaims(token).getPayload());
+        verifiedTokens.put(token, verified);
+        return verified;
     }
     
     // Método para extraer el usuario del token
     public String extractUsername(String token){
-        return extractClaims(token).getSubject();
+        return verify(token).getUsername();
     }
     
     // Método para extraer toda la información del token
     public Map<String, Object> extractAllInfo(String token) {
-        Claims claims = extractClaims(token);
+        Claims claims = verify(token).getClaims();
         Map<String, Object> info = new HashMap<>();
         info.put("username", claims.getSubject());
         info.put("issuedAt", claims.getIssuedAt());
@@ -86,10 +144,14 @@ public class JwtTokenProvider {
     // Método para validar el token
     public boolean isTokenValid(String token, UserDetails user) {
         try {
-            final String username = extractUsername(token);
-            return username.equals(user.getUsername()) && !isTokenExpired(token);
+            return isTokenValid(verify(token), user);
         } catch (Exception e) {
             return false;
         }
     }
+
+    // Validación sobre un token ya verificado, sin volver a parsearlo
+    public boolean isTokenValid(VerifiedToken token, UserDetails user) {
+        return token.getUsername().equals(user.getUsername()) && !token.isExpired();
+    }
 }
@@ -0,0 +1,157 @@
+package escom.ipn.hola_spring_6IV3.jwt;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import escom.ipn.hola_spring_6IV3.util.BloomFilter;
+import escom.ipn.hola_spring_6IV3.util.ExpiryWheel;
+
+/**
+ * Tokens revocados antes de su expiración (logout) y usuarios con todos sus tokens revocados.
+ * La consulta pasa primero por un filtro de Bloom: si no hay nada revocado para el token
+ * responde en nanosegundos sin tocar los conjuntos exactos ni la base de datos.
+ * Cada entrada se olvida en cuanto el token deja de ser válido por sí mismo, mediante una rueda de tiempo.
+ */
+@Component
+public class TokenRevocationStore {
+
+    private static final String TOKEN_PREFIX = "t:";
+    private static final String USER_PREFIX = "u:";
+
+    // jti -> instante de expiración del token revocado
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // username -> instante (ms) hasta el que se revocan todos los tokens emitidos
+    private final Map<String, Long> userCutoffs = new ConcurrentHashMap<>();
+    private final ExpiryWheel<String> wheel;
+    private final long expectedEntries;
+    private final double falsePositiveRate;
+    private final long maxTokenLifetimeMillis;
+
+    // Las escrituras y reconstrucciones del filtro se serializan; las lecturas no bloquean
+    private final Object writeLock = new Object();
+    private volatile BloomFilter bloom;
+    private long bloomCapacity;
+    private int expiredSinceRebuild;
+
+    public TokenRevocationStore(
+            @Value("${jwt.revocation.expected-entries:100000}") long expectedEntries,
+            @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${jwt.revocation.tick-millis:1000}") long tickMillis,
+            @Value("${jwt.expiration}") long maxTokenLifetimeMillis) {
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxTokenLifetimeMillis = maxTokenLifetimeMillis;
+        this.wheel = new ExpiryWheel<>(tickMillis, 4096);
+        this.bloomCapacity = expectedEntries;
+        this.bloom = new BloomFilter(expectedEntries, falsePositiveRate);
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        BloomFilter filter = bloom;
+        String tokenId = token.getId();
+        if (tokenId != null && filter.mightContain(TOKEN_PREFIX + tokenId)
+                && revokedTokens.containsKey(tokenId)) {
+            return true;
+        }
+        String username = token.getUsername();
+        if (username != null && filter.mightContain(USER_PREFIX + username)) {
+            Long cutoff = userCutoffs.get(username);
+            return cutoff != null && token.getIssuedAt() != null && issuedBefore(token.getIssuedAt().getTime(), cutoff);
+        }
+        return false;
+    }
+
+    // Revoca un token concreto hasta su expiración natural
+    public void revoke(VerifiedToken token) {
+        if (token.getId() == null) {
+            // Tokens antiguos sin jti: solo pueden revocarse junto con el resto de tokens del usuario
+            revokeAllForUser(token.getUsername());
+            return;
+        }
+        long expiresAt = token.getExpiration().getTime();
+        synchronized (writeLock) {
+            revokedTokens.put(token.getId(), expiresAt);
+            bloom.put(TOKEN_PREFIX + token.getId());
+            growIfNeeded();
+        }
+        wheel.schedule(TOKEN_PREFIX + token.getId(), expiresAt);
+    }
+
+    // Revoca todos los tokens emitidos hasta ahora para el usuario
+    public void revokeAllForUser(String username) {
+        long now = System.currentTimeMillis();
+        synchronized (writeLock) {
+            userCutoffs.put(username, now);
+            bloom.put(USER_PREFIX + username);
+            growIfNeeded();
+        }
+        // Pasado el tiempo de vida máximo de un token ya no queda ninguno emitido antes del corte
+        wheel.schedule(USER_PREFIX + username, now + maxTokenLifetimeMillis);
+    }
+
+    /**
+     * Instante de emisión para un token nuevo del usuario: ahora, o el segundo siguiente al corte si se
+     * revocaron sus tokens en este mismo segundo, para que el corte no rechace también el token nuevo
+     */
+    public long issuedAtFor(String username, long nowMillis) {
+        Long cutoff = username == null ? null : userCutoffs.get(username);
+        if (cutoff == null || nowMillis / 1000 > cutoff / 1000) {
+            return nowMillis;
+        }
+        return (cutoff / 1000 + 1) * 1000;
+    }
+
+    // iat solo tiene segundos: el corte rechaza su segundo completo, porque un token de ese segundo pudo
+    // emitirse antes de revocar. Los emitidos después llevan un iat posterior (issuedAtFor)
+    static boolean issuedBefore(long issuedAtMillis, long cutoffMillis) {
+        return issuedAtMillis / 1000 <= cutoffMillis / 1000;
+    }
+
+    public int size() {
+        return revokedTokens.size() + userCutoffs.size();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.tick-millis:1000}")
+    public void expireEntries() {
+        int expired = wheel.advance(System.currentTimeMillis(), this::expire);
+        if (expired == 0) {
+            return;
+        }
+        synchronized (writeLock) {
+            expiredSinceRebuild += expired;
+            // El filtro de Bloom no admite borrados: se reconstruye cuando acumula demasiadas claves muertas
+            if (expiredSinceRebuild > Math.max(1024, size())) {
+                rebuildBloom();
+            }
+        }
+    }
+
+    private void expire(String key, long deadline) {
+        if (key.startsWith(TOKEN_PREFIX)) {
+            revokedTokens.remove(key.substring(TOKEN_PREFIX.length()), deadline);
+        } else {
+            // Solo se borra si nadie volvió a revocar al usuario después de programar esta expiración
+            userCutoffs.remove(key.substring(USER_PREFIX.length()), deadline - maxTokenLifetimeMillis);
+        }
+    }
+
+    // Mantiene la tasa de falsos positivos cuando hay más revocaciones vivas de las previstas
+    private void growIfNeeded() {
+        if (size() > bloomCapacity) {
+            rebuildBloom();
+        }
+    }
+
+    private void rebuildBloom() {
+        bloomCapacity = Math.max(expectedEntries, size() * 2L);
+        BloomFilter rebuilt = new BloomFilter(bloomCapacity, falsePositiveRate);
+        revokedTokens.keySet().forEach(id -> rebuilt.put(TOKEN_PREFIX + id));
+        userCutoffs.keySet().forEach(username -> rebuilt.put(USER_PREFIX + username));
+        bloom = rebuilt;
+        expiredSinceRebuild = 0;
+    }
+}
@@ -0,0 +1,42 @@
+package escom.ipn.hola_spring_6IV3.jwt;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// Última versión de token conocida por usuario. Permite autenticar desde los claims del JWT
+// sin consultar la base de datos mientras el usuario no haya cambiado.
+// Las entradas caducan: un cambio de versión hecho en otro nodo no llega aquí, así que pasado el TTL
+// la siguiente petición vuelve a cargar al usuario y los claims antiguos dejan de aceptarse.
+@Component
+public class TokenVersionRegistry {
+
+    private final ConcurrentMap<String, Integer> versions;
+
+    public TokenVersionRegistry(@Value("${jwt.claims-authentication.version-ttl:1m}") Duration ttl) {
+        this.versions = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .<String, Integer>build()
+                .asMap();
+    }
+
+    // true solo si la versión del token coincide con la última versión conocida del usuario
+    public boolean isCurrent(String username, int tokenVersion) {
+        Integer current = versions.get(username);
+        return current != null && current == tokenVersion;
+    }
+
+    // Registra la versión leída de la base de datos; nunca retrocede ante lecturas concurrentes antiguas
+    public void record(String username, int tokenVersion) {
+        versions.merge(username, tokenVersion, Math::max);
+    }
+
+    // Olvida al usuario (p. ej. tras eliminarlo): sus tokens volverán a validarse contra la base de datos
+    public void evict(String username) {
+        versions.remove(username);
+    }
+}
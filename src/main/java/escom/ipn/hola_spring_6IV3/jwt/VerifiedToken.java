@@ -0,0 +1,56 @@
+package escom.ipn.hola_spring_6IV3.jwt;
+
+import java.util.Date;
+
+import io.jsonwebtoken.Claims;
+
+// Resultado de verificar un JWT una sola vez: firma comprobada y claims listos para reutilizar
+public final class VerifiedToken {
+
+    private final Claims claims;
+
+    VerifiedToken(Claims claims) {
+        this.claims = claims;
+    }
+
+    public Claims getClaims() {
+        return claims;
+    }
+
+    // Identificador único del token (jti), o null en tokens emitidos antes de incluirlo
+    public String getId() {
+        return claims.getId();
+    }
+
+    public String getUsername() {
+        return claims.getSubject();
+    }
+
+    // Id del usuario embebido en el token, o null en tokens emitidos antes de incluirlo
+    public Integer getUserId() {
+        return claims.get(JwtTokenProvider.USER_ID_CLAIM, Integer.class);
+    }
+
+    // Rol embebido en el token, o null en tokens emitidos antes de incluirlo
+    public String getRole() {
+        return claims.get(JwtTokenProvider.ROLE_CLAIM, String.class);
+    }
+
+    // Versión del usuario al emitir el token, o null si el token no la incluye
+    public Integer getTokenVersion() {
+        return claims.get(JwtTokenProvider.VERSION_CLAIM, Integer.class);
+    }
+
+    public Date getIssuedAt() {
+        return claims.getIssuedAt();
+    }
+
+    public Date getExpiration() {
+        return claims.getExpiration();
+    }
+
+    // Un token verificado puede caducar mientras sigue en caché, por eso se comprueba en cada uso
+    public boolean isExpired() {
+        return claims.getExpiration().before(new Date());
+    }
+}
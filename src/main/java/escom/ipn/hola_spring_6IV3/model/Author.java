@@ -0,0 +1,42 @@
+package escom.ipn.hola_spring_6IV3.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Autor normalizado de los favoritos. dedupe_key es "ol:" + clave de OpenLibrary cuando se conoce
+// y "n:" + nombre normalizado si no; un autor conocido solo por nombre pasa a "ol:" al aparecer su clave.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "authors", indexes = {
+    @Index(name = "uk_authors_dedupe_key", columnList = "dedupe_key", unique = true),
+    // Búsqueda por prefijo del nombre sin acentos ni mayúsculas
+    @Index(name = "idx_authors_normalized_name", columnList = "normalized_name")
+})
+public class Author {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "dedupe_key", nullable = false, length = 260)
+    private String dedupeKey;
+
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    @Column(name = "normalized_name", nullable = false)
+    private String normalizedName;
+
+    @Column(name = "open_library_key", length = 20)
+    private String openLibraryKey;
+}
@@ -0,0 +1,25 @@
+package escom.ipn.hola_spring_6IV3.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Fila única con el mayor id de favorites que cubrió un relleno de favorite_author terminado sin tramos fallidos.
+// Los favoritos posteriores se enlazan al darse de alta; el arranque solo repasa los que quedan por encima.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "author_backfill_watermark")
+public class AuthorBackfillWatermark {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "backfilled_through", nullable = false)
+    private long backfilledThrough;
+}
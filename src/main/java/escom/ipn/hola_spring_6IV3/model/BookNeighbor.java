@@ -0,0 +1,62 @@
+package escom.ipn.hola_spring_6IV3.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Vecinos de cada libro según los usuarios que tienen ambos en favoritos ("también lo guardaron").
+// La escribe BookNeighborService por lotes; cada ejecución escribe una generación nueva y después
+// borra las anteriores, así que los lectores nunca ven una lista a medio escribir.
+// Los datos del vecino se copian aquí para servir la lista con una sola consulta por índice.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "book_neighbors", indexes = {
+    // Vecinos de un libro en una generación, ya en orden
+    @Index(name = "idx_book_neighbors_book", columnList = "book_id, generation, neighbor_rank"),
+    // Limpieza de generaciones antiguas (DELETE ... WHERE generation < ? LIMIT ?) sin recorrer la tabla
+    @Index(name = "idx_book_neighbors_generation", columnList = "generation")
+})
+public class BookNeighbor {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "generation", nullable = false)
+    private long generation;
+
+    @Column(name = "book_id", nullable = false, length = 40)
+    private String bookId;
+
+    @Column(name = "neighbor_rank", nullable = false)
+    private int neighborRank;
+
+    @Column(name = "neighbor_id", nullable = false, length = 40)
+    private String neighborId;
+
+    @Column(name = "neighbor_title")
+    private String neighborTitle;
+
+    @Column(name = "neighbor_cover_id")
+    private String neighborCoverId;
+
+    @Column(name = "neighbor_authors")
+    private String neighborAuthors;
+
+    // Usuarios que tienen en favoritos los dos libros
+    @Column(name = "co_favorites", nullable = false)
+    private int coFavorites;
+
+    // Similitud coseno: coFavorites / sqrt(favoritos del libro * favoritos del vecino)
+    @Column(name = "score", nullable = false)
+    private double score;
+}
@@ -0,0 +1,31 @@
+package escom.ipn.hola_spring_6IV3.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Fila única con la generación de book_neighbors que se sirve y la que se servía antes.
+// Se publica cuando la generación está escrita entera y antes de borrar las anteriores,
+// así que una ejecución interrumpida nunca deja a los lectores con una lista a medias.
+// La anterior se conserva hasta la siguiente publicación: los nodos que aún no han releído
+// la generación publicada siguen encontrando sus filas.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "book_neighbor_generation")
+public class BookNeighborGeneration {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "generation", nullable = false)
+    private long generation;
+
+    @Column(name = "previous_generation", nullable = false)
+    private long previousGeneration;
+}
@@ -0,0 +1,30 @@
+package escom.ipn.hola_spring_6IV3.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Fila única que reserva el cálculo de vecinos de libros para un nodo.
+// El nodo que la toma la renueva entre fases y la suelta al terminar; si se cae,
+// otro nodo puede tomarla cuando expires_at queda atrás.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "book_neighbor_lease")
+public class BookNeighborLease {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "owner", nullable = false, length = 64)
+    private String owner;
+
+    // Milisegundos desde epoch
+    @Column(name = "expires_at", nullable = false)
+    private long expiresAt;
+}
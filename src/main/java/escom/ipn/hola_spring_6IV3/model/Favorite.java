@@ -4,7 +4,13 @@ import jakarta.persistence.*;
 
 @Entity
 @Table(name = "favorites", uniqueConstraints = {
+    // También sirve de índice (user_id, book_id) para las búsquedas puntuales por usuario y libro
     @UniqueConstraint(columnNames = {"user_id", "book_id"})
+}, indexes = {
+    // Listado de favoritos de un usuario ordenado por fecha sin ordenar en memoria
+    @Index(name = "idx_favorites_user_added", columnList = "user_id, added_date"),
+    // Favoritos recientes de todos los usuarios (recarga de tendencias al arrancar)
+    @Index(name = "idx_favorites_added", columnList = "added_date")
 })
 public class Favorite{
 
@@ -0,0 +1,57 @@
+package escom.ipn.hola_spring_6IV3.model;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Autores de cada favorito. La clave foránea borra las filas con el favorito (ON DELETE CASCADE),
+// así que los DELETE masivos de favoritos no necesitan tocar esta tabla.
+// user_id se copia del favorito para filtrar por usuario sin leer favorites.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "favorite_author", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_favorite_author", columnNames = {"favorite_id", "author_id"})
+}, indexes = {
+    // Favoritos de un autor, de todos o de un usuario
+    @Index(name = "idx_favorite_author_author_user", columnList = "author_id, user_id"),
+    // Autores de los favoritos de un usuario
+    @Index(name = "idx_favorite_author_user_author", columnList = "user_id, author_id")
+})
+public class FavoriteAuthor {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "favorite_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Favorite favorite;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "author_id", nullable = false)
+    private Author author;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    // Posición del autor en el favorito (0 para el primero)
+    @Column(name = "author_order", nullable = false)
+    private int authorOrder;
+}
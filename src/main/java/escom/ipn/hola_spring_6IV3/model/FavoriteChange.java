@@ -0,0 +1,58 @@
+package escom.ipn.hola_spring_6IV3.model;
+
+import java.time.LocalDateTime;
+
+import escom.ipn.hola_spring_6IV3.event.FavoriteChangedEvent;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Registro de altas y bajas de favoritos para la sincronización incremental.
+// El id autoincremental es la secuencia que ven los clientes; dentro de un usuario crece
+// en orden de commit porque cada escritura bloquea antes su fila de favorite_counters.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "favorite_changes", indexes = {
+    // Cambios de un usuario posteriores a una secuencia, en orden
+    @Index(name = "idx_favorite_changes_user_seq", columnList = "user_id, id")
+})
+public class FavoriteChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "book_id", nullable = false, length = 40)
+    private String bookId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "op", nullable = false, length = 10)
+    private FavoriteChangedEvent.Type op;
+
+    // Datos del libro para que el cliente pinte el alta sin volver a pedirlo; vacíos en las bajas
+    @Column(name = "book_title")
+    private String bookTitle;
+
+    @Column(name = "book_cover_id")
+    private String bookCoverId;
+
+    @Column(name = "authors")
+    private String authors;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,25 @@
+package escom.ipn.hola_spring_6IV3.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Fila única con la última secuencia borrada por la compactación de favorite_changes.
+// Un cliente con una secuencia anterior ya no puede recibir deltas y necesita un snapshot.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "favorite_change_watermark")
+public class FavoriteChangeWatermark {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "compacted_through", nullable = false)
+    private long compactedThrough;
+}
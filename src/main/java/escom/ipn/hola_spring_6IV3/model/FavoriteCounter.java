@@ -0,0 +1,31 @@
+package escom.ipn.hola_spring_6IV3.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Número de favoritos por usuario, mantenido en la misma transacción que cada alta o baja.
+// Sin clave foránea a user: la tabla se repara por lotes y no debe bloquear escrituras de usuarios.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "favorite_counters")
+public class FavoriteCounter {
+
+    @Id
+    @Column(name = "user_id")
+    private Integer userId;
+
+    @Column(name = "favorites_count", nullable = false)
+    private long favoritesCount;
+
+    // Se incrementa con cada alta o baja en la misma transacción; es la versión compartida por todos
+    // los nodos con la que FavoritesCache forma las claves y el ETag
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+}
@@ -7,6 +7,8 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -53,6 +55,12 @@ public class User implements UserDetails {
     @Enumerated(EnumType.STRING)
     private Role role;
 
+    // Se incrementa cada vez que cambian los datos del usuario; los tokens con una versión anterior
+    // obligan al filtro JWT a volver a consultar la base de datos
+    @JsonIgnore
+    @Column(name = "token_version", nullable = false, columnDefinition = "int default 0")
+    private int tokenVersion;
+
     /**
      * Returns the authorities granted to the user. This method is used by Spring Security
      * to determine the roles and permissions assigned to the user.
@@ -0,0 +1,65 @@
+package escom.ipn.hola_spring_6IV3.openlibrary;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import escom.ipn.hola_spring_6IV3.exception.UpstreamUnavailableException;
+
+// Cliente HTTP de OpenLibrary con conexiones reutilizadas y tiempos de espera acotados
+@Component
+public class HttpOpenLibraryClient implements OpenLibraryClient {
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    private final String userAgent;
+
+    public HttpOpenLibraryClient(
+            @Value("${openlibrary.base-url:https://openlibrary.org}") String baseUrl,
+            @Value("${openlibrary.connect-timeout:3s}") Duration connectTimeout,
+            @Value("${openlibrary.request-timeout:10s}") Duration requestTimeout,
+            @Value("${openlibrary.user-agent:EmmBook/1.0}") String userAgent) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestTimeout = requestTimeout;
+        this.userAgent = userAgent;
+    }
+
+    @Override
+    public OpenLibraryResponse fetch(String pathAndQuery, String etag, String lastModified) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery))
+                .timeout(requestTimeout)
+                .header(HttpHeaders.ACCEPT, "application/json")
+                .header(HttpHeaders.USER_AGENT, userAgent)
+                .GET();
+        if (etag != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            request.header(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            return new OpenLibraryResponse(response.statusCode(), response.body(),
+                    response.headers().firstValue(HttpHeaders.CONTENT_TYPE).orElse("application/json"),
+                    response.headers().firstValue(HttpHeaders.ETAG).orElse(null),
+                    response.headers().firstValue(HttpHeaders.LAST_MODIFIED).orElse(null));
+        } catch (IOException e) {
+            throw new UpstreamUnavailableException("OpenLibrary no responde: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpstreamUnavailableException("Petición a OpenLibrary interrumpida", e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package escom.ipn.hola_spring_6IV3.openlibrary;
+
+/**
+ * Acceso de bajo nivel a la API de OpenLibrary. La implementación por defecto usa HTTP contra
+ * openlibrary.base-url, así que las pruebas pueden apuntar a un servidor local o sustituir el bean.
+ */
+public interface OpenLibraryClient {
+
+    /**
+     * Pide pathAndQuery (p. ej. "/works/OL45804W.json") con los validadores de la copia anterior,
+     * si la hay, para recibir un 304 en lugar del cuerpo completo.
+     * Lanza UpstreamUnavailableException si no se obtiene respuesta
+     */
+    OpenLibraryResponse fetch(String pathAndQuery, String etag, String lastModified);
+}
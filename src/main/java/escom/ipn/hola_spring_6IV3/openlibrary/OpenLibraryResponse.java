@@ -0,0 +1,16 @@
+package escom.ipn.hola_spring_6IV3.openlibrary;
+
+/**
+ * Respuesta de OpenLibrary tal como llega: estado, cuerpo y validadores para revalidar después.
+ * En un 304 el cuerpo viene vacío.
+ */
+public record OpenLibraryResponse(int status, byte[] body, String contentType, String etag, String lastModified) {
+
+    public boolean isNotModified() {
+        return status == 304;
+    }
+
+    public boolean isSuccessful() {
+        return status >= 200 && status < 300;
+    }
+}
@@ -0,0 +1,269 @@
+package escom.ipn.hola_spring_6IV3.overlap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Índice de favoritos en bitmaps comprimidos (Roaring) para preguntas de coincidencia:
+ * cuántos usuarios tienen dos libros a la vez, qué usuarios comparten al menos N favoritos con otro,
+ * similitud de Jaccard entre dos usuarios o dos libros.
+ *
+ * Por cada libro hay un bitmap con los ids de usuario que lo tienen y por cada usuario otro con los
+ * números internos de sus libros (los ids de libro se numeran al verlos por primera vez y no se liberan).
+ * Roaring guarda cada tramo de 65536 ids como array, bitmap o rachas según lo que ocupe menos,
+ * así que un favorito cuesta unos pocos bytes en cada dirección y las intersecciones van por palabras.
+ * Las escrituras toman el lock de escritura y las consultas el de lectura.
+ */
+public class FavoriteBitmapIndex {
+
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+    // Contador por usuario de similarUsers, reutilizado por cada hilo; cada consulta deja a cero lo que tocó
+    private static final ThreadLocal<int[]> COUNTS = ThreadLocal.withInitial(() -> new int[0]);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> bookIndex = new HashMap<>();
+    private RoaringBitmap[] usersByBook = new RoaringBitmap[1024];
+    private RoaringBitmap[] booksByUser = new RoaringBitmap[1024];
+    private int bookCount;
+    private long favorites;
+
+    /**
+     * Registra que el usuario tiene el libro en favoritos. Devuelve false si ya lo tenía
+     */
+    public boolean add(int userId, String bookId) {
+        lock.writeLock().lock();
+        try {
+            int book = bookIndex.computeIfAbsent(bookId, this::newBook);
+            if (!userBooks(userId, true).checkedAdd(book)) {
+                return false;
+            }
+            usersByBook[book].add(userId);
+            favorites++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Registra que el usuario ya no tiene el libro en favoritos. Devuelve false si no lo tenía
+     */
+    public boolean remove(int userId, String bookId) {
+        lock.writeLock().lock();
+        try {
+            Integer book = bookIndex.get(bookId);
+            RoaringBitmap books = userBooks(userId, false);
+            if (book == null || books == null || !books.checkedRemove(book)) {
+                return false;
+            }
+            usersByBook[book].remove(userId);
+            favorites--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(int userId) {
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap books = userBooks(userId, false);
+            if (books != null) {
+                books.forEach((int book) -> usersByBook[book].remove(userId));
+                favorites -= books.getLongCardinality();
+                booksByUser[userId] = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Compacta los bitmaps (rachas donde ocupan menos y arrays sin hueco libre); tras una carga completa
+     */
+    public void optimize() {
+        lock.writeLock().lock();
+        try {
+            for (int book = 0; book < bookCount; book++) {
+                usersByBook[book].runOptimize();
+                usersByBook[book].trim();
+            }
+            for (RoaringBitmap books : booksByUser) {
+                if (books != null) {
+                    books.runOptimize();
+                    books.trim();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Usuarios que tienen cada libro y los dos a la vez
+     */
+    public Overlap bookOverlap(String firstBookId, String secondBookId) {
+        lock.readLock().lock();
+        try {
+            return overlap(bookUsers(firstBookId), bookUsers(secondBookId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Favoritos de cada usuario y los que tienen en común
+     */
+    public Overlap userOverlap(int firstUserId, int secondUserId) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap first = userBooks(firstUserId, false);
+            RoaringBitmap second = userBooks(secondUserId, false);
+            return overlap(first != null ? first : EMPTY, second != null ? second : EMPTY);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hasta limit usuarios con al menos minShared favoritos en común con userId,
+     * de más a menos favoritos en común (a igualdad, mayor Jaccard).
+     *
+     * Recorre los usuarios de cada libro del usuario sumando en un contador denso que cada hilo reutiliza
+     * y que al terminar solo se limpia en los usuarios tocados: el coste es la suma de usuarios de sus
+     * libros, no el número total de usuarios.
+     */
+    public List<SimilarUser> similarUsers(int userId, int minShared, int limit) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap mine = userBooks(userId, false);
+            if (mine == null || mine.isEmpty()) {
+                return List.of();
+            }
+            int[] counts = counts(booksByUser.length);
+            RoaringBitmap touched = new RoaringBitmap();
+            try {
+                mine.forEach((int book) -> {
+                    RoaringBitmap users = usersByBook[book];
+                    touched.or(users);
+                    users.forEach((int other) -> counts[other]++);
+                });
+                int threshold = Math.max(1, minShared);
+                int myFavorites = mine.getCardinality();
+                PriorityQueue<SimilarUser> best = new PriorityQueue<>(limit + 1, SimilarUser.RANKING.reversed());
+                touched.forEach((int other) -> {
+                    int shared = counts[other];
+                    if (other == userId || shared < threshold) {
+                        return;
+                    }
+                    int theirFavorites = booksByUser[other].getCardinality();
+                    best.add(new SimilarUser(other, shared, theirFavorites,
+                            (double) shared / (myFavorites + theirFavorites - shared)));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                });
+                List<SimilarUser> ranked = new ArrayList<>(best);
+                ranked.sort(SimilarUser.RANKING);
+                return ranked;
+            } finally {
+                touched.forEach((int other) -> counts[other] = 0);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            long bookBytes = 0;
+            long userBytes = 0;
+            int users = 0;
+            for (int book = 0; book < bookCount; book++) {
+                bookBytes += usersByBook[book].getLongSizeInBytes();
+            }
+            for (RoaringBitmap books : booksByUser) {
+                if (books != null && !books.isEmpty()) {
+                    userBytes += books.getLongSizeInBytes();
+                    users++;
+                }
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("favorites", favorites);
+            stats.put("books", bookCount);
+            stats.put("users", users);
+            stats.put("bookBitmapBytes", bookBytes);
+            stats.put("userBitmapBytes", userBytes);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Overlap overlap(RoaringBitmap first, RoaringBitmap second) {
+        int firstCount = first.getCardinality();
+        int secondCount = second.getCardinality();
+        int shared = RoaringBitmap.andCardinality(first, second);
+        int union = firstCount + secondCount - shared;
+        return new Overlap(firstCount, secondCount, shared, union == 0 ? 0 : (double) shared / union);
+    }
+
+    // Crece solo cuando aparecen ids de usuario mayores; siempre llega a cero entre consultas
+    private static int[] counts(int users) {
+        int[] counts = COUNTS.get();
+        if (counts.length < users) {
+            counts = new int[users];
+            COUNTS.set(counts);
+        }
+        return counts;
+    }
+
+    private RoaringBitmap bookUsers(String bookId) {
+        Integer book = bookIndex.get(bookId);
+        return book != null ? usersByBook[book] : EMPTY;
+    }
+
+    private RoaringBitmap userBooks(int userId, boolean create) {
+        if (userId < 0) {
+            throw new IllegalArgumentException("Id de usuario inválido: " + userId);
+        }
+        if (userId >= booksByUser.length) {
+            if (!create) {
+                return null;
+            }
+            booksByUser = Arrays.copyOf(booksByUser, Math.max(userId + 1, booksByUser.length * 2));
+        }
+        if (booksByUser[userId] == null && create) {
+            booksByUser[userId] = new RoaringBitmap();
+        }
+        return booksByUser[userId];
+    }
+
+    private int newBook(String bookId) {
+        if (bookCount == usersByBook.length) {
+            usersByBook = Arrays.copyOf(usersByBook, bookCount * 2);
+        }
+        usersByBook[bookCount] = new RoaringBitmap();
+        return bookCount++;
+    }
+
+    public record Overlap(int first, int second, int shared, double jaccard) {
+    }
+
+    public record SimilarUser(int userId, int shared, int favorites, double jaccard) {
+        static final Comparator<SimilarUser> RANKING = Comparator.comparingInt(SimilarUser::shared).reversed()
+                .thenComparing(Comparator.comparingDouble(SimilarUser::jaccard).reversed())
+                .thenComparingInt(SimilarUser::userId);
+    }
+}
@@ -0,0 +1,517 @@
+package escom.ipn.hola_spring_6IV3.recommendation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import escom.ipn.hola_spring_6IV3.search.TextNormalizer;
+
+/**
+ * Modelo inmutable de libros candidatos para las recomendaciones, en arrays primitivos.
+ *
+ * Cada libro tiene rasgos (autores y materias, normalizados sin acentos) y una década.
+ * Los rasgos se numeran y se guardan en dos matrices dispersas (CSR): libro → rasgos y
+ * rasgo → libros, así que puntuar solo recorre los libros que comparten algún rasgo con las
+ * preferencias del usuario. Un rasgo raro pesa más que uno que tienen miles de libros (IDF).
+ * La popularidad (usuarios que tienen el libro en favoritos) solo desempata.
+ * Nunca se modifica: los cambios crean un modelo nuevo que sustituye al anterior.
+ */
+public final class RecommendationModel {
+
+    private static final float AUTHOR_WEIGHT = 0.4f;
+    private static final float SUBJECT_WEIGHT = 0.35f;
+    private static final float DECADE_WEIGHT = 0.1f;
+    private static final float POPULARITY_WEIGHT = 0.05f;
+    private static final int TOP_AUTHORS = 5;
+    private static final int TOP_SUBJECTS = 8;
+    private static final int TOP_DECADES = 3;
+    private static final int NO_DECADE = Integer.MIN_VALUE;
+    // Un rasgo con más libros que esta fracción del modelo solo suma a los candidatos de otros rasgos
+    private static final float BROAD_FEATURE_SHARE = 0.05f;
+    private static final int BROAD_FEATURE_MIN_BOOKS = 1000;
+    // Puntuaciones por libro reutilizadas entre peticiones del mismo hilo. Es una sola para todos los modelos
+    // (crece con el más grande): con una por modelo cada hilo guardaría un array por cada reconstrucción.
+    // recommend la deja a ceros al terminar, así que sirve para cualquier modelo de igual o menor tamaño
+    private static final ThreadLocal<float[]> SCRATCH = ThreadLocal.withInitial(() -> new float[0]);
+
+    private final long version;
+    private final Map<String, Integer> bookIndex;
+    private final String[] bookIds;
+    private final String[] titles;
+    private final String[] coverIds;
+    private final String[] authors;
+    private final int[] years;
+    private final float[] popularity;
+    private final int[] bookFeatureStart;
+    private final int[] bookFeatures;
+
+    private final Map<String, Integer> featureIds;
+    private final String[] featureNames;
+    private final boolean[] authorFeature;
+    private final float[] idf;
+    private final int[] featureBookStart;
+    private final int[] featureBooks;
+    // Libros de más a menos populares, para quien aún no tiene preferencias
+    private final int[] popular;
+
+    private RecommendationModel(long version, Builder builder) {
+        int books = builder.bookIds.size();
+        this.version = version;
+        this.bookIndex = builder.bookIndex;
+        this.bookIds = builder.bookIds.toArray(String[]::new);
+        this.titles = builder.titles.toArray(String[]::new);
+        this.coverIds = builder.coverIds.toArray(String[]::new);
+        this.authors = builder.authors.toArray(String[]::new);
+        this.years = Arrays.copyOf(builder.years, books);
+        this.bookFeatureStart = Arrays.copyOf(builder.bookFeatureStart, books + 1);
+        this.bookFeatures = Arrays.copyOf(builder.bookFeatures, builder.bookFeatureCount);
+        this.featureIds = builder.featureIds;
+        this.featureNames = builder.featureNames.toArray(String[]::new);
+        this.authorFeature = Arrays.copyOf(builder.authorFeature, featureNames.length);
+
+        // Índice invertido rasgo → libros por conteo y reparto (los libros quedan en orden creciente)
+        int features = featureNames.length;
+        featureBookStart = new int[features + 1];
+        for (int i = 0; i < bookFeatures.length; i++) {
+            featureBookStart[bookFeatures[i] + 1]++;
+        }
+        for (int f = 0; f < features; f++) {
+            featureBookStart[f + 1] += featureBookStart[f];
+        }
+        featureBooks = new int[bookFeatures.length];
+        int[] next = Arrays.copyOf(featureBookStart, features);
+        for (int book = 0; book < books; book++) {
+            for (int i = bookFeatureStart[book]; i < bookFeatureStart[book + 1]; i++) {
+                featureBooks[next[bookFeatures[i]]++] = book;
+            }
+        }
+        idf = new float[features];
+        for (int f = 0; f < features; f++) {
+            int df = featureBookStart[f + 1] - featureBookStart[f];
+            idf[f] = (float) Math.log(1 + (double) books / Math.max(1, df));
+        }
+
+        long maxFavorites = 0;
+        for (int book = 0; book < books; book++) {
+            maxFavorites = Math.max(maxFavorites, builder.favorites[book]);
+        }
+        popularity = new float[books];
+        for (int book = 0; book < books; book++) {
+            popularity[book] = maxFavorites == 0 ? 0
+                    : (float) (Math.log1p(builder.favorites[book]) / Math.log1p(maxFavorites));
+        }
+        Integer[] order = new Integer[books];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, (a, b) -> Long.compare(builder.favorites[b], builder.favorites[a]));
+        popular = new int[Math.min(books, builder.popularLimit)];
+        for (int i = 0; i < popular.length; i++) {
+            popular[i] = order[i];
+        }
+    }
+
+    public static RecommendationModel empty() {
+        return new Builder(0).build(0);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int size() {
+        return bookIds.length;
+    }
+
+    public int featureCount() {
+        return featureNames.length;
+    }
+
+    public boolean contains(String bookId) {
+        return bookIndex.containsKey(bookId);
+    }
+
+    /**
+     * Perfil vacío para acumular las preferencias de un usuario
+     */
+    public Profile newProfile() {
+        return new Profile();
+    }
+
+    /**
+     * Hasta limit libros que no están en los favoritos del perfil, de más a menos afines.
+     * Sin preferencias útiles devuelve los más populares
+     */
+    public List<Recommendation> recommend(Profile profile, int limit) {
+        if (limit <= 0 || bookIds.length == 0) {
+            return List.of();
+        }
+        float[] scores = scratch(bookIds.length);
+        int[] touched = new int[64];
+        int touchedCount = 0;
+        Map<Integer, Float> preferences = profile.topFeatures();
+        // Los rasgos muy comunes ("fiction") no generan candidatos: recorrerlos sería recorrer todo el modelo
+        int broadLimit = Math.max(BROAD_FEATURE_MIN_BOOKS, (int) (bookIds.length * BROAD_FEATURE_SHARE));
+        int[] broad = new int[preferences.size()];
+        float[] broadWeights = new float[preferences.size()];
+        int broadCount = 0;
+        boolean anySpecific = preferences.keySet().stream()
+                .anyMatch(f -> featureBookStart[f + 1] - featureBookStart[f] <= broadLimit);
+        // Los favoritos del usuario se marcan para que nunca entren en el recorrido
+        for (int book : profile.owned) {
+            scores[book] = Float.NEGATIVE_INFINITY;
+        }
+        for (Map.Entry<Integer, Float> preference : preferences.entrySet()) {
+            int f = preference.getKey();
+            float weight = preference.getValue() * (authorFeature[f] ? AUTHOR_WEIGHT : SUBJECT_WEIGHT) * idf[f];
+            if (anySpecific && featureBookStart[f + 1] - featureBookStart[f] > broadLimit) {
+                broad[broadCount] = f;
+                broadWeights[broadCount++] = weight;
+                continue;
+            }
+            for (int i = featureBookStart[f]; i < featureBookStart[f + 1]; i++) {
+                int book = featureBooks[i];
+                if (scores[book] == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = book;
+                }
+                if (scores[book] != Float.NEGATIVE_INFINITY) {
+                    scores[book] += weight;
+                }
+            }
+        }
+        for (int book : profile.owned) {
+            scores[book] = 0;
+        }
+
+        Map<Integer, Float> decades = profile.topDecades();
+        for (int i = 0; i < touchedCount; i++) {
+            int book = touched[i];
+            for (int j = bookFeatureStart[book]; j < bookFeatureStart[book + 1] && broadCount > 0; j++) {
+                for (int k = 0; k < broadCount; k++) {
+                    if (bookFeatures[j] == broad[k]) {
+                        scores[book] += broadWeights[k];
+                    }
+                }
+            }
+            scores[book] += POPULARITY_WEIGHT * popularity[book];
+            if (years[book] != NO_DECADE) {
+                scores[book] += DECADE_WEIGHT * decades.getOrDefault(decade(years[book]), 0f);
+            }
+        }
+
+        // Montículo de mínimos con los limit mejores; en la raíz el peor de ellos
+        int[] heap = new int[Math.min(limit, touchedCount)];
+        int size = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int book = touched[i];
+            if (size < heap.length) {
+                heap[size++] = book;
+                siftUp(heap, size - 1, scores);
+            } else if (better(book, heap[0], scores)) {
+                heap[0] = book;
+                siftDown(heap, size, scores);
+            }
+        }
+        Recommendation[] ranked = new Recommendation[size];
+        Set<Integer> chosen = new HashSet<>();
+        for (int i = size - 1; i >= 0; i--) {
+            int book = heap[0];
+            chosen.add(book);
+            ranked[i] = toRecommendation(book, scores[book], reason(book, preferences));
+            heap[0] = heap[i];
+            siftDown(heap, i, scores);
+        }
+        List<Recommendation> result = new ArrayList<>(Arrays.asList(ranked));
+        for (int i = 0; i < touchedCount; i++) {
+            scores[touched[i]] = 0;
+        }
+
+        // Se completa con los más populares que no estén ya
+        for (int i = 0; i < popular.length && result.size() < limit; i++) {
+            int book = popular[i];
+            if (!profile.owned.contains(book) && !chosen.contains(book)) {
+                result.add(toRecommendation(book, POPULARITY_WEIGHT * popularity[book], null));
+            }
+        }
+        return result;
+    }
+
+    private static float[] scratch(int books) {
+        float[] scores = SCRATCH.get();
+        if (scores.length < books) {
+            scores = new float[books];
+            SCRATCH.set(scores);
+        }
+        return scores;
+    }
+
+    // El rasgo que más aporta a la puntuación del libro, para explicar la recomendación
+    private String reason(int book, Map<Integer, Float> preferences) {
+        int best = -1;
+        float bestContribution = 0;
+        for (int i = bookFeatureStart[book]; i < bookFeatureStart[book + 1]; i++) {
+            int f = bookFeatures[i];
+            Float weight = preferences.get(f);
+            if (weight == null) {
+                continue;
+            }
+            float contribution = weight * (authorFeature[f] ? AUTHOR_WEIGHT : SUBJECT_WEIGHT) * idf[f];
+            if (contribution > bestContribution) {
+                bestContribution = contribution;
+                best = f;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        return authorFeature[best] ? "Porque te gusta " + featureNames[best]
+                : "Basado en tu interés en " + featureNames[best];
+    }
+
+    private Recommendation toRecommendation(int book, float score, String reason) {
+        return new Recommendation(bookIds[book], titles[book], coverIds[book], authors[book],
+                years[book] == NO_DECADE ? null : years[book], score,
+                reason != null ? reason : "Recomendación popular");
+    }
+
+    private boolean better(int a, int b, float[] scores) {
+        if (scores[a] != scores[b]) {
+            return scores[a] > scores[b];
+        }
+        return a < b;
+    }
+
+    private void siftUp(int[] heap, int position, float[] scores) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!better(heap[parent], heap[position], scores)) {
+                return;
+            }
+            swap(heap, parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size, float[] scores) {
+        int position = 0;
+        while (true) {
+            int worst = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && better(heap[worst], heap[left], scores)) {
+                worst = left;
+            }
+            if (right < size && better(heap[worst], heap[right], scores)) {
+                worst = right;
+            }
+            if (worst == position) {
+                return;
+            }
+            swap(heap, position, worst);
+            position = worst;
+        }
+    }
+
+    private static void swap(int[] values, int i, int j) {
+        int tmp = values[i];
+        values[i] = values[j];
+        values[j] = tmp;
+    }
+
+    private static int decade(int year) {
+        return Math.floorDiv(year, 10) * 10;
+    }
+
+    /**
+     * Preferencias de un usuario: por cada rasgo del modelo, la fracción de sus favoritos que lo
+     * tienen; igual con las décadas. Los rasgos que el modelo no conoce no pueden puntuar y se ignoran
+     */
+    public final class Profile {
+
+        private final Map<Integer, Float> featureWeights = new HashMap<>();
+        private final Map<Integer, Float> decadeWeights = new HashMap<>();
+        private final Set<Integer> owned = new HashSet<>();
+        private int books;
+
+        /**
+         * Añade un favorito del usuario. Si el libro está en el modelo se usan también sus rasgos
+         */
+        public void addFavorite(String bookId, Collection<String> authorNames, Collection<String> subjects,
+                Integer firstPublishYear) {
+            books++;
+            Set<Integer> features = new LinkedHashSet<>();
+            Integer book = bookIndex.get(bookId);
+            if (book != null) {
+                owned.add(book);
+                for (int i = bookFeatureStart[book]; i < bookFeatureStart[book + 1]; i++) {
+                    features.add(bookFeatures[i]);
+                }
+                if (firstPublishYear == null && years[book] != NO_DECADE) {
+                    firstPublishYear = years[book];
+                }
+            }
+            for (String name : authorNames) {
+                Integer f = featureIds.get(authorKey(name));
+                if (f != null) {
+                    features.add(f);
+                }
+            }
+            for (String subject : subjects) {
+                Integer f = featureIds.get(subjectKey(subject));
+                if (f != null) {
+                    features.add(f);
+                }
+            }
+            for (int f : features) {
+                featureWeights.merge(f, 1f, Float::sum);
+            }
+            if (firstPublishYear != null) {
+                decadeWeights.merge(decade(firstPublishYear), 1f, Float::sum);
+            }
+        }
+
+        public boolean isEmpty() {
+            return books == 0;
+        }
+
+        // Los autores y materias más frecuentes, con su fracción de los favoritos
+        private Map<Integer, Float> topFeatures() {
+            List<Integer> byAuthor = new ArrayList<>();
+            List<Integer> bySubject = new ArrayList<>();
+            for (int f : featureWeights.keySet()) {
+                (authorFeature[f] ? byAuthor : bySubject).add(f);
+            }
+            Map<Integer, Float> top = new LinkedHashMap<>();
+            byAuthor.sort((a, b) -> Float.compare(featureWeights.get(b), featureWeights.get(a)));
+            bySubject.sort((a, b) -> Float.compare(featureWeights.get(b), featureWeights.get(a)));
+            byAuthor.stream().limit(TOP_AUTHORS).forEach(f -> top.put(f, featureWeights.get(f) / books));
+            bySubject.stream().limit(TOP_SUBJECTS).forEach(f -> top.put(f, featureWeights.get(f) / books));
+            return top;
+        }
+
+        private Map<Integer, Float> topDecades() {
+            Map<Integer, Float> top = new HashMap<>();
+            decadeWeights.entrySet().stream()
+                    .sorted((a, b) -> Float.compare(b.getValue(), a.getValue()))
+                    .limit(TOP_DECADES)
+                    .forEach(entry -> top.put(entry.getKey(), entry.getValue() / books));
+            return top;
+        }
+    }
+
+    private static String authorKey(String name) {
+        return "a:" + TextNormalizer.normalize(name);
+    }
+
+    private static String subjectKey(String subject) {
+        return "s:" + TextNormalizer.normalize(subject);
+    }
+
+    /**
+     * Acumula los libros candidatos; cada bookId se añade una sola vez
+     */
+    public static final class Builder {
+
+        private final int popularLimit;
+        private final Map<String, Integer> bookIndex = new HashMap<>();
+        private final List<String> bookIds = new ArrayList<>();
+        private final List<String> titles = new ArrayList<>();
+        private final List<String> coverIds = new ArrayList<>();
+        private final List<String> authors = new ArrayList<>();
+        private int[] years = new int[1024];
+        private long[] favorites = new long[1024];
+        private int[] bookFeatureStart = new int[1025];
+        private int[] bookFeatures = new int[4096];
+        private int bookFeatureCount;
+
+        private final Map<String, Integer> featureIds = new HashMap<>();
+        private final List<String> featureNames = new ArrayList<>();
+        private boolean[] authorFeature = new boolean[1024];
+
+        /**
+         * @param popularLimit libros populares que se guardan para completar recomendaciones
+         */
+        public Builder(int popularLimit) {
+            this.popularLimit = Math.max(0, popularLimit);
+        }
+
+        public boolean contains(String bookId) {
+            return bookIndex.containsKey(bookId);
+        }
+
+        public int size() {
+            return bookIds.size();
+        }
+
+        /**
+         * @param displayAuthors autores tal como se muestran ("Nombre, Nombre")
+         * @param favorites      usuarios que tienen el libro en favoritos
+         */
+        public void addBook(String bookId, String title, String coverId, String displayAuthors,
+                Integer firstPublishYear, Collection<String> authorNames, Collection<String> subjects, long favorites) {
+            if (bookId == null || title == null || bookIndex.containsKey(bookId)) {
+                return;
+            }
+            int book = bookIds.size();
+            if (book == years.length) {
+                years = Arrays.copyOf(years, book * 2);
+                this.favorites = Arrays.copyOf(this.favorites, book * 2);
+                bookFeatureStart = Arrays.copyOf(bookFeatureStart, book * 2 + 1);
+            }
+            bookIndex.put(bookId, book);
+            bookIds.add(bookId);
+            titles.add(title);
+            coverIds.add(coverId);
+            authors.add(displayAuthors);
+            years[book] = firstPublishYear == null ? NO_DECADE : firstPublishYear;
+            this.favorites[book] = favorites;
+
+            Set<Integer> features = new LinkedHashSet<>();
+            for (String name : authorNames) {
+                features.add(feature(authorKey(name), name, true));
+            }
+            for (String subject : subjects) {
+                features.add(feature(subjectKey(subject), subject, false));
+            }
+            features.remove(-1);
+            for (int f : features) {
+                if (bookFeatureCount == bookFeatures.length) {
+                    bookFeatures = Arrays.copyOf(bookFeatures, bookFeatureCount * 2);
+                }
+                bookFeatures[bookFeatureCount++] = f;
+            }
+            bookFeatureStart[book + 1] = bookFeatureCount;
+        }
+
+        public RecommendationModel build(long version) {
+            return new RecommendationModel(version, this);
+        }
+
+        private int feature(String key, String name, boolean author) {
+            if (key.length() <= 2) {
+                return -1;
+            }
+            return featureIds.computeIfAbsent(key, k -> {
+                int f = featureNames.size();
+                if (f == authorFeature.length) {
+                    authorFeature = Arrays.copyOf(authorFeature, f * 2);
+                }
+                featureNames.add(name.trim());
+                authorFeature[f] = author;
+                return f;
+            });
+        }
+    }
+
+    public record Recommendation(String bookId, String title, String coverId, String authors,
+            Integer firstPublishYear, float score, String reason) {
+    }
+}
@@ -0,0 +1,30 @@
+package escom.ipn.hola_spring_6IV3.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import escom.ipn.hola_spring_6IV3.model.AuthorBackfillWatermark;
+
+@Repository
+public interface AuthorBackfillWatermarkRepository extends JpaRepository<AuthorBackfillWatermark, Integer> {
+
+    /**
+     * Id de favorites hasta el que se completó el relleno de autores, o 0 si nunca terminó uno
+     */
+    @Query(value = "SELECT COALESCE(MAX(backfilled_through), 0) FROM author_backfill_watermark", nativeQuery = true)
+    long findBackfilledThrough();
+
+    /**
+     * Avanza la marca del relleno; nunca la hace retroceder
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO author_backfill_watermark (id, backfilled_through) VALUES (1, :id) " +
+            "ON DUPLICATE KEY UPDATE backfilled_through = GREATEST(backfilled_through, VALUES(backfilled_through))",
+            nativeQuery = true)
+    int advance(@Param("id") long id);
+}
@@ -0,0 +1,261 @@
+package escom.ipn.hola_spring_6IV3.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import escom.ipn.hola_spring_6IV3.dtos.AuthorBookDto;
+import escom.ipn.hola_spring_6IV3.dtos.AuthorDto;
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteBookDetailsDto;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Autores normalizados (authors) y autores de cada favorito (favorite_author) con JdbcTemplate.
+ * Las altas son INSERT ... ON DUPLICATE KEY UPDATE sobre claves únicas: dos escrituras simultáneas
+ * del mismo autor o del mismo enlace acaban en una sola fila (la segunda espera al bloqueo de la primera
+ * en lugar de fallar), y cualquier otro error (longitudes, claves foráneas) sigue siendo un error.
+ * Todas las consultas por autor o por usuario van por los índices de favorite_author.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AuthorJdbcRepository {
+
+    private static final String FIND_BY_DEDUPE_KEY_SQL = "SELECT id FROM authors WHERE dedupe_key = ?";
+
+    private static final String FIND_BY_NORMALIZED_NAME_SQL =
+            "SELECT id FROM authors WHERE normalized_name = ? ORDER BY id LIMIT 1";
+
+    // LAST_INSERT_ID(id) deja en la conexión el id de la fila existente cuando la clave ya estaba
+    private static final String UPSERT_AUTHOR_SQL =
+            "INSERT INTO authors (dedupe_key, name, normalized_name, open_library_key) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id)";
+
+    private static final String LAST_INSERT_ID_SQL = "SELECT LAST_INSERT_ID()";
+
+    private static final String ATTACH_KEY_SQL =
+            "UPDATE IGNORE authors SET dedupe_key = ?, open_library_key = ? WHERE dedupe_key = ?";
+
+    // Enlaza por (user_id, book_id) para no tener que leer antes el id del favorito recién insertado
+    private static final String INSERT_LINK_BY_BOOK_SQL =
+            "INSERT INTO favorite_author (favorite_id, author_id, user_id, author_order) " +
+            "SELECT id, ?, user_id, ? FROM favorites WHERE user_id = ? AND book_id = ? " +
+            "ON DUPLICATE KEY UPDATE id = favorite_author.id";
+
+    private static final String INSERT_LINK_SQL =
+            "INSERT INTO favorite_author (favorite_id, author_id, user_id, author_order) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE id = id";
+
+
+    private static final String FAVORITE_ID_RANGE_SQL = "SELECT MIN(id), MAX(id) FROM favorites";
+
+    private static final String UNLINKED_FAVORITES_SQL =
+            "SELECT f.id, f.user_id, f.book_id, f.authors FROM favorites f WHERE f.id BETWEEN ? AND ? " +
+            "AND NOT EXISTS (SELECT 1 FROM favorite_author fa WHERE fa.favorite_id = f.id)";
+
+    private static final String SEARCH_SQL =
+            "SELECT a.id, a.name, a.open_library_key, " +
+            "(SELECT COUNT(*) FROM favorite_author fa WHERE fa.author_id = a.id) " +
+            "FROM authors a WHERE a.normalized_name LIKE ? ORDER BY a.normalized_name, a.id LIMIT ?";
+
+    private static final String AUTHOR_SQL =
+            "SELECT a.id, a.name, a.open_library_key, COUNT(f.id), COUNT(DISTINCT f.book_id) FROM authors a " +
+            "LEFT JOIN favorite_author fa ON fa.author_id = a.id LEFT JOIN favorites f ON f.id = fa.favorite_id " +
+            "WHERE a.id = ? GROUP BY a.id, a.name, a.open_library_key";
+
+    private static final String AUTHOR_BOOKS_SQL =
+            "SELECT f.book_id, MAX(f.book_title), MAX(f.book_cover_id), COUNT(*) AS favorites " +
+            "FROM favorite_author fa JOIN favorites f ON f.id = fa.favorite_id WHERE fa.author_id = ? " +
+            "GROUP BY f.book_id ORDER BY favorites DESC, f.book_id LIMIT ?";
+
+    private static final String USER_AUTHORS_SQL =
+            "SELECT a.id, a.name, a.open_library_key, COUNT(*) AS favorites " +
+            "FROM favorite_author fa JOIN authors a ON a.id = fa.author_id WHERE fa.user_id = ? " +
+            "GROUP BY a.id, a.name, a.open_library_key ORDER BY favorites DESC, a.name LIMIT ?";
+
+    private static final String USER_FAVORITES_BY_AUTHOR_SQL =
+            "SELECT f.id, f.book_id, f.book_title, f.book_cover_id, f.added_date, f.authors " +
+            "FROM favorite_author fa JOIN favorites f ON f.id = fa.favorite_id " +
+            "WHERE fa.author_id = ? AND fa.user_id = ? ORDER BY f.added_date DESC, f.id DESC";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<Long> findIdByDedupeKey(String dedupeKey) {
+        return jdbcTemplate.queryForList(FIND_BY_DEDUPE_KEY_SQL, Long.class, dedupeKey).stream().findFirst();
+    }
+
+    /**
+     * El autor más antiguo con ese nombre normalizado, tenga o no clave de OpenLibrary
+     */
+    public Optional<Long> findIdByNormalizedName(String normalizedName) {
+        return jdbcTemplate.queryForList(FIND_BY_NORMALIZED_NAME_SQL, Long.class, normalizedName).stream().findFirst();
+    }
+
+    /**
+     * Inserta el autor si su dedupe_key no existe y devuelve su id en ambos casos.
+     * El id sale de LAST_INSERT_ID() en la misma conexión y no de un SELECT: dentro de una transacción
+     * REPEATABLE READ ese SELECT leería la instantánea y no vería el autor que otra acaba de confirmar
+     */
+    public long upsert(String dedupeKey, String name, String normalizedName, String openLibraryKey) {
+        Long id = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(UPSERT_AUTHOR_SQL)) {
+                insert.setString(1, dedupeKey);
+                insert.setString(2, name);
+                insert.setString(3, normalizedName);
+                insert.setString(4, openLibraryKey);
+                insert.executeUpdate();
+            }
+            try (PreparedStatement select = connection.prepareStatement(LAST_INSERT_ID_SQL);
+                    ResultSet rs = select.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        });
+        if (id == null || id == 0) {
+            throw new IllegalStateException("No se pudo obtener el id del autor " + dedupeKey);
+        }
+        return id;
+    }
+
+    /**
+     * Convierte el autor conocido solo por nombre (nameKey) en el de la clave de OpenLibrary.
+     * Devuelve false si no existía o si otra fila ya tiene esa clave
+     */
+    public boolean attachKey(String nameKey, String dedupeKey, String openLibraryKey) {
+        return jdbcTemplate.update(ATTACH_KEY_SQL, dedupeKey, openLibraryKey, nameKey) > 0;
+    }
+
+    /**
+     * Enlaza favoritos ya insertados con sus autores, en un lote
+     */
+    public void insertLinksByBook(Integer userId, List<BookAuthorLink> links) {
+        if (links.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_LINK_BY_BOOK_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                BookAuthorLink link = links.get(i);
+                ps.setLong(1, link.authorId());
+                ps.setInt(2, link.authorOrder());
+                ps.setInt(3, userId);
+                ps.setString(4, link.bookId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return links.size();
+            }
+        });
+    }
+
+    public void insertLinks(List<FavoriteAuthorLink> links) {
+        if (links.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_LINK_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                FavoriteAuthorLink link = links.get(i);
+                ps.setLong(1, link.favoriteId());
+                ps.setLong(2, link.authorId());
+                ps.setInt(3, link.userId());
+                ps.setInt(4, link.authorOrder());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return links.size();
+            }
+        });
+    }
+
+    /**
+     * Ids mínimo y máximo de favorites, o null si la tabla está vacía
+     */
+    public long[] findFavoriteIdRange() {
+        return jdbcTemplate.query(FAVORITE_ID_RANGE_SQL, rs -> {
+            rs.next();
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[] {min, rs.getLong(2)};
+        });
+    }
+
+    /**
+     * Favoritos con id en [fromId, toId] que aún no tienen autores enlazados
+     */
+    public List<UnlinkedFavorite> findUnlinkedFavorites(long fromId, long toId) {
+        return jdbcTemplate.query(UNLINKED_FAVORITES_SQL, (rs, rowNum) -> new UnlinkedFavorite(
+                rs.getLong(1), rs.getInt(2), rs.getString(3), rs.getString(4)), fromId, toId);
+    }
+
+    /**
+     * Autores cuyo nombre normalizado empieza por prefix, en orden alfabético
+     */
+    public List<AuthorDto> searchByPrefix(String prefix, int limit) {
+        return jdbcTemplate.query(SEARCH_SQL, (rs, rowNum) -> AuthorDto.builder()
+                .id(rs.getLong(1))
+                .name(rs.getString(2))
+                .openLibraryKey(rs.getString(3))
+                .favorites(rs.getLong(4))
+                .build(), prefix + "%", limit);
+    }
+
+    public Optional<AuthorDto> findAuthor(long authorId) {
+        return jdbcTemplate.query(AUTHOR_SQL, (rs, rowNum) -> AuthorDto.builder()
+                .id(rs.getLong(1))
+                .name(rs.getString(2))
+                .openLibraryKey(rs.getString(3))
+                .favorites(rs.getLong(4))
+                .books(rs.getLong(5))
+                .build(), authorId).stream().findFirst();
+    }
+
+    /**
+     * Libros del autor en favoritos de alguien, los que están en más favoritos primero
+     */
+    public List<AuthorBookDto> findAuthorBooks(long authorId, int limit) {
+        return jdbcTemplate.query(AUTHOR_BOOKS_SQL, (rs, rowNum) -> AuthorBookDto.builder()
+                .bookId(rs.getString(1))
+                .bookTitle(rs.getString(2))
+                .bookCoverId(rs.getString(3))
+                .favorites(rs.getLong(4))
+                .build(), authorId, limit);
+    }
+
+    /**
+     * Autores de los favoritos del usuario, los que aparecen en más favoritos primero
+     */
+    public List<AuthorDto> findUserAuthors(Integer userId, int limit) {
+        return jdbcTemplate.query(USER_AUTHORS_SQL, (rs, rowNum) -> AuthorDto.builder()
+                .id(rs.getLong(1))
+                .name(rs.getString(2))
+                .openLibraryKey(rs.getString(3))
+                .favorites(rs.getLong(4))
+                .build(), userId, limit);
+    }
+
+    public List<FavoriteBookDetailsDto> findUserFavoritesByAuthor(Integer userId, long authorId) {
+        return jdbcTemplate.query(USER_FAVORITES_BY_AUTHOR_SQL, (rs, rowNum) -> {
+            Timestamp addedDate = rs.getTimestamp(5);
+            return new FavoriteBookDetailsDto(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                    addedDate != null ? addedDate.toLocalDateTime() : null, rs.getString(6));
+        }, authorId, userId);
+    }
+
+    public record BookAuthorLink(String bookId, long authorId, int authorOrder) {
+    }
+
+    public record FavoriteAuthorLink(long favoriteId, long authorId, int userId, int authorOrder) {
+    }
+
+    public record UnlinkedFavorite(long favoriteId, int userId, String bookId, String authors) {
+    }
+}
@@ -0,0 +1,146 @@
+package escom.ipn.hola_spring_6IV3.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import escom.ipn.hola_spring_6IV3.dtos.BookNeighborDto;
+import escom.ipn.hola_spring_6IV3.model.BookNeighbor;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Escrituras por lotes y lecturas de book_neighbors con JdbcTemplate.
+ * Cada ejecución del cálculo escribe una generación completa, la publica en book_neighbor_generation
+ * y después borra las anteriores a la que se servía antes, en tramos para no bloquear la tabla
+ * durante una única sentencia. El cálculo lo hace un solo nodo a la vez: el que tiene la fila
+ * de book_neighbor_lease sin expirar.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BookNeighborJdbcRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO book_neighbors (generation, book_id, neighbor_rank, neighbor_id, neighbor_title, " +
+            "neighbor_cover_id, neighbor_authors, co_favorites, score) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE_OLDER_GENERATIONS_SQL =
+            "DELETE FROM book_neighbors WHERE generation < ? LIMIT ?";
+
+    private static final String NEIGHBORS_SQL =
+            "SELECT neighbor_id, neighbor_title, neighbor_cover_id, neighbor_authors, co_favorites, score " +
+            "FROM book_neighbors WHERE book_id = ? AND generation = ? ORDER BY neighbor_rank LIMIT ?";
+
+    private static final String PUBLISHED_GENERATION_SQL =
+            "SELECT COALESCE(MAX(generation), 0) FROM book_neighbor_generation";
+
+    private static final String PREVIOUS_GENERATION_SQL =
+            "SELECT COALESCE(MAX(previous_generation), 0) FROM book_neighbor_generation";
+
+    // Solo avanza: si otro nodo ya publicó una generación más nueva, esta no la sustituye.
+    // MySQL aplica las asignaciones en orden, así que previous_generation lee la generación aún sin cambiar
+    private static final String PUBLISH_GENERATION_SQL =
+            "INSERT INTO book_neighbor_generation (id, generation, previous_generation) VALUES (1, ?, 0) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "previous_generation = IF(VALUES(generation) > generation, generation, previous_generation), " +
+            "generation = GREATEST(generation, VALUES(generation))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String CREATE_LEASE_SQL =
+            "INSERT INTO book_neighbor_lease (id, owner, expires_at) VALUES (1, '', 0) " +
+            "ON DUPLICATE KEY UPDATE id = id";
+
+    // Se toma si está libre o expirada, o se renueva si ya es de este nodo; en una sola sentencia
+    private static final String ACQUIRE_LEASE_SQL =
+            "UPDATE book_neighbor_lease SET owner = ?, expires_at = ? " +
+            "WHERE id = 1 AND (owner = ? OR expires_at < ?)";
+
+    private static final String RELEASE_LEASE_SQL =
+            "UPDATE book_neighbor_lease SET owner = '', expires_at = 0 WHERE id = 1 AND owner = ?";
+
+    public void insertBatch(List<BookNeighbor> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                BookNeighbor row = rows.get(i);
+                ps.setLong(1, row.getGeneration());
+                ps.setString(2, row.getBookId());
+                ps.setInt(3, row.getNeighborRank());
+                ps.setString(4, row.getNeighborId());
+                ps.setString(5, row.getNeighborTitle());
+                ps.setString(6, row.getNeighborCoverId());
+                ps.setString(7, row.getNeighborAuthors());
+                ps.setInt(8, row.getCoFavorites());
+                ps.setDouble(9, row.getScore());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    /**
+     * Borra las generaciones anteriores a la indicada, de batchSize en batchSize filas
+     */
+    public long deleteGenerationsBefore(long generation, int batchSize) {
+        long deleted = 0;
+        int affected;
+        do {
+            affected = jdbcTemplate.update(DELETE_OLDER_GENERATIONS_SQL, generation, batchSize);
+            deleted += affected;
+        } while (affected == batchSize);
+        return deleted;
+    }
+
+    /**
+     * Generación publicada, o 0 si el cálculo nunca ha terminado
+     */
+    public long findPublishedGeneration() {
+        Long generation = jdbcTemplate.queryForObject(PUBLISHED_GENERATION_SQL, Long.class);
+        return generation == null ? 0 : generation;
+    }
+
+    /**
+     * Generación que se servía antes de la publicada, o 0 si no hay ninguna
+     */
+    public long findPreviousGeneration() {
+        Long generation = jdbcTemplate.queryForObject(PREVIOUS_GENERATION_SQL, Long.class);
+        return generation == null ? 0 : generation;
+    }
+
+    public void publishGeneration(long generation) {
+        jdbcTemplate.update(PUBLISH_GENERATION_SQL, generation);
+    }
+
+    /**
+     * Toma o renueva la reserva del cálculo hasta expiresAt; false si la tiene otro nodo sin expirar
+     */
+    public boolean tryAcquireLease(String owner, long now, long expiresAt) {
+        jdbcTemplate.update(CREATE_LEASE_SQL);
+        return jdbcTemplate.update(ACQUIRE_LEASE_SQL, owner, expiresAt, owner, now) == 1;
+    }
+
+    public void releaseLease(String owner) {
+        jdbcTemplate.update(RELEASE_LEASE_SQL, owner);
+    }
+
+    public List<BookNeighborDto> findNeighbors(String bookId, long generation, int limit) {
+        return jdbcTemplate.query(NEIGHBORS_SQL, (rs, rowNum) -> BookNeighborDto.builder()
+                .bookId(rs.getString(1))
+                .bookTitle(rs.getString(2))
+                .bookCoverId(rs.getString(3))
+                .authors(rs.getString(4))
+                .coFavorites(rs.getInt(5))
+                .score(rs.getDouble(6))
+                .build(), bookId, generation, limit);
+    }
+}
@@ -3,15 +3,23 @@ package escom.ipn.hola_spring_6IV3.repository;
 import escom.ipn.hola_spring_6IV3.model.Favorite;
 import escom.ipn.hola_spring_6IV3.model.User;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface FavoriteBookRepository extends JpaRepository<Favorite, Long> {
@@ -54,9 +62,89 @@ public interface FavoriteBookRepository extends JpaRepository<Favorite, Long> {
     @Transactional
     void deleteByUserUsernameAndBookId(String username, String bookId);
     
+    /**
+     * Encuentra los favoritos de un usuario por su id, sin join con la tabla user
+     */
+    @Query("SELECT f FROM Favorite f WHERE f.user.id = :userId ORDER BY f.addedDate DESC")
+    List<Favorite> findByUserIdOrderByAddedDateDesc(@Param("userId") Integer userId);
+
+    /**
+     * Primera página de favoritos de un usuario en orden (added_date, id) descendente
+     */
+    @Query("SELECT f FROM Favorite f WHERE f.user.id = :userId ORDER BY f.addedDate DESC, f.id DESC")
+    List<Favorite> findPageByUserId(@Param("userId") Integer userId, Limit limit);
+
+    /**
+     * Página siguiente a la posición (addedDate, id) del cursor; recorre el índice (user_id, added_date)
+     * sin OFFSET, así que el coste no crece con la profundidad de la página
+     */
+    @Query("SELECT f FROM Favorite f WHERE f.user.id = :userId " +
+            "AND (f.addedDate < :addedDate OR (f.addedDate = :addedDate AND f.id < :id)) " +
+            "ORDER BY f.addedDate DESC, f.id DESC")
+    List<Favorite> findPageByUserIdAfter(@Param("userId") Integer userId, @Param("addedDate") LocalDateTime addedDate,
+            @Param("id") Long id, Limit limit);
+
+    /**
+     * Busca un favorito concreto por id de usuario y bookId
+     */
+    @Query("SELECT f FROM Favorite f WHERE f.user.id = :userId AND f.bookId = :bookId")
+    Optional<Favorite> findByUserIdAndBookId(@Param("userId") Integer userId, @Param("bookId") String bookId);
+
+    /**
+     * Verifica si un libro está en favoritos del usuario con id dado (true/false)
+     */
+    @Query("SELECT CASE WHEN COUNT(f) > 0 THEN true ELSE false END FROM Favorite f WHERE f.user.id = :userId AND f.bookId = :bookId")
+    boolean existsByUserIdAndBookId(@Param("userId") Integer userId, @Param("bookId") String bookId);
+
+    /**
+     * De una lista de bookIds, devuelve los que están en favoritos del usuario (una sola consulta IN)
+     */
+    @Query("SELECT f.bookId FROM Favorite f WHERE f.user.id = :userId AND f.bookId IN :bookIds")
+    List<String> findBookIdsByUserIdAndBookIdIn(@Param("userId") Integer userId, @Param("bookIds") Collection<String> bookIds);
+
+    /**
+     * Pares (bookId, addedDate) de los bookIds que están en favoritos del usuario (una sola consulta IN)
+     */
+    @Query("SELECT f.bookId, f.addedDate FROM Favorite f WHERE f.user.id = :userId AND f.bookId IN :bookIds")
+    List<Object[]> findAddedDatesByUserIdAndBookIdIn(@Param("userId") Integer userId,
+            @Param("bookIds") Collection<String> bookIds);
+
+    /**
+     * Elimina varios favoritos del usuario en una sola sentencia; devuelve las filas borradas
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM favorites WHERE user_id = :userId AND book_id IN (:bookIds)", nativeQuery = true)
+    int deleteFavorites(@Param("userId") Integer userId, @Param("bookIds") Collection<String> bookIds);
+
+    /**
+     * Elimina el favorito en una sola sentencia sin cargar la entidad; devuelve las filas borradas
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM favorites WHERE user_id = :userId AND book_id = :bookId", nativeQuery = true)
+    int deleteFavorite(@Param("userId") Integer userId, @Param("bookId") String bookId);
+
+    /**
+     * Cuenta el número total de favoritos de un usuario por su id
+     */
+    @Query("SELECT COUNT(f) FROM Favorite f WHERE f.user.id = :userId")
+    long countByUserId(@Param("userId") Integer userId);
+    
     /**
      * Cuenta el número total de favoritos de un usuario
      */
     @Query("SELECT COUNT(f) FROM Favorite f WHERE f.user.username = :username")
     long countByUsername(@Param("username") String username);
-}
\ No newline at end of file
+
+    /**
+     * Recorre todos los favoritos con su usuario en un cursor de solo avance (ver UserRepository.streamAll).
+     * El usuario viene en la misma fila: con el resultado en streaming no se pueden lanzar otras consultas
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT f FROM Favorite f JOIN FETCH f.user ORDER BY f.id")
+    Stream<Favorite> streamAllWithUser();
+}
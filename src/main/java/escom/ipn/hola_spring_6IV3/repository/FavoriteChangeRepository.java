@@ -0,0 +1,53 @@
+package escom.ipn.hola_spring_6IV3.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import escom.ipn.hola_spring_6IV3.model.FavoriteChange;
+
+@Repository
+public interface FavoriteChangeRepository extends JpaRepository<FavoriteChange, Long> {
+
+    /**
+     * Cambios del usuario posteriores a la secuencia dada, en orden; recorre el índice (user_id, id)
+     */
+    @Query("SELECT c FROM FavoriteChange c WHERE c.userId = :userId AND c.id > :since ORDER BY c.id")
+    List<FavoriteChange> findByUserIdAfter(@Param("userId") Integer userId, @Param("since") long since, Limit limit);
+
+    /**
+     * Última secuencia registrada para el usuario, o 0 si no tiene cambios
+     */
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM FavoriteChange c WHERE c.userId = :userId")
+    long findLatestSeqByUserId(@Param("userId") Integer userId);
+
+    /**
+     * Mayor secuencia registrada antes del instante dado; es el límite hasta el que se puede compactar
+     */
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM FavoriteChange c WHERE c.changedAt < :before")
+    long findMaxSeqBefore(@Param("before") LocalDateTime before);
+
+    /**
+     * Borra hasta batchSize cambios con secuencia <= maxSeq; se repite hasta que devuelve 0
+     * para no mantener bloqueos largos sobre la tabla
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM favorite_changes WHERE id <= :maxSeq LIMIT :batchSize", nativeQuery = true)
+    int deleteUpTo(@Param("maxSeq") long maxSeq, @Param("batchSize") int batchSize);
+
+    /**
+     * Borra el historial de un usuario eliminado
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM favorite_changes WHERE user_id = :userId", nativeQuery = true)
+    int deleteByUserId(@Param("userId") Integer userId);
+}
@@ -0,0 +1,30 @@
+package escom.ipn.hola_spring_6IV3.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import escom.ipn.hola_spring_6IV3.model.FavoriteChangeWatermark;
+
+@Repository
+public interface FavoriteChangeWatermarkRepository extends JpaRepository<FavoriteChangeWatermark, Integer> {
+
+    /**
+     * Secuencia hasta la que se ha compactado el registro de cambios, o 0 si nunca se compactó
+     */
+    @Query(value = "SELECT COALESCE(MAX(compacted_through), 0) FROM favorite_change_watermark", nativeQuery = true)
+    long findCompactedThrough();
+
+    /**
+     * Avanza la marca de compactación; nunca la hace retroceder
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO favorite_change_watermark (id, compacted_through) VALUES (1, :seq) " +
+            "ON DUPLICATE KEY UPDATE compacted_through = GREATEST(compacted_through, VALUES(compacted_through))",
+            nativeQuery = true)
+    int advance(@Param("seq") long seq);
+}
@@ -0,0 +1,78 @@
+package escom.ipn.hola_spring_6IV3.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import escom.ipn.hola_spring_6IV3.model.FavoriteCounter;
+
+@Repository
+public interface FavoriteCounterRepository extends JpaRepository<FavoriteCounter, Integer> {
+
+    /**
+     * Lectura por clave primaria del contador del usuario
+     */
+    @Query("SELECT c.favoritesCount FROM FavoriteCounter c WHERE c.userId = :userId")
+    Optional<Long> findCountByUserId(@Param("userId") Integer userId);
+
+    /**
+     * Versión de los favoritos del usuario; vacío si aún no tiene contador
+     */
+    @Query("SELECT c.version FROM FavoriteCounter c WHERE c.userId = :userId")
+    Optional<Long> findVersionByUserId(@Param("userId") Integer userId);
+
+    /**
+     * Suma delta al contador existente y avanza la versión; devuelve 0 si el usuario aún no tiene fila
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE favorite_counters SET favorites_count = GREATEST(favorites_count + :delta, 0), " +
+            "version = version + 1 WHERE user_id = :userId", nativeQuery = true)
+    int adjust(@Param("userId") Integer userId, @Param("delta") long delta);
+
+    /**
+     * Crea (o corrige) el contador del usuario a partir de sus favoritos actuales. La versión empieza en 1
+     * (sin fila se lee 0), así que la primera escritura de un usuario también cambia su versión
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO favorite_counters (user_id, favorites_count, version) " +
+            "SELECT :userId, COUNT(*), 1 FROM favorites WHERE user_id = :userId " +
+            "ON DUPLICATE KEY UPDATE favorites_count = VALUES(favorites_count), version = version + 1",
+            nativeQuery = true)
+    int initialize(@Param("userId") Integer userId);
+
+    /**
+     * Recalcula los contadores de los usuarios con id en [fromId, toId] en una sola sentencia.
+     * La lectura de favorites es bloqueante, así que las altas concurrentes del rango esperan
+     * al commit y ajustan después el valor ya recalculado
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO favorite_counters (user_id, favorites_count) " +
+            "SELECT u.id, COUNT(f.id) FROM `user` u LEFT JOIN favorites f ON f.user_id = u.id " +
+            "WHERE u.id BETWEEN :fromId AND :toId GROUP BY u.id " +
+            "ON DUPLICATE KEY UPDATE favorites_count = VALUES(favorites_count)", nativeQuery = true)
+    int recomputeRange(@Param("fromId") Integer fromId, @Param("toId") Integer toId);
+
+    /**
+     * Borra los contadores del rango cuyo usuario ya no existe
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM favorite_counters WHERE user_id BETWEEN :fromId AND :toId " +
+            "AND NOT EXISTS (SELECT 1 FROM `user` u WHERE u.id = favorite_counters.user_id)", nativeQuery = true)
+    int deleteOrphansInRange(@Param("fromId") Integer fromId, @Param("toId") Integer toId);
+
+    /**
+     * Mayor id presente en user o en favorite_counters; delimita los rangos de la reparación
+     */
+    @Query(value = "SELECT GREATEST(COALESCE((SELECT MAX(id) FROM `user`), 0), " +
+            "COALESCE((SELECT MAX(user_id) FROM favorite_counters), 0))", nativeQuery = true)
+    int findMaxUserId();
+}
@@ -0,0 +1,199 @@
+package escom.ipn.hola_spring_6IV3.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteRequest;
+import escom.ipn.hola_spring_6IV3.event.FavoriteChangedEvent;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Escrituras masivas de favoritos con JDBC batching.
+ * Favorite usa GenerationType.IDENTITY, que desactiva el batching de inserts de Hibernate,
+ * así que los inserts masivos van por JdbcTemplate con el id autoincremental de MySQL.
+ * Con rewriteBatchedStatements=true el driver envía cada lote como un único INSERT multi-fila.
+ * También recorre agregados de favoritos fila a fila, sin crear una entidad por fila.
+ */
+@Repository
+@RequiredArgsConstructor
+public class FavoriteJdbcRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO favorites (user_id, book_id, book_title, book_cover_id, added_date, authors) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    // ER_DUP_ENTRY: la clave única (user_id, book_id) ya existe
+    private static final int DUPLICATE_KEY_ERROR = 1062;
+
+    private static final String INSERT_CHANGE_SQL =
+            "INSERT INTO favorite_changes (user_id, book_id, op, book_title, book_cover_id, authors, changed_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String BOOK_POPULARITY_SQL =
+            "SELECT book_id, MAX(book_title), MAX(book_cover_id), MAX(authors), COUNT(*) " +
+            "FROM favorites GROUP BY book_id";
+
+    private static final String ALL_FAVORITES_SQL =
+            "SELECT user_id, book_id, book_title, book_cover_id, authors FROM favorites";
+
+    // Recorre el índice único (user_id, book_id): sin ordenar en MySQL ni leer las filas completas
+    private static final String USER_BOOKS_SQL =
+            "SELECT user_id, book_id FROM favorites ORDER BY user_id, book_id";
+
+    private static final String FAVORITES_SINCE_SQL =
+            "SELECT book_id, book_title, book_cover_id, authors, added_date FROM favorites WHERE added_date >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Recorre todos los favoritos en streaming (fetch size Integer.MIN_VALUE en MySQL):
+     * el driver entrega las filas según llegan en lugar de cargar la tabla entera en memoria
+     */
+    public void forEachFavorite(BiConsumer<Integer, FavoriteRequest> consumer) {
+        jdbcTemplate.query(streaming(ALL_FAVORITES_SQL), (RowCallbackHandler) rs -> consumer.accept(rs.getInt(1),
+                new FavoriteRequest(rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5))));
+    }
+
+    /**
+     * Recorre en streaming los pares (libro, usuario) de todos los favoritos, agrupados por usuario
+     */
+    public void forEachUserBook(ObjIntConsumer<String> consumer) {
+        jdbcTemplate.query(streaming(USER_BOOKS_SQL),
+                (RowCallbackHandler) rs -> consumer.accept(rs.getString(2), rs.getInt(1)));
+    }
+
+    /**
+     * Recorre en streaming los favoritos añadidos desde since, con su fecha de alta.
+     * beforeQuery se ejecuta con la conexión ya abierta, justo antes de lanzar la consulta (la que fija
+     * la instantánea), para que quien mezcla la lectura con eventos marque el corte en ese punto
+     */
+    public void forEachFavoriteSince(LocalDateTime since, Runnable beforeQuery,
+            BiConsumer<FavoriteRequest, LocalDateTime> consumer) {
+        PreparedStatementCreator query = streaming(FAVORITES_SINCE_SQL, Timestamp.valueOf(since));
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = query.createPreparedStatement(connection);
+            beforeQuery.run();
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            Timestamp addedDate = rs.getTimestamp(5);
+            consumer.accept(new FavoriteRequest(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4)),
+                    addedDate != null ? addedDate.toLocalDateTime() : null);
+        });
+    }
+
+    private static PreparedStatementCreator streaming(String sql, Object... params) {
+        return connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            return statement;
+        };
+    }
+
+    /**
+     * Recorre cada libro que está en favoritos de alguien con el número de usuarios que lo tienen
+     */
+    public void forEachBookPopularity(ObjLongConsumer<FavoriteRequest> consumer) {
+        jdbcTemplate.query(BOOK_POPULARITY_SQL, (RowCallbackHandler) rs -> consumer.accept(
+                new FavoriteRequest(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4)),
+                rs.getLong(5)));
+    }
+
+    /**
+     * Inserta un favorito en una sola sentencia; devuelve false si (user_id, book_id) ya existía.
+     * Solo el duplicado es un no-op: cualquier otro error (usuario inexistente, datos que no caben) se propaga.
+     * MySQL deshace solo la sentencia fallida y JdbcTemplate no marca la transacción para rollback,
+     * así que la transacción que llama puede seguir
+     */
+    public boolean insertIfAbsent(Integer userId, FavoriteRequest favorite, LocalDateTime addedDate) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, userId, favorite.getBookId(), favorite.getBookTitle(),
+                    favorite.getBookCoverId(), Timestamp.valueOf(addedDate), favorite.getAuthors());
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Inserta los favoritos con la fecha de alta de cada uno (p. ej. la original de una importación) y devuelve
+     * por fila 1 si la insertó o 0 si (user_id, book_id) ya existía. Cualquier otro error se propaga.
+     * No va como lote: con rewriteBatchedStatements el driver envía un único INSERT multi-fila y responde
+     * SUCCESS_NO_INFO por fila, y ON DUPLICATE KEY UPDATE cuenta los duplicados como filas encontradas.
+     * Las filas comparten sentencia preparada y conexión; el resultado no depende del aislamiento
+     */
+    public int[] batchInsertIfAbsent(Integer userId, List<FavoriteRequest> favorites, List<LocalDateTime> addedDates) {
+        if (favorites.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.execute((ConnectionCallback<int[]>) connection -> {
+            int[] counts = new int[favorites.size()];
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+                for (int i = 0; i < counts.length; i++) {
+                    FavoriteRequest favorite = favorites.get(i);
+                    ps.setInt(1, userId);
+                    ps.setString(2, favorite.getBookId());
+                    ps.setString(3, favorite.getBookTitle());
+                    ps.setString(4, favorite.getBookCoverId());
+                    ps.setTimestamp(5, Timestamp.valueOf(addedDates.get(i)));
+                    ps.setString(6, favorite.getAuthors());
+                    try {
+                        counts[i] = ps.executeUpdate();
+                    } catch (SQLException e) {
+                        // MySQL deshace solo la sentencia fallida: la transacción sigue con las demás filas
+                        if (e.getErrorCode() != DUPLICATE_KEY_ERROR) {
+                            throw e;
+                        }
+                    }
+                }
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * Registra en favorite_changes un cambio por libro del evento, en un solo lote
+     */
+    public void batchInsertChanges(FavoriteChangedEvent event, LocalDateTime changedAt) {
+        List<FavoriteRequest> books = event.getBooks();
+        if (books.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_CHANGE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                FavoriteRequest book = books.get(i);
+                ps.setInt(1, event.getUserId());
+                ps.setString(2, book.getBookId());
+                ps.setString(3, event.getType().name());
+                ps.setString(4, book.getBookTitle());
+                ps.setString(5, book.getBookCoverId());
+                ps.setString(6, book.getAuthors());
+                ps.setTimestamp(7, Timestamp.valueOf(changedAt));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return books.size();
+            }
+        });
+    }
+}
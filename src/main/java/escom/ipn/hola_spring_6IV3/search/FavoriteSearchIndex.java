@@ -0,0 +1,394 @@
+package escom.ipn.hola_spring_6IV3.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria sobre el título y los autores de los libros en favoritos.
+ *
+ * Cada libro distinto es un documento; sus términos son las palabras normalizadas (sin acentos)
+ * del título y de los autores. Por cada término se guarda la lista de documentos con su frecuencia,
+ * en arrays primitivos que solo crecen. Además se sabe qué documentos tiene cada usuario
+ * (array ordenado de ids) y cuántos usuarios tienen cada documento.
+ *
+ * La puntuación es BM25 (k1 = 1.2, b = 0.75) con las palabras del título contando el doble.
+ * Una búsqueda solo recorre las listas de sus términos (o los favoritos del usuario, si son menos):
+ * su coste no depende del número total de libros.
+ * Un libro que ya no está en favoritos de nadie deja de aparecer y de contar en las estadísticas,
+ * pero conserva su id por si vuelve; los términos nunca se borran.
+ * Las escrituras toman el lock de escritura y las búsquedas el de lectura.
+ */
+public class FavoriteSearchIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final float TITLE_WEIGHT = 2f;
+    private static final int[] NO_DOCS = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Integer, int[]> userDocs = new HashMap<>();
+
+    private String[] bookIds = new String[1024];
+    private String[] titles = new String[1024];
+    private String[] coverIds = new String[1024];
+    private String[] authors = new String[1024];
+    private float[] lengths = new float[1024];
+    private int[] holders = new int[1024];
+    private Postings[][] docTerms = new Postings[1024][];
+    private int docCount;
+    private int liveDocs;
+    private double liveLength;
+    private long favorites;
+
+    /**
+     * Registra que el usuario tiene el libro en favoritos. Devuelve false si ya lo tenía
+     */
+    public boolean add(Integer userId, String bookId, String title, String coverId, String bookAuthors) {
+        lock.writeLock().lock();
+        try {
+            int doc = docIds.computeIfAbsent(bookId, id -> newDocument(id, title, coverId, bookAuthors));
+            int[] docs = userDocs.getOrDefault(userId, NO_DOCS);
+            int position = Arrays.binarySearch(docs, doc);
+            if (position >= 0) {
+                return false;
+            }
+            userDocs.put(userId, insert(docs, -position - 1, doc));
+            if (holders[doc]++ == 0) {
+                liveDocs++;
+                liveLength += lengths[doc];
+                for (Postings list : docTerms[doc]) {
+                    list.liveDocs++;
+                }
+            }
+            favorites++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Registra que el usuario ya no tiene el libro en favoritos. Devuelve false si no lo tenía
+     */
+    public boolean remove(Integer userId, String bookId) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docIds.get(bookId);
+            int[] docs = userDocs.get(userId);
+            int position = doc == null || docs == null ? -1 : Arrays.binarySearch(docs, doc);
+            if (position < 0) {
+                return false;
+            }
+            if (docs.length == 1) {
+                userDocs.remove(userId);
+            } else {
+                userDocs.put(userId, delete(docs, position));
+            }
+            release(doc);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Olvida todos los favoritos del usuario (usuario eliminado)
+     */
+    public void removeUser(Integer userId) {
+        lock.writeLock().lock();
+        try {
+            int[] docs = userDocs.remove(userId);
+            if (docs != null) {
+                for (int doc : docs) {
+                    release(doc);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Libros que contienen alguna palabra de la consulta, de mayor a menor puntuación BM25.
+     * Con userId solo se buscan los favoritos de ese usuario; con null, en todos los libros en favoritos
+     */
+    public Page search(String query, Integer userId, int offset, int limit) {
+        List<String> terms = terms(query);
+        lock.readLock().lock();
+        try {
+            if (terms.isEmpty() || liveDocs == 0) {
+                return new Page(0, List.of());
+            }
+            int[] restrictTo = userId == null ? null : userDocs.getOrDefault(userId, NO_DOCS);
+            if (restrictTo != null && restrictTo.length == 0) {
+                return new Page(0, List.of());
+            }
+            float averageLength = (float) (liveLength / liveDocs);
+            // Solo los documentos que aparecen en alguna lista: cada coincidencia ocupa una posición,
+            // en el orden en que se encuentra, con su documento y su puntuación
+            Map<Integer, Integer> positions = new HashMap<>();
+            int[] matchedDocs = new int[16];
+            float[] scores = new float[16];
+            int matchedCount = 0;
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list == null || list.liveDocs == 0) {
+                    continue;
+                }
+                float idf = idf(list);
+                boolean walkPostings = restrictTo == null || list.size <= restrictTo.length;
+                // Se recorre la lista más corta: la del término o la de favoritos del usuario
+                int steps = walkPostings ? list.size : restrictTo.length;
+                for (int step = 0; step < steps; step++) {
+                    int doc;
+                    int i;
+                    if (walkPostings) {
+                        i = step;
+                        doc = list.docs[i];
+                        if (holders[doc] == 0 || (restrictTo != null && Arrays.binarySearch(restrictTo, doc) < 0)) {
+                            continue;
+                        }
+                    } else {
+                        doc = restrictTo[step];
+                        i = Arrays.binarySearch(list.docs, 0, list.size, doc);
+                        if (i < 0) {
+                            continue;
+                        }
+                    }
+                    Integer position = positions.putIfAbsent(doc, matchedCount);
+                    if (position == null) {
+                        position = matchedCount;
+                        if (matchedCount == matchedDocs.length) {
+                            matchedDocs = Arrays.copyOf(matchedDocs, matchedCount * 2);
+                            scores = Arrays.copyOf(scores, matchedCount * 2);
+                        }
+                        matchedDocs[matchedCount++] = doc;
+                    }
+                    scores[position] += idf * bm25(list.frequencies[i], lengths[doc], averageLength);
+                }
+            }
+
+            // Solo se ordenan los offset + limit mejores (montículo acotado), no todas las coincidencias
+            int wanted = (int) Math.min(matchedCount, Math.max(0L, offset) + Math.max(0, limit));
+            int[] top = new int[wanted];
+            int topSize = 0;
+            for (int position = 0; position < matchedCount && wanted > 0; position++) {
+                if (topSize < wanted) {
+                    top[topSize++] = position;
+                    siftUp(top, topSize - 1, scores, matchedDocs);
+                } else if (better(position, top[0], scores, matchedDocs)) {
+                    top[0] = position;
+                    siftDown(top, topSize, scores, matchedDocs);
+                }
+            }
+            // El montículo tiene el peor arriba: se vacía de peor a mejor
+            int[] ranked = new int[topSize];
+            for (int i = topSize - 1; i >= 0; i--) {
+                ranked[i] = top[0];
+                top[0] = top[i];
+                siftDown(top, i, scores, matchedDocs);
+            }
+            List<Hit> hits = new ArrayList<>();
+            for (int i = Math.max(0, offset); i < ranked.length; i++) {
+                int position = ranked[i];
+                int doc = matchedDocs[position];
+                hits.add(new Hit(bookIds[doc], titles[doc], coverIds[doc], authors[doc], scores[position], holders[doc]));
+            }
+            return new Page(matchedCount, hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("documents", liveDocs);
+            stats.put("documentsEverSeen", docCount);
+            stats.put("terms", postings.size());
+            stats.put("users", userDocs.size());
+            stats.put("favorites", favorites);
+            stats.put("averageLength", liveDocs == 0 ? 0 : liveLength / liveDocs);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Palabras distintas de la consulta, normalizadas igual que los documentos
+    static List<String> terms(String text) {
+        String normalized = TextNormalizer.normalize(text);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        return new ArrayList<>(new LinkedHashSet<>(Arrays.asList(normalized.split(" "))));
+    }
+
+    private int newDocument(String bookId, String title, String coverId, String bookAuthors) {
+        int doc = docCount++;
+        if (doc == bookIds.length) {
+            int capacity = bookIds.length * 2;
+            bookIds = Arrays.copyOf(bookIds, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            coverIds = Arrays.copyOf(coverIds, capacity);
+            authors = Arrays.copyOf(authors, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            holders = Arrays.copyOf(holders, capacity);
+            docTerms = Arrays.copyOf(docTerms, capacity);
+        }
+        bookIds[doc] = bookId;
+        titles[doc] = title;
+        coverIds[doc] = coverId;
+        authors[doc] = bookAuthors;
+
+        Map<String, Float> frequencies = new HashMap<>();
+        String normalizedTitle = TextNormalizer.normalize(title);
+        String normalizedAuthors = TextNormalizer.normalize(bookAuthors);
+        if (!normalizedTitle.isEmpty()) {
+            for (String term : normalizedTitle.split(" ")) {
+                frequencies.merge(term, TITLE_WEIGHT, Float::sum);
+            }
+        }
+        if (!normalizedAuthors.isEmpty()) {
+            for (String term : normalizedAuthors.split(" ")) {
+                frequencies.merge(term, 1f, Float::sum);
+            }
+        }
+        float length = 0;
+        Postings[] terms = new Postings[frequencies.size()];
+        int position = 0;
+        for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+            Postings list = postings.computeIfAbsent(entry.getKey(), term -> new Postings());
+            list.add(doc, entry.getValue());
+            terms[position++] = list;
+            length += entry.getValue();
+        }
+        lengths[doc] = length;
+        docTerms[doc] = terms;
+        return doc;
+    }
+
+    private void release(int doc) {
+        favorites--;
+        if (--holders[doc] == 0) {
+            liveDocs--;
+            liveLength -= lengths[doc];
+            for (Postings list : docTerms[doc]) {
+                list.liveDocs--;
+            }
+        }
+    }
+
+    // IDF de BM25 con los documentos vivos; nunca negativo aunque el término esté en casi todos
+    private float idf(Postings list) {
+        return (float) Math.log(1 + (liveDocs - list.liveDocs + 0.5) / (list.liveDocs + 0.5));
+    }
+
+    private static float bm25(float frequency, float length, float averageLength) {
+        return frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    // Mayor puntuación y, a igualdad, el libro que más usuarios tienen en favoritos.
+    // El id de documento desempata el resto: sin un orden total, el orden de los empates dependería
+    // del tamaño del montículo (offset + limit) y las páginas consecutivas repetirían o saltarían libros
+    private boolean better(int a, int b, float[] scores, int[] docs) {
+        if (scores[a] != scores[b]) {
+            return scores[a] > scores[b];
+        }
+        if (holders[docs[a]] != holders[docs[b]]) {
+            return holders[docs[a]] > holders[docs[b]];
+        }
+        return docs[a] < docs[b];
+    }
+
+    // Montículo de mínimos según better: en la raíz queda el peor de los seleccionados
+    private void siftUp(int[] heap, int position, float[] scores, int[] docs) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!better(heap[parent], heap[position], scores, docs)) {
+                return;
+            }
+            swap(heap, parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size, float[] scores, int[] docs) {
+        int position = 0;
+        while (true) {
+            int worst = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && better(heap[worst], heap[left], scores, docs)) {
+                worst = left;
+            }
+            if (right < size && better(heap[worst], heap[right], scores, docs)) {
+                worst = right;
+            }
+            if (worst == position) {
+                return;
+            }
+            swap(heap, position, worst);
+            position = worst;
+        }
+    }
+
+    private static void swap(int[] values, int i, int j) {
+        int tmp = values[i];
+        values[i] = values[j];
+        values[j] = tmp;
+    }
+
+    private static int[] insert(int[] docs, int position, int doc) {
+        int[] grown = new int[docs.length + 1];
+        System.arraycopy(docs, 0, grown, 0, position);
+        grown[position] = doc;
+        System.arraycopy(docs, position, grown, position + 1, docs.length - position);
+        return grown;
+    }
+
+    private static int[] delete(int[] docs, int position) {
+        int[] shrunk = new int[docs.length - 1];
+        System.arraycopy(docs, 0, shrunk, 0, position);
+        System.arraycopy(docs, position + 1, shrunk, position, docs.length - position - 1);
+        return shrunk;
+    }
+
+    /**
+     * Documentos de un término en orden creciente de id (los ids se asignan en orden) con su frecuencia,
+     * y cuántos de ellos siguen en favoritos de alguien (la frecuencia de documento para el IDF)
+     */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private float[] frequencies = new float[4];
+        private int size;
+        private int liveDocs;
+
+        void add(int doc, float frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+
+    public record Hit(String bookId, String bookTitle, String bookCoverId, String authors, float score,
+            int favorites) {
+    }
+
+    public record Page(int total, List<Hit> hits) {
+    }
+}
@@ -0,0 +1,338 @@
+package escom.ipn.hola_spring_6IV3.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Índice de prefijos inmutable para el autocompletado.
+ *
+ * Cada entrada se indexa desde el inicio de cada una de sus palabras ("harry potter" responde a
+ * "ha" y a "pot"): un array ordenado de punteros (entrada << 32 | posición) sobre los textos
+ * normalizados, sin copiar subcadenas. Un prefijo es un rango contiguo de ese array.
+ *
+ * Las entradas se numeran por ranking (popularidad y, a igualdad, texto más corto), así que
+ * las mejores de un rango son los números más bajos. Para los prefijos con más de scanLimit
+ * punteros (los cortos: "a", "ha"...) el top-K se precalcula al construir el índice, como los
+ * nodos de un trie con su top-K; el resto de prefijos recorre un rango pequeño.
+ * Nunca se modifica: los cambios crean un índice nuevo que sustituye al anterior.
+ */
+public final class PrefixIndex {
+
+    private static final int MAX_WORDS = 8;
+
+    private final SuggestionEntry[] entries;
+    private final String[] normalized;
+    private final long[] pointers;
+    private final Map<String, int[]> topByPrefix = new HashMap<>();
+    private final int topK;
+    private final int scanLimit;
+
+    private PrefixIndex(SuggestionEntry[] entries, String[] normalized, long[] pointers, int topK, int scanLimit) {
+        this.entries = entries;
+        this.normalized = normalized;
+        this.pointers = pointers;
+        this.topK = topK;
+        this.scanLimit = scanLimit;
+    }
+
+    public static PrefixIndex empty() {
+        return build(List.of(), 1, 1);
+    }
+
+    /**
+     * @param topK      sugerencias que se guardan por prefijo (el máximo que se puede pedir)
+     * @param scanLimit rango a partir del cual el top-K de un prefijo se precalcula
+     */
+    public static PrefixIndex build(List<SuggestionEntry> source, int topK, int scanLimit) {
+        List<SuggestionEntry> usable = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        for (SuggestionEntry entry : source) {
+            String text = TextNormalizer.normalize(entry.text());
+            if (!text.isEmpty()) {
+                usable.add(entry);
+                texts.add(text);
+            }
+        }
+
+        // Número de entrada = posición en el ranking
+        Integer[] order = new Integer[usable.size()];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.<Integer>comparingLong(i -> -usable.get(i).score())
+                .thenComparingInt(i -> texts.get(i).length())
+                .thenComparing(texts::get));
+        SuggestionEntry[] entries = new SuggestionEntry[order.length];
+        String[] normalized = new String[order.length];
+        for (int rank = 0; rank < order.length; rank++) {
+            entries[rank] = usable.get(order[rank]);
+            normalized[rank] = texts.get(order[rank]);
+        }
+
+        int count = 0;
+        for (String text : normalized) {
+            count += TextNormalizer.wordStarts(text, MAX_WORDS).size();
+        }
+        long[] pointers = new long[count];
+        int position = 0;
+        for (int entry = 0; entry < normalized.length; entry++) {
+            for (int start : TextNormalizer.wordStarts(normalized[entry], MAX_WORDS)) {
+                pointers[position++] = pointer(entry, start);
+            }
+        }
+
+        PrefixIndex index = new PrefixIndex(entries, normalized, pointers, Math.max(1, topK), Math.max(1, scanLimit));
+        index.sort(0, pointers.length, 0);
+        if (pointers.length > index.scanLimit) {
+            index.precompute(0, pointers.length, 0);
+        }
+        return index;
+    }
+
+    /**
+     * Mejores entradas cuyo texto tiene una palabra que empieza por el prefijo ya normalizado,
+     * sin repetir textos; como mucho topK
+     */
+    public List<SuggestionEntry> suggest(String prefix, int limit) {
+        if (prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        int[] top = topByPrefix.get(prefix);
+        if (top == null) {
+            int from = lowerBound(prefix);
+            int to = upperBound(prefix, from);
+            if (from == to) {
+                return List.of();
+            }
+            top = select(entriesIn(from, to));
+        }
+        List<SuggestionEntry> suggestions = new ArrayList<>(Math.min(limit, top.length));
+        for (int i = 0; i < top.length && i < limit; i++) {
+            suggestions.add(entries[top[i]]);
+        }
+        return suggestions;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    public int pointerCount() {
+        return pointers.length;
+    }
+
+    public int precomputedPrefixes() {
+        return topByPrefix.size();
+    }
+
+    // Ordena los punteros de [from, to), que comparten sus primeros depth caracteres, por su sufijo.
+    // Quicksort de tres vías por carácter (multikey): los prefijos comunes no se vuelven a comparar
+    private void sort(int from, int to, int depth) {
+        while (to - from > 1) {
+            if (to - from < 12) {
+                insertionSort(from, to, depth);
+                return;
+            }
+            int pivot = charOrEnd(pointers[(from + to) >>> 1], depth);
+            int less = from;
+            int greater = to - 1;
+            int i = from;
+            while (i <= greater) {
+                int c = charOrEnd(pointers[i], depth);
+                if (c < pivot) {
+                    swap(less++, i++);
+                } else if (c > pivot) {
+                    swap(i, greater--);
+                } else {
+                    i++;
+                }
+            }
+            sort(from, less, depth);
+            sort(greater + 1, to, depth);
+            if (pivot < 0) {
+                // Sufijos idénticos ya terminados: no hay más que ordenar
+                return;
+            }
+            from = less;
+            to = greater + 1;
+            depth++;
+        }
+    }
+
+    private void insertionSort(int from, int to, int depth) {
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && compareFrom(pointers[j - 1], pointers[j], depth) > 0; j--) {
+                swap(j - 1, j);
+            }
+        }
+    }
+
+    private int compareFrom(long a, long b, int depth) {
+        String textA = normalized[entry(a)];
+        String textB = normalized[entry(b)];
+        int offsetA = offset(a) + depth;
+        int offsetB = offset(b) + depth;
+        int length = Math.min(textA.length() - offsetA, textB.length() - offsetB);
+        for (int i = 0; i < length; i++) {
+            int diff = textA.charAt(offsetA + i) - textB.charAt(offsetB + i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return (textA.length() - offsetA) - (textB.length() - offsetB);
+    }
+
+    // Carácter del sufijo en depth, o -1 si el sufijo ya terminó (los más cortos van primero)
+    private int charOrEnd(long pointer, int depth) {
+        String text = normalized[entry(pointer)];
+        int index = offset(pointer) + depth;
+        return index < text.length() ? text.charAt(index) : -1;
+    }
+
+    private void swap(int i, int j) {
+        long tmp = pointers[i];
+        pointers[i] = pointers[j];
+        pointers[j] = tmp;
+    }
+
+    // Los punteros de [from, to) comparten sus primeros depth caracteres; devuelve su top-K
+    // y guarda el de cada prefijo hijo con más de scanLimit punteros.
+    // Los límites de cada grupo se buscan por bisección: el coste depende de los grupos, no del rango
+    private int[] precompute(int from, int to, int depth) {
+        List<int[]> candidates = new ArrayList<>();
+        // Los sufijos que terminan justo aquí van primero en el orden
+        int terminalsEnd = firstWithCharAbove(from, to, depth, -1);
+        if (terminalsEnd > from) {
+            candidates.add(select(entriesIn(from, terminalsEnd)));
+        }
+        int i = terminalsEnd;
+        while (i < to) {
+            int c = charOrEnd(pointers[i], depth);
+            int groupEnd = firstWithCharAbove(i + 1, to, depth, c);
+            if (groupEnd - i > scanLimit) {
+                int[] top = precompute(i, groupEnd, depth + 1);
+                topByPrefix.put(prefixOf(pointers[i], depth + 1), top);
+                candidates.add(top);
+            } else {
+                candidates.add(select(entriesIn(i, groupEnd)));
+            }
+            i = groupEnd;
+        }
+        int total = candidates.stream().mapToInt(top -> top.length).sum();
+        int[] merged = new int[total];
+        int position = 0;
+        for (int[] top : candidates) {
+            System.arraycopy(top, 0, merged, position, top.length);
+            position += top.length;
+        }
+        return select(merged);
+    }
+
+    // Primer puntero de [from, to) cuyo carácter en depth es mayor que c (el rango está ordenado por él)
+    private int firstWithCharAbove(int from, int to, int depth, int c) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (charOrEnd(pointers[mid], depth) <= c) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int[] entriesIn(int from, int to) {
+        int[] ids = new int[to - from];
+        for (int i = from; i < to; i++) {
+            ids[i - from] = entry(pointers[i]);
+        }
+        return ids;
+    }
+
+    // Las topK mejores entradas distintas y con textos distintos (varias ediciones con el mismo título)
+    private int[] select(int[] ids) {
+        Arrays.sort(ids);
+        int[] top = new int[Math.min(topK, ids.length)];
+        int count = 0;
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < ids.length && count < top.length; i++) {
+            if (i > 0 && ids[i] == ids[i - 1]) {
+                continue;
+            }
+            if (seen.add(entries[ids[i]].kind() + ":" + normalized[ids[i]])) {
+                top[count++] = ids[i];
+            }
+        }
+        return count == top.length ? top : Arrays.copyOf(top, count);
+    }
+
+    // Primer puntero cuyo sufijo es >= prefix
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = pointers.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareToPrefix(pointers[mid], prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Primer puntero desde from cuyo sufijo ya no empieza por prefix
+    private int upperBound(String prefix, int from) {
+        int low = from;
+        int high = pointers.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startsWith(pointers[mid], prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compareToPrefix(long pointer, String prefix) {
+        String text = normalized[entry(pointer)];
+        int offset = offset(pointer);
+        int length = Math.min(text.length() - offset, prefix.length());
+        for (int i = 0; i < length; i++) {
+            int diff = text.charAt(offset + i) - prefix.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return (text.length() - offset) - prefix.length() < 0 ? -1 : 0;
+    }
+
+    private boolean startsWith(long pointer, String prefix) {
+        return normalized[entry(pointer)].startsWith(prefix, offset(pointer));
+    }
+
+    private String prefixOf(long pointer, int length) {
+        int offset = offset(pointer);
+        return normalized[entry(pointer)].substring(offset, offset + length);
+    }
+
+    private static long pointer(int entry, int offset) {
+        return ((long) entry << 32) | offset;
+    }
+
+    private static int entry(long pointer) {
+        return (int) (pointer >>> 32);
+    }
+
+    private static int offset(long pointer) {
+        return (int) pointer;
+    }
+}
@@ -0,0 +1,13 @@
+package escom.ipn.hola_spring_6IV3.search;
+
+/**
+ * Texto que se puede sugerir: el título de un libro o el nombre de un autor
+ *
+ * @param bookId  libro al que lleva la sugerencia; null en los autores
+ * @param authors autores del libro tal como se muestran; null en los autores
+ * @param score   popularidad: veces que el libro (o algún libro del autor) está en favoritos
+ */
+public record SuggestionEntry(String text, Kind kind, String bookId, String coverId, String authors, long score) {
+
+    public enum Kind { TITLE, AUTHOR }
+}
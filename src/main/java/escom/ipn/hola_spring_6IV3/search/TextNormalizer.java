@@ -0,0 +1,55 @@
+package escom.ipn.hola_spring_6IV3.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Forma canónica del texto para buscar: minúsculas, sin acentos y con las palabras separadas
+ * por un único espacio. "  El Túnel: Novela " y "el tunel novela" se normalizan igual.
+ */
+public final class TextNormalizer {
+
+    private TextNormalizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        // NFD separa cada letra acentuada en la letra base y su marca, que se descarta
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                pendingSpace = false;
+                normalized.append(Character.toLowerCase(c));
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Posiciones donde empieza cada palabra de un texto ya normalizado, hasta maxWords
+     */
+    public static List<Integer> wordStarts(String normalized, int maxWords) {
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < normalized.length() && starts.size() < maxWords; i++) {
+            if (i == 0 || normalized.charAt(i - 1) == ' ') {
+                starts.add(i);
+            }
+        }
+        return starts;
+    }
+}
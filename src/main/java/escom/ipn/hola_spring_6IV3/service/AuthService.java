@@ -1,5 +1,7 @@
 package escom.ipn.hola_spring_6IV3.service;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -23,6 +25,18 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
+    private final CachedUserDetailsService userDetailsCache;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+
+    // Registro fuera del hilo de la petición: el BCrypt se calcula en el ejecutor de hashing
+    public CompletableFuture<JwtResponse> registerUserAsync(RegisterRequest request) {
+        return passwordHashingExecutor.submit(() -> registerUser(request));
+    }
+
+    // Login fuera del hilo de la petición: la verificación BCrypt se calcula en el ejecutor de hashing
+    public CompletableFuture<JwtResponse> loginUserAsync(LoginRequest request) {
+        return passwordHashingExecutor.submit(() -> loginUser(request));
+    }
 
     // Método para registrar un nuevo usuario
     public JwtResponse registerUser(RegisterRequest request) {
@@ -54,13 +68,14 @@ public class AuthService {
             .build();
     }
 
-    // Método para autenticar usuario y generar JWT
+    // Método para autenticar usuario y generar JWT.
+    // Si el hash guardado usa un coste anticuado, DaoAuthenticationProvider lo rehashea durante authenticate
     public JwtResponse loginUser(LoginRequest request) {
         authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()));
         
-        // Obtener el usuario completo para verificar su rol
-        User user = userRepository.findByUsername(request.getUsername())
+        // Obtener el usuario completo para verificar su rol (ya está en caché tras autenticar)
+        User user = userDetailsCache.findByUsername(request.getUsername())
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
         
         String token = jwtService.getToken(user);
@@ -75,4 +90,9 @@ public class AuthService {
             .redirectUrl(redirectUrl)
             .build();
     }
+
+    // Método para cerrar sesión revocando el token presentado
+    public void logoutUser(String token) {
+        jwtService.revoke(token.replace("Bearer ", ""));
+    }
 }
@@ -0,0 +1,217 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import escom.ipn.hola_spring_6IV3.repository.AuthorBackfillWatermarkRepository;
+import escom.ipn.hola_spring_6IV3.repository.AuthorJdbcRepository;
+import escom.ipn.hola_spring_6IV3.repository.AuthorJdbcRepository.FavoriteAuthorLink;
+import escom.ipn.hola_spring_6IV3.repository.AuthorJdbcRepository.UnlinkedFavorite;
+
+/**
+ * Enlaza con sus autores los favoritos que aún no están en favorite_author (los anteriores a la tabla).
+ * - El rango de ids de favorites se reparte en tramos de batch-size ids; varios hilos toman el siguiente
+ *   tramo libre, leen sus favoritos sin enlazar, resuelven los autores y escriben los enlaces en un lote.
+ * - Cada tramo es independiente y un enlace repetido es un no-op: una ejecución interrumpida
+ *   se completa volviendo a lanzarla, y las altas nuevas que llegan mientras tanto no se duplican.
+ * - Una ejecución sin tramos fallidos guarda en author_backfill_watermark el mayor id que cubrió. Al arrancar
+ *   se repasan solo los favoritos por encima de esa marca (todos si nunca terminó ninguna), aunque otro
+ *   nodo o una petición temprana ya hayan enlazado alguno.
+ * Desde el panel de administración se relanza sobre todo el rango.
+ */
+@Component
+public class AuthorBackfillJob {
+
+    private final AuthorJdbcRepository authorRepository;
+    private final AuthorBackfillWatermarkRepository watermarkRepository;
+    private final AuthorIndexService authorIndexService;
+    private final int batchSize;
+    private final int parallelism;
+    private final boolean onStartup;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile BackfillProgress progress;
+
+    public AuthorBackfillJob(AuthorJdbcRepository authorRepository,
+            AuthorBackfillWatermarkRepository watermarkRepository, AuthorIndexService authorIndexService,
+            @Value("${authors.backfill.batch-size:5000}") int batchSize,
+            @Value("${authors.backfill.parallelism:4}") int parallelism,
+            @Value("${authors.backfill.on-startup:true}") boolean onStartup) {
+        this.authorRepository = authorRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.authorIndexService = authorIndexService;
+        this.batchSize = Math.max(1, batchSize);
+        this.parallelism = Math.max(1, parallelism);
+        this.onStartup = onStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!onStartup) {
+            return;
+        }
+        try {
+            long[] range = authorRepository.findFavoriteIdRange();
+            long backfilledThrough = watermarkRepository.findBackfilledThrough();
+            if (range != null && range[1] > backfilledThrough) {
+                start(backfilledThrough);
+            }
+        } catch (RuntimeException e) {
+            System.out.println("No se pudo comprobar el índice de autores: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Empieza el relleno en segundo plano y devuelve su progreso inicial;
+     * lanza IllegalStateException si ya hay uno en curso
+     */
+    public Map<String, Object> start() {
+        return start(0);
+    }
+
+    // Rellena los favoritos con id mayor que afterId
+    private Map<String, Object> start(long afterId) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay un relleno del índice de autores en curso");
+        }
+        BackfillProgress started = new BackfillProgress();
+        progress = started;
+        Thread thread = new Thread(() -> {
+            try {
+                run(started, afterId);
+            } catch (RuntimeException e) {
+                started.failure = e.getMessage();
+                System.out.println("No se pudo rellenar el índice de autores: " + e.getMessage());
+            } finally {
+                started.finish();
+                running.set(false);
+            }
+        }, "author-backfill");
+        thread.setDaemon(true);
+        thread.start();
+        return started.toMap();
+    }
+
+    /**
+     * Progreso del relleno en curso o del último, o null si no ha habido ninguno desde el arranque
+     */
+    public Map<String, Object> getProgress() {
+        BackfillProgress current = progress;
+        return current == null ? null : current.toMap();
+    }
+
+    private void run(BackfillProgress progress, long afterId) {
+        long[] range = authorRepository.findFavoriteIdRange();
+        if (range == null || range[1] <= afterId) {
+            return;
+        }
+        long fromId = Math.max(range[0], afterId + 1);
+        progress.fromId = fromId;
+        progress.toId = range[1];
+        AtomicLong nextId = new AtomicLong(fromId);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 1; i <= parallelism; i++) {
+            Thread worker = new Thread(() -> backfillBatches(nextId, range[1], progress), "author-backfill-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Relleno interrumpido");
+            }
+        }
+        System.out.printf("Índice de autores rellenado: %d favoritos, %d enlaces en %d ms%n",
+                progress.favorites.sum(), progress.links.sum(), progress.elapsedMillis());
+        if (progress.failedBatches.sum() == 0) {
+            watermarkRepository.advance(range[1]);
+        } else {
+            // Sin marca: el siguiente arranque vuelve a repasar el rango y completa los tramos fallidos
+            System.out.printf("Índice de autores incompleto: %d tramos fallidos%n", progress.failedBatches.sum());
+        }
+    }
+
+    // Cada hilo toma tramos hasta agotar el rango; un tramo fallido se anota y se sigue con el siguiente
+    private void backfillBatches(AtomicLong nextId, long maxId, BackfillProgress progress) {
+        long from;
+        while ((from = nextId.getAndAdd(batchSize)) <= maxId) {
+            long to = Math.min(maxId, from + batchSize - 1);
+            try {
+                // Se leen antes de resolver autores para no tener abiertas dos conexiones por hilo
+                List<FavoriteAuthorLink> links = new ArrayList<>();
+                for (UnlinkedFavorite favorite : authorRepository.findUnlinkedFavorites(from, to)) {
+                    List<Long> ids = authorIndexService.resolveAuthors(favorite.bookId(), favorite.authors());
+                    for (int order = 0; order < ids.size(); order++) {
+                        links.add(new FavoriteAuthorLink(favorite.favoriteId(), ids.get(order), favorite.userId(), order));
+                    }
+                    progress.favorites.increment();
+                }
+                authorRepository.insertLinks(links);
+                progress.links.add(links.size());
+            } catch (RuntimeException e) {
+                progress.failedBatches.increment();
+                progress.lastError = "ids " + from + "-" + to + ": " + e.getMessage();
+            }
+            progress.batches.increment();
+        }
+    }
+
+    private static class BackfillProgress {
+        private final Instant startedAt = Instant.now();
+        private final long startedNanos = System.nanoTime();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder failedBatches = new LongAdder();
+        private final LongAdder favorites = new LongAdder();
+        private final LongAdder links = new LongAdder();
+        private volatile String phase = "running";
+        private volatile long fromId;
+        private volatile long toId;
+        private volatile long finishedNanos;
+        private volatile String failure;
+        private volatile String lastError;
+
+        long elapsedMillis() {
+            return ((finishedNanos != 0 ? finishedNanos : System.nanoTime()) - startedNanos) / 1_000_000;
+        }
+
+        void finish() {
+            phase = failure != null ? "failed" : "completed";
+            finishedNanos = System.nanoTime();
+        }
+
+        Map<String, Object> toMap() {
+            long elapsed = elapsedMillis();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("phase", phase);
+            map.put("startedAt", startedAt.toString());
+            map.put("elapsedMillis", elapsed);
+            map.put("fromId", fromId);
+            map.put("toId", toId);
+            map.put("batches", batches.sum());
+            map.put("failedBatches", failedBatches.sum());
+            map.put("favorites", favorites.sum());
+            map.put("links", links.sum());
+            map.put("favoritesPerSecond", elapsed == 0 ? 0.0 : favorites.sum() * 1000.0 / elapsed);
+            if (lastError != null) {
+                map.put("lastError", lastError);
+            }
+            if (failure != null) {
+                map.put("message", failure);
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import escom.ipn.hola_spring_6IV3.catalog.BookCatalog;
+import escom.ipn.hola_spring_6IV3.catalog.CatalogAuthor;
+import escom.ipn.hola_spring_6IV3.catalog.CatalogWork;
+import escom.ipn.hola_spring_6IV3.catalog.OpenLibraryRecords;
+import escom.ipn.hola_spring_6IV3.dtos.AuthorBookDto;
+import escom.ipn.hola_spring_6IV3.dtos.AuthorDto;
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteBookDetailsDto;
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteRequest;
+import escom.ipn.hola_spring_6IV3.repository.AuthorJdbcRepository;
+import escom.ipn.hola_spring_6IV3.repository.AuthorJdbcRepository.BookAuthorLink;
+import escom.ipn.hola_spring_6IV3.search.TextNormalizer;
+
+/**
+ * Dimensión de autores de los favoritos: en lugar de buscar con LIKE en favorites.authors,
+ * cada favorito se enlaza en favorite_author con sus autores normalizados.
+ * - Los nombres salen de favorites.authors (separados por comas) y, si el catálogo local conoce la obra,
+ *   se emparejan con sus claves de OpenLibrary; sin nombres se usan los autores del catálogo.
+ * - Un autor se identifica por su clave si la tiene y si no por su nombre sin acentos ni mayúsculas.
+ * - Los ids de autor resueltos se guardan en una caché; dentro de una transacción solo tras el commit,
+ *   para no quedarse con el id de un autor insertado en una transacción que se deshizo.
+ */
+@Service
+public class AuthorIndexService {
+
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private final AuthorJdbcRepository authorRepository;
+    private final BookCatalog catalog;
+    private final int maxResults;
+    private final Cache<String, Long> authorIds;
+
+    public AuthorIndexService(AuthorJdbcRepository authorRepository, BookCatalog catalog,
+            @Value("${authors.cache.max-size:100000}") long cacheSize,
+            @Value("${authors.max-results:100}") int maxResults) {
+        this.authorRepository = authorRepository;
+        this.catalog = catalog;
+        this.maxResults = Math.max(1, maxResults);
+        this.authorIds = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    /**
+     * Enlaza con sus autores los favoritos recién insertados del usuario.
+     * Debe llamarse dentro de la transacción que los insertó
+     */
+    public void indexFavorites(Integer userId, List<FavoriteRequest> books) {
+        List<BookAuthorLink> links = new ArrayList<>();
+        for (FavoriteRequest book : books) {
+            List<Long> ids = resolveAuthors(book.getBookId(), book.getAuthors());
+            for (int order = 0; order < ids.size(); order++) {
+                links.add(new BookAuthorLink(book.getBookId(), ids.get(order), order));
+            }
+        }
+        authorRepository.insertLinksByBook(userId, links);
+    }
+
+    /**
+     * Ids de los autores del libro, en el orden de favorites.authors y sin repetidos; los crea si no existen
+     */
+    public List<Long> resolveAuthors(String bookId, String authors) {
+        List<ParsedAuthor> parsed = parseAuthors(bookId, authors);
+        List<Long> ids = new ArrayList<>(parsed.size());
+        for (ParsedAuthor author : parsed) {
+            Long id = resolve(author);
+            if (!ids.contains(id)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Autores cuyo nombre empieza por query (sin distinguir acentos ni mayúsculas)
+     */
+    public List<AuthorDto> searchAuthors(String query, int limit) {
+        String prefix = TextNormalizer.normalize(query);
+        if (prefix.isEmpty()) {
+            throw new IllegalArgumentException("El parámetro q es obligatorio");
+        }
+        return authorRepository.searchByPrefix(prefix, clamp(limit));
+    }
+
+    public Optional<AuthorDto> getAuthor(long authorId) {
+        return authorRepository.findAuthor(authorId);
+    }
+
+    public List<AuthorBookDto> getAuthorBooks(long authorId, int limit) {
+        return authorRepository.findAuthorBooks(authorId, clamp(limit));
+    }
+
+    public List<AuthorDto> getUserAuthors(Integer userId, int limit) {
+        return authorRepository.findUserAuthors(userId, clamp(limit));
+    }
+
+    public List<FavoriteBookDetailsDto> getUserFavoritesByAuthor(Integer userId, long authorId) {
+        return authorRepository.findUserFavoritesByAuthor(userId, authorId);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedAuthorIds", authorIds.estimatedSize());
+        return stats;
+    }
+
+    List<ParsedAuthor> parseAuthors(String bookId, String authors) {
+        // Autores de la obra en el catálogo, por nombre normalizado
+        Map<String, ParsedAuthor> fromCatalog = new LinkedHashMap<>();
+        Optional<CatalogWork> work = bookId != null
+                ? catalog.findWork(OpenLibraryRecords.stripPrefix(bookId))
+                : Optional.empty();
+        work.ifPresent(found -> {
+            for (String key : found.authorKeys()) {
+                catalog.findAuthor(key).map(CatalogAuthor::name).ifPresent(name -> {
+                    ParsedAuthor author = parsed(name, key);
+                    if (author != null) {
+                        fromCatalog.putIfAbsent(author.normalizedName(), author);
+                    }
+                });
+            }
+        });
+
+        Map<String, ParsedAuthor> result = new LinkedHashMap<>();
+        for (String name : FavoriteService.splitAuthors(authors)) {
+            ParsedAuthor author = parsed(name, null);
+            if (author != null && !result.containsKey(author.normalizedName())) {
+                ParsedAuthor known = fromCatalog.get(author.normalizedName());
+                result.put(author.normalizedName(), known != null
+                        ? new ParsedAuthor(author.name(), author.normalizedName(), known.openLibraryKey())
+                        : author);
+            }
+        }
+        if (result.isEmpty()) {
+            return new ArrayList<>(fromCatalog.values());
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    private Long resolve(ParsedAuthor author) {
+        String nameKey = "n:" + author.normalizedName();
+        String cacheKey = author.openLibraryKey() != null ? "ol:" + author.openLibraryKey() : nameKey;
+        Long cached = authorIds.getIfPresent(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        // Las lecturas previas son solo un atajo: si la instantánea de la transacción no ve el autor,
+        // upsert lo inserta o devuelve el id de la fila ya confirmada
+        Long id;
+        if (author.openLibraryKey() != null) {
+            id = authorRepository.findIdByDedupeKey(cacheKey).orElseGet(() -> {
+                // El mismo autor visto antes solo por nombre conserva su id y gana la clave
+                authorRepository.attachKey(nameKey, cacheKey, author.openLibraryKey());
+                return authorRepository.upsert(cacheKey, author.name(), author.normalizedName(),
+                        author.openLibraryKey());
+            });
+        } else {
+            id = authorRepository.findIdByNormalizedName(author.normalizedName()).orElseGet(() ->
+                    authorRepository.upsert(nameKey, author.name(), author.normalizedName(), null));
+        }
+        remember(cacheKey, id);
+        return id;
+    }
+
+    private void remember(String cacheKey, Long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    authorIds.put(cacheKey, id);
+                }
+            });
+        } else {
+            authorIds.put(cacheKey, id);
+        }
+    }
+
+    private static ParsedAuthor parsed(String name, String openLibraryKey) {
+        String trimmed = name.strip();
+        if (trimmed.length() > MAX_NAME_LENGTH) {
+            trimmed = trimmed.substring(0, MAX_NAME_LENGTH);
+        }
+        String normalized = TextNormalizer.normalize(trimmed);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        if (normalized.length() > MAX_NAME_LENGTH) {
+            normalized = normalized.substring(0, MAX_NAME_LENGTH);
+        }
+        return new ParsedAuthor(trimmed, normalized, OpenLibraryRecords.stripPrefix(openLibraryKey));
+    }
+
+    private int clamp(int limit) {
+        return Math.max(1, Math.min(limit, maxResults));
+    }
+
+    record ParsedAuthor(String name, String normalizedName, String openLibraryKey) {
+    }
+}
@@ -0,0 +1,256 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import escom.ipn.hola_spring_6IV3.catalog.BookCatalog;
+import escom.ipn.hola_spring_6IV3.catalog.CatalogAuthor;
+import escom.ipn.hola_spring_6IV3.catalog.CatalogWork;
+import escom.ipn.hola_spring_6IV3.catalog.OpenLibraryRecords;
+import escom.ipn.hola_spring_6IV3.exception.UpstreamUnavailableException;
+import escom.ipn.hola_spring_6IV3.openlibrary.OpenLibraryClient;
+import escom.ipn.hola_spring_6IV3.openlibrary.OpenLibraryResponse;
+
+/**
+ * Metadatos de OpenLibrary compartidos por todos los usuarios del nodo.
+ * - Caché en memoria acotada por bytes, con un TTL distinto por tipo de recurso.
+ * - Las peticiones idénticas simultáneas esperan a una única llamada a OpenLibrary (single-flight).
+ * - Pasado el TTL la copia se revalida con If-None-Match / If-Modified-Since; un 304 solo renueva el plazo.
+ * - Si OpenLibrary falla y hay una copia caducada, se sirve la copia en lugar del error.
+ * - Las obras y autores descargados se guardan también en el catálogo local, que sobrevive a los reinicios.
+ * - Si OpenLibrary falla y no hay copia, las obras y autores se sirven desde el catálogo (cargado de los dumps);
+ *   con books.proxy.catalog-first ni siquiera se consulta OpenLibrary para los que ya están en él.
+ */
+@Service
+public class BookMetadataService {
+
+    public enum ResourceType { WORK, AUTHOR, SEARCH, SUBJECT }
+
+    private final OpenLibraryClient client;
+    private final BookCatalog catalog;
+    private final ObjectMapper objectMapper;
+    private final Map<ResourceType, Duration> ttls = new EnumMap<>(ResourceType.class);
+    private final Duration notFoundTtl;
+    private final boolean catalogFirst;
+    private final Cache<String, CachedResource> resources;
+    private final ConcurrentMap<String, CompletableFuture<CachedResource>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder revalidated = new LongAdder();
+    private final LongAdder upstreamCalls = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder catalogServed = new LongAdder();
+
+    public BookMetadataService(OpenLibraryClient client, BookCatalog catalog, ObjectMapper objectMapper,
+            @Value("${books.proxy.cache.max-bytes:67108864}") long maxBytes,
+            @Value("${books.proxy.cache.stale-retention:24h}") Duration staleRetention,
+            @Value("${books.proxy.ttl.work:24h}") Duration workTtl,
+            @Value("${books.proxy.ttl.author:7d}") Duration authorTtl,
+            @Value("${books.proxy.ttl.search:10m}") Duration searchTtl,
+            @Value("${books.proxy.ttl.subject:1h}") Duration subjectTtl,
+            @Value("${books.proxy.ttl.not-found:10m}") Duration notFoundTtl,
+            @Value("${books.proxy.catalog-first:false}") boolean catalogFirst) {
+        this.client = client;
+        this.catalog = catalog;
+        this.objectMapper = objectMapper;
+        ttls.put(ResourceType.WORK, workTtl);
+        ttls.put(ResourceType.AUTHOR, authorTtl);
+        ttls.put(ResourceType.SEARCH, searchTtl);
+        ttls.put(ResourceType.SUBJECT, subjectTtl);
+        this.notFoundTtl = notFoundTtl;
+        this.catalogFirst = catalogFirst;
+        Duration longestTtl = ttls.values().stream().max(Duration::compareTo).orElse(workTtl);
+        // Las copias caducadas se conservan un tiempo más para revalidarlas o servirlas si OpenLibrary falla
+        this.resources = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedResource resource) -> key.length() + resource.body().length)
+                .expireAfterWrite(longestTtl.plus(staleRetention))
+                .build();
+    }
+
+    /**
+     * Devuelve el recurso (p. ej. "/works/OL45804W.json") desde la caché o desde OpenLibrary
+     */
+    public CachedResource get(ResourceType type, String pathAndQuery) {
+        CachedResource cached = resources.getIfPresent(pathAndQuery);
+        if (cached != null && cached.isFresh()) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<CachedResource> flight = new CompletableFuture<>();
+        CompletableFuture<CachedResource> existing = inFlight.putIfAbsent(pathAndQuery, flight);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            CachedResource loaded = load(type, pathAndQuery, cached);
+            flight.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(pathAndQuery, flight);
+        }
+    }
+
+    private CachedResource load(ResourceType type, String pathAndQuery, CachedResource stale) {
+        misses.increment();
+        if (catalogFirst) {
+            CachedResource local = fromCatalog(type, pathAndQuery, ttls.get(type));
+            if (local != null) {
+                resources.put(pathAndQuery, local);
+                return local;
+            }
+        }
+        upstreamCalls.increment();
+        OpenLibraryResponse response;
+        try {
+            response = stale == null
+                    ? client.fetch(pathAndQuery, null, null)
+                    : client.fetch(pathAndQuery, stale.etag(), stale.lastModified());
+        } catch (UpstreamUnavailableException e) {
+            return serveStale(type, pathAndQuery, stale, e);
+        }
+
+        long now = System.currentTimeMillis();
+        CachedResource resource;
+        if (response.isNotModified() && stale != null) {
+            revalidated.increment();
+            resource = stale.renewed(now + ttls.get(type).toMillis());
+        } else if (response.isSuccessful()) {
+            resource = new CachedResource(200, response.body(), response.contentType(),
+                    response.etag(), response.lastModified(), now + ttls.get(type).toMillis());
+            storeInCatalog(type, response.body());
+        } else if (response.status() == 404) {
+            resource = new CachedResource(404, new byte[0], response.contentType(), null, null,
+                    now + notFoundTtl.toMillis());
+        } else {
+            return serveStale(type, pathAndQuery, stale, new UpstreamUnavailableException(
+                    "OpenLibrary respondió " + response.status() + " para " + pathAndQuery));
+        }
+        resources.put(pathAndQuery, resource);
+        return resource;
+    }
+
+    // Guardar en el catálogo es un extra: un JSON inesperado no debe romper la respuesta del proxy
+    private void storeInCatalog(ResourceType type, byte[] body) {
+        if (type != ResourceType.WORK && type != ResourceType.AUTHOR) {
+            return;
+        }
+        try {
+            JsonNode json = objectMapper.readTree(body);
+            if (type == ResourceType.WORK) {
+                CatalogWork work = OpenLibraryRecords.toWork(json);
+                if (work != null && BookCatalog.isValidKey(work.workId())) {
+                    catalog.putWork(work);
+                }
+            } else {
+                CatalogAuthor author = OpenLibraryRecords.toAuthor(json);
+                if (author != null && BookCatalog.isValidKey(author.authorId())) {
+                    catalog.putAuthor(author);
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("No se pudo guardar en el catálogo: " + e.getMessage());
+        }
+    }
+
+    private CachedResource serveStale(ResourceType type, String pathAndQuery, CachedResource stale,
+            UpstreamUnavailableException error) {
+        if (stale != null && stale.status() == 200) {
+            staleServed.increment();
+            return stale;
+        }
+        // Plazo corto, como un 404: en cuanto OpenLibrary vuelva se sirve la respuesta completa
+        CachedResource local = fromCatalog(type, pathAndQuery, notFoundTtl);
+        if (local == null) {
+            throw error;
+        }
+        resources.put(pathAndQuery, local);
+        return local;
+    }
+
+    // "/works/OL45804W.json" -> la obra del catálogo en el formato de OpenLibrary, o null si no está
+    private CachedResource fromCatalog(ResourceType type, String pathAndQuery, Duration ttl) {
+        if (type != ResourceType.WORK && type != ResourceType.AUTHOR) {
+            return null;
+        }
+        String id = OpenLibraryRecords.stripPrefix(pathAndQuery.replace(".json", ""));
+        try {
+            Object json = type == ResourceType.WORK
+                    ? catalog.findWork(id).map(OpenLibraryRecords::toJson).orElse(null)
+                    : catalog.findAuthor(id).map(OpenLibraryRecords::toJson).orElse(null);
+            if (json == null) {
+                return null;
+            }
+            catalogServed.increment();
+            return new CachedResource(200, objectMapper.writeValueAsBytes(json), "application/json", null, null,
+                    System.currentTimeMillis() + ttl.toMillis());
+        } catch (Exception e) {
+            System.out.println("No se pudo leer del catálogo: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Aciertos, fallos, peticiones agrupadas y revalidaciones de la caché de metadatos
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", resources.estimatedSize());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("revalidatedNotModified", revalidated.sum());
+        stats.put("staleServed", staleServed.sum());
+        stats.put("catalogServed", catalogServed.sum());
+        stats.put("upstreamCalls", upstreamCalls.sum());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+
+    /**
+     * Copia de un recurso de OpenLibrary con sus validadores y el instante hasta el que es fresca
+     */
+    public record CachedResource(int status, byte[] body, String contentType, String etag, String lastModified,
+            long freshUntil) {
+
+        public boolean isFresh() {
+            return System.currentTimeMillis() < freshUntil;
+        }
+
+        // Segundos de frescura restantes, para el Cache-Control que se envía al navegador
+        public long maxAgeSeconds() {
+            return Math.max(0, (freshUntil - System.currentTimeMillis()) / 1000);
+        }
+
+        CachedResource renewed(long newFreshUntil) {
+            return new CachedResource(status, body, contentType, etag, lastModified, newFreshUntil);
+        }
+    }
+}
@@ -0,0 +1,557 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import escom.ipn.hola_spring_6IV3.dtos.BookNeighborDto;
+import escom.ipn.hola_spring_6IV3.model.BookNeighbor;
+import escom.ipn.hola_spring_6IV3.repository.BookNeighborJdbcRepository;
+import escom.ipn.hola_spring_6IV3.repository.FavoriteJdbcRepository;
+
+/**
+ * "Quienes guardaron este libro también guardaron...": vecinos de cada libro por co-ocurrencia en favoritos.
+ *
+ * El cálculo lee en streaming los pares (usuario, libro), numera los libros y guarda la matriz
+ * usuario × libro en arrays primitivos (CSR) en las dos direcciones. Después cuenta, para cada libro,
+ * cuántos usuarios comparten con él cada otro libro: las filas se reparten entre los hilos de un
+ * ForkJoinPool y cada hilo cuenta en un int[] denso propio, sin mapas ni objetos por par.
+ * La memoria es O(favoritos + hilos × libros) y no depende del número de pares.
+ * Los usuarios con más de max-user-favorites libros se ignoran: aportan muchos pares y poca señal.
+ *
+ * Los top-K de cada libro (similitud coseno) se escriben en book_neighbors como una generación nueva
+ * que se publica al terminar. La API sirve la generación publicada en book_neighbor_generation, releída
+ * cada GENERATION_REFRESH_MILLIS: así la ve también cualquier otro nodo. Al limpiar se conserva la generación
+ * anterior a la publicada, para que un nodo que aún no la ha releído no se quede sin filas.
+ *
+ * Solo calcula un nodo a la vez: antes de empezar toma la reserva de book_neighbor_lease por books.neighbors.lease,
+ * la renueva al cambiar de fase y la suelta al terminar. Si otro nodo la tiene, el cron no hace nada y el
+ * arranque manual responde con IllegalStateException.
+ */
+@Service
+public class BookNeighborService {
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final int DELETE_BATCH_SIZE = 10000;
+    private static final long GENERATION_REFRESH_MILLIS = 30_000;
+    // Libros por tarea hoja del ForkJoinPool; los populares cuestan más, el robo de tareas lo reparte
+    private static final int ROWS_PER_TASK = 32;
+
+    private final FavoriteJdbcRepository favoriteJdbcRepository;
+    private final BookNeighborJdbcRepository neighborRepository;
+    private final int topK;
+    private final int maxUserFavorites;
+    private final int minCoFavorites;
+    private final int parallelism;
+    private final long leaseMillis;
+    // Identifica a este nodo en book_neighbor_lease
+    private final String leaseOwner = UUID.randomUUID().toString();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile long generation;
+    private volatile long generationReadAt;
+    private volatile JobProgress progress;
+
+    public BookNeighborService(FavoriteJdbcRepository favoriteJdbcRepository,
+            BookNeighborJdbcRepository neighborRepository,
+            @Value("${books.neighbors.top-k:20}") int topK,
+            @Value("${books.neighbors.max-user-favorites:500}") int maxUserFavorites,
+            @Value("${books.neighbors.min-co-favorites:1}") int minCoFavorites,
+            @Value("${books.neighbors.parallelism:4}") int parallelism,
+            @Value("${books.neighbors.lease:1h}") Duration lease) {
+        this.favoriteJdbcRepository = favoriteJdbcRepository;
+        this.neighborRepository = neighborRepository;
+        this.topK = Math.max(1, topK);
+        this.maxUserFavorites = Math.max(2, maxUserFavorites);
+        this.minCoFavorites = Math.max(1, minCoFavorites);
+        this.parallelism = Math.max(1, parallelism);
+        this.leaseMillis = Math.max(60_000, lease.toMillis());
+    }
+
+    /**
+     * Libros que más comparten usuarios con bookId, del último cálculo publicado
+     */
+    public List<BookNeighborDto> findAlsoFavorited(String bookId, int limit) {
+        long current = publishedGeneration();
+        if (current == 0) {
+            return List.of();
+        }
+        return neighborRepository.findNeighbors(bookId, current, Math.max(1, Math.min(limit, topK)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            if (publishedGeneration() == 0) {
+                // Primer arranque: no esperar al cron para tener vecinos
+                start();
+            }
+        } catch (RuntimeException e) {
+            System.out.println("No se pudo leer la generación de vecinos de libros: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${books.neighbors.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        if (running.get()) {
+            return;
+        }
+        try {
+            start();
+        } catch (IllegalStateException e) {
+            // Otro cálculo empezó entre la comprobación y el arranque, aquí o en otro nodo
+        }
+    }
+
+    /**
+     * Empieza el cálculo en segundo plano y devuelve su progreso inicial;
+     * lanza IllegalStateException si ya hay uno en curso en este u otro nodo
+     */
+    public Map<String, Object> start() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay un cálculo de vecinos de libros en curso");
+        }
+        boolean acquired = false;
+        try {
+            acquired = tryAcquireLease();
+        } finally {
+            if (!acquired) {
+                running.set(false);
+            }
+        }
+        if (!acquired) {
+            throw new IllegalStateException("Otro nodo está calculando los vecinos de libros");
+        }
+        JobProgress started = new JobProgress();
+        progress = started;
+        Thread thread = new Thread(() -> {
+            try {
+                run(started);
+            } catch (RuntimeException e) {
+                started.failure = e.getMessage();
+                System.out.println("No se pudo calcular los vecinos de libros: " + e.getMessage());
+            } finally {
+                releaseLease();
+                started.finish();
+                running.set(false);
+            }
+        }, "book-neighbors");
+        thread.setDaemon(true);
+        thread.start();
+        return started.toMap();
+    }
+
+    /**
+     * Progreso del cálculo en curso o del último, o null si no ha habido ninguno desde el arranque
+     */
+    public Map<String, Object> getProgress() {
+        JobProgress current = progress;
+        if (current == null) {
+            return null;
+        }
+        Map<String, Object> map = current.toMap();
+        map.put("publishedGeneration", publishedGeneration());
+        return map;
+    }
+
+    private void run(JobProgress progress) {
+        // 1. Pares (usuario, libro) agrupados por usuario → CSR usuario → libros
+        progress.phase = "reading";
+        Map<String, Integer> bookIndex = new HashMap<>();
+        List<String> bookIds = new ArrayList<>();
+        IntArray userItems = new IntArray(1 << 16);
+        IntArray userStarts = new IntArray(1 << 12);
+        userStarts.add(0);
+        int[] currentUser = {Integer.MIN_VALUE};
+        int[] userFrom = {0};
+        favoriteJdbcRepository.forEachUserBook((bookId, userId) -> {
+            if (userId != currentUser[0]) {
+                closeUser(userItems, userStarts, userFrom, progress);
+                currentUser[0] = userId;
+            }
+            Integer book = bookIndex.get(bookId);
+            if (book == null) {
+                book = bookIds.size();
+                bookIndex.put(bookId, book);
+                bookIds.add(bookId);
+            }
+            userItems.add(book);
+            progress.favorites++;
+        });
+        closeUser(userItems, userStarts, userFrom, progress);
+        int books = bookIds.size();
+        int[] items = userItems.toArray();
+        int[] userStart = userStarts.toArray();
+        int users = userStart.length - 1;
+        progress.users = users;
+        progress.books = books;
+
+        // 2. CSR libro → usuarios por conteo y reparto
+        int[] bookUserStart = new int[books + 1];
+        for (int item : items) {
+            bookUserStart[item + 1]++;
+        }
+        for (int b = 0; b < books; b++) {
+            bookUserStart[b + 1] += bookUserStart[b];
+        }
+        int[] bookUsers = new int[items.length];
+        int[] next = Arrays.copyOf(bookUserStart, books);
+        for (int u = 0; u < users; u++) {
+            for (int i = userStart[u]; i < userStart[u + 1]; i++) {
+                bookUsers[next[items[i]]++] = u;
+            }
+        }
+
+        // 3. Co-ocurrencias por filas en paralelo; cada libro escribe solo su tramo de los resultados
+        renewLease();
+        progress.phase = "counting";
+        int[] neighbors = new int[books * topK];
+        int[] coCounts = new int[books * topK];
+        float[] scores = new float[books * topK];
+        int[] neighborCount = new int[books];
+        Matrix matrix = new Matrix(items, userStart, bookUsers, bookUserStart, books,
+                ThreadLocal.withInitial(() -> new RowCounter(books, topK, minCoFavorites)));
+        // Un pool por ejecución: al cerrarlo sus hilos liberan los contadores de tamaño books
+        ForkJoinPool pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("book-neighbors-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        try {
+            pool.invoke(new CountRows(matrix, 0, books, neighbors, coCounts, scores, neighborCount, progress));
+        } finally {
+            pool.shutdown();
+        }
+
+        // 4. Datos de los libros que son vecinos de alguno, para servir la lista sin más consultas
+        renewLease();
+        progress.phase = "writing";
+        boolean[] needed = new boolean[books];
+        for (int b = 0; b < books; b++) {
+            for (int k = 0; k < neighborCount[b]; k++) {
+                needed[neighbors[b * topK + k]] = true;
+            }
+        }
+        String[] titles = new String[books];
+        String[] coverIds = new String[books];
+        String[] authors = new String[books];
+        favoriteJdbcRepository.forEachBookPopularity((book, favorites) -> {
+            Integer b = bookIndex.get(book.getBookId());
+            if (b != null && needed[b]) {
+                titles[b] = book.getBookTitle();
+                coverIds[b] = book.getBookCoverId();
+                authors[b] = book.getAuthors();
+            }
+        });
+
+        // 5. Generación nueva por lotes; se publica entera y después se borran las anteriores
+        long newGeneration = System.currentTimeMillis();
+        List<BookNeighbor> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int b = 0; b < books; b++) {
+            for (int k = 0; k < neighborCount[b]; k++) {
+                int slot = b * topK + k;
+                int neighbor = neighbors[slot];
+                batch.add(new BookNeighbor(null, newGeneration, bookIds.get(b), k, bookIds.get(neighbor),
+                        titles[neighbor], coverIds[neighbor], authors[neighbor], coCounts[slot], scores[slot]));
+                if (batch.size() == INSERT_BATCH_SIZE) {
+                    neighborRepository.insertBatch(batch);
+                    progress.rowsWritten += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        neighborRepository.insertBatch(batch);
+        progress.rowsWritten += batch.size();
+        renewLease();
+        neighborRepository.publishGeneration(newGeneration);
+        progress.phase = "cleaning";
+        // Otro nodo puede haber publicado una generación más nueva a la vez: se borra a partir de lo publicado
+        long previous = neighborRepository.findPreviousGeneration();
+        progress.rowsDeleted = neighborRepository.deleteGenerationsBefore(previous, DELETE_BATCH_SIZE);
+        refreshGeneration();
+        progress.generation = newGeneration;
+
+        System.out.printf("Vecinos de libros calculados: %d usuarios, %d libros, %d favoritos, %d filas en %d ms%n",
+                users, books, progress.favorites, progress.rowsWritten, progress.elapsedMillis());
+    }
+
+    private boolean tryAcquireLease() {
+        long now = System.currentTimeMillis();
+        return neighborRepository.tryAcquireLease(leaseOwner, now, now + leaseMillis);
+    }
+
+    // Si la reserva expiró y la tomó otro nodo, este deja de calcular antes de publicar
+    private void renewLease() {
+        if (!tryAcquireLease()) {
+            throw new IllegalStateException("Se perdió la reserva del cálculo de vecinos de libros");
+        }
+    }
+
+    private void releaseLease() {
+        try {
+            neighborRepository.releaseLease(leaseOwner);
+        } catch (RuntimeException e) {
+            // Expira sola al cabo de books.neighbors.lease
+            System.out.println("No se pudo soltar la reserva de vecinos de libros: " + e.getMessage());
+        }
+    }
+
+    // La generación publicada se relee como mucho cada GENERATION_REFRESH_MILLIS
+    private long publishedGeneration() {
+        if (System.currentTimeMillis() - generationReadAt >= GENERATION_REFRESH_MILLIS) {
+            refreshGeneration();
+        }
+        return generation;
+    }
+
+    private void refreshGeneration() {
+        generation = neighborRepository.findPublishedGeneration();
+        generationReadAt = System.currentTimeMillis();
+    }
+
+    // Cierra los favoritos del usuario leído; si tiene demasiados se descartan
+    private void closeUser(IntArray userItems, IntArray userStarts, int[] userFrom, JobProgress progress) {
+        int count = userItems.size() - userFrom[0];
+        if (count == 0) {
+            return;
+        }
+        if (count > maxUserFavorites) {
+            userItems.truncate(userFrom[0]);
+            progress.skippedUsers++;
+            return;
+        }
+        userStarts.add(userItems.size());
+        userFrom[0] = userItems.size();
+    }
+
+    record Matrix(int[] items, int[] userStart, int[] bookUsers, int[] bookUserStart, int books,
+            ThreadLocal<RowCounter> counters) {
+    }
+
+    /**
+     * Calcula los vecinos de los libros [from, to), partiendo el rango mientras sea grande
+     */
+    private class CountRows extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Matrix matrix;
+        private final int from;
+        private final int to;
+        private final int[] neighbors;
+        private final int[] coCounts;
+        private final float[] scores;
+        private final int[] neighborCount;
+        private final transient JobProgress progress;
+
+        CountRows(Matrix matrix, int from, int to, int[] neighbors, int[] coCounts, float[] scores,
+                int[] neighborCount, JobProgress progress) {
+            this.matrix = matrix;
+            this.from = from;
+            this.to = to;
+            this.neighbors = neighbors;
+            this.coCounts = coCounts;
+            this.scores = scores;
+            this.neighborCount = neighborCount;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CountRows(matrix, from, middle, neighbors, coCounts, scores, neighborCount, progress),
+                        new CountRows(matrix, middle, to, neighbors, coCounts, scores, neighborCount, progress));
+                return;
+            }
+            RowCounter counter = matrix.counters().get();
+            for (int book = from; book < to; book++) {
+                progress.pairs.add(counter.countRow(matrix, book));
+                counter.selectTop(matrix, book, neighbors, coCounts, scores, neighborCount);
+                progress.booksDone.increment();
+            }
+        }
+    }
+
+    // Contador denso por hilo; se reutiliza entre filas y solo se limpian las posiciones tocadas
+    static final class RowCounter {
+        private final int[] counts;
+        private final int topK;
+        private final int minCoFavorites;
+        private int[] touched = new int[1024];
+        private int touchedCount;
+
+        RowCounter(int books, int topK, int minCoFavorites) {
+            this.counts = new int[books];
+            this.topK = topK;
+            this.minCoFavorites = minCoFavorites;
+        }
+
+        // Cuenta, para cada otro libro, los usuarios que lo comparten con book; devuelve los pares recorridos
+        long countRow(Matrix matrix, int book) {
+            long pairs = 0;
+            touchedCount = 0;
+            for (int i = matrix.bookUserStart()[book]; i < matrix.bookUserStart()[book + 1]; i++) {
+                int user = matrix.bookUsers()[i];
+                for (int j = matrix.userStart()[user]; j < matrix.userStart()[user + 1]; j++) {
+                    int other = matrix.items()[j];
+                    if (other == book) {
+                        continue;
+                    }
+                    if (counts[other]++ == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = other;
+                    }
+                    pairs++;
+                }
+            }
+            return pairs;
+        }
+
+        // Los topK vecinos por similitud coseno, por inserción en el tramo del libro; deja counts a cero
+        void selectTop(Matrix matrix, int book, int[] neighbors, int[] coCounts, float[] scores, int[] neighborCount) {
+            int base = book * topK;
+            int size = 0;
+            int bookFavorites = degree(matrix, book);
+            for (int t = 0; t < touchedCount; t++) {
+                int other = touched[t];
+                int co = counts[other];
+                counts[other] = 0;
+                if (co < minCoFavorites) {
+                    continue;
+                }
+                float score = (float) (co / Math.sqrt((double) bookFavorites * degree(matrix, other)));
+                int position = size;
+                while (position > 0 && isBetter(score, co, other, scores[base + position - 1],
+                        coCounts[base + position - 1], neighbors[base + position - 1])) {
+                    position--;
+                }
+                if (position >= topK) {
+                    continue;
+                }
+                int last = Math.min(size, topK - 1);
+                for (int k = last; k > position; k--) {
+                    neighbors[base + k] = neighbors[base + k - 1];
+                    coCounts[base + k] = coCounts[base + k - 1];
+                    scores[base + k] = scores[base + k - 1];
+                }
+                neighbors[base + position] = other;
+                coCounts[base + position] = co;
+                scores[base + position] = score;
+                size = Math.min(size + 1, topK);
+            }
+            neighborCount[book] = size;
+        }
+
+        private static int degree(Matrix matrix, int book) {
+            return matrix.bookUserStart()[book + 1] - matrix.bookUserStart()[book];
+        }
+
+        // Mayor similitud; a igualdad, más usuarios en común y después el libro numerado antes
+        private static boolean isBetter(float score, int co, int book, float otherScore, int otherCo, int otherBook) {
+            if (score != otherScore) {
+                return score > otherScore;
+            }
+            if (co != otherCo) {
+                return co > otherCo;
+            }
+            return book < otherBook;
+        }
+    }
+
+    /**
+     * Lista de int que crece sin reservar un Integer por elemento
+     */
+    private static final class IntArray {
+        private int[] values;
+        private int size;
+
+        IntArray(int capacity) {
+            values = new int[capacity];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void truncate(int newSize) {
+            size = newSize;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static class JobProgress {
+        private final Instant startedAt = Instant.now();
+        private final long startedNanos = System.nanoTime();
+        private final LongAdder booksDone = new LongAdder();
+        private final LongAdder pairs = new LongAdder();
+        private volatile String phase = "starting";
+        private volatile long favorites;
+        private volatile int users;
+        private volatile int books;
+        private volatile int skippedUsers;
+        private volatile long rowsWritten;
+        private volatile long rowsDeleted;
+        private volatile long generation;
+        private volatile long finishedNanos;
+        private volatile String failure;
+
+        long elapsedMillis() {
+            return ((finishedNanos != 0 ? finishedNanos : System.nanoTime()) - startedNanos) / 1_000_000;
+        }
+
+        void finish() {
+            phase = failure != null ? "failed" : "completed";
+            finishedNanos = System.nanoTime();
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("phase", phase);
+            map.put("startedAt", startedAt.toString());
+            map.put("elapsedMillis", elapsedMillis());
+            map.put("favorites", favorites);
+            map.put("users", users);
+            map.put("skippedUsers", skippedUsers);
+            map.put("books", books);
+            map.put("booksDone", booksDone.sum());
+            map.put("pairs", pairs.sum());
+            map.put("rowsWritten", rowsWritten);
+            map.put("rowsDeleted", rowsDeleted);
+            map.put("generation", generation);
+            if (failure != null) {
+                map.put("message", failure);
+            }
+            return map;
+        }
+    }
+}
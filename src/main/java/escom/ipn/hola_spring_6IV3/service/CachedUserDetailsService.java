@@ -0,0 +1,119 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import escom.ipn.hola_spring_6IV3.model.User;
+import escom.ipn.hola_spring_6IV3.repository.UserRepository;
+
+/**
+ * UserDetailsService con caché en memoria delante de UserRepository.findByUsername.
+ * Las entradas se descartan por tamaño y por tiempo, y UserService las invalida en cada escritura.
+ * Se entregan copias para que nadie modifique la instancia compartida de la caché.
+ * También guarda los hashes rehasheados por DaoAuthenticationProvider cuando su coste está anticuado.
+ */
+@Service
+public class CachedUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    private final UserRepository userRepository;
+    private final Cache<String, User> users;
+
+    public CachedUserDetailsService(UserRepository userRepository,
+            @Value("${users.cache.max-size:5000}") long maxSize,
+            @Value("${users.cache.ttl:10m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public User loadUserByUsername(String username) throws UsernameNotFoundException {
+        return findByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+    }
+
+    /**
+     * Busca el usuario en la caché y, si no está, en la base de datos
+     */
+    public Optional<User> findByUsername(String username) {
+        // Los usuarios inexistentes no se cachean para no ocultar un registro posterior
+        User cached = users.get(username, key -> userRepository.findByUsername(key).orElse(null));
+        return Optional.ofNullable(cached).map(this::copyOf);
+    }
+
+    /**
+     * Guarda el nuevo hash calculado tras un login correcto; no cambia la contraseña en sí,
+     * así que la versión de token del usuario se mantiene
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User stored = userRepository.findByUsername(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + user.getUsername()));
+        stored.setPassword(newPassword);
+        User saved = userRepository.save(stored);
+        invalidate(saved.getUsername());
+        return copyOf(saved);
+    }
+
+    /**
+     * Descarta al usuario ahora y de nuevo al terminar la transacción en curso,
+     * para que ninguna lectura concurrente deje en caché los datos anteriores al commit
+     */
+    public void invalidate(String username) {
+        users.invalidate(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    users.invalidate(username);
+                }
+            });
+        }
+    }
+
+    /**
+     * Estadísticas de aciertos, fallos y desalojos de la caché
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = users.stats();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("size", users.estimatedSize());
+        response.put("hits", stats.hitCount());
+        response.put("misses", stats.missCount());
+        response.put("hitRate", stats.hitRate());
+        response.put("evictions", stats.evictionCount());
+        response.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+        return response;
+    }
+
+    private User copyOf(User user) {
+        return User.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .lastname(user.getLastname())
+                .firstname(user.getFirstname())
+                .country(user.getCountry())
+                .password(user.getPassword())
+                .role(user.getRole())
+                .tokenVersion(user.getTokenVersion())
+                .build();
+    }
+}
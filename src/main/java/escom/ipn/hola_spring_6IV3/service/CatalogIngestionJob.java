@@ -0,0 +1,463 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import escom.ipn.hola_spring_6IV3.catalog.BookCatalog;
+import escom.ipn.hola_spring_6IV3.catalog.CatalogAuthor;
+import escom.ipn.hola_spring_6IV3.catalog.CatalogWork;
+import escom.ipn.hola_spring_6IV3.catalog.OpenLibraryRecords;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Carga en el catálogo local los dumps de OpenLibrary (ol_dump_works_*.txt.gz, ol_dump_authors_*.txt.gz).
+ * Cada línea es "tipo \t clave \t revisión \t última modificación \t JSON"; solo se usan /type/work y /type/author.
+ * - Un hilo descomprime y corta el archivo en tramos de chunk-lines líneas; varios hilos parsean los tramos.
+ * - La cola entre ambos está acotada: la memoria no depende del tamaño del dump (decenas de GB).
+ * - El checkpoint guarda cuántas líneas están ya en el catálogo y en disco; una carga interrumpida
+ *   se reanuda saltando esas líneas sin parsearlas.
+ * Solo se leen archivos del directorio catalog.ingest.dir, y solo una carga a la vez.
+ */
+@Component
+public class CatalogIngestionJob {
+
+    private static final int MAX_REPORTED_ERRORS = 20;
+    private static final Chunk END = new Chunk(-1, 0, List.of());
+
+    private final BookCatalog catalog;
+    private final ObjectMapper objectMapper;
+    private final Path dumpsDirectory;
+    private final int parallelism;
+    private final int chunkLines;
+    private final int queueCapacity;
+    private final long reportIntervalMillis;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile IngestionProgress progress;
+
+    public CatalogIngestionJob(BookCatalog catalog, ObjectMapper objectMapper,
+            @Value("${catalog.ingest.dir:data/dumps}") Path dumpsDirectory,
+            @Value("${catalog.ingest.parallelism:4}") int parallelism,
+            @Value("${catalog.ingest.chunk-lines:2000}") int chunkLines,
+            @Value("${catalog.ingest.queue-chunks:16}") int queueCapacity,
+            @Value("${catalog.ingest.report-interval-millis:10000}") long reportIntervalMillis) {
+        this.catalog = catalog;
+        this.objectMapper = objectMapper;
+        this.dumpsDirectory = dumpsDirectory.toAbsolutePath().normalize();
+        this.parallelism = Math.max(1, parallelism);
+        this.chunkLines = Math.max(1, chunkLines);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.reportIntervalMillis = Math.max(1000, reportIntervalMillis);
+    }
+
+    /**
+     * Empieza a cargar el dump en segundo plano y devuelve su progreso inicial.
+     * Con resume=false se ignora el checkpoint y se carga desde la primera línea.
+     * Lanza IllegalArgumentException si el archivo no es válido e IllegalStateException si ya hay una carga
+     */
+    public Map<String, Object> start(String fileName, boolean resume) {
+        Path dump = resolveDump(fileName);
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una carga del catálogo en curso");
+        }
+        try {
+            Checkpoint checkpoint = Checkpoint.of(dump);
+            long skipLines = resume ? checkpoint.readCompletedLines(checkpointPath(dump)) : 0;
+            IngestionProgress started = new IngestionProgress(dump.getFileName().toString(), skipLines);
+            progress = started;
+            Thread thread = new Thread(() -> run(dump, checkpoint, started), "catalog-ingestion");
+            thread.setDaemon(true);
+            thread.start();
+            return started.toMap();
+        } catch (IOException | RuntimeException e) {
+            running.set(false);
+            throw new IllegalArgumentException("No se pudo leer el dump " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Detiene la carga en curso tras los tramos ya repartidos; el checkpoint queda guardado para reanudarla
+     */
+    public boolean cancel() {
+        IngestionProgress current = progress;
+        if (current == null || !current.isRunning()) {
+            return false;
+        }
+        current.cancelled = true;
+        return true;
+    }
+
+    /**
+     * Progreso de la carga en curso o de la última, o null si nunca se cargó nada
+     */
+    public Map<String, Object> getProgress() {
+        IngestionProgress current = progress;
+        return current == null ? null : current.toMap();
+    }
+
+    private void run(Path dump, Checkpoint checkpoint, IngestionProgress progress) {
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queueCapacity);
+        CompletionTracker completed = new CompletionTracker(progress.skippedLines);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 1; i <= parallelism; i++) {
+            Thread worker = new Thread(() -> parseChunks(queue, completed, progress), "catalog-ingestion-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+
+        Path checkpointFile = checkpointPath(dump);
+        try (BufferedReader reader = open(dump)) {
+            for (long i = 0; i < progress.skippedLines; i++) {
+                if (reader.readLine() == null) {
+                    break;
+                }
+            }
+            long nextReport = System.currentTimeMillis() + reportIntervalMillis;
+            long lineNumber = progress.skippedLines;
+            int sequence = 0;
+            List<String> lines = new ArrayList<>(chunkLines);
+            String line;
+            while (!progress.cancelled && progress.failure == null && (line = reader.readLine()) != null) {
+                lines.add(line);
+                if (lines.size() == chunkLines) {
+                    put(queue, new Chunk(sequence++, lineNumber + 1, lines), workers);
+                    lineNumber += lines.size();
+                    progress.linesRead = lineNumber;
+                    lines = new ArrayList<>(chunkLines);
+                }
+                if (System.currentTimeMillis() >= nextReport) {
+                    saveCheckpoint(checkpoint, checkpointFile, completed.completedLines(), progress);
+                    report(progress);
+                    nextReport = System.currentTimeMillis() + reportIntervalMillis;
+                }
+            }
+            if (!lines.isEmpty() && !progress.cancelled && progress.failure == null) {
+                put(queue, new Chunk(sequence, lineNumber + 1, lines), workers);
+                progress.linesRead = lineNumber + lines.size();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.failure = "Carga interrumpida";
+        } catch (IOException | RuntimeException e) {
+            progress.failure = e.getMessage() == null ? e.toString() : e.getMessage();
+        } finally {
+            stopWorkers(queue, workers);
+            try {
+                saveCheckpoint(checkpoint, checkpointFile, completed.completedLines(), progress);
+            } catch (IOException e) {
+                progress.failure = "No se pudo guardar el checkpoint: " + e.getMessage();
+            }
+            progress.finish();
+            report(progress);
+            running.set(false);
+        }
+    }
+
+    // Cada trabajador parsea tramos completos y los marca como hechos; el checkpoint solo avanza
+    // hasta el primer tramo sin terminar, así que nunca salta líneas que no llegaron al catálogo.
+    // Tras un fallo el trabajador sigue vaciando la cola hasta END sin procesar nada: si todos salieran,
+    // el lector y stopWorkers se quedarían bloqueados en put con la cola llena
+    private void parseChunks(BlockingQueue<Chunk> queue, CompletionTracker completed, IngestionProgress progress) {
+        try {
+            Chunk chunk;
+            while ((chunk = queue.take()) != END) {
+                if (progress.failure != null) {
+                    continue;
+                }
+                try {
+                    List<String> lines = chunk.lines();
+                    for (int i = 0; i < lines.size(); i++) {
+                        parseLine(chunk.firstLine() + i, lines.get(i), progress);
+                    }
+                    completed.markDone(chunk.sequence(), lines.size());
+                } catch (RuntimeException | InternalError e) {
+                    // Un fallo al escribir en el catálogo (p. ej. disco lleno, que en un archivo mapeado llega
+                    // como InternalError) detiene la carga: el resto de tramos fallaría igual
+                    progress.failure = e.getMessage() == null ? e.toString() : e.getMessage();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void parseLine(long lineNumber, String line, IngestionProgress progress) {
+        String[] columns = line.split("\t", 5);
+        if (columns.length < 5) {
+            progress.reject(lineNumber, "se esperaban 5 columnas y hay " + columns.length);
+            return;
+        }
+        String type = columns[0];
+        if (!"/type/work".equals(type) && !"/type/author".equals(type)) {
+            // Ediciones, redirecciones y borrados no forman parte del catálogo
+            progress.skipped.increment();
+            return;
+        }
+        JsonNode json;
+        try {
+            json = objectMapper.readTree(columns[4]);
+        } catch (IOException e) {
+            progress.reject(lineNumber, columns[1] + ": JSON no válido");
+            return;
+        }
+        if ("/type/work".equals(type)) {
+            CatalogWork work = OpenLibraryRecords.toWork(json);
+            if (work == null || !BookCatalog.isValidKey(work.workId())) {
+                progress.reject(lineNumber, columns[1] + ": clave no válida");
+                return;
+            }
+            catalog.putWork(work);
+            progress.works.increment();
+        } else {
+            CatalogAuthor author = OpenLibraryRecords.toAuthor(json);
+            if (author == null || !BookCatalog.isValidKey(author.authorId())) {
+                progress.reject(lineNumber, columns[1] + ": clave no válida");
+                return;
+            }
+            catalog.putAuthor(author);
+            progress.authors.increment();
+        }
+    }
+
+    // Los trabajadores terminan los tramos ya encolados antes de ver el aviso de fin
+    private void stopWorkers(BlockingQueue<Chunk> queue, List<Thread> workers) {
+        try {
+            for (int i = 0; i < workers.size(); i++) {
+                put(queue, END, workers);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IllegalStateException e) {
+            // No queda ningún trabajador que reciba el aviso de fin
+        }
+    }
+
+    // put con espera acotada: si ya no queda ningún trabajador vivo (p. ej. por un OutOfMemoryError)
+    // nadie vaciará la cola, así que se falla en lugar de esperar para siempre
+    private static void put(BlockingQueue<Chunk> queue, Chunk chunk, List<Thread> workers) throws InterruptedException {
+        while (!queue.offer(chunk, 1, TimeUnit.SECONDS)) {
+            if (workers.stream().noneMatch(Thread::isAlive)) {
+                throw new IllegalStateException("Los trabajadores de la carga terminaron inesperadamente");
+            }
+        }
+    }
+
+    // Primero se vuelca el catálogo a disco y después se guarda el checkpoint:
+    // tras una caída nunca se reanuda por delante de lo que realmente quedó escrito
+    private void saveCheckpoint(Checkpoint checkpoint, Path file, long completedLines, IngestionProgress progress)
+            throws IOException {
+        catalog.flush();
+        checkpoint.write(file, completedLines);
+        progress.checkpointLines = completedLines;
+    }
+
+    private void report(IngestionProgress progress) {
+        Map<String, Object> status = progress.toMap();
+        System.out.printf("Carga del catálogo %s: %s, %d líneas, %d obras, %d autores, %.0f registros/s%n",
+                progress.file, status.get("status"), progress.linesRead, progress.works.sum(),
+                progress.authors.sum(), status.get("recordsPerSecond"));
+    }
+
+    private Path resolveDump(String fileName) {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("Falta el nombre del dump");
+        }
+        Path dump = dumpsDirectory.resolve(fileName).normalize();
+        // Solo archivos dentro del directorio de dumps: el nombre llega de una petición HTTP
+        if (!dump.startsWith(dumpsDirectory) || !Files.isRegularFile(dump)) {
+            throw new IllegalArgumentException("No existe el dump " + fileName + " en " + dumpsDirectory);
+        }
+        return dump;
+    }
+
+    private Path checkpointPath(Path dump) {
+        return dumpsDirectory.resolve(dump.getFileName() + ".checkpoint");
+    }
+
+    private static BufferedReader open(Path dump) throws IOException {
+        InputStream in = Files.newInputStream(dump);
+        try {
+            if (dump.getFileName().toString().endsWith(".gz")) {
+                in = new GZIPInputStream(in, 1 << 16);
+            }
+            Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+            return new BufferedReader(reader, 1 << 20);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        cancel();
+    }
+
+    // firstLine: número (desde 1) de la primera línea del tramo en el archivo
+    private record Chunk(int sequence, long firstLine, List<String> lines) {
+    }
+
+    /**
+     * Líneas cargadas sin huecos desde el principio del archivo, aunque los tramos terminen desordenados
+     */
+    private static class CompletionTracker {
+        // Tramos terminados por delante del primer hueco: secuencia -> líneas
+        private final Map<Integer, Integer> pending = new HashMap<>();
+        private int nextSequence;
+        private long completedLines;
+
+        CompletionTracker(long skippedLines) {
+            this.completedLines = skippedLines;
+        }
+
+        synchronized void markDone(int sequence, int lineCount) {
+            pending.put(sequence, lineCount);
+            Integer lines;
+            while ((lines = pending.remove(nextSequence)) != null) {
+                completedLines += lines;
+                nextSequence++;
+            }
+        }
+
+        synchronized long completedLines() {
+            return completedLines;
+        }
+    }
+
+    /**
+     * Identifica el archivo por tamaño y fecha: un checkpoint de otro dump con el mismo nombre no vale
+     */
+    private record Checkpoint(long size, long lastModified) {
+
+        static Checkpoint of(Path dump) throws IOException {
+            return new Checkpoint(Files.size(dump), Files.getLastModifiedTime(dump).toMillis());
+        }
+
+        long readCompletedLines(Path file) throws IOException {
+            if (!Files.exists(file)) {
+                return 0;
+            }
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            boolean sameDump = String.valueOf(size).equals(properties.getProperty("size"))
+                    && String.valueOf(lastModified).equals(properties.getProperty("lastModified"));
+            return sameDump ? Long.parseLong(properties.getProperty("lines", "0")) : 0;
+        }
+
+        void write(Path file, long lines) throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty("size", String.valueOf(size));
+            properties.setProperty("lastModified", String.valueOf(lastModified));
+            properties.setProperty("lines", String.valueOf(lines));
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "Checkpoint de la carga del catálogo");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private enum IngestionStatus { RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    private static class IngestionProgress {
+        private final String file;
+        private final long skippedLines;
+        private final Instant startedAt = Instant.now();
+        private final long startedNanos = System.nanoTime();
+        private final List<String> errors = new ArrayList<>();
+        private final LongAdder works = new LongAdder();
+        private final LongAdder authors = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private volatile IngestionStatus status = IngestionStatus.RUNNING;
+        private volatile long linesRead;
+        private volatile long checkpointLines;
+        private volatile long finishedNanos;
+        private volatile boolean cancelled;
+        private volatile String failure;
+
+        IngestionProgress(String file, long skippedLines) {
+            this.file = file;
+            this.skippedLines = skippedLines;
+            this.linesRead = skippedLines;
+            this.checkpointLines = skippedLines;
+        }
+
+        boolean isRunning() {
+            return status == IngestionStatus.RUNNING;
+        }
+
+        void reject(long line, String reason) {
+            rejected.increment();
+            synchronized (errors) {
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add("línea " + line + ": " + reason);
+                }
+            }
+        }
+
+        void finish() {
+            finishedNanos = System.nanoTime();
+            status = failure != null ? IngestionStatus.FAILED
+                    : cancelled ? IngestionStatus.CANCELLED : IngestionStatus.COMPLETED;
+        }
+
+        Map<String, Object> toMap() {
+            long elapsedNanos = (isRunning() ? System.nanoTime() : finishedNanos) - startedNanos;
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            long records = works.sum() + authors.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("status", status);
+            map.put("file", file);
+            map.put("resumedFromLine", skippedLines);
+            map.put("linesRead", linesRead);
+            map.put("checkpointLines", checkpointLines);
+            map.put("works", works.sum());
+            map.put("authors", authors.sum());
+            map.put("skipped", skipped.sum());
+            map.put("rejected", rejected.sum());
+            map.put("startedAt", startedAt.toString());
+            map.put("elapsedMillis", elapsedNanos / 1_000_000);
+            map.put("recordsPerSecond", seconds == 0 ? 0.0 : records / seconds);
+            synchronized (errors) {
+                map.put("errors", List.copyOf(errors));
+            }
+            if (failure != null) {
+                map.put("message", failure);
+            }
+            return map;
+        }
+    }
+}
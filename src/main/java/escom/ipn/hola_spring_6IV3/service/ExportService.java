@@ -0,0 +1,203 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import escom.ipn.hola_spring_6IV3.model.Favorite;
+import escom.ipn.hola_spring_6IV3.model.User;
+import escom.ipn.hola_spring_6IV3.repository.FavoriteBookRepository;
+import escom.ipn.hola_spring_6IV3.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Exportación completa de usuarios y favoritos en NDJSON o CSV.
+ * Lee con un cursor de solo avance, escribe cada fila directamente en la salida y desvincula
+ * la entidad del contexto de persistencia al terminar con ella: la memoria no crece con el volumen.
+ * Nunca se exportan contraseñas ni versiones de token.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    private static final List<String> USER_COLUMNS = List.of("id", "username", "firstname", "lastname", "country", "role");
+    private static final List<String> FAVORITE_COLUMNS = List.of("id", "userId", "username", "bookId", "bookTitle",
+            "bookCoverId", "authors", "addedDate");
+
+    private final UserRepository userRepository;
+    private final FavoriteBookRepository favoriteRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        // Lanza IllegalArgumentException si el formato no es ndjson ni csv
+        public static Format fromString(String format) {
+            try {
+                return Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Formato de exportación no soportado: " + format);
+            }
+        }
+    }
+
+    /**
+     * Escribe todos los usuarios en la salida; devuelve el número de filas exportadas
+     */
+    @Transactional(readOnly = true)
+    public long exportUsers(Format format, OutputStream out) throws IOException {
+        try (Stream<User> users = userRepository.streamAll()) {
+            return write(format, USER_COLUMNS, users, user -> {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("id", user.getId());
+                row.put("username", user.getUsername());
+                row.put("firstname", user.getFirstname());
+                row.put("lastname", user.getLastname());
+                row.put("country", user.getCountry());
+                row.put("role", user.getRole() == null ? null : user.getRole().name());
+                entityManager.detach(user);
+                return row;
+            }, out);
+        }
+    }
+
+    /**
+     * Escribe todos los favoritos, con el username de su dueño, en la salida; devuelve el número de filas exportadas
+     */
+    @Transactional(readOnly = true)
+    public long exportFavorites(Format format, OutputStream out) throws IOException {
+        try (Stream<Favorite> favorites = favoriteRepository.streamAllWithUser()) {
+            return write(format, FAVORITE_COLUMNS, favorites, favorite -> {
+                User user = favorite.getUser();
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("id", favorite.getId());
+                row.put("userId", user.getId());
+                row.put("username", user.getUsername());
+                row.put("bookId", favorite.getBookId());
+                row.put("bookTitle", favorite.getBookTitle());
+                row.put("bookCoverId", favorite.getBookCoverId());
+                row.put("authors", favorite.getAuthors());
+                row.put("addedDate", favorite.getAddedDate() == null ? null : favorite.getAddedDate().toString());
+                entityManager.detach(favorite);
+                entityManager.detach(user);
+                return row;
+            }, out);
+        }
+    }
+
+    private <T> long write(Format format, List<String> columns, Stream<T> rows,
+            Function<T, Map<String, Object>> toRow, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        long count;
+        try {
+            count = format == Format.CSV
+                    ? writeCsv(columns, rows, toRow, writer)
+                    : writeNdjson(rows, toRow, writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return count;
+    }
+
+    private <T> long writeNdjson(Stream<T> rows, Function<T, Map<String, Object>> toRow, Writer writer)
+            throws IOException {
+        // El generador no debe cerrar la respuesta (lo hace el contenedor) ni vaciarla en cada fila
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        ObjectWriter rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long[] count = {0};
+        rows.forEach(entity -> {
+            try {
+                rowWriter.writeValue(generator, toRow.apply(entity));
+                count[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        if (count[0] > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+        return count[0];
+    }
+
+    private <T> long writeCsv(List<String> columns, Stream<T> rows, Function<T, Map<String, Object>> toRow,
+            Writer writer) throws IOException {
+        writer.write(String.join(",", columns));
+        writer.write("\r\n");
+        long[] count = {0};
+        rows.forEach(entity -> {
+            try {
+                Map<String, Object> row = toRow.apply(entity);
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writeCsvField(row.get(columns.get(i)), writer);
+                }
+                writer.write("\r\n");
+                count[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return count[0];
+    }
+
+    // RFC 4180: entre comillas si contiene separadores, comillas o saltos de línea
+    private static void writeCsvField(Object value, Writer writer) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        boolean quote = text.indexOf(',') >= 0 || text.indexOf('"') >= 0
+                || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
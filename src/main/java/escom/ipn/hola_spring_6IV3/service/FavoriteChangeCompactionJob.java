@@ -0,0 +1,88 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import escom.ipn.hola_spring_6IV3.repository.FavoriteChangeRepository;
+import escom.ipn.hola_spring_6IV3.repository.FavoriteChangeWatermarkRepository;
+
+/**
+ * Compacta favorite_changes borrando los cambios más antiguos que el periodo de retención.
+ * Primero avanza la marca de compactación, así ningún cliente recibe deltas incompletos
+ * mientras se borra, y después borra por lotes cortos.
+ */
+@Component
+public class FavoriteChangeCompactionJob {
+
+    private final FavoriteChangeRepository changeRepository;
+    private final FavoriteChangeWatermarkRepository watermarkRepository;
+    private final Duration retention;
+    private final int deleteBatchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public FavoriteChangeCompactionJob(FavoriteChangeRepository changeRepository,
+            FavoriteChangeWatermarkRepository watermarkRepository,
+            @Value("${favorites.changes.retention:30d}") Duration retention,
+            @Value("${favorites.changes.compaction.batch-size:10000}") int deleteBatchSize) {
+        this.changeRepository = changeRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.retention = retention;
+        this.deleteBatchSize = Math.max(1, deleteBatchSize);
+    }
+
+    @Scheduled(cron = "${favorites.changes.compaction.cron:0 15 4 * * *}")
+    public void scheduledCompaction() {
+        if (running.get()) {
+            return;
+        }
+        try {
+            compact();
+        } catch (IllegalStateException e) {
+            // Otra compactación empezó entre la comprobación y el arranque
+        }
+    }
+
+    /**
+     * Borra los cambios anteriores a la retención y devuelve un resumen;
+     * lanza IllegalStateException si ya hay una compactación en curso
+     */
+    public Map<String, Object> compact() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una compactación del registro de cambios en curso");
+        }
+        try {
+            long startedAt = System.nanoTime();
+            long compactedThrough = Math.max(watermarkRepository.findCompactedThrough(),
+                    changeRepository.findMaxSeqBefore(LocalDateTime.now().minus(retention)));
+            watermarkRepository.advance(compactedThrough);
+
+            long deleted = 0;
+            int batch;
+            do {
+                batch = changeRepository.deleteUpTo(compactedThrough, deleteBatchSize);
+                deleted += batch;
+            } while (batch > 0);
+
+            long millis = (System.nanoTime() - startedAt) / 1_000_000;
+            if (deleted > 0) {
+                System.out.printf("Registro de cambios de favoritos compactado hasta la secuencia %d: %d filas en %d ms%n",
+                        compactedThrough, deleted, millis);
+            }
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("compactedThrough", compactedThrough);
+            summary.put("deleted", deleted);
+            summary.put("millis", millis);
+            return summary;
+        } finally {
+            running.set(false);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import escom.ipn.hola_spring_6IV3.repository.FavoriteCounterRepository;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Recalcula favorite_counters desde la tabla favorites.
+ * El rango de ids de usuario se parte en tramos de chunk-size que se procesan en paralelo,
+ * cada uno en su propia transacción corta, para no bloquear a la vez a todos los usuarios.
+ * Se lanza desde el endpoint de administración o, si se configura, con una expresión cron.
+ */
+@Component
+public class FavoriteCounterRepairJob {
+
+    private final FavoriteCounterRepository counterRepository;
+    private final ExecutorService executor;
+    private final int chunkSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public FavoriteCounterRepairJob(FavoriteCounterRepository counterRepository,
+            @Value("${favorites.counters.repair.parallelism:4}") int parallelism,
+            @Value("${favorites.counters.repair.chunk-size:1000}") int chunkSize) {
+        this.counterRepository = counterRepository;
+        this.chunkSize = Math.max(1, chunkSize);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "favorite-counter-repair-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Scheduled(cron = "${favorites.counters.repair.cron:-}")
+    public void scheduledRepair() {
+        if (running.get()) {
+            return;
+        }
+        try {
+            repair();
+        } catch (IllegalStateException e) {
+            // Otra reparación empezó entre la comprobación y el arranque
+        }
+    }
+
+    /**
+     * Ejecuta la reparación completa y devuelve un resumen;
+     * lanza IllegalStateException si ya hay una en curso
+     */
+    public Map<String, Object> repair() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una reparación de contadores en curso");
+        }
+        try {
+            long startedAt = System.nanoTime();
+            int maxUserId = counterRepository.findMaxUserId();
+            LongAdder recomputed = new LongAdder();
+            LongAdder orphans = new LongAdder();
+
+            List<CompletableFuture<Void>> chunks = new ArrayList<>();
+            for (int fromId = 0; fromId <= maxUserId; fromId += chunkSize) {
+                int from = fromId;
+                int to = (int) Math.min((long) fromId + chunkSize - 1, maxUserId);
+                chunks.add(CompletableFuture.runAsync(() -> {
+                    recomputed.add(counterRepository.recomputeRange(from, to));
+                    orphans.add(counterRepository.deleteOrphansInRange(from, to));
+                }, executor));
+            }
+            CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).join();
+
+            long millis = (System.nanoTime() - startedAt) / 1_000_000;
+            System.out.printf("Contadores de favoritos recalculados: %d tramos hasta el usuario %d en %d ms%n",
+                    chunks.size(), maxUserId, millis);
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("maxUserId", maxUserId);
+            summary.put("chunks", chunks.size());
+            // Filas afectadas según MySQL: 1 por contador creado, 2 por contador corregido
+            summary.put("rowsAffected", recomputed.sum());
+            summary.put("orphansDeleted", orphans.sum());
+            summary.put("millis", millis);
+            return summary;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
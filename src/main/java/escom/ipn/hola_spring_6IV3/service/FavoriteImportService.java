@@ -0,0 +1,337 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteRequest;
+import escom.ipn.hola_spring_6IV3.repository.UserRepository;
+import escom.ipn.hola_spring_6IV3.util.CsvReader;
+
+/**
+ * Importación masiva de favoritos desde un historial de lectura en CSV o NDJSON.
+ * El archivo se lee como stream y se carga por lotes de batch-size filas: cada lote es una
+ * transacción con una consulta IN para descartar duplicados y un INSERT multi-fila por JDBC.
+ * El progreso de la importación en curso (o de la última) de cada usuario se puede consultar mientras tanto.
+ */
+@Service
+public class FavoriteImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    private final FavoriteService favoriteService;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final long maxRows;
+    private final ConcurrentMap<Integer, ImportProgress> imports = new ConcurrentHashMap<>();
+
+    public FavoriteImportService(FavoriteService favoriteService, UserRepository userRepository,
+            ObjectMapper objectMapper,
+            @Value("${favorites.import.batch-size:1000}") int batchSize,
+            @Value("${favorites.import.max-rows:100000}") long maxRows) {
+        this.favoriteService = favoriteService;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxRows = maxRows;
+    }
+
+    public enum Format {
+        CSV, NDJSON;
+
+        // Acepta csv/ndjson o un Content-Type (text/csv, application/x-ndjson...)
+        public static Format fromString(String format) {
+            String value = format == null ? "" : format.toLowerCase(Locale.ROOT);
+            if (value.contains("csv")) {
+                return CSV;
+            }
+            if (value.contains("ndjson") || value.contains("json")) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("Formato de importación no soportado: " + format);
+        }
+    }
+
+    /**
+     * Importa el archivo para el usuario y devuelve el resumen final.
+     * Lanza IllegalStateException si el usuario ya tiene una importación en curso
+     */
+    public Map<String, Object> importFavorites(Integer userId, Format format, InputStream in) {
+        ImportProgress progress = new ImportProgress();
+        imports.compute(userId, (id, current) -> {
+            if (current != null && current.isRunning()) {
+                throw new IllegalStateException("Ya hay una importación de favoritos en curso");
+            }
+            return progress;
+        });
+
+        try {
+            if (!userRepository.existsById(userId)) {
+                throw new RuntimeException("Usuario no encontrado: " + userId);
+            }
+            RowSource rows = format == Format.CSV ? csvRows(in) : ndjsonRows(in);
+            Map<String, FavoriteRequest> batch = new LinkedHashMap<>();
+            Map<String, LocalDateTime> addedDates = new HashMap<>();
+            ImportRow row;
+            while ((row = rows.next()) != null) {
+                if (progress.rowsRead == maxRows) {
+                    throw new IllegalArgumentException("El archivo supera el máximo de " + maxRows + " filas");
+                }
+                progress.rowsRead++;
+                if (!accept(row, batch, addedDates, progress)) {
+                    continue;
+                }
+                if (batch.size() >= batchSize) {
+                    flush(userId, batch, addedDates, progress);
+                }
+            }
+            flush(userId, batch, addedDates, progress);
+            progress.finish(ImportStatus.COMPLETED, null);
+        } catch (IOException | RuntimeException e) {
+            progress.finish(ImportStatus.FAILED, e.getMessage());
+        }
+        return progress.toMap();
+    }
+
+    /**
+     * Progreso de la importación en curso o de la última del usuario, o null si nunca importó
+     */
+    public Map<String, Object> getProgress(Integer userId) {
+        ImportProgress progress = imports.get(userId);
+        return progress == null ? null : progress.toMap();
+    }
+
+    // Valida la fila y la añade al lote; devuelve false si se descarta
+    private boolean accept(ImportRow row, Map<String, FavoriteRequest> batch, Map<String, LocalDateTime> addedDates,
+            ImportProgress progress) {
+        String bookId = trimToNull(row.bookId());
+        FavoriteRequest request = new FavoriteRequest(bookId, trimToNull(row.title()), trimToNull(row.coverId()),
+                trimToNull(row.authors()));
+        // Mismas longitudes que las columnas de favorites: lo que no cabe se rechaza, no se trunca
+        String error = request.findValidationError();
+        if (error != null) {
+            progress.reject(row.line(), error);
+            return false;
+        }
+        LocalDateTime addedDate;
+        try {
+            addedDate = parseAddedDate(trimToNull(row.addedDate()));
+        } catch (DateTimeParseException e) {
+            progress.reject(row.line(), "addedDate inválida: " + row.addedDate());
+            return false;
+        }
+        if (batch.containsKey(bookId)) {
+            progress.duplicates++;
+            return false;
+        }
+        batch.put(bookId, request);
+        if (addedDate != null) {
+            addedDates.put(bookId, addedDate);
+        }
+        return true;
+    }
+
+    private void flush(Integer userId, Map<String, FavoriteRequest> batch, Map<String, LocalDateTime> addedDates,
+            ImportProgress progress) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int inserted = favoriteService.importFavorites(userId, batch, addedDates);
+        progress.imported += inserted;
+        // Ya estaban en favoritos (antes de importar o en un lote anterior del mismo archivo)
+        progress.duplicates += batch.size() - inserted;
+        progress.batches++;
+        batch.clear();
+        addedDates.clear();
+    }
+
+    private RowSource csvRows(InputStream in) throws IOException {
+        CsvReader csv = new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), ',');
+        List<String> header = csv.next();
+        if (header == null) {
+            return () -> null;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+            if (i == 0 && name.startsWith("\uFEFF")) {
+                name = name.substring(1); // BOM de Excel
+            }
+            columns.putIfAbsent(name, i);
+        }
+        int bookId = column(columns, "bookid", "book_id");
+        if (bookId < 0) {
+            throw new IllegalArgumentException("La cabecera CSV debe incluir la columna bookId");
+        }
+        int title = column(columns, "title", "booktitle", "book_title");
+        int coverId = column(columns, "coverid", "bookcoverid", "book_cover_id");
+        int authors = column(columns, "authors");
+        int addedDate = column(columns, "addeddate", "added_date");
+        return () -> {
+            List<String> record = csv.next();
+            if (record == null) {
+                return null;
+            }
+            return new ImportRow(csv.getRecordLine(), field(record, bookId), field(record, title),
+                    field(record, coverId), field(record, authors), field(record, addedDate));
+        };
+    }
+
+    private RowSource ndjsonRows(InputStream in) throws IOException {
+        MappingIterator<JsonNode> lines = objectMapper.readerFor(JsonNode.class).readValues(in);
+        return () -> {
+            if (!lines.hasNextValue()) {
+                return null;
+            }
+            JsonNode node = lines.nextValue();
+            long line = lines.getCurrentLocation().getLineNr();
+            return new ImportRow(line, text(node, "bookId", "book_id"), text(node, "title", "bookTitle"),
+                    text(node, "coverId", "bookCoverId"), text(node, "authors"), text(node, "addedDate", "added_date"));
+        };
+    }
+
+    private static int column(Map<String, Integer> columns, String... names) {
+        for (String name : names) {
+            Integer index = columns.get(name);
+            if (index != null) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static String field(List<String> record, int index) {
+        return index >= 0 && index < record.size() ? record.get(index) : null;
+    }
+
+    // Valor de texto del primer campo presente; los arrays (p. ej. de autores) se unen con comas
+    private static String text(JsonNode node, String... names) {
+        for (String name : names) {
+            JsonNode value = node.get(name);
+            if (value == null || value.isNull()) {
+                continue;
+            }
+            if (value.isArray()) {
+                List<String> parts = new ArrayList<>();
+                value.forEach(part -> parts.add(part.asText()));
+                return String.join(", ", parts);
+            }
+            return value.asText();
+        }
+        return null;
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    // Admite fecha-hora local, fecha-hora con zona u offset (se pasa a la zona del servidor) y fecha sola
+    private static LocalDateTime parseAddedDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.length() == 10) {
+            return LocalDate.parse(value).atStartOfDay();
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            return OffsetDateTime.parse(value).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        }
+    }
+
+    private enum ImportStatus { RUNNING, COMPLETED, FAILED }
+
+    private record ImportRow(long line, String bookId, String title, String coverId, String authors,
+            String addedDate) {
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        ImportRow next() throws IOException;
+    }
+
+    // Lo escribe solo el hilo que importa; los contadores son volatile para que la consulta de progreso los vea
+    private static class ImportProgress {
+        private final Instant startedAt = Instant.now();
+        private final long startedNanos = System.nanoTime();
+        private final List<String> errors = new ArrayList<>();
+        private volatile ImportStatus status = ImportStatus.RUNNING;
+        private volatile long rowsRead;
+        private volatile long imported;
+        private volatile long duplicates;
+        private volatile long rejected;
+        private volatile long batches;
+        private volatile long finishedNanos;
+        private volatile String message;
+
+        boolean isRunning() {
+            return status == ImportStatus.RUNNING;
+        }
+
+        void reject(long line, String reason) {
+            rejected++;
+            synchronized (errors) {
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add("línea " + line + ": " + reason);
+                }
+            }
+        }
+
+        void finish(ImportStatus finalStatus, String finalMessage) {
+            finishedNanos = System.nanoTime();
+            message = finalMessage;
+            status = finalStatus;
+        }
+
+        Map<String, Object> toMap() {
+            long elapsedNanos = (status == ImportStatus.RUNNING ? System.nanoTime() : finishedNanos) - startedNanos;
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("status", status);
+            map.put("rowsRead", rowsRead);
+            map.put("imported", imported);
+            map.put("duplicates", duplicates);
+            map.put("rejected", rejected);
+            map.put("batches", batches);
+            map.put("startedAt", startedAt.toString());
+            map.put("elapsedMillis", elapsedNanos / 1_000_000);
+            map.put("rowsPerSecond", seconds == 0 ? 0.0 : rowsRead / seconds);
+            synchronized (errors) {
+                map.put("errors", List.copyOf(errors));
+            }
+            if (message != null) {
+                map.put("message", message);
+            }
+            return map;
+        }
+    }
+}
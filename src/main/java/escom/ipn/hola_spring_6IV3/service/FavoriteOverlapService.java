@@ -0,0 +1,150 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteOverlapDto;
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteRequest;
+import escom.ipn.hola_spring_6IV3.dtos.SimilarUserDto;
+import escom.ipn.hola_spring_6IV3.event.FavoriteChangedEvent;
+import escom.ipn.hola_spring_6IV3.event.UserDeletedEvent;
+import escom.ipn.hola_spring_6IV3.exception.UserNotFoundException;
+import escom.ipn.hola_spring_6IV3.model.User;
+import escom.ipn.hola_spring_6IV3.overlap.FavoriteBitmapIndex;
+import escom.ipn.hola_spring_6IV3.repository.FavoriteJdbcRepository;
+import escom.ipn.hola_spring_6IV3.repository.UserRepository;
+import escom.ipn.hola_spring_6IV3.util.ReplayingIndex;
+
+/**
+ * Coincidencias de favoritos entre usuarios y entre libros sobre un FavoriteBitmapIndex en memoria,
+ * en lugar de autouniones de la tabla favorites.
+ * - Al arrancar el índice se carga en segundo plano recorriendo los pares (usuario, libro) en streaming.
+ * - Después se mantiene con los eventos de FavoriteService y UserService, igual que FavoriteSearchService.
+ */
+@Service
+public class FavoriteOverlapService {
+
+    private final FavoriteJdbcRepository favoriteJdbcRepository;
+    private final UserRepository userRepository;
+    private final int maxSimilarUsers;
+
+    private final ReplayingIndex<FavoriteBitmapIndex> index =
+            new ReplayingIndex<>("índice de coincidencias de favoritos", new FavoriteBitmapIndex());
+
+    public FavoriteOverlapService(FavoriteJdbcRepository favoriteJdbcRepository, UserRepository userRepository,
+            @Value("${favorites.overlap.max-similar-users:100}") int maxSimilarUsers) {
+        this.favoriteJdbcRepository = favoriteJdbcRepository;
+        this.userRepository = userRepository;
+        this.maxSimilarUsers = Math.max(1, maxSimilarUsers);
+    }
+
+    /**
+     * Cuántos usuarios tienen en favoritos cada libro y cuántos los dos
+     */
+    public FavoriteOverlapDto bookOverlap(String firstBookId, String secondBookId) {
+        return toDto(firstBookId, secondBookId, index.get().bookOverlap(firstBookId, secondBookId));
+    }
+
+    /**
+     * Favoritos de cada usuario y cuántos tienen en común; UserNotFoundException si alguno no existe
+     */
+    public FavoriteOverlapDto userOverlap(String firstUsername, String secondUsername) {
+        User first = findUser(firstUsername);
+        User second = findUser(secondUsername);
+        return toDto(first.getUsername(), second.getUsername(), index.get().userOverlap(first.getId(), second.getId()));
+    }
+
+    /**
+     * Usuarios con al menos minShared favoritos en común con userId, de más a menos coincidencias
+     */
+    public List<SimilarUserDto> findSimilarUsers(Integer userId, int minShared, int limit) {
+        if (minShared < 1) {
+            throw new IllegalArgumentException("minShared debe ser al menos 1");
+        }
+        List<FavoriteBitmapIndex.SimilarUser> similar = index.get().similarUsers(userId, minShared,
+                Math.max(1, Math.min(limit, maxSimilarUsers)));
+        Map<Integer, String> usernames = userRepository.findAllById(
+                        similar.stream().map(FavoriteBitmapIndex.SimilarUser::userId).toList())
+                .stream().collect(Collectors.toMap(User::getId, User::getUsername));
+        List<SimilarUserDto> result = new ArrayList<>(similar.size());
+        for (FavoriteBitmapIndex.SimilarUser user : similar) {
+            String username = usernames.get(user.userId());
+            if (username != null) {
+                result.add(SimilarUserDto.builder()
+                        .username(username)
+                        .sharedFavorites(user.shared())
+                        .favorites(user.favorites())
+                        .jaccard(user.jaccard())
+                        .build());
+            }
+        }
+        return result;
+    }
+
+    public List<SimilarUserDto> findSimilarUsers(String username, int minShared, int limit) {
+        return findSimilarUsers(findUser(username).getId(), minShared, limit);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoriteChanged(FavoriteChangedEvent event) {
+        int userId = event.getUserId();
+        List<String> bookIds = event.getBooks().stream().map(FavoriteRequest::getBookId).toList();
+        if (event.isAdded()) {
+            index.apply(target -> bookIds.forEach(bookId -> target.add(userId, bookId)));
+        } else {
+            index.apply(target -> bookIds.forEach(bookId -> target.remove(userId, bookId)));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        index.apply(target -> target.removeUser(event.getUserId()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        index.loadInBackground("favorite-overlap-index-builder", this::load, loaded -> {
+            Map<String, Object> stats = loaded.getStats();
+            System.out.printf("Índice de coincidencias de favoritos cargado: %s favoritos, %s libros, %s usuarios en %d ms%n",
+                    stats.get("favorites"), stats.get("books"), stats.get("users"), index.getBuildMillis());
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(index.get().getStats());
+        stats.put("ready", index.isReady());
+        stats.put("buildMillis", index.getBuildMillis());
+        return stats;
+    }
+
+    private FavoriteBitmapIndex load() {
+        FavoriteBitmapIndex fresh = new FavoriteBitmapIndex();
+        favoriteJdbcRepository.forEachUserBook((bookId, userId) -> fresh.add(userId, bookId));
+        fresh.optimize();
+        return fresh;
+    }
+
+    private User findUser(String username) {
+        return userRepository.findByUsername(username).orElseThrow(() -> new UserNotFoundException(username));
+    }
+
+    private FavoriteOverlapDto toDto(String first, String second, FavoriteBitmapIndex.Overlap overlap) {
+        return FavoriteOverlapDto.builder()
+                .first(first)
+                .second(second)
+                .firstCount(overlap.first())
+                .secondCount(overlap.second())
+                .shared(overlap.shared())
+                .jaccard(overlap.jaccard())
+                .build();
+    }
+}
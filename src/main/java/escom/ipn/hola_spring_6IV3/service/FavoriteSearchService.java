@@ -0,0 +1,121 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteRequest;
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteSearchHit;
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteSearchResult;
+import escom.ipn.hola_spring_6IV3.event.FavoriteChangedEvent;
+import escom.ipn.hola_spring_6IV3.event.UserDeletedEvent;
+import escom.ipn.hola_spring_6IV3.repository.FavoriteJdbcRepository;
+import escom.ipn.hola_spring_6IV3.search.FavoriteSearchIndex;
+import escom.ipn.hola_spring_6IV3.util.ReplayingIndex;
+
+/**
+ * Búsqueda de texto completo sobre los favoritos (título y autores) con un índice invertido en memoria.
+ * - Al arrancar el índice se carga en segundo plano recorriendo la tabla de favoritos en streaming;
+ *   hasta que termina las búsquedas usan el índice anterior (vacío en el arranque).
+ * - Después se mantiene al día con los eventos de FavoriteService y UserService, sin volver a leer
+ *   la base de datos (ver ReplayingIndex para los cambios que llegan durante una carga).
+ */
+@Service
+public class FavoriteSearchService {
+
+    private final FavoriteJdbcRepository favoriteJdbcRepository;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    private final ReplayingIndex<FavoriteSearchIndex> index =
+            new ReplayingIndex<>("índice de búsqueda de favoritos", new FavoriteSearchIndex());
+
+    public FavoriteSearchService(FavoriteJdbcRepository favoriteJdbcRepository,
+            @Value("${favorites.search.default-page-size:20}") int defaultPageSize,
+            @Value("${favorites.search.max-page-size:50}") int maxPageSize) {
+        this.favoriteJdbcRepository = favoriteJdbcRepository;
+        this.maxPageSize = Math.max(1, maxPageSize);
+        this.defaultPageSize = Math.max(1, Math.min(defaultPageSize, this.maxPageSize));
+    }
+
+    /**
+     * Busca en los favoritos del usuario, o en todos los libros en favoritos si userId es null
+     */
+    public FavoriteSearchResult search(Integer userId, String query, int page, Integer size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("El parámetro q es obligatorio");
+        }
+        if (page < 0) {
+            throw new IllegalArgumentException("page no puede ser negativo");
+        }
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        long offset = (long) page * pageSize;
+        FavoriteSearchIndex.Page found = index.get().search(query, userId,
+                (int) Math.min(offset, Integer.MAX_VALUE), pageSize);
+        return FavoriteSearchResult.builder()
+                .query(query)
+                .total(found.total())
+                .page(page)
+                .size(pageSize)
+                .hits(found.hits().stream().map(this::toDto).toList())
+                .build();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoriteChanged(FavoriteChangedEvent event) {
+        Integer userId = event.getUserId();
+        List<FavoriteRequest> books = event.getBooks();
+        if (event.isAdded()) {
+            index.apply(target -> books.forEach(book -> target.add(userId, book.getBookId(), book.getBookTitle(),
+                    book.getBookCoverId(), book.getAuthors())));
+        } else {
+            index.apply(target -> books.forEach(book -> target.remove(userId, book.getBookId())));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        index.apply(target -> target.removeUser(event.getUserId()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        index.loadInBackground("favorite-search-index-builder", this::load, loaded -> {
+            Map<String, Object> stats = loaded.getStats();
+            System.out.printf("Índice de búsqueda de favoritos cargado: %s libros, %s términos en %d ms%n",
+                    stats.get("documents"), stats.get("terms"), index.getBuildMillis());
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(index.get().getStats());
+        stats.put("ready", index.isReady());
+        stats.put("builtAt", index.getBuiltAt());
+        stats.put("buildMillis", index.getBuildMillis());
+        return stats;
+    }
+
+    private FavoriteSearchIndex load() {
+        FavoriteSearchIndex fresh = new FavoriteSearchIndex();
+        favoriteJdbcRepository.forEachFavorite((userId, book) -> fresh.add(userId, book.getBookId(),
+                book.getBookTitle(), book.getBookCoverId(), book.getAuthors()));
+        return fresh;
+    }
+
+    private FavoriteSearchHit toDto(FavoriteSearchIndex.Hit hit) {
+        return FavoriteSearchHit.builder()
+                .bookId(hit.bookId())
+                .bookTitle(hit.bookTitle())
+                .bookCoverId(hit.bookCoverId())
+                .authors(hit.authors())
+                .score(hit.score())
+                .favorites(hit.favorites())
+                .build();
+    }
+}
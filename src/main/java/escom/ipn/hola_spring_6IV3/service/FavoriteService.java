@@ -1,107 +1,590 @@
 package escom.ipn.hola_spring_6IV3.service;
 
+import escom.ipn.hola_spring_6IV3.catalog.BookCatalog;
+import escom.ipn.hola_spring_6IV3.catalog.CatalogAuthor;
+import escom.ipn.hola_spring_6IV3.catalog.CatalogWork;
+import escom.ipn.hola_spring_6IV3.catalog.OpenLibraryRecords;
 import escom.ipn.hola_spring_6IV3.dtos.FavoriteBookDetailsDto;
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteChangeDto;
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteChanges;
+import escom.ipn.hola_spring_6IV3.dtos.FavoritePage;
 import escom.ipn.hola_spring_6IV3.model.Favorite;
-import escom.ipn.hola_spring_6IV3.model.User;
+import escom.ipn.hola_spring_6IV3.model.FavoriteChange;
 import escom.ipn.hola_spring_6IV3.dtos.FavoriteRequest;
+import escom.ipn.hola_spring_6IV3.event.FavoriteChangedEvent;
 import escom.ipn.hola_spring_6IV3.repository.FavoriteBookRepository;
+import escom.ipn.hola_spring_6IV3.repository.FavoriteChangeRepository;
+import escom.ipn.hola_spring_6IV3.repository.FavoriteChangeWatermarkRepository;
+import escom.ipn.hola_spring_6IV3.repository.FavoriteCounterRepository;
+import escom.ipn.hola_spring_6IV3.repository.FavoriteJdbcRepository;
 import escom.ipn.hola_spring_6IV3.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * Operaciones sobre favoritos. Las variantes por userId consultan favorites(user_id, ...) directamente;
+ * las variantes por username resuelven el id una vez (desde la caché de usuarios) y delegan en ellas.
+ * Toda alta o baja ajusta favorite_counters y se anota en favorite_changes en su misma transacción:
+ * el total es una lectura por clave y los clientes pueden sincronizarse solo con los cambios.
+ * El título, la portada o los autores que el cliente no envía se completan desde el catálogo local.
+ */
 @Service
 public class FavoriteService {
-    
+
+    // Valor que ponen las páginas cuando OpenLibrary no devuelve autores
+    private static final String UNKNOWN_AUTHOR = "Autor desconocido";
+
     @Autowired
     private FavoriteBookRepository favoriteRepository;
-    
+
     @Autowired
     private UserRepository userRepository;
-    
+
+    @Autowired
+    private FavoriteJdbcRepository favoriteJdbcRepository;
+
+    @Autowired
+    private AuthorIndexService authorIndexService;
+
+    @Autowired
+    private FavoriteCounterRepository counterRepository;
+
+    @Autowired
+    private FavoriteChangeRepository changeRepository;
+
+    @Autowired
+    private FavoriteChangeWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CachedUserDetailsService userDetailsCache;
+
+    @Autowired
+    private FavoritesCache favoritesCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private BookCatalog bookCatalog;
+
+    @Value("${favorites.bulk.max-size:500}")
+    private int maxBulkSize;
+
+    @Value("${favorites.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${favorites.page.max-size:200}")
+    private int maxPageSize;
+
+    @Value("${favorites.changes.max-batch:500}")
+    private int maxChangesBatch;
+
     /**
      * Obtiene todos los favoritos de un usuario
      */
     public List<FavoriteBookDetailsDto> getUserFavorites(String username) {
-        List<Favorite> favorites = favoriteRepository.findByUsernameOrderByAddedDateDesc(username);
-        return favorites.stream()
+        return getUserFavorites(resolveUserId(username));
+    }
+
+    /**
+     * Obtiene todos los favoritos de un usuario por su id (desde la caché mientras no cambien)
+     */
+    public List<FavoriteBookDetailsDto> getUserFavorites(Integer userId) {
+        return favoritesCache.get(userId, "all", () -> favoriteRepository.findByUserIdOrderByAddedDateDesc(userId)
+                .stream()
                 .map(this::convertToDTO)
-                .collect(Collectors.toList());
+                .toList());
+    }
+
+    /**
+     * ETag fuerte de los favoritos del usuario; cambia con cada añadido o eliminación
+     */
+    public String getUserFavoritesETag(Integer userId) {
+        return favoritesCache.etag(userId);
+    }
+
+    /**
+     * Obtiene una página de favoritos paginada por cursor sobre (added_date, id).
+     * El cursor es opaco para el cliente; includeTotal añade un COUNT solo cuando se pide
+     */
+    public FavoritePage getUserFavoritesPage(Integer userId, String cursor, Integer size, boolean includeTotal) {
+        String view = "page:" + cursor + ":" + size + ":" + includeTotal;
+        return favoritesCache.get(userId, view, () -> loadUserFavoritesPage(userId, cursor, size, includeTotal));
+    }
+
+    private FavoritePage loadUserFavoritesPage(Integer userId, String cursor, Integer size, boolean includeTotal) {
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        // Se pide un elemento de más para saber si existe otra página sin contar
+        Limit limit = Limit.of(pageSize + 1);
+        List<Favorite> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = favoriteRepository.findPageByUserId(userId, limit);
+        } else {
+            String[] position = decodeCursor(cursor);
+            rows = favoriteRepository.findPageByUserIdAfter(userId, LocalDateTime.parse(position[0]),
+                    Long.valueOf(position[1]), limit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<Favorite> page = hasMore ? rows.subList(0, pageSize) : rows;
+        Favorite last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return FavoritePage.builder()
+                .favorites(page.stream().map(this::convertToDTO).collect(Collectors.toList()))
+                .count(page.size())
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? encodeCursor(last) : null)
+                .total(includeTotal ? getUserFavoritesCount(userId) : null)
+                .build();
     }
-    
+
     /**
      * Añade un libro a favoritos
      */
-    @Transactional
     public FavoriteBookDetailsDto addToFavorites(String username, FavoriteRequest request) {
-        // Verificar si el usuario existe
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado: " + username));
-        
-        // Verificar si el libro ya está en favoritos
-        if (favoriteRepository.existsByUsernameAndBookId(username, request.getBookId())) {
+        return addToFavorites(resolveUserId(username), request);
+    }
+
+    /**
+     * Añade un libro a favoritos: un INSERT (el duplicado es un no-op) y la lectura del favorito creado
+     */
+    @Transactional
+    public FavoriteBookDetailsDto addToFavorites(Integer userId, FavoriteRequest request) {
+        validate(request);
+        request = completeFromCatalog(request);
+        LocalDateTime addedDate = LocalDateTime.now();
+        if (!insertFavorite(userId, request, addedDate)) {
+            // Solo en el caso raro de fallo se averigua el motivo
+            ensureUserExists(userId);
             throw new RuntimeException("El libro ya está en favoritos");
         }
-        
-        // Crear nuevo favorito
-        Favorite favorite = new Favorite(user, request.getBookId(), request.getBookTitle(), request.getBookCoverId(), request.getAuthors());
-        Favorite savedFavorite = favoriteRepository.save(favorite);
-        
+
+        recordChange(FavoriteChangedEvent.added(userId, List.of(request), List.of(addedDate)), 1);
+
+        Favorite savedFavorite = favoriteRepository.findByUserIdAndBookId(userId, request.getBookId())
+                .orElseThrow(() -> new RuntimeException("El libro no está en favoritos"));
         return convertToDTO(savedFavorite);
     }
-    
+
     /**
      * Elimina un libro de favoritos
      */
-    @Transactional
     public void removeFromFavorites(String username, String bookId) {
-        // Verificar si el favorito existe
-        Optional<Favorite> favorite = favoriteRepository.findByUsernameAndBookId(username, bookId);
-        if (favorite.isEmpty()) {
+        removeFromFavorites(resolveUserId(username), bookId);
+    }
+
+    /**
+     * Elimina un libro de favoritos: la lectura de su fecha de alta y un único DELETE
+     */
+    @Transactional
+    public void removeFromFavorites(Integer userId, String bookId) {
+        if (!deleteFavorite(userId, bookId)) {
             throw new RuntimeException("El libro no está en favoritos");
         }
-        
-        try {
-            // Usar el método más confiable de Spring Data JPA
-            favoriteRepository.deleteByUserUsernameAndBookId(username, bookId);
-        } catch (Exception e) {
-            // Si falla, intentar con el favorito específico encontrado
-            favoriteRepository.delete(favorite.get());
-        }
     }
-    
+
     /**
      * Verifica si un libro está en favoritos
      */
     public boolean isBookInFavorites(String username, String bookId) {
-        return favoriteRepository.existsByUsernameAndBookId(username, bookId);
+        return isBookInFavorites(resolveUserId(username), bookId);
+    }
+
+    /**
+     * Verifica si un libro está en favoritos del usuario con id dado
+     */
+    public boolean isBookInFavorites(Integer userId, String bookId) {
+        return favoriteRepository.existsByUserIdAndBookId(userId, bookId);
+    }
+
+    /**
+     * Indica para cada bookId si está en favoritos, con una sola consulta IN
+     */
+    public Map<String, Boolean> checkFavorites(Integer userId, List<String> bookIds) {
+        Set<String> requested = distinctBookIds(bookIds);
+        Map<String, Boolean> membership = new LinkedHashMap<>();
+        requested.forEach(bookId -> membership.put(bookId, false));
+        if (!requested.isEmpty()) {
+            favoriteRepository.findBookIdsByUserIdAndBookIdIn(userId, requested)
+                    .forEach(bookId -> membership.put(bookId, true));
+        }
+        return membership;
+    }
+
+    /**
+     * Añade varios libros a favoritos en una transacción: una consulta IN para descartar
+     * los que ya están y un único lote JDBC para insertar el resto. Devuelve los añadidos
+     */
+    @Transactional
+    public int addFavorites(Integer userId, List<FavoriteRequest> requests) {
+        Map<String, FavoriteRequest> byBookId = new LinkedHashMap<>();
+        for (FavoriteRequest request : requests) {
+            if (request.getBookId() != null && !request.getBookId().isBlank()) {
+                validate(request);
+                byBookId.putIfAbsent(request.getBookId(), request);
+            }
+        }
+        checkBulkSize(byBookId.size());
+        if (byBookId.isEmpty()) {
+            return 0;
+        }
+        ensureUserExists(userId);
+        return insertMissing(userId, byBookId, Map.of());
+    }
+
+    /**
+     * Importa un lote de favoritos con su fecha de alta original (la actual si falta) en una transacción.
+     * Mismo camino que addFavorites, sin su límite por petición: el tamaño lo fija el importador
+     */
+    @Transactional
+    public int importFavorites(Integer userId, Map<String, FavoriteRequest> byBookId,
+            Map<String, LocalDateTime> addedDates) {
+        if (byBookId.isEmpty()) {
+            return 0;
+        }
+        return insertMissing(userId, byBookId, addedDates);
     }
-    
+
+    /**
+     * Elimina varios libros de favoritos: una consulta IN para saber cuáles existen
+     * y un único DELETE ... IN para ellos. Devuelve los eliminados
+     */
+    @Transactional
+    public int removeFavorites(Integer userId, List<String> bookIds) {
+        Set<String> requested = distinctBookIds(bookIds);
+        if (requested.isEmpty()) {
+            return 0;
+        }
+        Map<String, LocalDateTime> existing = findAddedDates(userId, requested);
+        if (existing.isEmpty()) {
+            return 0;
+        }
+        int removed = favoriteRepository.deleteFavorites(userId, existing.keySet());
+        recordChange(FavoriteChangedEvent.removed(userId, List.copyOf(existing.keySet()),
+                new ArrayList<>(existing.values())), removed);
+        return removed;
+    }
+
     /**
      * Obtiene el número total de favoritos de un usuario
      */
     public long getUserFavoritesCount(String username) {
-        return favoriteRepository.countByUsername(username);
+        return getUserFavoritesCount(resolveUserId(username));
+    }
+
+    /**
+     * Obtiene el número total de favoritos de un usuario por su id: una lectura por clave primaria.
+     * Los usuarios sin contador (anteriores a la tabla) lo crean con un único COUNT
+     */
+    public long getUserFavoritesCount(Integer userId) {
+        return counterRepository.findCountByUserId(userId).orElseGet(() -> {
+            counterRepository.initialize(userId);
+            return counterRepository.findCountByUserId(userId).orElse(0L);
+        });
     }
-    
+
     /**
      * Alterna el estado de favorito de un libro (añadir/eliminar)
      */
-    @Transactional
     public boolean toggleFavorite(String username, FavoriteRequest request) {
-        if (isBookInFavorites(username, request.getBookId())) {
-            removeFromFavorites(username, request.getBookId());
+        return toggleFavorite(resolveUserId(username), request);
+    }
+
+    /**
+     * Alterna el estado de favorito de un libro (añadir/eliminar).
+     * Intenta borrar y, si no había nada que borrar, inserta: una o dos sentencias.
+     * No abre una transacción común a propósito: el DELETE sin filas deja un bloqueo de hueco en InnoDB
+     * y dos pestañas alternando a la vez se bloquearían mutuamente al insertar después.
+     * Cada paso va en su propia transacción junto con el contador y el registro de cambios.
+     */
+    public boolean toggleFavorite(Integer userId, FavoriteRequest original) {
+        validate(original);
+        FavoriteRequest request = completeFromCatalog(original);
+        boolean removed = transactionTemplate.execute(status -> deleteFavorite(userId, request.getBookId()));
+        if (removed) {
             return false; // Eliminado de favoritos
-        } else {
-            addToFavorites(username, request);
-            return true; // Añadido a favoritos
         }
+        boolean inserted = transactionTemplate.execute(status -> {
+            LocalDateTime addedDate = LocalDateTime.now();
+            if (!insertFavorite(userId, request, addedDate)) {
+                return false;
+            }
+            recordChange(FavoriteChangedEvent.added(userId, List.of(request), List.of(addedDate)), 1);
+            return true;
+        });
+        if (!inserted) {
+            // Otra petición concurrente lo añadió primero: el libro ya es favorito
+            ensureUserExists(userId);
+        }
+        return true; // Añadido a favoritos
+    }
+
+    /**
+     * Cambios de favoritos posteriores a since para sincronizar un cliente.
+     * Sin since, o si la compactación ya borró cambios posteriores a since, devuelve un snapshot completo.
+     * Todo se lee en una misma transacción para que el cursor del snapshot cuadre con la lista
+     */
+    @Transactional(readOnly = true)
+    public FavoriteChanges getChangesSince(Integer userId, Long since) {
+        long compactedThrough = watermarkRepository.findCompactedThrough();
+        if (since == null || since <= 0 || since < compactedThrough) {
+            long cursor = Math.max(changeRepository.findLatestSeqByUserId(userId), compactedThrough);
+            List<FavoriteBookDetailsDto> favorites = favoriteRepository.findByUserIdOrderByAddedDateDesc(userId)
+                    .stream()
+                    .map(this::convertToDTO)
+                    .toList();
+            return FavoriteChanges.builder()
+                    .snapshot(true)
+                    .favorites(favorites)
+                    .cursor(cursor)
+                    .build();
+        }
+
+        List<FavoriteChange> rows = changeRepository.findByUserIdAfter(userId, since, Limit.of(maxChangesBatch + 1));
+        boolean hasMore = rows.size() > maxChangesBatch;
+        List<FavoriteChange> changes = hasMore ? rows.subList(0, maxChangesBatch) : rows;
+        return FavoriteChanges.builder()
+                .snapshot(false)
+                .changes(changes.stream().map(this::convertToDTO).toList())
+                .cursor(changes.isEmpty() ? since : changes.get(changes.size() - 1).getId())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    // Devuelve false si ya estaba en favoritos; si falla por el usuario, lo indica en lugar del error de clave foránea
+    private boolean insertFavorite(Integer userId, FavoriteRequest request, LocalDateTime addedDate) {
+        try {
+            return favoriteJdbcRepository.insertIfAbsent(userId, request, addedDate);
+        } catch (DataIntegrityViolationException e) {
+            ensureUserExists(userId);
+            throw e;
+        }
+    }
+
+    private static void validate(FavoriteRequest request) {
+        String error = request.findValidationError();
+        if (error != null) {
+            throw new IllegalArgumentException("Favorito inválido: " + error);
+        }
+    }
+
+    // Una consulta IN para descartar los que ya están y un único lote JDBC para insertar el resto
+    private int insertMissing(Integer userId, Map<String, FavoriteRequest> byBookId,
+            Map<String, LocalDateTime> addedDates) {
+        Set<String> existing = new HashSet<>(favoriteRepository.findBookIdsByUserIdAndBookIdIn(userId, byBookId.keySet()));
+        List<FavoriteRequest> toInsert = new ArrayList<>();
+        List<LocalDateTime> dates = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        byBookId.forEach((bookId, request) -> {
+            if (!existing.contains(bookId)) {
+                toInsert.add(completeFromCatalog(request));
+                dates.add(addedDates.getOrDefault(bookId, now));
+            }
+        });
+        if (toInsert.isEmpty()) {
+            return 0;
+        }
+        // Un libro que otra transacción añadió entretanto cuenta 0: solo se publican las filas insertadas aquí
+        int[] counts = favoriteJdbcRepository.batchInsertIfAbsent(userId, toInsert, dates);
+        List<FavoriteRequest> added = new ArrayList<>();
+        List<LocalDateTime> insertedDates = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 1) {
+                added.add(toInsert.get(i));
+                insertedDates.add(dates.get(i));
+            }
+        }
+        if (!added.isEmpty()) {
+            recordChange(FavoriteChangedEvent.added(userId, added, insertedDates), added.size());
+        }
+        return added.size();
+    }
+
+    // Solo se consulta el catálogo si falta algún dato; lo que envía el cliente nunca se sobrescribe
+    private FavoriteRequest completeFromCatalog(FavoriteRequest request) {
+        boolean missingTitle = isBlank(request.getBookTitle());
+        boolean missingCover = isBlank(request.getBookCoverId());
+        boolean missingAuthors = isBlank(request.getAuthors()) || UNKNOWN_AUTHOR.equals(request.getAuthors());
+        if (!missingTitle && !missingCover && !missingAuthors) {
+            return request;
+        }
+        Optional<CatalogWork> found = bookCatalog.findWork(OpenLibraryRecords.stripPrefix(request.getBookId()));
+        if (found.isEmpty()) {
+            return request;
+        }
+        CatalogWork work = found.get();
+        String authors = request.getAuthors();
+        if (missingAuthors) {
+            String names = work.authorKeys().stream()
+                    .map(key -> bookCatalog.findAuthor(key).map(CatalogAuthor::name).orElse(null))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.joining(", "));
+            if (!names.isEmpty()) {
+                authors = names;
+            }
+        }
+        // Lo que viene del catálogo se recorta a la columna; lo del cliente ya se validó
+        return new FavoriteRequest(request.getBookId(),
+                missingTitle ? fit(work.title()) : request.getBookTitle(),
+                missingCover ? fit(work.coverId()) : request.getBookCoverId(),
+                missingAuthors ? fit(authors) : authors);
+    }
+
+    private static String fit(String value) {
+        return value != null && value.length() > FavoriteRequest.MAX_TEXT_LENGTH
+                ? value.substring(0, FavoriteRequest.MAX_TEXT_LENGTH)
+                : value;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    // Efectos de un alta o baja de rows filas; debe llamarse dentro de la transacción que modificó favorites.
+    // El contador va primero: su bloqueo de fila ordena las secuencias de favorite_changes de cada usuario
+    private void recordChange(FavoriteChangedEvent event, int rows) {
+        adjustCounter(event.getUserId(), event.isAdded() ? rows : -rows);
+        favoriteJdbcRepository.batchInsertChanges(event, LocalDateTime.now());
+        if (event.isAdded()) {
+            // Las bajas no tocan favorite_author: sus filas se borran en cascada con el favorito
+            authorIndexService.indexFavorites(event.getUserId(), event.getBooks());
+        }
+        eventPublisher.publishEvent(event);
+    }
+
+    // Borra el favorito y registra la baja con su fecha de alta; false si no estaba.
+    // Sin fila no se llega a ejecutar el DELETE, así que tampoco deja bloqueo de hueco
+    private boolean deleteFavorite(Integer userId, String bookId) {
+        Map<String, LocalDateTime> found = findAddedDates(userId, List.of(bookId));
+        if (!found.containsKey(bookId) || favoriteRepository.deleteFavorite(userId, bookId) == 0) {
+            return false;
+        }
+        // Los favoritos antiguos pueden no tener fecha de alta
+        recordChange(FavoriteChangedEvent.removed(userId, List.of(bookId),
+                Collections.singletonList(found.get(bookId))), 1);
+        return true;
     }
-    
+
+    private Map<String, LocalDateTime> findAddedDates(Integer userId, Collection<String> bookIds) {
+        Map<String, LocalDateTime> addedDates = new LinkedHashMap<>();
+        for (Object[] row : favoriteRepository.findAddedDatesByUserIdAndBookIdIn(userId, bookIds)) {
+            addedDates.put((String) row[0], (LocalDateTime) row[1]);
+        }
+        return addedDates;
+    }
+
+    private void adjustCounter(Integer userId, long delta) {
+        if (delta != 0 && counterRepository.adjust(userId, delta) == 0) {
+            // Primera escritura del usuario desde que existe la tabla: el COUNT ya incluye este cambio
+            counterRepository.initialize(userId);
+        }
+    }
+
+    private void ensureUserExists(Integer userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("Usuario no encontrado: " + userId);
+        }
+    }
+
+    private Set<String> distinctBookIds(List<String> bookIds) {
+        Set<String> distinct = new LinkedHashSet<>();
+        if (bookIds != null) {
+            for (String bookId : bookIds) {
+                if (bookId != null && !bookId.isBlank()) {
+                    distinct.add(bookId);
+                }
+            }
+        }
+        checkBulkSize(distinct.size());
+        return distinct;
+    }
+
+    private void checkBulkSize(int size) {
+        if (size > maxBulkSize) {
+            throw new IllegalArgumentException("Se admiten como máximo " + maxBulkSize + " libros por petición");
+        }
+    }
+
+    private Integer resolveUserId(String username) {
+        return userDetailsCache.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado: " + username))
+                .getId();
+    }
+
+    static String encodeCursor(Favorite favorite) {
+        String position = favorite.getAddedDate() + "|" + favorite.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Devuelve [addedDate, id]; lanza IllegalArgumentException si el cursor no es válido
+    static String[] decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = position.split("\\|");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Cursor de paginación inválido");
+            }
+            LocalDateTime.parse(parts[0]);
+            Long.parseLong(parts[1]);
+            return parts;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor de paginación inválido");
+        }
+    }
+
+    private FavoriteChangeDto convertToDTO(FavoriteChange change) {
+        return FavoriteChangeDto.builder()
+                .seq(change.getId())
+                .op(change.getOp().name())
+                .bookId(change.getBookId())
+                .bookTitle(change.getBookTitle())
+                .bookCoverId(change.getBookCoverId())
+                .authors(change.getAuthors())
+                .changedAt(change.getChangedAt())
+                .build();
+    }
+
+    /**
+     * Nombres de autor de un favorito: las páginas guardan los autores como "Nombre, Nombre"
+     */
+    static List<String> splitAuthors(String authors) {
+        if (isBlank(authors) || UNKNOWN_AUTHOR.equals(authors)) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : authors.split(",")) {
+            if (!name.isBlank()) {
+                names.add(name.trim());
+            }
+        }
+        return names;
+    }
+
     /**
      * Convierte una entidad Favorite a DTO
      */
@@ -0,0 +1,73 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import escom.ipn.hola_spring_6IV3.event.FavoriteChangedEvent;
+import escom.ipn.hola_spring_6IV3.repository.FavoriteCounterRepository;
+
+/**
+ * Caché por usuario de las vistas de favoritos con un número de versión por usuario.
+ * La versión es la columna version de favorite_counters, que cada alta o baja incrementa en su
+ * transacción, así que es la misma en todos los nodos. Como forma parte de la clave, las vistas
+ * antiguas dejan de usarse en cuanto se ve la versión nueva y caducan solas.
+ * - Cada nodo guarda la versión leída durante version-ttl: una escritura hecha en otro nodo se ve
+ *   como mucho ese tiempo después. Las escrituras propias la invalidan al confirmarse.
+ * - La versión se publica como ETag fuerte para responder 304 sin cargar los favoritos.
+ */
+@Component
+public class FavoritesCache {
+
+    private final FavoriteCounterRepository counterRepository;
+    private final Cache<Integer, Long> versions;
+    private final Cache<ViewKey, Object> views;
+
+    public FavoritesCache(FavoriteCounterRepository counterRepository,
+            @Value("${favorites.cache.max-size:10000}") long maxSize,
+            @Value("${favorites.cache.ttl:10m}") Duration ttl,
+            @Value("${favorites.cache.version-ttl:2s}") Duration versionTtl) {
+        this.counterRepository = counterRepository;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(versionTtl)
+                .build();
+        this.views = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public long version(Integer userId) {
+        return versions.get(userId, id -> counterRepository.findVersionByUserId(id).orElse(0L));
+    }
+
+    public String etag(Integer userId) {
+        return "\"" + userId + "-" + version(userId) + "\"";
+    }
+
+    /**
+     * Devuelve la vista cacheada o la carga; las peticiones concurrentes para la misma vista
+     * esperan a una única carga en lugar de ir todas a MySQL
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Integer userId, String view, Supplier<T> loader) {
+        ViewKey key = new ViewKey(userId, version(userId), view);
+        return (T) views.get(key, k -> loader.get());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoriteChanged(FavoriteChangedEvent event) {
+        // Ya confirmado: la siguiente lectura trae la versión nueva de la base de datos
+        versions.invalidate(event.getUserId());
+    }
+
+    private record ViewKey(Integer userId, long version, String view) {
+    }
+}
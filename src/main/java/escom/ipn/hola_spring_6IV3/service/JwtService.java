@@ -5,7 +5,10 @@ import java.util.Map;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import escom.ipn.hola_spring_6IV3.exception.TokenRevokedException;
 import escom.ipn.hola_spring_6IV3.jwt.JwtTokenProvider;
+import escom.ipn.hola_spring_6IV3.jwt.TokenRevocationStore;
+import escom.ipn.hola_spring_6IV3.jwt.VerifiedToken;
 import lombok.RequiredArgsConstructor;
 
 @Service
@@ -13,6 +16,7 @@ import lombok.RequiredArgsConstructor;
 public class JwtService {
 
     private final JwtTokenProvider jwtTokenProvider;
+    private final TokenRevocationStore revocationStore;
 
     // Obtener token para un usuario
     public String getToken(UserDetails user) {
@@ -21,15 +25,44 @@ public class JwtService {
 
     // Validar token con UserDetails
     public boolean isTokenValid(String token, UserDetails user) {
+        try {
+            return isTokenValid(verify(token), user);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // Validar un token ya verificado con UserDetails
+    public boolean isTokenValid(VerifiedToken token, UserDetails user) {
         return jwtTokenProvider.isTokenValid(token, user);
     }
 
+    // Verificar el token una sola vez y reutilizar sus claims; rechaza los tokens revocados
+    public VerifiedToken verify(String token) {
+        VerifiedToken verified = jwtTokenProvider.verify(token);
+        if (revocationStore.isRevoked(verified)) {
+            throw new TokenRevokedException();
+        }
+        return verified;
+    }
+
     public String extractUsername(String token) {
-        return jwtTokenProvider.extractUsername(token);
+        return verify(token).getUsername();
     }
 
     // Método para extraer todos los claims del token
     public Map<String, Object> extractAllInfo(String token) {
+        verify(token);
         return jwtTokenProvider.extractAllInfo(token);
     }
+
+    // Revocar un token concreto (logout)
+    public void revoke(String token) {
+        revocationStore.revoke(verify(token));
+    }
+
+    // Revocar todos los tokens emitidos hasta ahora para un usuario
+    public void revokeAllForUser(String username) {
+        revocationStore.revokeAllForUser(username);
+    }
 }
@@ -0,0 +1,228 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import escom.ipn.hola_spring_6IV3.catalog.BookCatalog;
+import escom.ipn.hola_spring_6IV3.catalog.CatalogAuthor;
+import escom.ipn.hola_spring_6IV3.catalog.CatalogWork;
+import escom.ipn.hola_spring_6IV3.catalog.OpenLibraryRecords;
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteBookDetailsDto;
+import escom.ipn.hola_spring_6IV3.dtos.RecommendationDto;
+import escom.ipn.hola_spring_6IV3.event.FavoriteChangedEvent;
+import escom.ipn.hola_spring_6IV3.recommendation.RecommendationModel;
+import escom.ipn.hola_spring_6IV3.repository.FavoriteJdbcRepository;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Recomendaciones por contenido calculadas en el servidor, sin salir a OpenLibrary.
+ * - Los candidatos (libros en favoritos de alguien y obras del catálogo local) forman un
+ *   RecommendationModel que se reconstruye en segundo plano cada rebuild-interval si hubo cambios.
+ * - Las preferencias del usuario (autores, materias y décadas) salen de sus favoritos y del catálogo.
+ * - El resultado se guarda en FavoritesCache con la versión del modelo en la vista: se reutiliza
+ *   hasta que cambian los favoritos del usuario o se publica un modelo nuevo.
+ */
+@Service
+public class RecommendationService {
+
+    private final FavoriteJdbcRepository favoriteJdbcRepository;
+    private final FavoriteService favoriteService;
+    private final FavoritesCache favoritesCache;
+    private final BookCatalog catalog;
+    private final int maxResults;
+    private final int maxCatalogCandidates;
+    private final ExecutorService builder;
+    private final AtomicBoolean building = new AtomicBoolean();
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+
+    private volatile RecommendationModel model = RecommendationModel.empty();
+    private volatile long buildMillis;
+
+    public RecommendationService(FavoriteJdbcRepository favoriteJdbcRepository, FavoriteService favoriteService,
+            FavoritesCache favoritesCache, BookCatalog catalog,
+            @Value("${recommendations.max-results:30}") int maxResults,
+            @Value("${recommendations.max-catalog-candidates:200000}") int maxCatalogCandidates) {
+        this.favoriteJdbcRepository = favoriteJdbcRepository;
+        this.favoriteService = favoriteService;
+        this.favoritesCache = favoritesCache;
+        this.catalog = catalog;
+        this.maxResults = Math.max(1, maxResults);
+        this.maxCatalogCandidates = Math.max(0, maxCatalogCandidates);
+        this.builder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-model-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Hasta limit libros recomendados para el usuario, los más afines primero
+     */
+    public List<RecommendationDto> recommend(Integer userId, int limit) {
+        int size = Math.max(1, Math.min(limit, maxResults));
+        RecommendationModel current = model;
+        return favoritesCache.get(userId, "recommendations:" + current.version() + ":" + size,
+                () -> compute(userId, current, size));
+    }
+
+    /**
+     * ETag de las recomendaciones: cambia con los favoritos del usuario y con cada modelo nuevo
+     */
+    public String getETag(Integer userId) {
+        String favoritesETag = favoriteService.getUserFavoritesETag(userId);
+        return favoritesETag.substring(0, favoritesETag.length() - 1) + "-r" + model.version() + "\"";
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoriteChanged(FavoriteChangedEvent event) {
+        dirty.set(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        requestRebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${recommendations.rebuild-interval-millis:600000}")
+    public void rebuildIfChanged() {
+        if (dirty.get()) {
+            requestRebuild();
+        }
+    }
+
+    /**
+     * Programa una reconstrucción del modelo en segundo plano; no hace nada si ya hay una en curso
+     */
+    public void requestRebuild() {
+        if (building.compareAndSet(false, true)) {
+            builder.execute(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    dirty.set(true);
+                    System.out.println("No se pudo reconstruir el modelo de recomendaciones: " + e.getMessage());
+                } finally {
+                    building.set(false);
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        RecommendationModel current = model;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("candidates", current.size());
+        stats.put("features", current.featureCount());
+        stats.put("building", building.get());
+        stats.put("builtAt", current.version());
+        stats.put("buildMillis", buildMillis);
+        return stats;
+    }
+
+    private List<RecommendationDto> compute(Integer userId, RecommendationModel current, int size) {
+        RecommendationModel.Profile profile = current.newProfile();
+        Map<String, String> authorNames = new HashMap<>();
+        for (FavoriteBookDetailsDto favorite : favoriteService.getUserFavorites(userId)) {
+            List<String> names = FavoriteService.splitAuthors(favorite.getAuthors());
+            if (current.contains(favorite.getBookId())) {
+                // El modelo ya tiene sus autores y materias del catálogo
+                profile.addFavorite(favorite.getBookId(), names, List.of(), null);
+                continue;
+            }
+            Optional<CatalogWork> work = catalog.findWork(OpenLibraryRecords.stripPrefix(favorite.getBookId()));
+            profile.addFavorite(favorite.getBookId(),
+                    work.map(w -> authorNames(w, names, authorNames)).orElse(names),
+                    work.map(CatalogWork::subjects).orElse(List.of()),
+                    work.map(CatalogWork::firstPublishYear).orElse(null));
+        }
+        return current.recommend(profile, size).stream().map(this::toDto).toList();
+    }
+
+    private void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        dirty.set(false);
+        RecommendationModel.Builder candidates = new RecommendationModel.Builder(maxResults);
+        Map<String, String> authorNames = new HashMap<>();
+
+        favoriteJdbcRepository.forEachBookPopularity((book, favorites) -> {
+            List<String> names = FavoriteService.splitAuthors(book.getAuthors());
+            Optional<CatalogWork> work = catalog.findWork(OpenLibraryRecords.stripPrefix(book.getBookId()));
+            List<String> allNames = work.map(w -> authorNames(w, names, authorNames)).orElse(names);
+            candidates.addBook(book.getBookId(),
+                    book.getBookTitle() != null ? book.getBookTitle() : work.map(CatalogWork::title).orElse(null),
+                    book.getBookCoverId() != null ? book.getBookCoverId() : work.map(CatalogWork::coverId).orElse(null),
+                    names.isEmpty() && !allNames.isEmpty() ? String.join(", ", allNames) : book.getAuthors(),
+                    work.map(CatalogWork::firstPublishYear).orElse(null),
+                    allNames,
+                    work.map(CatalogWork::subjects).orElse(List.of()),
+                    favorites);
+        });
+
+        if (maxCatalogCandidates > 0) {
+            // Las obras que nadie tiene en favoritos entran sin popularidad
+            int[] remaining = {maxCatalogCandidates};
+            catalog.forEachWork(work -> {
+                if (work.title() != null && !candidates.contains(work.workId())) {
+                    List<String> names = authorNames(work, List.of(), authorNames);
+                    candidates.addBook(work.workId(), work.title(), work.coverId(),
+                            names.isEmpty() ? null : String.join(", ", names), work.firstPublishYear(),
+                            names, work.subjects(), 0);
+                    remaining[0]--;
+                }
+                return remaining[0] > 0;
+            });
+        }
+
+        RecommendationModel built = candidates.build(startedAt);
+        buildMillis = System.currentTimeMillis() - startedAt;
+        model = built;
+        System.out.printf("Modelo de recomendaciones reconstruido: %d candidatos, %d rasgos en %d ms%n",
+                built.size(), built.featureCount(), buildMillis);
+    }
+
+    // Autores del favorito más los de la obra del catálogo (resueltos una vez por clave y reconstrucción)
+    private List<String> authorNames(CatalogWork work, List<String> names, Map<String, String> resolved) {
+        Set<String> all = new LinkedHashSet<>(names);
+        for (String key : work.authorKeys()) {
+            String name = resolved.computeIfAbsent(key,
+                    k -> catalog.findAuthor(k).map(CatalogAuthor::name).orElse(""));
+            if (!name.isEmpty()) {
+                all.add(name);
+            }
+        }
+        return new ArrayList<>(all);
+    }
+
+    private RecommendationDto toDto(RecommendationModel.Recommendation recommendation) {
+        return RecommendationDto.builder()
+                .bookId(recommendation.bookId())
+                .bookTitle(recommendation.title())
+                .bookCoverId(recommendation.coverId())
+                .authors(recommendation.authors())
+                .firstPublishYear(recommendation.firstPublishYear())
+                .score(recommendation.score())
+                .reason(recommendation.reason())
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        builder.shutdownNow();
+    }
+}
@@ -0,0 +1,304 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import escom.ipn.hola_spring_6IV3.catalog.BookCatalog;
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteRequest;
+import escom.ipn.hola_spring_6IV3.dtos.SuggestionDto;
+import escom.ipn.hola_spring_6IV3.event.FavoriteChangedEvent;
+import escom.ipn.hola_spring_6IV3.repository.FavoriteJdbcRepository;
+import escom.ipn.hola_spring_6IV3.search.PrefixIndex;
+import escom.ipn.hola_spring_6IV3.search.SuggestionEntry;
+import escom.ipn.hola_spring_6IV3.search.TextNormalizer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Autocompletado de títulos y autores sin salir a OpenLibrary.
+ * El índice (PrefixIndex) se construye con los libros en favoritos, ordenados por cuántos usuarios
+ * los tienen, y con las obras y autores del catálogo local. Las consultas solo leen el índice actual.
+ * - Los libros y autores que se añaden a favoritos y aún no están en el índice se sirven desde
+ *   un pequeño conjunto de pendientes hasta la siguiente reconstrucción.
+ * - El índice se reconstruye en segundo plano cada rebuild-interval si hubo cambios, o antes si
+ *   los pendientes superan max-pending; la popularidad se actualiza en esa reconstrucción.
+ */
+@Service
+public class SuggestionService {
+
+    private final FavoriteJdbcRepository favoriteJdbcRepository;
+    private final BookCatalog catalog;
+    private final int maxResults;
+    private final int scanLimit;
+    private final int maxCatalogEntries;
+    private final int maxPending;
+    private final ExecutorService builder;
+    private final AtomicBoolean building = new AtomicBoolean();
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+
+    private volatile Snapshot snapshot = new Snapshot(PrefixIndex.empty(), Set.of(), Set.of(), 0, 0);
+    // Pendientes desde que empezó la última reconstrucción, y los de la anterior hasta que se publique
+    private volatile ConcurrentMap<String, Pending> pending = new ConcurrentHashMap<>();
+    private volatile Map<String, Pending> previousPending = Map.of();
+
+    public SuggestionService(FavoriteJdbcRepository favoriteJdbcRepository, BookCatalog catalog,
+            @Value("${search.suggest.max-results:10}") int maxResults,
+            @Value("${search.suggest.scan-limit:256}") int scanLimit,
+            @Value("${search.suggest.max-catalog-entries:200000}") int maxCatalogEntries,
+            @Value("${search.suggest.max-pending:1000}") int maxPending) {
+        this.favoriteJdbcRepository = favoriteJdbcRepository;
+        this.catalog = catalog;
+        this.maxResults = Math.max(1, maxResults);
+        this.scanLimit = Math.max(1, scanLimit);
+        this.maxCatalogEntries = Math.max(0, maxCatalogEntries);
+        this.maxPending = Math.max(1, maxPending);
+        this.builder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "suggestion-index-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Hasta limit sugerencias para lo que el usuario lleva escrito, las más populares primero
+     */
+    public List<SuggestionDto> suggest(String query, int limit) {
+        String prefix = TextNormalizer.normalize(query);
+        int size = Math.max(1, Math.min(limit, maxResults));
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        List<SuggestionEntry> found = snapshot.index().suggest(prefix, size);
+        Map<String, Pending> recent = pending;
+        Map<String, Pending> older = previousPending;
+        if (!recent.isEmpty() || !older.isEmpty()) {
+            found = mergePending(found, prefix, size, recent.values(), older.values());
+        }
+        return found.stream().map(this::toDto).toList();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoriteChanged(FavoriteChangedEvent event) {
+        dirty.set(true);
+        if (!event.isAdded()) {
+            return;
+        }
+        Snapshot current = snapshot;
+        ConcurrentMap<String, Pending> recent = pending;
+        for (FavoriteRequest book : event.getBooks()) {
+            if (book.getBookTitle() != null && !current.bookIds().contains(book.getBookId())) {
+                addPending(recent, new SuggestionEntry(book.getBookTitle(), SuggestionEntry.Kind.TITLE,
+                        book.getBookId(), book.getBookCoverId(), book.getAuthors(), 1));
+            }
+            for (String author : FavoriteService.splitAuthors(book.getAuthors())) {
+                if (!current.authors().contains(TextNormalizer.normalize(author))) {
+                    addPending(recent, new SuggestionEntry(author, SuggestionEntry.Kind.AUTHOR, null, null, null, 1));
+                }
+            }
+        }
+        if (recent.size() > maxPending) {
+            requestRebuild();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        requestRebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${search.suggest.rebuild-interval-millis:300000}")
+    public void rebuildIfChanged() {
+        if (dirty.get()) {
+            requestRebuild();
+        }
+    }
+
+    /**
+     * Programa una reconstrucción en segundo plano; no hace nada si ya hay una en curso
+     */
+    public void requestRebuild() {
+        if (building.compareAndSet(false, true)) {
+            builder.execute(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    dirty.set(true);
+                    System.out.println("No se pudo reconstruir el índice de sugerencias: " + e.getMessage());
+                } finally {
+                    building.set(false);
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", current.index().size());
+        stats.put("pointers", current.index().pointerCount());
+        stats.put("precomputedPrefixes", current.index().precomputedPrefixes());
+        stats.put("pending", pending.size() + previousPending.size());
+        stats.put("building", building.get());
+        stats.put("builtAt", current.builtAt());
+        stats.put("buildMillis", current.buildMillis());
+        return stats;
+    }
+
+    private void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        dirty.set(false);
+        // Lo que llegue a partir de aquí va a los pendientes nuevos y sobrevive a esta reconstrucción
+        previousPending = pending;
+        pending = new ConcurrentHashMap<>();
+
+        List<SuggestionEntry> entries = new ArrayList<>();
+        Set<String> bookIds = new HashSet<>();
+        Map<String, String> authorNames = new HashMap<>();
+        Map<String, Long> authorScores = new HashMap<>();
+        favoriteJdbcRepository.forEachBookPopularity((book, favorites) -> {
+            bookIds.add(book.getBookId());
+            if (book.getBookTitle() != null) {
+                entries.add(new SuggestionEntry(book.getBookTitle(), SuggestionEntry.Kind.TITLE, book.getBookId(),
+                        book.getBookCoverId(), book.getAuthors(), favorites));
+            }
+            for (String author : FavoriteService.splitAuthors(book.getAuthors())) {
+                String key = TextNormalizer.normalize(author);
+                authorNames.putIfAbsent(key, author);
+                authorScores.merge(key, favorites, Long::sum);
+            }
+        });
+
+        if (maxCatalogEntries > 0) {
+            // Lo que solo está en el catálogo entra sin popularidad, por detrás de los favoritos
+            int[] remaining = {maxCatalogEntries};
+            catalog.forEachWork(work -> {
+                if (work.title() != null && !bookIds.contains(work.workId())) {
+                    entries.add(new SuggestionEntry(work.title(), SuggestionEntry.Kind.TITLE, work.workId(),
+                            work.coverId(), null, 0));
+                    remaining[0]--;
+                }
+                return remaining[0] > 0;
+            });
+            remaining[0] = maxCatalogEntries;
+            catalog.forEachAuthor(author -> {
+                if (author.name() != null && authorNames.putIfAbsent(TextNormalizer.normalize(author.name()),
+                        author.name()) == null) {
+                    remaining[0]--;
+                }
+                return remaining[0] > 0;
+            });
+        }
+        authorNames.forEach((key, name) -> entries.add(new SuggestionEntry(name, SuggestionEntry.Kind.AUTHOR,
+                null, null, null, authorScores.getOrDefault(key, 0L))));
+
+        PrefixIndex index = PrefixIndex.build(entries, maxResults, scanLimit);
+        long millis = System.currentTimeMillis() - startedAt;
+        snapshot = new Snapshot(index, bookIds, authorNames.keySet(), startedAt, millis);
+        previousPending = Map.of();
+        System.out.printf("Índice de sugerencias reconstruido: %d entradas, %d prefijos precalculados en %d ms%n",
+                index.size(), index.precomputedPrefixes(), millis);
+    }
+
+    // Solo se normalizan los resultados del índice (como mucho size); los pendientes ya traen su texto normalizado
+    private List<SuggestionEntry> mergePending(List<SuggestionEntry> found, String prefix, int size,
+            Collection<Pending> recent, Collection<Pending> older) {
+        List<Pending> candidates = new ArrayList<>();
+        for (SuggestionEntry entry : found) {
+            candidates.add(Pending.of(entry));
+        }
+        for (Collection<Pending> source : List.of(recent, older)) {
+            for (Pending candidate : source) {
+                if (matches(candidate.normalized(), prefix)) {
+                    candidates.add(candidate);
+                }
+            }
+        }
+        candidates.sort(Comparator.comparingLong((Pending candidate) -> candidate.entry().score()).reversed());
+        Map<String, SuggestionEntry> distinct = new LinkedHashMap<>();
+        for (Pending candidate : candidates) {
+            distinct.putIfAbsent(candidate.key(), candidate.entry());
+            if (distinct.size() == size) {
+                break;
+            }
+        }
+        return new ArrayList<>(distinct.values());
+    }
+
+    private void addPending(ConcurrentMap<String, Pending> recent, SuggestionEntry entry) {
+        Pending added = Pending.of(entry);
+        recent.merge(added.key(), added, (current, ignored) -> current.plusOne());
+    }
+
+    // Alguna palabra del texto empieza por el prefijo, igual que en PrefixIndex
+    private static boolean matches(String normalized, String prefix) {
+        int start = 0;
+        while (start < normalized.length()) {
+            if (normalized.startsWith(prefix, start)) {
+                return true;
+            }
+            int space = normalized.indexOf(' ', start);
+            if (space < 0) {
+                return false;
+            }
+            start = space + 1;
+        }
+        return false;
+    }
+
+    private SuggestionDto toDto(SuggestionEntry entry) {
+        return SuggestionDto.builder()
+                .text(entry.text())
+                .type(entry.kind().name().toLowerCase(Locale.ROOT))
+                .bookId(entry.bookId())
+                .bookCoverId(entry.coverId())
+                .authors(entry.authors())
+                .favorites(entry.score())
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        builder.shutdownNow();
+    }
+
+    // authors: nombres de autor ya normalizados
+    private record Snapshot(PrefixIndex index, Set<String> bookIds, Set<String> authors, long builtAt,
+            long buildMillis) {
+    }
+
+    // Entrada pendiente con su texto ya normalizado, para no normalizarlo en cada pulsación
+    private record Pending(SuggestionEntry entry, String normalized) {
+
+        static Pending of(SuggestionEntry entry) {
+            return new Pending(entry, TextNormalizer.normalize(entry.text()));
+        }
+
+        String key() {
+            return entry.kind() + ":" + normalized;
+        }
+
+        Pending plusOne() {
+            return new Pending(new SuggestionEntry(entry.text(), entry.kind(), entry.bookId(), entry.coverId(),
+                    entry.authors(), entry.score() + 1), normalized);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import escom.ipn.hola_spring_6IV3.dtos.FavoriteRequest;
+import escom.ipn.hola_spring_6IV3.dtos.TrendingBookDto;
+import escom.ipn.hola_spring_6IV3.event.FavoriteChangedEvent;
+import escom.ipn.hola_spring_6IV3.repository.FavoriteJdbcRepository;
+import escom.ipn.hola_spring_6IV3.trending.TrendingPeriod;
+import escom.ipn.hola_spring_6IV3.trending.TrendingWindow;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Libros en tendencia por hora, día y semana, en memoria y sin GROUP BY sobre favoritos.
+ * - Los eventos de FavoriteService solo se encolan (cola sin bloqueos y acotada) en el hilo que hizo el cambio;
+ *   un único hilo los aplica cada drain-interval a los sketches de las tres ventanas y publica un top-K
+ *   inmutable por ventana. Leer la tendencia es copiar a lo sumo K elementos ya preparados.
+ * - Al arrancar ese mismo hilo recarga la última semana desde added_date antes de aplicar la cola;
+ *   los eventos que llegaron antes de lanzar la consulta ya están en su lectura y se descartan.
+ * - Altas y bajas cuentan en la franja de la fecha de alta del favorito (la original en una importación),
+ *   igual que la recarga: la tendencia son los favoritos de la ventana que siguen guardados, y da lo mismo
+ *   antes que después de reiniciar. Una baja de un favorito anterior a la ventana no resta nada.
+ */
+@Service
+public class TrendingService {
+
+    private final FavoriteJdbcRepository favoriteJdbcRepository;
+    private final int topK;
+    private final int queueCapacity;
+    private final long drainIntervalMillis;
+    private final Map<TrendingPeriod, TrendingWindow> windows = new EnumMap<>(TrendingPeriod.class);
+    private final Queue<Change> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final ScheduledExecutorService drainer;
+
+    // Solo los usa el hilo de drainer
+    private final Map<String, FavoriteRequest> books = new HashMap<>();
+    private long cutoffMillis = Long.MAX_VALUE;
+
+    private volatile Map<TrendingPeriod, List<TrendingBookDto>> trending = emptyTrending();
+    private volatile boolean ready;
+    private volatile long rebuildMillis;
+    private volatile long rebuildRows;
+
+    public TrendingService(FavoriteJdbcRepository favoriteJdbcRepository,
+            @Value("${books.trending.top-k:50}") int topK,
+            @Value("${books.trending.candidates:500}") int candidates,
+            @Value("${books.trending.sketch-width:4096}") int sketchWidth,
+            @Value("${books.trending.sketch-depth:4}") int sketchDepth,
+            @Value("${books.trending.queue-capacity:100000}") int queueCapacity,
+            @Value("${books.trending.drain-interval-millis:1000}") long drainIntervalMillis) {
+        this.favoriteJdbcRepository = favoriteJdbcRepository;
+        this.topK = Math.max(1, topK);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.drainIntervalMillis = Math.max(10, drainIntervalMillis);
+        for (TrendingPeriod period : TrendingPeriod.values()) {
+            windows.put(period, new TrendingWindow(period, this.topK, candidates, sketchWidth, sketchDepth));
+        }
+        this.drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trending-books");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Los limit libros con más favoritos netos en la ventana (hour, day o week), de más a menos
+     */
+    public List<TrendingBookDto> getTrending(String window, int limit) {
+        List<TrendingBookDto> top = trending.get(TrendingPeriod.fromName(window));
+        return top.subList(0, Math.max(0, Math.min(Math.min(limit, topK), top.size())));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoriteChanged(FavoriteChangedEvent event) {
+        long now = System.currentTimeMillis();
+        int delta = event.isAdded() ? 1 : -1;
+        ZoneId zone = ZoneId.systemDefault();
+        List<FavoriteRequest> books = event.getBooks();
+        for (int i = 0; i < books.size(); i++) {
+            LocalDateTime addedDate = event.getAddedDates().get(i);
+            if (addedDate == null) {
+                // Favorito antiguo sin fecha de alta: la recarga tampoco lo cuenta
+                continue;
+            }
+            if (queued.incrementAndGet() > queueCapacity) {
+                // La tendencia es aproximada: si el hilo no da abasto se pierde el evento, no se frena al usuario
+                queued.decrementAndGet();
+                dropped.increment();
+                continue;
+            }
+            queue.offer(new Change(books.get(i), delta, addedDate.atZone(zone).toInstant().toEpochMilli(), now));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnStartup() {
+        drainer.execute(this::rebuild);
+        drainer.scheduleWithFixedDelay(this::drain, drainIntervalMillis, drainIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("rebuildMillis", rebuildMillis);
+        stats.put("rebuildRows", rebuildRows);
+        stats.put("applied", applied.sum());
+        stats.put("queued", queued.get());
+        stats.put("dropped", dropped.sum());
+        Map<String, Object> sizes = new LinkedHashMap<>();
+        trending.forEach((period, top) -> sizes.put(period.label(), top.size()));
+        stats.put("trending", sizes);
+        stats.put("sketchBytes", windows.values().stream().mapToInt(TrendingWindow::memoryBytes).sum());
+        return stats;
+    }
+
+    private void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        long[] rows = {0};
+        try {
+            LocalDateTime since = LocalDateTime.now().minus(TrendingPeriod.WEEK.length());
+            ZoneId zone = ZoneId.systemDefault();
+            // El corte se marca justo antes de la consulta: lo que llegó antes ya está en su instantánea
+            favoriteJdbcRepository.forEachFavoriteSince(since, () -> cutoffMillis = System.currentTimeMillis(),
+                    (book, addedDate) -> {
+                        if (addedDate != null) {
+                            record(book, addedDate.atZone(zone).toInstant().toEpochMilli(), 1, startedAt);
+                            if (++rows[0] % 100_000 == 0) {
+                                // Recorta candidatos y títulos para no acumular todos los libros de la semana
+                                publish(System.currentTimeMillis());
+                            }
+                        }
+                    });
+        } catch (RuntimeException e) {
+            if (cutoffMillis == Long.MAX_VALUE) {
+                // La consulta no llegó a lanzarse: cuentan los eventos desde el inicio de la recarga
+                cutoffMillis = startedAt;
+            }
+            System.out.println("No se pudieron recargar las tendencias desde favoritos: " + e.getMessage());
+        }
+        publish(System.currentTimeMillis());
+        rebuildRows = rows[0];
+        rebuildMillis = System.currentTimeMillis() - startedAt;
+        ready = true;
+        System.out.printf("Tendencias recargadas: %d favoritos de la última semana en %d ms%n",
+                rebuildRows, rebuildMillis);
+    }
+
+    private void drain() {
+        try {
+            long now = System.currentTimeMillis();
+            Change change;
+            while ((change = queue.poll()) != null) {
+                queued.decrementAndGet();
+                if (change.receivedMillis() >= cutoffMillis) {
+                    record(change.book(), change.timeMillis(), change.delta(), now);
+                    applied.increment();
+                }
+            }
+            publish(now);
+        } catch (RuntimeException e) {
+            // Una excepción cancelaría la ejecución periódica
+            System.out.println("No se pudieron actualizar las tendencias: " + e.getMessage());
+        }
+    }
+
+    private void record(FavoriteRequest book, long timeMillis, int delta, long nowMillis) {
+        for (TrendingWindow window : windows.values()) {
+            window.record(book.getBookId(), timeMillis, delta, nowMillis);
+        }
+        if (delta > 0) {
+            books.put(book.getBookId(), book);
+        }
+    }
+
+    private void publish(long nowMillis) {
+        Map<TrendingPeriod, List<TrendingBookDto>> next = new EnumMap<>(trending);
+        boolean changed = false;
+        for (TrendingWindow window : windows.values()) {
+            List<TrendingWindow.Entry> top = window.publish(nowMillis);
+            if (top != null) {
+                next.put(window.period(), top.stream().map(this::toDto).toList());
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return;
+        }
+        trending = Collections.unmodifiableMap(next);
+        // Solo se guardan título y portada de los libros que aún pueden entrar en algún top
+        books.keySet().removeIf(bookId -> windows.values().stream().noneMatch(window -> window.isCandidate(bookId)));
+    }
+
+    private TrendingBookDto toDto(TrendingWindow.Entry entry) {
+        FavoriteRequest book = books.get(entry.bookId());
+        return TrendingBookDto.builder()
+                .bookId(entry.bookId())
+                .bookTitle(book != null ? book.getBookTitle() : null)
+                .bookCoverId(book != null ? book.getBookCoverId() : null)
+                .authors(book != null ? book.getAuthors() : null)
+                .favorites(entry.count())
+                .build();
+    }
+
+    private static Map<TrendingPeriod, List<TrendingBookDto>> emptyTrending() {
+        Map<TrendingPeriod, List<TrendingBookDto>> empty = new EnumMap<>(TrendingPeriod.class);
+        for (TrendingPeriod period : TrendingPeriod.values()) {
+            empty.put(period, List.of());
+        }
+        return Collections.unmodifiableMap(empty);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        drainer.shutdownNow();
+    }
+
+    // timeMillis: fecha de alta del favorito; receivedMillis: cuándo llegó el evento (para el corte de la recarga)
+    private record Change(FavoriteRequest book, int delta, long timeMillis, long receivedMillis) {
+    }
+}
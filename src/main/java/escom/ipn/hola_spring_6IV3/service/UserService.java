@@ -4,13 +4,19 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import escom.ipn.hola_spring_6IV3.dtos.UserDto;
+import escom.ipn.hola_spring_6IV3.event.UserDeletedEvent;
+import escom.ipn.hola_spring_6IV3.jwt.TokenVersionRegistry;
+import escom.ipn.hola_spring_6IV3.jwt.VerifiedToken;
 import escom.ipn.hola_spring_6IV3.model.Role;
 import escom.ipn.hola_spring_6IV3.model.User;
+import escom.ipn.hola_spring_6IV3.repository.FavoriteChangeRepository;
+import escom.ipn.hola_spring_6IV3.repository.FavoriteCounterRepository;
 import escom.ipn.hola_spring_6IV3.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 
@@ -21,9 +27,14 @@ public class UserService {
     private final UserRepository userRepository;
     private final JwtService jwtService;
     private final PasswordEncoder passwordEncoder;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final CachedUserDetailsService userDetailsCache;
+    private final FavoriteCounterRepository favoriteCounterRepository;
+    private final FavoriteChangeRepository favoriteChangeRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public User getUserByUsername(String username) {
-        return userRepository.findByUsername(username)
+        return userDetailsCache.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
     }
 
@@ -72,20 +83,41 @@ public class UserService {
             user.setPassword(passwordEncoder.encode(updatedUserDto.getPassword()));
         }
 
-        return userRepository.save(user);
+        // Los tokens emitidos antes de este cambio dejan de autenticarse solo con sus claims
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        User saved = userRepository.save(user);
+        tokenVersionRegistry.record(saved.getUsername(), saved.getTokenVersion());
+        userDetailsCache.invalidate(saved.getUsername());
+        return saved;
     }
 
     public String extractUsernameFromToken(String token) {
         return jwtService.extractUsername(token.replace("Bearer ", ""));
     }
 
+    // Id del usuario autenticado: sale del claim "uid" y, en tokens antiguos sin él, de la caché de usuarios
+    public Integer extractUserIdFromToken(String token) {
+        VerifiedToken verified = jwtService.verify(token.replace("Bearer ", ""));
+        if (verified.getUserId() != null) {
+            return verified.getUserId();
+        }
+        return getUserByUsername(verified.getUsername()).getId();
+    }
+
     public Map<String, Object> extractAllInfoFromToken(String token) {
         return jwtService.extractAllInfo(token.replace("Bearer ", ""));
     }
 
+    @Transactional
     public void deleteUserByUsername(String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
         userRepository.delete(user);
+        favoriteCounterRepository.deleteById(user.getId());
+        favoriteChangeRepository.deleteByUserId(user.getId());
+        eventPublisher.publishEvent(new UserDeletedEvent(user.getId()));
+        tokenVersionRegistry.evict(username);
+        userDetailsCache.invalidate(username);
+        jwtService.revokeAllForUser(username);
     }
 }
@@ -0,0 +1,102 @@
+package escom.ipn.hola_spring_6IV3.trending;
+
+import java.util.Arrays;
+
+/**
+ * Count-min sketch sobre una ventana deslizante: un sketch (depth × width contadores) por franja de tiempo,
+ * en un anillo. Al escribir en una franja nueva se reutiliza la casilla de la más antigua, así que
+ * expirar es O(1) y la memoria no depende del número de libros ni de eventos.
+ *
+ * Los contadores admiten restas (favoritos eliminados); la estimación es el mínimo de las filas,
+ * nunca negativa. No es seguro entre hilos: lo escriben y lo consultan desde un único hilo.
+ */
+public class SlidingCountMinSketch {
+
+    private final long sliceMillis;
+    private final int width;
+    private final int depth;
+    private final int[][] counters;
+    private final long[] sliceIds;
+
+    public SlidingCountMinSketch(long sliceMillis, int slices, int width, int depth) {
+        this.sliceMillis = sliceMillis;
+        this.width = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.depth = Math.max(1, depth);
+        this.counters = new int[slices][this.width * this.depth];
+        this.sliceIds = new long[slices];
+        Arrays.fill(sliceIds, Long.MIN_VALUE);
+    }
+
+    /**
+     * Suma delta a key en la franja de timeMillis. Devuelve false si esa franja ya salió de la ventana
+     */
+    public boolean add(String key, long timeMillis, int delta, long nowMillis) {
+        long current = nowMillis / sliceMillis;
+        long slice = Math.min(timeMillis / sliceMillis, current);
+        if (slice <= current - counters.length) {
+            return false;
+        }
+        int slot = (int) Math.floorMod(slice, (long) counters.length);
+        if (sliceIds[slot] != slice) {
+            if (sliceIds[slot] > slice) {
+                // La casilla ya la ocupa una franja más reciente
+                return false;
+            }
+            Arrays.fill(counters[slot], 0);
+            sliceIds[slot] = slice;
+        }
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int[] row = counters[slot];
+        for (int i = 0; i < depth; i++) {
+            row[i * width + ((h1 + i * h2) & (width - 1))] += delta;
+        }
+        return true;
+    }
+
+    /**
+     * Estimación por exceso de la suma de key en las franjas de la ventana que termina en nowMillis
+     */
+    public long estimate(String key, long nowMillis) {
+        long current = nowMillis / sliceMillis;
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            int cell = i * width + ((h1 + i * h2) & (width - 1));
+            long sum = 0;
+            for (int slot = 0; slot < counters.length; slot++) {
+                if (sliceIds[slot] > current - counters.length && sliceIds[slot] <= current) {
+                    sum += counters[slot][cell];
+                }
+            }
+            min = Math.min(min, sum);
+        }
+        return Math.max(0, min);
+    }
+
+    public long currentSlice(long nowMillis) {
+        return nowMillis / sliceMillis;
+    }
+
+    public int memoryBytes() {
+        return counters.length * width * depth * Integer.BYTES;
+    }
+
+    // FNV-1a de 64 bits con la mezcla final de MurmurHash3: las dos mitades sirven de hashes independientes
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,51 @@
+package escom.ipn.hola_spring_6IV3.trending;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Ventanas de /api/books/trending. Cada una se divide en franjas: la ventana avanza de franja en franja
+ * y cubre entre (slices - 1) y slices franjas completas hacia atrás.
+ */
+public enum TrendingPeriod {
+
+    HOUR(Duration.ofMinutes(5), 12),
+    DAY(Duration.ofHours(1), 24),
+    WEEK(Duration.ofHours(6), 28);
+
+    private final Duration slice;
+    private final int slices;
+
+    TrendingPeriod(Duration slice, int slices) {
+        this.slice = slice;
+        this.slices = slices;
+    }
+
+    public Duration slice() {
+        return slice;
+    }
+
+    public int slices() {
+        return slices;
+    }
+
+    public Duration length() {
+        return slice.multipliedBy(slices);
+    }
+
+    /**
+     * hour, day o week; lanza IllegalArgumentException con cualquier otro valor
+     */
+    public static TrendingPeriod fromName(String name) {
+        for (TrendingPeriod period : values()) {
+            if (period.name().equalsIgnoreCase(name)) {
+                return period;
+            }
+        }
+        throw new IllegalArgumentException("Ventana inválida: " + name + " (hour, day o week)");
+    }
+
+    public String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
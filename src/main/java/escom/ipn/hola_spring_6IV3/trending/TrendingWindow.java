@@ -0,0 +1,90 @@
+package escom.ipn.hola_spring_6IV3.trending;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Libros en tendencia de una ventana: el sketch da la cuenta aproximada de cualquier libro y un conjunto
+ * acotado de candidatos (los mejores de la última publicación más los tocados desde entonces)
+ * decide cuáles se consultan al publicar el top-K. No es seguro entre hilos, igual que el sketch.
+ */
+public class TrendingWindow {
+
+    private static final Comparator<Entry> BY_COUNT = Comparator.comparingLong(Entry::count)
+            .thenComparing(Entry::bookId, Comparator.reverseOrder());
+
+    private final TrendingPeriod period;
+    private final SlidingCountMinSketch sketch;
+    private final int topK;
+    private final int maxCandidates;
+    private final Set<String> candidates = new HashSet<>();
+    private long publishedSlice = Long.MIN_VALUE;
+    private boolean changed;
+
+    public TrendingWindow(TrendingPeriod period, int topK, int maxCandidates, int width, int depth) {
+        this.period = period;
+        this.topK = topK;
+        this.maxCandidates = Math.max(topK, maxCandidates);
+        this.sketch = new SlidingCountMinSketch(period.slice().toMillis(), period.slices(), width, depth);
+    }
+
+    public TrendingPeriod period() {
+        return period;
+    }
+
+    public void record(String bookId, long timeMillis, int delta, long nowMillis) {
+        if (sketch.add(bookId, timeMillis, delta, nowMillis)) {
+            if (delta > 0) {
+                candidates.add(bookId);
+            }
+            changed = true;
+        }
+    }
+
+    /**
+     * Top-K actual, o null si no ha cambiado nada desde la última publicación (ni eventos ni franja).
+     * Deja como candidatos solo los maxCandidates mejores
+     */
+    public List<Entry> publish(long nowMillis) {
+        long slice = sketch.currentSlice(nowMillis);
+        if (!changed && slice == publishedSlice) {
+            return null;
+        }
+        PriorityQueue<Entry> best = new PriorityQueue<>(maxCandidates + 1, BY_COUNT);
+        for (String bookId : candidates) {
+            long count = sketch.estimate(bookId, nowMillis);
+            if (count > 0) {
+                best.add(new Entry(bookId, count));
+                if (best.size() > maxCandidates) {
+                    best.poll();
+                }
+            }
+        }
+        List<Entry> ranked = new ArrayList<>(best);
+        ranked.sort(BY_COUNT.reversed());
+        candidates.clear();
+        ranked.forEach(entry -> candidates.add(entry.bookId()));
+        changed = false;
+        publishedSlice = slice;
+        return List.copyOf(ranked.subList(0, Math.min(topK, ranked.size())));
+    }
+
+    public boolean isCandidate(String bookId) {
+        return candidates.contains(bookId);
+    }
+
+    public int candidateCount() {
+        return candidates.size();
+    }
+
+    public int memoryBytes() {
+        return sketch.memoryBytes();
+    }
+
+    public record Entry(String bookId, long count) {
+    }
+}
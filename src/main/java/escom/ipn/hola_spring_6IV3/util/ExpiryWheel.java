@@ -0,0 +1,71 @@
+package escom.ipn.hola_spring_6IV3.util;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
+
+/**
+ * Rueda de tiempo (hashed timing wheel) para expirar claves en su fecha límite.
+ * Programar una clave es O(1); cada avance solo recorre las casillas de los ticks transcurridos.
+ * Las fechas más lejanas que una vuelta completa se quedan en su casilla hasta la vuelta que les toca.
+ */
+public class ExpiryWheel<T> {
+
+    private final long tickMillis;
+    private final Queue<Entry<T>>[] slots;
+    private final int mask;
+    private volatile long currentTick;
+
+    public ExpiryWheel(long tickMillis, int wheelSize) {
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.slots = newSlots(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = size - 1;
+        this.currentTick = System.currentTimeMillis() / tickMillis;
+    }
+
+    // Java no permite crear arrays de un tipo genérico: se crea el de Queue y se convierte una sola vez
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Queue<Entry<T>>[] newSlots(int size) {
+        return (Queue<Entry<T>>[]) new Queue[size];
+    }
+
+    public void schedule(T key, long deadlineMillis) {
+        long tick = Math.max(deadlineMillis / tickMillis, currentTick + 1);
+        slots[(int) (tick & mask)].add(new Entry<>(key, deadlineMillis));
+    }
+
+    /**
+     * Procesa los ticks transcurridos hasta nowMillis y entrega cada clave vencida junto con su fecha límite.
+     * Devuelve el número de claves expiradas.
+     */
+    public synchronized int advance(long nowMillis, BiConsumer<T, Long> onExpired) {
+        long targetTick = nowMillis / tickMillis;
+        long ticks = Math.min(targetTick - currentTick, slots.length);
+        int expired = 0;
+        for (long i = 1; i <= ticks; i++) {
+            Iterator<Entry<T>> it = slots[(int) ((currentTick + i) & mask)].iterator();
+            while (it.hasNext()) {
+                Entry<T> entry = it.next();
+                if (entry.deadlineMillis <= nowMillis) {
+                    it.remove();
+                    onExpired.accept(entry.key, entry.deadlineMillis);
+                    expired++;
+                }
+            }
+        }
+        // El tick de nowMillis aún no ha terminado: se vuelve a recorrer en el siguiente avance,
+        // o sus claves con fecha posterior a nowMillis esperarían una vuelta entera
+        if (targetTick - 1 > currentTick) {
+            currentTick = targetTick - 1;
+        }
+        return expired;
+    }
+
+    private record Entry<T>(T key, long deadlineMillis) {
+    }
+}
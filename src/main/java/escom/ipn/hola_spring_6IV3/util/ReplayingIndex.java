@@ -0,0 +1,96 @@
+package escom.ipn.hola_spring_6IV3.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Índice en memoria que se carga en segundo plano desde la base de datos y se mantiene con eventos.
+ * - Los cambios que llegan durante una carga se guardan y se repiten sobre el índice nuevo antes de
+ *   publicarlo, así que deben ser idempotentes (añadir y quitar lo son).
+ * - Fuera de una carga los cambios se aplican directamente, sin pasar por el monitor: llegan tras el
+ *   commit, y una carga que empiece después ya los ve en su lectura de la tabla.
+ */
+public class ReplayingIndex<T> {
+
+    private final String name;
+    private volatile T current;
+    private volatile boolean ready;
+    private volatile long builtAt;
+    private volatile long buildMillis;
+    // Cambios recibidos mientras se carga un índice nuevo; null si no hay carga en curso
+    private final Object buildLock = new Object();
+    private volatile List<Consumer<T>> replay;
+
+    public ReplayingIndex(String name, T initial) {
+        this.name = name;
+        this.current = initial;
+    }
+
+    public T get() {
+        return current;
+    }
+
+    public void apply(Consumer<T> change) {
+        if (replay == null) {
+            change.accept(current);
+            return;
+        }
+        synchronized (buildLock) {
+            if (replay != null) {
+                replay.add(change);
+            }
+            change.accept(current);
+        }
+    }
+
+    /**
+     * Carga un índice nuevo con loader en un hilo propio y lo publica; onLoaded recibe el índice publicado
+     */
+    public void loadInBackground(String threadName, Supplier<T> loader, Consumer<T> onLoaded) {
+        Thread thread = new Thread(() -> {
+            try {
+                onLoaded.accept(load(loader));
+            } catch (RuntimeException e) {
+                synchronized (buildLock) {
+                    replay = null;
+                }
+                System.out.println("No se pudo cargar el " + name + ": " + e.getMessage());
+            }
+        }, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    public long getBuildMillis() {
+        return buildMillis;
+    }
+
+    private T load(Supplier<T> loader) {
+        long startedAt = System.currentTimeMillis();
+        synchronized (buildLock) {
+            replay = new ArrayList<>();
+        }
+        T fresh = loader.get();
+        synchronized (buildLock) {
+            // Lo que cambió mientras se leía la tabla puede no estar en la lectura
+            replay.forEach(change -> change.accept(fresh));
+            // Se publica antes de soltar replay: quien vea replay == null ya ve el índice nuevo
+            current = fresh;
+            replay = null;
+        }
+        buildMillis = System.currentTimeMillis() - startedAt;
+        builtAt = startedAt;
+        ready = true;
+        return fresh;
+    }
+}
@@ -82,7 +82,7 @@ document.addEventListener('DOMContentLoaded', function() {
             booksContainer.innerHTML = '';
             
             // Realizar búsqueda
-            fetch(`https://openlibrary.org/search.json?q=${encodeURIComponent(query)}&limit=20`)
+            fetch(`/api/books/search.json?q=${encodeURIComponent(query)}&limit=20`)
                 .then(response => {
                     if (!response.ok) {
                         throw new Error(`Error ${response.status}: ${response.statusText}`);
@@ -8,11 +8,11 @@
 
 // Constantes globales
 const OPENLIBRARY_API = {
-    SEARCH: 'https://openlibrary.org/search.json',
-    WORK: 'https://openlibrary.org/works/',
+    SEARCH: '/api/books/search.json',
+    WORK: '/api/books/works/',
     COVER: 'https://covers.openlibrary.org/b/id/',
-    AUTHOR: 'https://openlibrary.org/authors/',
-    SUBJECT: 'https://openlibrary.org/subjects/'
+    AUTHOR: '/api/books/authors/',
+    SUBJECT: '/api/books/subjects/'
 };
 
 const DEFAULT_COVER = '/images/default-cover.jpg';
@@ -83,7 +83,7 @@ function loadBooksByCategories() {
  * Obtiene libros por categoría desde OpenLibrary
  */
 function fetchBooksByCategory(category) {
-    return fetch(`https://openlibrary.org/subjects/${category}.json?limit=6`)
+    return fetch(`/api/books/subjects/${category}.json?limit=6`)
         .then(response => {
             if (!response.ok) throw new Error(`Error ${response.status}: ${response.statusText}`);
             return response.json();
@@ -284,7 +284,7 @@ function searchBooks(query) {
     if (loadingContainer) loadingContainer.style.display = 'flex';
 
     // Realizar búsqueda
-    fetch(`https://openlibrary.org/search.json?q=${encodeURIComponent(query)}&limit=20`)
+    fetch(`/api/books/search.json?q=${encodeURIComponent(query)}&limit=20`)
         .then(response => {
             if (!response.ok) throw new Error(`Error ${response.status}: ${response.statusText}`);
             return response.json();
@@ -358,7 +358,7 @@ function loadBookDetails() {
     `;
 
     // Obtener detalles del libro
-    fetch(`https://openlibrary.org/works/${bookId}.json`)
+    fetch(`/api/books/works/${bookId}.json`)
         .then(response => {
             if (!response.ok) throw new Error(`Error ${response.status}: ${response.statusText}`);
             return response.json();
@@ -445,7 +445,7 @@ function loadAuthors(authorRefs) {
         const authorKey = ref.author?.key || ref.key || '';
         if (!authorKey) return Promise.resolve({ name: 'Autor desconocido' });
         
-        return fetch(`https://openlibrary.org${authorKey}.json`)
+        return fetch(`/api/books${authorKey}.json`)
             .then(response => response.json())
             .then(author => ({ name: author.name || 'Autor desconocido' }))
             .catch(() => ({ name: 'Autor desconocido' }));
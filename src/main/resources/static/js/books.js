@@ -4,11 +4,11 @@
 
 // URLs de la API de OpenLibrary
 const OPENLIBRARY_API = {
-    SEARCH: 'https://openlibrary.org/search.json',
-    WORK: 'https://openlibrary.org/works/',
+    SEARCH: '/api/books/search.json',
+    WORK: '/api/books/works/',
     COVER: 'https://covers.openlibrary.org/b/id/',
-    AUTHOR: 'https://openlibrary.org/authors/',
-    SUBJECT: 'https://openlibrary.org/subjects/'
+    AUTHOR: '/api/books/authors/',
+    SUBJECT: '/api/books/subjects/'
 };
 
 // Imagen de portada por defecto
@@ -88,7 +88,7 @@ function loadBooksByCategories() {
  */
 function fetchBooksByCategory(category) {
     // Usar https y añadir parámetros adicionales para mejorar la respuesta
-    return fetch(`https://openlibrary.org/subjects/${category}.json?limit=6`)
+    return fetch(`/api/books/subjects/${category}.json?limit=6`)
         .then(response => {
             if (!response.ok) {
                 throw new Error(`Error ${response.status}: ${response.statusText}`);
@@ -325,6 +325,8 @@ function setupSearch() {
     const searchButton = document.getElementById('search-button');
     
     if (searchButton && searchInput) {
+        setupSuggestions(searchInput);
+
         // Buscar al hacer clic en el botón
         searchButton.addEventListener('click', () => {
             const query = searchInput.value.trim();
@@ -346,6 +348,53 @@ function setupSearch() {
     }
 }
 
+/**
+ * Autocompletado del buscador con /api/search/suggest (índice local del servidor, sin esperar a OpenLibrary)
+ * @param {HTMLInputElement} searchInput - Campo de búsqueda
+ */
+function setupSuggestions(searchInput) {
+    const datalist = document.createElement('datalist');
+    datalist.id = 'search-suggestions';
+    searchInput.after(datalist);
+    searchInput.setAttribute('list', datalist.id);
+    searchInput.setAttribute('autocomplete', 'off');
+
+    let debounceTimer = null;
+    let pendingRequest = null;
+
+    searchInput.addEventListener('input', () => {
+        clearTimeout(debounceTimer);
+        const query = searchInput.value.trim();
+        if (query.length < 2) {
+            datalist.innerHTML = '';
+            return;
+        }
+        debounceTimer = setTimeout(() => {
+            // Solo importa la respuesta a lo último que se ha escrito
+            if (pendingRequest) {
+                pendingRequest.abort();
+            }
+            pendingRequest = new AbortController();
+            fetch(`/api/search/suggest?q=${encodeURIComponent(query)}&limit=8`, { signal: pendingRequest.signal })
+                .then(response => response.ok ? response.json() : [])
+                .then(suggestions => {
+                    datalist.innerHTML = '';
+                    suggestions.forEach(suggestion => {
+                        const option = document.createElement('option');
+                        option.value = suggestion.text;
+                        if (suggestion.type === 'title' && suggestion.authors) {
+                            option.label = suggestion.authors;
+                        }
+                        datalist.appendChild(option);
+                    });
+                })
+                .catch(() => {
+                    // Sin sugerencias la búsqueda normal sigue funcionando
+                });
+        }, 120);
+    });
+}
+
 /**
  * Busca libros por término de búsqueda
  * @param {string} query - Término de búsqueda
@@ -374,7 +423,7 @@ function searchBooks(query) {
     //toggleElement(searchResultsContainer, false);
     
     // Realizar búsqueda
-    fetch(`https://openlibrary.org/search.json?q=${encodeURIComponent(query)}&limit=20`)
+    fetch(`/api/books/search.json?q=${encodeURIComponent(query)}&limit=20`)
         .then(response => {
             if (!response.ok) {
                 throw new Error(`Error ${response.status}: ${response.statusText}`);
@@ -472,7 +521,7 @@ function loadBookDetails() {
     console.log("Solicitando datos del libro con ID:", bookId);
     
     // Obtener detalles del libro
-    fetch(`https://openlibrary.org/works/${bookId}.json`)
+    fetch(`/api/books/works/${bookId}.json`)
         .then(response => {
             if (!response.ok) {
                 throw new Error(`Error ${response.status}: ${response.statusText}`);
@@ -577,7 +626,7 @@ function loadAuthors(authorRefs) {
         const authorKey = ref.author ? ref.author.key : (ref.key || '');
         if (!authorKey) return Promise.resolve({ name: 'Autor desconocido' });
         
-        return fetch(`https://openlibrary.org${authorKey}.json`)
+        return fetch(`/api/books${authorKey}.json`)
             .then(response => response.json())
             .then(author => ({ name: author.name || 'Autor desconocido' }))
             .catch(() => ({ name: 'Autor desconocido' }));
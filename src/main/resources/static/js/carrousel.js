@@ -316,22 +316,28 @@ document.addEventListener('DOMContentLoaded', function() {
         markFavoritesInContainer(container);
     }
     
-    // 3. Función para marcar favoritos
+    // 3. Función para marcar favoritos (una sola petición para todo el carrusel)
     function markFavoritesInContainer(container) {
-        fetch('/api/favorites', {
+        const cards = Array.from(container.querySelectorAll('.book-card'));
+        const bookIds = cards.map(card => card.dataset.bookId).filter(Boolean);
+        if (bookIds.length === 0) return;
+
+        fetch('/api/favorites/bulk/check', {
+            method: 'POST',
             headers: {
+                "Content-Type": "application/json",
                 "Authorization": `Bearer ${localStorage.getItem('token')}`
-            }
+            },
+            body: JSON.stringify({ bookIds })
         })
         .then(res => res.json())
         .then(data => {
-            const favorites = data.favorites || [];
-            const favoriteIds = favorites.map(fav => fav.bookId);
+            const favorites = data.favorites || {};
             
-            container.querySelectorAll('.book-card').forEach(card => {
+            cards.forEach(card => {
                 const bookId = card.dataset.bookId;
                 if (bookId) {
-                    const isFavorite = favoriteIds.includes(bookId);
+                    const isFavorite = favorites[bookId] === true;
                     const icon = card.querySelector('.favorite-icon');
                     if (icon) {
                         icon.classList.toggle('active', isFavorite);
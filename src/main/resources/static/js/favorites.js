@@ -118,7 +118,7 @@ async function loadFavorites() {
     }
     const books = await Promise.all(favoriteBookIds.map(async bookId => {
         try {
-            const res = await fetch(`https://openlibrary.org/works/${bookId}.json`);
+            const res = await fetch(`/api/books/works/${bookId}.json`);
             const book = await res.json();
             return formatBookData(book);
         } catch (e) {
@@ -11,7 +11,7 @@
 // Constantes globales
 const DEFAULT_COVER = '/images/default-book-cover.jpg';
 const OPENLIBRARY_API = {
-    SEARCH: 'https://openlibrary.org/search.json'
+    SEARCH: '/api/books/search.json'
 };
 const CACHE_TTL = 120000; // 2 minutos de caché (en ms)
 
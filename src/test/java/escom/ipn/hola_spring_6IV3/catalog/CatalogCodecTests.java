@@ -0,0 +1,79 @@
+package escom.ipn.hola_spring_6IV3.catalog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CatalogCodecTests {
+
+	@Test
+	void decodesTheWorkItEncodes() {
+		CatalogWork work = new CatalogWork("OL45804W", "Fantastic Mr Fox", List.of("Foxes", "Niños"), 1970,
+				List.of("OL34184A"), "6498519");
+
+		assertThat(CatalogCodec.decodeWork(ByteBuffer.wrap(CatalogCodec.encode(work)))).isEqualTo(work);
+	}
+
+	@Test
+	void keepsNullsAndEmptyLists() {
+		CatalogWork work = new CatalogWork("OL1W", null, List.of(), null, null, null);
+
+		CatalogWork decoded = CatalogCodec.decodeWork(ByteBuffer.wrap(CatalogCodec.encode(work)));
+
+		assertThat(decoded.title()).isNull();
+		assertThat(decoded.firstPublishYear()).isNull();
+		assertThat(decoded.coverId()).isNull();
+		assertThat(decoded.subjects()).isEmpty();
+		assertThat(decoded.authorKeys()).isEmpty();
+	}
+
+	@Test
+	void decodesTheAuthorItEncodes() {
+		CatalogAuthor author = new CatalogAuthor("OL34184A", "Roald Dahl", "13 September 1916", null);
+
+		assertThat(CatalogCodec.decodeAuthor(ByteBuffer.wrap(CatalogCodec.encode(author)))).isEqualTo(author);
+	}
+
+	@Test
+	void readsLittleEndianSlicesOfALargerBuffer() {
+		// El almacén entrega el payload como vista en little endian dentro del segmento
+		byte[] encoded = CatalogCodec.encode(new CatalogAuthor("OL1A", "Ana", null, null));
+		ByteBuffer segment = ByteBuffer.allocateDirect(encoded.length + 10).order(ByteOrder.LITTLE_ENDIAN);
+		segment.position(5);
+		segment.put(encoded);
+		ByteBuffer payload = segment.slice(5, encoded.length).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+
+		assertThat(CatalogCodec.decodeAuthor(payload)).isEqualTo(new CatalogAuthor("OL1A", "Ana", null, null));
+		assertThat(payload.position()).isZero();
+	}
+
+	@Test
+	void capsListsAtTheirMaximumSize() {
+		List<String> subjects = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			subjects.add("s" + i);
+		}
+		CatalogWork work = new CatalogWork("OL1W", "t", subjects, 2000, List.of(), null);
+
+		assertThat(CatalogCodec.decodeWork(ByteBuffer.wrap(CatalogCodec.encode(work))).subjects())
+				.hasSize(200)
+				.startsWith("s0", "s1");
+	}
+
+	@Test
+	void rejectsUnknownVersions() {
+		byte[] encoded = CatalogCodec.encode(new CatalogAuthor("OL1A", "Ana", null, null));
+		byte[] future = Arrays.copyOf(encoded, encoded.length);
+		future[0] = 99;
+
+		assertThatThrownBy(() -> CatalogCodec.decodeAuthor(ByteBuffer.wrap(future)))
+				.isInstanceOf(IllegalStateException.class);
+	}
+}
@@ -0,0 +1,148 @@
+package escom.ipn.hola_spring_6IV3.catalog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedRecordStoreTests {
+
+	private static final int SEGMENT_SIZE = 1 << 16;
+	private static final int HEADER_SIZE = 64;
+	// Registro de "kN" → "vN": [int longitud][byte longitud de clave][2 bytes][2 bytes]
+	private static final int RECORD_SIZE = 4 + 1 + 2 + 2;
+	private static final int SEGMENT_COMMITTED = 8;
+	private static final int INDEX_NEXT_OFFSET = 32;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void readsRecordsBackAfterReopening() throws IOException {
+		writeRecords(10);
+		try (MappedRecordStore store = open()) {
+			store.put("k3", bytes("nuevo"));
+		}
+
+		try (MappedRecordStore store = open()) {
+			assertThat(store.size()).isEqualTo(10);
+			assertThat(value(store, "k0")).isEqualTo("v0");
+			assertThat(value(store, "k3")).isEqualTo("nuevo");
+			assertThat(store.get("k10")).isNull();
+		}
+	}
+
+	@Test
+	void reindexesRecordsWrittenAfterTheLastIndexedPosition() throws IOException {
+		writeRecords(10);
+		// Cierre abrupto antes de que el índice llegara a disco
+		Files.delete(directory.resolve("works.idx"));
+
+		try (MappedRecordStore store = open()) {
+			assertThat(store.size()).isEqualTo(10);
+			assertThat(value(store, "k9")).isEqualTo("v9");
+		}
+	}
+
+	@Test
+	void dropsIndexSlotsBeyondTheCommittedOffset() throws IOException {
+		writeRecords(10);
+		// La cabecera del segmento no llegó a disco con los últimos registros
+		putLong(segment(), SEGMENT_COMMITTED, HEADER_SIZE + 6L * RECORD_SIZE);
+
+		try (MappedRecordStore store = open()) {
+			assertThat(store.size()).isEqualTo(6);
+			assertThat(value(store, "k5")).isEqualTo("v5");
+			assertThat(store.get("k6")).isNull();
+			assertThat(store.contains("k9")).isFalse();
+
+			// Lo nuevo se escribe donde terminan los datos confirmados
+			store.put("k6", bytes("otra"));
+			assertThat(value(store, "k6")).isEqualTo("otra");
+			assertThat(value(store, "k5")).isEqualTo("v5");
+		}
+	}
+
+	@Test
+	void truncatesAtATornRecord() throws IOException {
+		writeRecords(10);
+		// El índice se quedó en el registro 5 y las páginas de los registros 8 y 9 nunca se escribieron
+		putLong(directory.resolve("works.idx"), INDEX_NEXT_OFFSET, HEADER_SIZE + 5L * RECORD_SIZE);
+		write(segment(), HEADER_SIZE + 8L * RECORD_SIZE, new byte[2 * RECORD_SIZE]);
+
+		try (MappedRecordStore store = open()) {
+			assertThat(store.size()).isEqualTo(8);
+			assertThat(value(store, "k7")).isEqualTo("v7");
+			assertThat(store.get("k8")).isNull();
+			assertThat(store.get("k9")).isNull();
+
+			store.put("k8", bytes("v8"));
+			assertThat(value(store, "k8")).isEqualTo("v8");
+		}
+		try (MappedRecordStore store = open()) {
+			assertThat(store.size()).isEqualTo(9);
+			assertThat(value(store, "k8")).isEqualTo("v8");
+		}
+	}
+
+	@Test
+	void growsTheIndexAndSpillsIntoNewSegments() throws IOException {
+		try (MappedRecordStore store = new MappedRecordStore(directory, "works", 4096, 64)) {
+			for (int i = 0; i < 2000; i++) {
+				store.put("key" + i, bytes("value" + i));
+			}
+		}
+
+		try (MappedRecordStore store = new MappedRecordStore(directory, "works", 4096, 64)) {
+			assertThat(store.size()).isEqualTo(2000);
+			assertThat(value(store, "key0")).isEqualTo("value0");
+			assertThat(value(store, "key1999")).isEqualTo("value1999");
+		}
+	}
+
+	private MappedRecordStore open() throws IOException {
+		return new MappedRecordStore(directory, "works", SEGMENT_SIZE, 64);
+	}
+
+	private void writeRecords(int count) throws IOException {
+		try (MappedRecordStore store = open()) {
+			for (int i = 0; i < count; i++) {
+				store.put("k" + i, bytes("v" + i));
+			}
+		}
+	}
+
+	private Path segment() {
+		return directory.resolve("works-00000.dat");
+	}
+
+	private static String value(MappedRecordStore store, String key) {
+		ByteBuffer payload = store.get(key);
+		byte[] bytes = new byte[payload.remaining()];
+		payload.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void putLong(Path file, long position, long value) throws IOException {
+		write(file, position, ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, value).array());
+	}
+
+	private static void write(Path file, long position, byte[] bytes) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(bytes), position);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package escom.ipn.hola_spring_6IV3.overlap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import escom.ipn.hola_spring_6IV3.overlap.FavoriteBitmapIndex.Overlap;
+import escom.ipn.hola_spring_6IV3.overlap.FavoriteBitmapIndex.SimilarUser;
+
+class FavoriteBitmapIndexTests {
+
+	@Test
+	void tracksFavoritesInBothDirections() {
+		FavoriteBitmapIndex index = new FavoriteBitmapIndex();
+		assertThat(index.add(1, "OL1W")).isTrue();
+		assertThat(index.add(1, "OL1W")).isFalse();
+		index.add(1, "OL2W");
+		index.add(2, "OL1W");
+		index.add(3, "OL2W");
+
+		assertThat(index.bookOverlap("OL1W", "OL2W")).isEqualTo(new Overlap(2, 2, 1, 1.0 / 3));
+		assertThat(index.userOverlap(1, 2)).isEqualTo(new Overlap(2, 1, 1, 0.5));
+		assertThat(index.bookOverlap("OL1W", "OL9W")).isEqualTo(new Overlap(2, 0, 0, 0));
+		assertThat(index.userOverlap(7, 5000)).isEqualTo(new Overlap(0, 0, 0, 0));
+
+		assertThat(index.remove(1, "OL2W")).isTrue();
+		assertThat(index.remove(1, "OL2W")).isFalse();
+		assertThat(index.remove(1, "OL9W")).isFalse();
+		assertThat(index.bookOverlap("OL1W", "OL2W").shared()).isZero();
+		assertThat(index.getStats()).containsEntry("favorites", 3L);
+	}
+
+	@Test
+	void forgetsRemovedUsers() {
+		FavoriteBitmapIndex index = new FavoriteBitmapIndex();
+		index.add(1, "OL1W");
+		index.add(1, "OL2W");
+		index.add(2, "OL1W");
+
+		index.removeUser(1);
+
+		assertThat(index.bookOverlap("OL1W", "OL2W")).isEqualTo(new Overlap(1, 0, 0, 0));
+		assertThat(index.similarUsers(2, 1, 10)).isEmpty();
+		assertThat(index.getStats()).containsEntry("favorites", 1L).containsEntry("users", 1);
+	}
+
+	@Test
+	void ranksSimilarUsersBySharedThenJaccard() {
+		FavoriteBitmapIndex index = new FavoriteBitmapIndex();
+		add(index, 1, "a", "b", "c");
+		add(index, 2, "a", "b", "c", "d", "e", "f");
+		add(index, 3, "a", "b");
+		add(index, 4, "a", "b", "x");
+		add(index, 5, "c");
+		add(index, 6, "z");
+
+		List<SimilarUser> similar = index.similarUsers(1, 2, 10);
+
+		assertThat(similar).extracting(SimilarUser::userId).containsExactly(2, 3, 4);
+		assertThat(similar.get(0).shared()).isEqualTo(3);
+		assertThat(similar.get(0).jaccard()).isCloseTo(0.5, within(1e-9));
+		assertThat(similar.get(1).jaccard()).isCloseTo(2.0 / 3, within(1e-9));
+		assertThat(index.similarUsers(1, 2, 1)).extracting(SimilarUser::userId).containsExactly(2);
+		assertThat(index.similarUsers(1, 1, 10)).extracting(SimilarUser::userId).containsExactly(2, 3, 4, 5);
+		assertThat(index.similarUsers(6, 1, 10)).isEmpty();
+		assertThat(index.similarUsers(99, 1, 10)).isEmpty();
+	}
+
+	@Test
+	void repeatedQueriesMatchABruteForceCount() {
+		Random random = new Random(5);
+		FavoriteBitmapIndex index = new FavoriteBitmapIndex();
+		List<Set<String>> favorites = new ArrayList<>();
+		// Ids por encima de la capacidad inicial para que el array de usuarios y el contador crezcan
+		int users = 3000;
+		for (int user = 0; user < users; user++) {
+			Set<String> books = new HashSet<>();
+			for (int i = random.nextInt(10); i > 0; i--) {
+				books.add("OL" + random.nextInt(100) + "W");
+			}
+			books.forEach(book -> index.add(favorites.size(), book));
+			favorites.add(books);
+		}
+
+		for (int round = 0; round < 2; round++) {
+			for (int user = 0; user < users; user += 97) {
+				int threshold = 1 + round;
+				List<Integer> expected = new ArrayList<>();
+				for (int other = 0; other < users; other++) {
+					Set<String> shared = new HashSet<>(favorites.get(user));
+					shared.retainAll(favorites.get(other));
+					if (other != user && shared.size() >= threshold) {
+						expected.add(other);
+					}
+				}
+				List<SimilarUser> similar = index.similarUsers(user, threshold, users);
+				assertThat(similar).extracting(SimilarUser::userId).as("usuario %d", user)
+						.containsExactlyInAnyOrderElementsOf(expected);
+				for (SimilarUser other : similar) {
+					Set<String> shared = new HashSet<>(favorites.get(user));
+					shared.retainAll(favorites.get(other.userId()));
+					assertThat(other.shared()).isEqualTo(shared.size());
+				}
+			}
+		}
+	}
+
+	@Test
+	void rejectsNegativeUserIds() {
+		FavoriteBitmapIndex index = new FavoriteBitmapIndex();
+
+		assertThatThrownBy(() -> index.add(-1, "OL1W")).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static void add(FavoriteBitmapIndex index, int userId, String... bookIds) {
+		for (String bookId : bookIds) {
+			index.add(userId, bookId);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package escom.ipn.hola_spring_6IV3.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import escom.ipn.hola_spring_6IV3.search.FavoriteSearchIndex.Hit;
+import escom.ipn.hola_spring_6IV3.search.FavoriteSearchIndex.Page;
+
+class FavoriteSearchIndexTests {
+
+	@Test
+	void scoresWithBm25() {
+		FavoriteSearchIndex index = new FavoriteSearchIndex();
+		index.add(1, "OL1W", "Dune", null, null);
+
+		Page page = index.search("dune", null, 0, 10);
+
+		// idf = ln(1 + 0.5 / 1.5); tf = 2 (título) y longitud igual a la media: 2 * 2.2 / (2 + 1.2)
+		assertThat(page.total()).isEqualTo(1);
+		assertThat(page.hits().get(0).score()).isCloseTo((float) (Math.log(4.0 / 3) * 4.4 / 3.2), within(1e-5f));
+	}
+
+	@Test
+	void ranksTitleMatchesAndRareTermsFirst() {
+		FavoriteSearchIndex index = new FavoriteSearchIndex();
+		index.add(1, "OL1W", "El señor de los anillos", null, "J. R. R. Tolkien");
+		index.add(1, "OL2W", "El hobbit", null, "J. R. R. Tolkien");
+		index.add(2, "OL3W", "Tolkien: una biografía", null, "Humphrey Carpenter");
+		index.add(2, "OL4W", "Los anillos de Saturno", null, "W. G. Sebald");
+
+		assertThat(bookIds(index.search("tolkien", null, 0, 10))).startsWith("OL3W").hasSize(3);
+		// "anillos" está en dos libros y "hobbit" en uno: el que tiene las dos palabras va primero
+		assertThat(bookIds(index.search("Señor ANILLOS", null, 0, 10))).containsExactly("OL1W", "OL4W");
+		assertThat(bookIds(index.search("hobbit anillos", null, 0, 10))).first().isEqualTo("OL2W");
+		assertThat(index.search("inexistente", null, 0, 10).total()).isZero();
+		assertThat(index.search("  ", null, 0, 10).total()).isZero();
+	}
+
+	@Test
+	void breaksScoreTiesByFavoritesCount() {
+		FavoriteSearchIndex index = new FavoriteSearchIndex();
+		index.add(1, "OL1W", "Emma", null, "Jane Austen");
+		index.add(1, "OL2W", "Emma", null, "Jane Austen");
+		index.add(2, "OL2W", "Emma", null, "Jane Austen");
+
+		List<Hit> hits = index.search("emma", null, 0, 10).hits();
+
+		assertThat(hits).extracting(Hit::bookId).containsExactly("OL2W", "OL1W");
+		assertThat(hits).extracting(Hit::favorites).containsExactly(2, 1);
+	}
+
+	@Test
+	void restrictsToTheUsersFavoritesFromEitherSide() {
+		FavoriteSearchIndex index = new FavoriteSearchIndex();
+		for (int i = 0; i < 50; i++) {
+			index.add(1, "OL" + i + "W", "Libro común " + i, null, null);
+		}
+		index.add(2, "OL7W", "Libro común 7", null, null);
+		index.add(2, "OL100W", "Otro raro", null, null);
+
+		// El usuario 2 tiene menos favoritos que la lista de "comun": se recorren sus favoritos
+		assertThat(bookIds(index.search("comun", 2, 0, 10))).containsExactly("OL7W");
+		// La lista de "raro" es más corta que los favoritos del usuario 1: se recorre la lista
+		assertThat(index.search("raro", 1, 0, 10).total()).isZero();
+		assertThat(bookIds(index.search("raro", 2, 0, 10))).containsExactly("OL100W");
+		assertThat(index.search("comun", 3, 0, 10).total()).isZero();
+	}
+
+	@Test
+	void forgetsBooksNobodyHasAnyMore() {
+		FavoriteSearchIndex index = new FavoriteSearchIndex();
+		index.add(1, "OL1W", "Dune", null, null);
+		index.add(2, "OL1W", "Dune", null, null);
+		index.add(2, "OL2W", "Dune Messiah", null, null);
+
+		assertThat(index.remove(1, "OL1W")).isTrue();
+		assertThat(index.remove(1, "OL1W")).isFalse();
+		assertThat(index.search("dune", null, 0, 10).total()).isEqualTo(2);
+
+		index.removeUser(2);
+		assertThat(index.search("dune", null, 0, 10).total()).isZero();
+
+		// Vuelve con el mismo id de documento
+		assertThat(index.add(3, "OL2W", "Dune Messiah", null, null)).isTrue();
+		assertThat(bookIds(index.search("messiah", null, 0, 10))).containsExactly("OL2W");
+	}
+
+	@Test
+	void pagesAreSlicesOfTheFullRanking() {
+		Random random = new Random(7);
+		String[] words = {"mar", "sol", "luna", "noche", "casa", "rio", "viento", "fuego"};
+		FavoriteSearchIndex index = new FavoriteSearchIndex();
+		for (int book = 0; book < 300; book++) {
+			String title = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+			int holders = 1 + random.nextInt(3);
+			for (int user = 0; user < holders; user++) {
+				index.add(random.nextInt(40), "OL" + book + "W", title, null, words[random.nextInt(words.length)]);
+			}
+		}
+
+		Page all = index.search("mar luna fuego", null, 0, 1000);
+		assertThat(all.hits()).hasSize(all.total());
+		for (int i = 1; i < all.hits().size(); i++) {
+			assertThat(all.hits().get(i).score()).isLessThanOrEqualTo(all.hits().get(i - 1).score());
+		}
+
+		List<String> paged = new ArrayList<>();
+		for (int offset = 0; offset < all.total(); offset += 17) {
+			Page page = index.search("mar luna fuego", null, offset, 17);
+			assertThat(page.total()).isEqualTo(all.total());
+			page.hits().forEach(hit -> paged.add(hit.bookId() + "@" + hit.score()));
+		}
+		assertThat(paged).isEqualTo(all.hits().stream().map(hit -> hit.bookId() + "@" + hit.score()).toList());
+		assertThat(index.search("mar luna fuego", null, all.total(), 10).hits()).isEmpty();
+	}
+
+	private static List<String> bookIds(Page page) {
+		return page.hits().stream().map(Hit::bookId).toList();
+	}
+}
@@ -0,0 +1,139 @@
+package escom.ipn.hola_spring_6IV3.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import escom.ipn.hola_spring_6IV3.search.SuggestionEntry.Kind;
+
+class PrefixIndexTests {
+
+	@Test
+	void matchesThePrefixOfAnyWordRankedByScore() {
+		PrefixIndex index = PrefixIndex.build(List.of(
+				title("Harry Potter y la piedra filosofal", 10),
+				title("El señor de los anillos", 30),
+				title("Harold y el lápiz morado", 20),
+				author("Patricia Highsmith", 5)), 10, 100);
+
+		assertThat(texts(index.suggest("ha", 10)))
+				.containsExactly("Harold y el lápiz morado", "Harry Potter y la piedra filosofal");
+		assertThat(texts(index.suggest("pot", 10))).containsExactly("Harry Potter y la piedra filosofal");
+		assertThat(texts(index.suggest("senor", 10))).containsExactly("El señor de los anillos");
+		assertThat(texts(index.suggest("high", 10))).containsExactly("Patricia Highsmith");
+		assertThat(index.suggest("zz", 10)).isEmpty();
+		assertThat(index.suggest("", 10)).isEmpty();
+	}
+
+	@Test
+	void breaksScoreTiesByShorterTextAndLimitsResults() {
+		PrefixIndex index = PrefixIndex.build(List.of(
+				title("Dune Messiah", 1),
+				title("Dune", 1),
+				title("Dune: Children", 1)), 2, 100);
+
+		assertThat(texts(index.suggest("dune", 10))).containsExactly("Dune", "Dune Messiah");
+		assertThat(texts(index.suggest("dune", 1))).containsExactly("Dune");
+	}
+
+	@Test
+	void dropsRepeatedTextsOfTheSameKind() {
+		PrefixIndex index = PrefixIndex.build(List.of(
+				title("Emma", 3),
+				title("EMMA", 2),
+				author("Emma", 1),
+				title("   ", 50)), 10, 100);
+
+		assertThat(index.size()).isEqualTo(3);
+		List<SuggestionEntry> suggestions = index.suggest("emma", 10);
+		assertThat(suggestions).extracting(SuggestionEntry::kind).containsExactly(Kind.TITLE, Kind.AUTHOR);
+		assertThat(suggestions.get(0).score()).isEqualTo(3);
+	}
+
+	@Test
+	void precomputedAndScannedPrefixesAgreeWithABruteForceSearch() {
+		Random random = new Random(42);
+		String[] words = {"a", "an", "ana", "anna", "b", "ba", "bar", "barca", "c", "casa", "caso", "cosa", "z"};
+		List<SuggestionEntry> source = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			StringBuilder text = new StringBuilder();
+			int count = 1 + random.nextInt(4);
+			for (int w = 0; w < count; w++) {
+				text.append(w == 0 ? "" : " ").append(words[random.nextInt(words.length)]);
+			}
+			source.add(new SuggestionEntry(text.toString(), random.nextBoolean() ? Kind.TITLE : Kind.AUTHOR,
+					null, null, null, random.nextInt(20)));
+		}
+		PrefixIndex precomputed = PrefixIndex.build(source, 5, 2);
+		PrefixIndex scanned = PrefixIndex.build(source, 5, Integer.MAX_VALUE);
+		assertThat(precomputed.precomputedPrefixes()).isPositive();
+		assertThat(scanned.precomputedPrefixes()).isZero();
+
+		Set<String> prefixes = new HashSet<>();
+		for (String word : words) {
+			for (int length = 1; length <= word.length(); length++) {
+				prefixes.add(word.substring(0, length));
+			}
+		}
+		prefixes.add("ana a");
+		prefixes.add("casa c");
+		for (String prefix : prefixes) {
+			List<String> expected = bruteForce(source, prefix, 5);
+			assertThat(keys(precomputed.suggest(prefix, 5))).as(prefix).isEqualTo(expected);
+			assertThat(keys(scanned.suggest(prefix, 5))).as(prefix).isEqualTo(expected);
+		}
+	}
+
+	// Ranking del índice sobre todas las entradas con alguna palabra que empieza por el prefijo
+	private static List<String> bruteForce(List<SuggestionEntry> source, String prefix, int limit) {
+		List<SuggestionEntry> matches = new ArrayList<>();
+		for (SuggestionEntry entry : source) {
+			String text = TextNormalizer.normalize(entry.text());
+			for (int start : TextNormalizer.wordStarts(text, 8)) {
+				if (text.startsWith(prefix, start)) {
+					matches.add(entry);
+					break;
+				}
+			}
+		}
+		matches.sort(Comparator.<SuggestionEntry>comparingLong(entry -> -entry.score())
+				.thenComparingInt(entry -> TextNormalizer.normalize(entry.text()).length())
+				.thenComparing(entry -> TextNormalizer.normalize(entry.text())));
+		Set<String> keys = new LinkedHashSet<>();
+		for (SuggestionEntry entry : matches) {
+			if (keys.size() == limit) {
+				break;
+			}
+			keys.add(key(entry));
+		}
+		return new ArrayList<>(keys);
+	}
+
+	private static List<String> keys(List<SuggestionEntry> suggestions) {
+		return suggestions.stream().map(PrefixIndexTests::key).toList();
+	}
+
+	private static String key(SuggestionEntry entry) {
+		return entry.kind() + ":" + TextNormalizer.normalize(entry.text());
+	}
+
+	private static List<String> texts(List<SuggestionEntry> suggestions) {
+		return suggestions.stream().map(SuggestionEntry::text).toList();
+	}
+
+	private static SuggestionEntry title(String text, long score) {
+		return new SuggestionEntry(text, Kind.TITLE, "OL" + text.hashCode() + "W", null, null, score);
+	}
+
+	private static SuggestionEntry author(String text, long score) {
+		return new SuggestionEntry(text, Kind.AUTHOR, null, null, null, score);
+	}
+}
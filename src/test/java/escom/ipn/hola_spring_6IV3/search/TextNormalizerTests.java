@@ -0,0 +1,30 @@
+package escom.ipn.hola_spring_6IV3.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class TextNormalizerTests {
+
+	@Test
+	void lowercasesStripsAccentsAndCollapsesSeparators() {
+		assertThat(TextNormalizer.normalize("  El Túnel: Novela ")).isEqualTo("el tunel novela");
+		assertThat(TextNormalizer.normalize("GARCÍA MÁRQUEZ, Gabriel")).isEqualTo("garcia marquez gabriel");
+		assertThat(TextNormalizer.normalize("Ñandú--Über")).isEqualTo("nandu uber");
+	}
+
+	@Test
+	void keepsDigitsAndDropsPunctuationOnlyText() {
+		assertThat(TextNormalizer.normalize("1984 (2 ed.)")).isEqualTo("1984 2 ed");
+		assertThat(TextNormalizer.normalize("¿?¡!")).isEmpty();
+		assertThat(TextNormalizer.normalize(null)).isEmpty();
+		assertThat(TextNormalizer.normalize("")).isEmpty();
+	}
+
+	@Test
+	void findsWordStartsUpToTheLimit() {
+		assertThat(TextNormalizer.wordStarts("harry potter y la piedra", 8)).containsExactly(0, 6, 13, 15, 18);
+		assertThat(TextNormalizer.wordStarts("harry potter y la piedra", 2)).containsExactly(0, 6);
+		assertThat(TextNormalizer.wordStarts("", 8)).isEmpty();
+	}
+}
@@ -0,0 +1,160 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import escom.ipn.hola_spring_6IV3.service.BookNeighborService.Matrix;
+import escom.ipn.hola_spring_6IV3.service.BookNeighborService.RowCounter;
+
+class BookNeighborSelectionTests {
+
+	@Test
+	void ranksNeighborsByCosineSimilarity() {
+		// Libro 0: usuarios 0, 1 y 2. Libro 1: 0 y 1. Libro 2: el 2 y otros tres usuarios
+		Matrix matrix = matrix(6, new int[][] {{0, 1, 2}, {0, 1}, {2, 3, 4, 5}});
+
+		Neighbors top = select(matrix, 0, 10, 1);
+
+		// 2 / sqrt(3 * 2) frente a 1 / sqrt(3 * 4)
+		assertThat(top.books()).containsExactly(1, 2);
+		assertThat(top.coCounts()).containsExactly(2, 1);
+		assertThat(top.scores()[0]).isEqualTo((float) (2 / Math.sqrt(6)));
+		assertThat(top.scores()[1]).isEqualTo((float) (1 / Math.sqrt(12)));
+	}
+
+	@Test
+	void keepsOnlyTopKAndDropsRareCoOccurrences() {
+		// Los libros 1..4 comparten 4, 3, 2 y 1 usuarios con el libro 0
+		Matrix matrix = matrix(4, new int[][] {{0, 1, 2, 3}, {0, 1, 2, 3}, {0, 1, 2}, {0, 1}, {0}});
+
+		assertThat(select(matrix, 0, 2, 1).books()).containsExactly(1, 2);
+		assertThat(select(matrix, 0, 10, 2).books()).containsExactly(1, 2, 3);
+		assertThat(select(matrix, 0, 10, 5).books()).isEmpty();
+	}
+
+	@Test
+	void breaksTiesByCoFavoritesAndThenBookNumber() {
+		// Los tres tienen similitud 0.5 con el libro 0: 1 / sqrt(4 * 1) y 2 / sqrt(4 * 4)
+		Matrix matrix = matrix(6, new int[][] {{0, 1, 2, 3}, {0}, {0, 1, 4, 5}, {0}});
+
+		Neighbors top = select(matrix, 0, 10, 1);
+
+		assertThat(top.books()).containsExactly(2, 1, 3);
+		assertThat(top.scores()).containsExactly(0.5f, 0.5f, 0.5f);
+	}
+
+	@Test
+	void matchesABruteForceRankingAndLeavesTheCounterClean() {
+		Random random = new Random(11);
+		int books = 60;
+		int[][] userBooks = new int[200][];
+		for (int u = 0; u < userBooks.length; u++) {
+			userBooks[u] = random.ints(0, books).distinct().limit(1 + random.nextInt(8)).toArray();
+		}
+		Matrix matrix = matrix(userBooks.length, transpose(userBooks, books));
+		RowCounter counter = new RowCounter(books, 5, 2);
+
+		// El mismo contador para todas las filas, dos veces: las posiciones tocadas vuelven a cero
+		for (int round = 0; round < 2; round++) {
+			for (int book = 0; book < books; book++) {
+				assertThat(select(counter, matrix, book, 5).books()).as("libro %d", book)
+						.containsExactly(bruteForce(userBooks, books, book, 5, 2));
+			}
+		}
+	}
+
+	private static Neighbors select(Matrix matrix, int book, int topK, int minCoFavorites) {
+		return select(new RowCounter(matrix.books(), topK, minCoFavorites), matrix, book, topK);
+	}
+
+	private static Neighbors select(RowCounter counter, Matrix matrix, int book, int topK) {
+		int[] neighbors = new int[matrix.books() * topK];
+		int[] coCounts = new int[matrix.books() * topK];
+		float[] scores = new float[matrix.books() * topK];
+		int[] neighborCount = new int[matrix.books()];
+		counter.countRow(matrix, book);
+		counter.selectTop(matrix, book, neighbors, coCounts, scores, neighborCount);
+		int from = book * topK;
+		int to = from + neighborCount[book];
+		return new Neighbors(Arrays.copyOfRange(neighbors, from, to), Arrays.copyOfRange(coCounts, from, to),
+				Arrays.copyOfRange(scores, from, to));
+	}
+
+	// Mismo orden que el servicio, calculado par a par
+	private static int[] bruteForce(int[][] userBooks, int books, int book, int topK, int minCoFavorites) {
+		int[] degree = new int[books];
+		int[] co = new int[books];
+		for (int[] favorites : userBooks) {
+			boolean hasBook = Arrays.stream(favorites).anyMatch(b -> b == book);
+			for (int b : favorites) {
+				degree[b]++;
+				if (hasBook && b != book) {
+					co[b]++;
+				}
+			}
+		}
+		List<Integer> candidates = new ArrayList<>();
+		for (int b = 0; b < books; b++) {
+			if (b != book && co[b] >= minCoFavorites) {
+				candidates.add(b);
+			}
+		}
+		float[] score = new float[books];
+		for (int b : candidates) {
+			score[b] = (float) (co[b] / Math.sqrt((double) degree[book] * degree[b]));
+		}
+		candidates.sort(Comparator.<Integer>comparingDouble(b -> -score[b])
+				.thenComparingInt(b -> -co[b])
+				.thenComparingInt(b -> b));
+		return candidates.stream().limit(topK).mapToInt(Integer::intValue).toArray();
+	}
+
+	private static int[][] transpose(int[][] userBooks, int books) {
+		List<List<Integer>> users = new ArrayList<>();
+		for (int b = 0; b < books; b++) {
+			users.add(new ArrayList<>());
+		}
+		for (int u = 0; u < userBooks.length; u++) {
+			for (int b : userBooks[u]) {
+				users.get(b).add(u);
+			}
+		}
+		return users.stream().map(list -> list.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+	}
+
+	// Matriz CSR en las dos direcciones a partir de los usuarios de cada libro
+	private static Matrix matrix(int users, int[][] bookUsers) {
+		int books = bookUsers.length;
+		List<List<Integer>> byUser = new ArrayList<>();
+		for (int u = 0; u < users; u++) {
+			byUser.add(new ArrayList<>());
+		}
+		int[] bookUserStart = new int[books + 1];
+		List<Integer> flatBookUsers = new ArrayList<>();
+		for (int b = 0; b < books; b++) {
+			for (int u : bookUsers[b]) {
+				byUser.get(u).add(b);
+				flatBookUsers.add(u);
+			}
+			bookUserStart[b + 1] = flatBookUsers.size();
+		}
+		int[] userStart = new int[users + 1];
+		List<Integer> items = new ArrayList<>();
+		for (int u = 0; u < users; u++) {
+			items.addAll(byUser.get(u));
+			userStart[u + 1] = items.size();
+		}
+		return new Matrix(items.stream().mapToInt(Integer::intValue).toArray(), userStart,
+				flatBookUsers.stream().mapToInt(Integer::intValue).toArray(), bookUserStart, books, null);
+	}
+
+	private record Neighbors(int[] books, int[] coCounts, float[] scores) {
+	}
+}
@@ -0,0 +1,65 @@
+package escom.ipn.hola_spring_6IV3.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+import escom.ipn.hola_spring_6IV3.model.Favorite;
+
+class FavoriteCursorTests {
+
+	@Test
+	void decodesThePositionItEncodes() {
+		LocalDateTime addedDate = LocalDateTime.of(2024, 3, 15, 10, 30, 5, 123_456_000);
+		String[] position = FavoriteService.decodeCursor(FavoriteService.encodeCursor(favorite(addedDate, 42L)));
+
+		assertThat(LocalDateTime.parse(position[0])).isEqualTo(addedDate);
+		assertThat(Long.parseLong(position[1])).isEqualTo(42L);
+	}
+
+	@Test
+	void keepsDatesWithoutSecondsExact() {
+		// LocalDateTime.toString omite los segundos a cero
+		LocalDateTime addedDate = LocalDateTime.of(2024, 1, 1, 0, 0);
+		String[] position = FavoriteService.decodeCursor(FavoriteService.encodeCursor(favorite(addedDate, 7L)));
+
+		assertThat(LocalDateTime.parse(position[0])).isEqualTo(addedDate);
+	}
+
+	@Test
+	void encodesUrlSafeWithoutPadding() {
+		String cursor = FavoriteService.encodeCursor(favorite(LocalDateTime.of(2024, 3, 15, 10, 30, 5), 1L));
+
+		assertThat(cursor).doesNotContain("=", "+", "/");
+	}
+
+	@Test
+	void rejectsMalformedCursors() {
+		assertThatThrownBy(() -> FavoriteService.decodeCursor("not base64!"))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> FavoriteService.decodeCursor(encode("2024-03-15T10:30")))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> FavoriteService.decodeCursor(encode("yesterday|1")))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> FavoriteService.decodeCursor(encode("2024-03-15T10:30|abc")))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> FavoriteService.decodeCursor(encode("2024-03-15T10:30|1|2")))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static Favorite favorite(LocalDateTime addedDate, Long id) {
+		Favorite favorite = new Favorite();
+		favorite.setId(id);
+		favorite.setAddedDate(addedDate);
+		return favorite;
+	}
+
+	private static String encode(String position) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,96 @@
+package escom.ipn.hola_spring_6IV3.trending;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SlidingCountMinSketchTests {
+
+	private static final long SLICE = 60_000;
+	private static final int SLICES = 4;
+	// Inicio de una franja
+	private static final long T0 = 1_000 * SLICE;
+
+	@Test
+	void sumsEventsAcrossTheSlicesOfTheWindow() {
+		SlidingCountMinSketch sketch = new SlidingCountMinSketch(SLICE, SLICES, 1024, 4);
+
+		assertThat(sketch.add("OL1W", T0, 1, T0)).isTrue();
+		assertThat(sketch.add("OL1W", T0 + SLICE, 2, T0 + SLICE)).isTrue();
+		assertThat(sketch.add("OL2W", T0 + SLICE, 1, T0 + SLICE)).isTrue();
+
+		assertThat(sketch.estimate("OL1W", T0 + SLICE)).isEqualTo(3);
+		assertThat(sketch.estimate("OL2W", T0 + SLICE)).isEqualTo(1);
+		assertThat(sketch.estimate("OL3W", T0 + SLICE)).isZero();
+	}
+
+	@Test
+	void forgetsSlicesThatLeaveTheWindow() {
+		SlidingCountMinSketch sketch = new SlidingCountMinSketch(SLICE, SLICES, 1024, 4);
+		sketch.add("OL1W", T0, 5, T0);
+		sketch.add("OL1W", T0 + SLICE, 1, T0 + SLICE);
+
+		assertThat(sketch.estimate("OL1W", T0 + (SLICES - 1) * SLICE)).isEqualTo(6);
+		assertThat(sketch.estimate("OL1W", T0 + SLICES * SLICE)).isEqualTo(1);
+		assertThat(sketch.estimate("OL1W", T0 + (SLICES + 1) * SLICE)).isZero();
+	}
+
+	@Test
+	void reusesTheSlotOfTheOldestSlice() {
+		SlidingCountMinSketch sketch = new SlidingCountMinSketch(SLICE, SLICES, 1024, 4);
+		sketch.add("OL1W", T0, 5, T0);
+
+		// La misma casilla del anillo, una vuelta después: empieza a cero
+		long later = T0 + SLICES * SLICE;
+		sketch.add("OL1W", later, 1, later);
+
+		assertThat(sketch.estimate("OL1W", later)).isEqualTo(1);
+		// Un evento atrasado de la franja sustituida ya no tiene sitio
+		assertThat(sketch.add("OL1W", T0, 1, later)).isFalse();
+	}
+
+	@Test
+	void placesEventsByTheirOwnTime() {
+		SlidingCountMinSketch sketch = new SlidingCountMinSketch(SLICE, SLICES, 1024, 4);
+		long now = T0 + 2 * SLICE;
+
+		assertThat(sketch.add("OL1W", T0, 1, now)).isTrue();
+		assertThat(sketch.add("OL1W", now - SLICES * SLICE, 1, now)).isFalse();
+		// Un reloj adelantado cuenta en la franja actual
+		assertThat(sketch.add("OL1W", now + 10 * SLICE, 1, now)).isTrue();
+
+		assertThat(sketch.estimate("OL1W", now)).isEqualTo(2);
+		// El evento de T0 sale de la ventana antes que el de la franja actual
+		assertThat(sketch.estimate("OL1W", T0 + SLICES * SLICE)).isEqualTo(1);
+	}
+
+	@Test
+	void subtractsRemovalsWithoutGoingNegative() {
+		SlidingCountMinSketch sketch = new SlidingCountMinSketch(SLICE, SLICES, 1024, 4);
+		sketch.add("OL1W", T0, 3, T0);
+		sketch.add("OL1W", T0, -1, T0);
+
+		assertThat(sketch.estimate("OL1W", T0)).isEqualTo(2);
+
+		sketch.add("OL2W", T0, -1, T0);
+		assertThat(sketch.estimate("OL2W", T0)).isZero();
+	}
+
+	@Test
+	void neverUnderestimatesWithCollisions() {
+		SlidingCountMinSketch sketch = new SlidingCountMinSketch(SLICE, SLICES, 64, 3);
+		Random random = new Random(3);
+		Map<String, Long> counts = new HashMap<>();
+		for (int i = 0; i < 5_000; i++) {
+			String key = "OL" + random.nextInt(500) + "W";
+			sketch.add(key, T0, 1, T0);
+			counts.merge(key, 1L, Long::sum);
+		}
+
+		counts.forEach((key, count) -> assertThat(sketch.estimate(key, T0)).as(key).isGreaterThanOrEqualTo(count));
+	}
+}
@@ -0,0 +1,89 @@
+package escom.ipn.hola_spring_6IV3.trending;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import escom.ipn.hola_spring_6IV3.trending.TrendingWindow.Entry;
+
+class TrendingWindowTests {
+
+	private static final long SLICE = TrendingPeriod.HOUR.slice().toMillis();
+	private static final long T0 = 1_000 * SLICE;
+
+	@Test
+	void publishesTheTopBooksByCountThenId() {
+		TrendingWindow window = new TrendingWindow(TrendingPeriod.HOUR, 3, 10, 1024, 4);
+		record(window, "OL1W", 1);
+		record(window, "OL2W", 3);
+		record(window, "OL3W", 2);
+		record(window, "OL4W", 2);
+
+		assertThat(window.publish(T0)).containsExactly(
+				new Entry("OL2W", 3), new Entry("OL3W", 2), new Entry("OL4W", 2));
+	}
+
+	@Test
+	void publishesOnlyWhenSomethingChanged() {
+		TrendingWindow window = new TrendingWindow(TrendingPeriod.HOUR, 3, 10, 1024, 4);
+		record(window, "OL1W", 1);
+
+		assertThat(window.publish(T0)).hasSize(1);
+		assertThat(window.publish(T0 + 1_000)).isNull();
+
+		// Una franja nueva puede sacar eventos de la ventana aunque no haya llegado ninguno
+		assertThat(window.publish(T0 + SLICE)).containsExactly(new Entry("OL1W", 1));
+		assertThat(window.publish(T0 + TrendingPeriod.HOUR.length().toMillis())).isEmpty();
+	}
+
+	@Test
+	void dropsBooksWhoseFavoritesWereRemoved() {
+		TrendingWindow window = new TrendingWindow(TrendingPeriod.HOUR, 3, 10, 1024, 4);
+		record(window, "OL1W", 2);
+		record(window, "OL2W", 1);
+		window.publish(T0);
+
+		window.record("OL1W", T0, -2, T0 + 1_000);
+
+		assertThat(window.publish(T0 + 1_000)).containsExactly(new Entry("OL2W", 1));
+		assertThat(window.isCandidate("OL1W")).isFalse();
+	}
+
+	@Test
+	void keepsTheBestCandidatesBetweenPublications() {
+		TrendingWindow window = new TrendingWindow(TrendingPeriod.HOUR, 2, 3, 1024, 4);
+		for (int book = 1; book <= 6; book++) {
+			record(window, "OL" + book + "W", book);
+		}
+
+		List<Entry> top = window.publish(T0);
+
+		assertThat(top).extracting(Entry::bookId).containsExactly("OL6W", "OL5W");
+		assertThat(window.candidateCount()).isEqualTo(3);
+		assertThat(window.isCandidate("OL4W")).isTrue();
+		assertThat(window.isCandidate("OL3W")).isFalse();
+
+		// Un libro que no era candidato vuelve a serlo con su cuenta completa del sketch
+		record(window, "OL3W", 4);
+		assertThat(window.publish(T0)).containsExactly(new Entry("OL3W", 7), new Entry("OL6W", 6));
+	}
+
+	@Test
+	void ignoresEventsOlderThanTheWindow() {
+		TrendingWindow window = new TrendingWindow(TrendingPeriod.HOUR, 3, 10, 1024, 4);
+		long now = T0 + TrendingPeriod.HOUR.length().toMillis();
+
+		window.record("OL1W", T0, 1, now);
+
+		assertThat(window.isCandidate("OL1W")).isFalse();
+		assertThat(window.publish(now)).isEmpty();
+	}
+
+	private static void record(TrendingWindow window, String bookId, int times) {
+		for (int i = 0; i < times; i++) {
+			window.record(bookId, T0, 1, T0);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package escom.ipn.hola_spring_6IV3.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CsvReaderTests {
+
+	@Test
+	void splitsPlainFields() throws IOException {
+		assertThat(readAll("a,b,c\n1,2,3\n", ',')).containsExactly(List.of("a", "b", "c"), List.of("1", "2", "3"));
+	}
+
+	@Test
+	void keepsSeparatorsAndDoubledQuotesInsideQuotes() throws IOException {
+		assertThat(readAll("\"Smith, John\",\"He said \"\"hi\"\"\",x\n", ','))
+				.containsExactly(List.of("Smith, John", "He said \"hi\"", "x"));
+	}
+
+	@Test
+	void readsQuotedLineBreaksAsPartOfTheField() throws IOException {
+		CsvReader reader = new CsvReader(new StringReader("id,review\n1,\"line one\nline two\"\n2,short\n"), ',');
+
+		assertThat(reader.next()).containsExactly("id", "review");
+		assertThat(reader.next()).containsExactly("1", "line one\nline two");
+		assertThat(reader.getRecordLine()).isEqualTo(2);
+		assertThat(reader.next()).containsExactly("2", "short");
+		// El registro anterior ocupaba dos líneas
+		assertThat(reader.getRecordLine()).isEqualTo(4);
+		assertThat(reader.next()).isNull();
+	}
+
+	@Test
+	void acceptsCrLfAndLoneCrLineEndings() throws IOException {
+		assertThat(readAll("a,b\r\nc,d\re,f", ','))
+				.containsExactly(List.of("a", "b"), List.of("c", "d"), List.of("e", "f"));
+	}
+
+	@Test
+	void skipsBlankLinesAndKeepsEmptyFields() throws IOException {
+		CsvReader reader = new CsvReader(new StringReader("\n\na,,\"\"\n\n"), ',');
+
+		assertThat(reader.next()).containsExactly("a", "", "");
+		assertThat(reader.getRecordLine()).isEqualTo(3);
+		assertThat(reader.next()).isNull();
+	}
+
+	@Test
+	void usesTheGivenSeparator() throws IOException {
+		assertThat(readAll("a\tb,c\n", '\t')).containsExactly(List.of("a", "b,c"));
+	}
+
+	@Test
+	void readsRecordsSpanningTheBufferBoundary() throws IOException {
+		String longField = "x".repeat(10_000);
+		assertThat(readAll("\"" + longField + "\",y\n", ',')).containsExactly(List.of(longField, "y"));
+	}
+
+	@Test
+	void rejectsUnclosedQuotes() {
+		CsvReader reader = new CsvReader(new StringReader("a\n\"open,b\n"), ',');
+
+		assertThatThrownBy(() -> {
+			reader.next();
+			reader.next();
+		}).isInstanceOf(IOException.class).hasMessageContaining("línea 2");
+	}
+
+	private static List<List<String>> readAll(String csv, char separator) throws IOException {
+		CsvReader reader = new CsvReader(new StringReader(csv), separator);
+		List<List<String>> records = new ArrayList<>();
+		for (List<String> record = reader.next(); record != null; record = reader.next()) {
+			records.add(record);
+		}
+		return records;
+	}
+}
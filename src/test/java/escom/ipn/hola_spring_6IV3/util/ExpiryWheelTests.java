@@ -0,0 +1,78 @@
+package escom.ipn.hola_spring_6IV3.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ExpiryWheelTests {
+
+	private static final long TICK = 1_000;
+
+	private ExpiryWheel<String> wheel;
+	// Inicio de un tick posterior al actual de la rueda
+	private long base;
+	private final List<String> expired = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		wheel = new ExpiryWheel<>(TICK, 8);
+		base = (System.currentTimeMillis() / TICK + 2) * TICK;
+	}
+
+	@Test
+	void expiresKeysOnlyOnceTheirDeadlinePasses() {
+		wheel.schedule("a", base + 100);
+		wheel.schedule("b", base + 3 * TICK);
+
+		assertThat(advance(base + 50)).isZero();
+		assertThat(advance(base + 100)).isEqualTo(1);
+		assertThat(expired).containsExactly("a");
+
+		assertThat(advance(base + 3 * TICK)).isEqualTo(1);
+		assertThat(expired).containsExactly("a", "b");
+	}
+
+	@Test
+	void expiresKeyWhoseTickWasAlreadyScannedBeforeItsDeadline() {
+		wheel.schedule("a", base + 500);
+
+		assertThat(advance(base + 100)).isZero();
+		assertThat(advance(base + TICK)).isEqualTo(1);
+		assertThat(expired).containsExactly("a");
+	}
+
+	@Test
+	void keepsDeadlinesBeyondOneTurnUntilTheirTurn() {
+		// 8 casillas: la misma casilla que base, una vuelta más tarde
+		wheel.schedule("later", base + 8 * TICK);
+
+		assertThat(advance(base + TICK)).isZero();
+		assertThat(advance(base + 8 * TICK)).isEqualTo(1);
+		assertThat(expired).containsExactly("later");
+	}
+
+	@Test
+	void schedulesPastDeadlinesForTheNextAdvance() {
+		wheel.schedule("past", base - 10 * TICK);
+
+		assertThat(advance(base)).isEqualTo(1);
+		assertThat(expired).containsExactly("past");
+	}
+
+	@Test
+	void scansEveryKeyAfterAJumpLongerThanTheWheel() {
+		for (int i = 0; i < 20; i++) {
+			wheel.schedule("k" + i, base + i * TICK);
+		}
+
+		assertThat(advance(base + 100 * TICK)).isEqualTo(20);
+	}
+
+	private int advance(long now) {
+		return wheel.advance(now, (key, deadline) -> expired.add(key));
+	}
+}